@@ -0,0 +1,77 @@
+package depot.benchmarks;
+
+import depot.CollectionProcessor;
+import depot.PackageCollection;
+import depot.Parcel;
+import depot.Tariff;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CollectionProcessor.computeCollectionCharge for every parcel in the depot, the
+ * shape of an end-of-day expected revenue quote: the default tariff, a banded
+ * volumetric tariff, and the three-constant formula the tariff replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChargeBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private Parcel[] parcels;
+    private CollectionProcessor processor;
+    private Tariff volumetricTariff;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        PackageCollection packages = new PackageCollection();
+        SyntheticDepotData.fill(packages, null, rows);
+        parcels = packages.getAllPackages().toArray(new Parcel[0]);
+        processor = new CollectionProcessor(Tariff.defaults());
+        Properties rules = new Properties();
+        rules.setProperty("volumetric.divisor", "5000");
+        rules.setProperty("weight.bands", "0:0.00:0.75, 10:2.00:0.60, 30:5.00:0.50");
+        rules.setProperty("duration.tiers", "0:0.00:1.25, 14:5.00:2.00");
+        rules.setProperty("surcharge.oversize.side", "50");
+        rules.setProperty("surcharge.oversize.amount", "4.50");
+        rules.setProperty("cap", "250.00");
+        volumetricTariff = Tariff.fromProperties(rules);
+    }
+
+    // The three-constant formula CollectionProcessor used before tariffs
+    @Benchmark
+    public double quoteAllParcelsConstantFormula() {
+        double total = 0;
+        for (Parcel parcel : parcels) {
+            float charge = 12.50f;
+            charge += parcel.getMassKg() * 0.75f;
+            charge += parcel.getStorageDuration() * 1.25f;
+            total += charge;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double quoteAllParcelsVolumetricTariff() {
+        double total = 0;
+        for (Parcel parcel : parcels) {
+            total += volumetricTariff.quote(parcel);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double quoteAllParcels() {
+        double total = 0;
+        for (Parcel parcel : parcels) {
+            total += processor.computeCollectionCharge(parcel);
+        }
+        return total;
+    }
+}
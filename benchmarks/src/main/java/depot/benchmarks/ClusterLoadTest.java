@@ -0,0 +1,135 @@
+package depot.benchmarks;
+
+import depot.DepotCluster;
+import depot.DepotSystem;
+import depot.PackageCollection;
+import depot.Parcel;
+import depot.QueueOfCustomers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Aggregate lookup throughput of a local cluster at 1, 2, 4, ... node processes. Each
+ * round starts the nodes in a scratch directory, seeds the synthetic depot through the
+ * router, and runs closed-loop client threads doing getPackageByID for random IDs; the
+ * first fifth of each round warms up and is not counted. Then one more node joins, and
+ * the time to rebalance and the parcels moved are reported and spot-checked.
+ *
+ * Node processes only scale while the machine has cores to spare for them.
+ *
+ * Usage: java -cp benchmarks.jar depot.benchmarks.ClusterLoadTest [max-nodes] [seconds] [rows] [clients]
+ */
+public class ClusterLoadTest {
+    private static final int FIRST_PORT = 7201;
+
+    public static void main(String[] args) throws Exception {
+        int maxNodes = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int rows = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+        int clients = args.length > 3 ? Integer.parseInt(args[3]) : 32;
+
+        PackageCollection packages = new PackageCollection();
+        QueueOfCustomers recipients = new QueueOfCustomers();
+        SyntheticDepotData.fill(packages, recipients, rows);
+        List<DepotSystem.Handoff> handoffs = new ArrayList<>(rows);
+        for (Parcel parcel : packages.getAllPackages()) {
+            handoffs.add(new DepotSystem.Handoff(parcel, recipients.findRecipientByPackageID(parcel.getPackageID())));
+        }
+
+        System.out.printf("%d rows, %d client threads, %d s per round%n", rows, clients, seconds);
+        for (int nodes = 1; nodes <= maxNodes; nodes *= 2) {
+            round(nodes, seconds, rows, clients, handoffs);
+        }
+        System.exit(0);
+    }
+
+    private static void round(int nodes, int seconds, int rows, int clients, List<DepotSystem.Handoff> handoffs)
+            throws Exception {
+        Path base = Files.createTempDirectory("depot-cluster");
+        List<Process> processes = new ArrayList<>();
+        List<String> members = new ArrayList<>();
+        try {
+            for (int i = 0; i <= nodes; i++) {
+                processes.add(DepotCluster.startLocalNode(base.resolve("node-" + i), FIRST_PORT + i));
+                members.add("127.0.0.1:" + (FIRST_PORT + i));
+            }
+            try (DepotCluster cluster = new DepotCluster(members.subList(0, nodes))) {
+                long started = System.nanoTime();
+                int seeded = cluster.adoptParcels(handoffs);
+                System.out.printf("%d node(s): seeded %d parcels in %d ms%n", nodes, seeded,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+                double rate = measure(cluster, seconds, rows, clients);
+                System.out.printf("%d node(s): %.0f lookups/s%n", nodes, rate);
+
+                started = System.nanoTime();
+                int moved = cluster.addNode(members.get(nodes));
+                long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                Random random = new Random(nodes);
+                int missing = 0;
+                for (int i = 0; i < 1000; i++) {
+                    if (cluster.getPackageByID(SyntheticDepotData.packageId(random.nextInt(rows))) == null) {
+                        missing++;
+                    }
+                }
+                System.out.printf("%d node(s): adding a node moved %d parcels (%.1f%%) in %d ms, %d of 1000 sampled missing%n",
+                    nodes, moved, 100.0 * moved / rows, millis, missing);
+                cluster.shutdownNodes();
+            }
+            for (Process process : processes) {
+                process.waitFor(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            processes.forEach(Process::destroy);
+            try (Stream<Path> files = Files.walk(base)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static double measure(DepotCluster cluster, int seconds, int rows, int clients) throws InterruptedException {
+        LongAdder lookups = new LongAdder();
+        AtomicBoolean measuring = new AtomicBoolean();
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < clients; t++) {
+            Random random = new Random(t);
+            Thread thread = new Thread(() -> {
+                while (running.get()) {
+                    try {
+                        cluster.getPackageByID(SyntheticDepotData.packageId(random.nextInt(rows)));
+                    } catch (IOException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                    if (measuring.get()) {
+                        lookups.increment();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        long warmup = TimeUnit.SECONDS.toMillis(seconds) / 5;
+        Thread.sleep(warmup);
+        measuring.set(true);
+        long started = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds) - warmup);
+        long elapsed = System.nanoTime() - started;
+        measuring.set(false);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return lookups.sum() / (elapsed / 1e9);
+    }
+}
@@ -0,0 +1,68 @@
+package depot.benchmarks;
+
+import depot.DepotDashboard;
+import depot.DepotSystem;
+import depot.PackageCollection;
+import depot.Parcel;
+import depot.QueueOfCustomers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One dashboard refresh: the counters kept by DepotDashboard from change events, against
+ * recounting them from the collections on every frame. The add/remove pair shows what
+ * publishing costs a change when the dashboard is listening and when nobody is.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DashboardBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private DepotSystem system;
+    private DepotDashboard dashboard;
+    private PackageCollection unwatched;
+    private Parcel extra;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        system = new DepotSystem(new PackageCollection());
+        SyntheticDepotData.fill(system.getPackageCollection(), system.getRecipientQueue(), rows);
+        dashboard = new DepotDashboard(system);
+        unwatched = new PackageCollection();
+        SyntheticDepotData.fill(unwatched, null, rows);
+        extra = new Parcel("EXTRA", 5f, "10x10x10");
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        dashboard.close();
+    }
+
+    @Benchmark
+    public DepotDashboard.Snapshot refreshFromEvents() {
+        return dashboard.snapshot();
+    }
+
+    @Benchmark
+    public long refreshByRecount() {
+        QueueOfCustomers queue = system.getRecipientQueue();
+        return queue.size() + system.getPackageCollection().query().inState("Pending").count();
+    }
+
+    @Benchmark
+    public boolean addAndRemoveParcelWatched() {
+        PackageCollection packages = system.getPackageCollection();
+        return packages.addPackage(extra) && packages.removePackage(extra.getPackageID());
+    }
+
+    @Benchmark
+    public boolean addAndRemoveParcelUnwatched() {
+        return unwatched.addPackage(extra) && unwatched.removePackage(extra.getPackageID());
+    }
+}
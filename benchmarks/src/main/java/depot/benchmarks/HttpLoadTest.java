@@ -0,0 +1,226 @@
+package depot.benchmarks;
+
+import depot.DepotHttpServer;
+import depot.DepotSystem;
+import depot.LatencyHistogram;
+import depot.PackageCollection;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop load against the scanner HTTP API: every connection keeps one keep-alive
+ * request in flight, alternating parcel lookups and queue positions for random synthetic
+ * package IDs, and the run reports requests per second and latency percentiles. The
+ * first fifth of the run warms up and is not counted. "local" serves a synthetic depot
+ * in this process.
+ *
+ * All connections share one selector thread, so the client itself costs little next to
+ * the server; java.net.http.HttpClient managed about a tenth of the server's rate.
+ *
+ * Usage: java -cp benchmarks.jar depot.benchmarks.HttpLoadTest (url|local) [connections] [seconds] [rows]
+ */
+public class HttpLoadTest {
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+
+    private final InetSocketAddress address;
+    private final String host;
+    private final String pathPrefix;
+    private final int rows;
+    private final Random random = new Random(7);
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private long notFound;
+    private long failures;
+
+    private final class Connection {
+        final SocketChannel channel;
+        ByteBuffer input = ByteBuffer.allocate(4096);
+        long sentAt;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private HttpLoadTest(URI base, int rows) {
+        int port = base.getPort() > 0 ? base.getPort() : 80;
+        this.address = new InetSocketAddress(base.getHost(), port);
+        this.host = base.getHost() + ":" + port;
+        String path = base.getPath() == null || base.getPath().isEmpty() ? "/" : base.getPath();
+        this.pathPrefix = path.endsWith("/") ? path : path + "/";
+        this.rows = rows;
+    }
+
+    private void run(int connections, int seconds) throws IOException {
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(seconds) / 5;
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        boolean measuring = false;
+        int open = 0;
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < connections; i++) {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.connect(address);
+                channel.register(selector, SelectionKey.OP_CONNECT, new Connection(channel));
+                open++;
+            }
+            while (open > 0 && System.nanoTime() < end) {
+                if (!measuring && System.nanoTime() >= measureFrom) {
+                    measuring = true;
+                    latency.reset();
+                    notFound = 0;
+                    failures = 0;
+                }
+                selector.select(100);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isConnectable()) {
+                            connection.channel.finishConnect();
+                            key.interestOps(SelectionKey.OP_READ);
+                            send(connection);
+                        } else if (key.isReadable() && !receive(connection)) {
+                            key.cancel();
+                            connection.channel.close();
+                            open--;
+                        }
+                    } catch (IOException ex) {
+                        failures++;
+                        key.cancel();
+                        connection.channel.close();
+                        open--;
+                    }
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+        }
+        double elapsed = (System.nanoTime() - measureFrom) / 1e9;
+        LatencyHistogram.Snapshot result = latency.snapshot();
+        System.out.printf("%d connections (%d still open), %.1f s measured%n", connections, open, elapsed);
+        System.out.printf("requests: %d (%.0f/s), not found: %d, failed: %d%n",
+            result.getCount(), result.getCount() / elapsed, notFound, failures);
+        System.out.printf("latency ms: p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+            result.valueAtPercentile(50) / 1e6, result.valueAtPercentile(90) / 1e6,
+            result.valueAtPercentile(99) / 1e6, result.valueAtPercentile(99.9) / 1e6,
+            result.getMaxNanos() / 1e6);
+    }
+
+    private void send(Connection connection) throws IOException {
+        String path = pathPrefix + (random.nextBoolean() ? "parcels/" : "queue/")
+            + SyntheticDepotData.packageId(random.nextInt(rows));
+        ByteBuffer request = StandardCharsets.US_ASCII.encode(
+            "GET " + path + " HTTP/1.1\r\nHost: " + host + "\r\n\r\n");
+        connection.sentAt = System.nanoTime();
+        while (request.hasRemaining()) {
+            connection.channel.write(request);
+        }
+    }
+
+    // Reads what has arrived; a complete response is recorded and the next request sent
+    private boolean receive(Connection connection) throws IOException {
+        if (!connection.input.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(connection.input.capacity() * 2);
+            connection.input.flip();
+            larger.put(connection.input);
+            connection.input = larger;
+        }
+        if (connection.channel.read(connection.input) < 0) {
+            failures++;
+            return false;
+        }
+        ByteBuffer input = connection.input;
+        int headerEnd = indexOf(input, HEADER_END);
+        if (headerEnd < 0) {
+            return true;
+        }
+        String header = new String(input.array(), 0, headerEnd, StandardCharsets.US_ASCII);
+        int length = contentLength(header);
+        int total = headerEnd + HEADER_END.length + length;
+        if (input.position() < total) {
+            return true;
+        }
+        latency.record(System.nanoTime() - connection.sentAt);
+        int status = Integer.parseInt(header.substring(9, 12));
+        if (status == 404) {
+            notFound++;
+        } else if (status >= 500) {
+            failures++;
+        }
+        input.flip();
+        input.position(total);
+        input.compact();
+        send(connection);
+        return true;
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte[] pattern) {
+        byte[] bytes = buffer.array();
+        for (int i = 0; i + pattern.length <= buffer.position(); i++) {
+            int j = 0;
+            while (j < pattern.length && bytes[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int contentLength(String header) {
+        for (String line : header.split("\r\n")) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Content-Length")) {
+                return Integer.parseInt(line.substring(colon + 1).trim());
+            }
+        }
+        return 0;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: HttpLoadTest (url|local) [connections] [seconds] [rows]");
+            System.exit(1);
+        }
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int rows = args.length > 3 ? Integer.parseInt(args[3]) : 100000;
+
+        DepotHttpServer server = null;
+        URI base;
+        if (args[0].equals("local")) {
+            DepotSystem system = new DepotSystem(new PackageCollection());
+            SyntheticDepotData.fill(system.getPackageCollection(), system.getRecipientQueue(), rows);
+            server = new DepotHttpServer(system, 0);
+            server.start();
+            base = URI.create("http://127.0.0.1:" + server.getPort() + "/");
+        } else {
+            base = URI.create(args[0]);
+        }
+        try {
+            new HttpLoadTest(base, rows).run(connections, seconds);
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,57 @@
+package depot.benchmarks;
+
+import depot.CsvLoader;
+import depot.PackageCollection;
+import depot.QueueOfCustomers;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The CSV part of DepotSystem.initializeSystem: Inventory.csv into a PackageCollection
+ * and Recipients.csv into a QueueOfCustomers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void writeFiles() throws IOException {
+        directory = Files.createTempDirectory("depot-load");
+        SyntheticDepotData.writeCsv(directory, rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public PackageCollection loadInventory() throws IOException {
+        PackageCollection packages = new PackageCollection();
+        CsvLoader.loadInventory(directory.resolve("Inventory.csv").toString(), packages);
+        return packages;
+    }
+
+    @Benchmark
+    public QueueOfCustomers loadRecipients() throws IOException {
+        QueueOfCustomers recipients = new QueueOfCustomers();
+        CsvLoader.loadRecipients(directory.resolve("Recipients.csv").toString(), recipients);
+        return recipients;
+    }
+}
@@ -0,0 +1,67 @@
+package depot.benchmarks;
+
+import depot.EventLogger;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EventLogger.logEvent throughput, synchronous and asynchronous, with a log that
+ * already holds `rows` events. Writes depot_events.log in the working directory,
+ * so run the benchmarks from a scratch directory.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+    private static final Path LOG_FILE = Paths.get("depot_events.log");
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"sync", "async"})
+    public String mode;
+
+    private EventLogger logger;
+    private int sequence;
+
+    @Setup(Level.Trial)
+    public void prefillLog() throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(LOG_FILE)) {
+            for (int i = 0; i < rows; i++) {
+                writer.write("2025/01/07 20:24:43 | Collection processed: Recipient Recipient " + i
+                    + " collected package X" + i + ". Charge: £20.00\n");
+            }
+        }
+        logger = EventLogger.getInstance();
+        if (mode.equals("async")) {
+            logger.enableAsync(EventLogger.FlushPolicy.everyMillis(200));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLog() throws IOException {
+        logger.shutdown();
+        Files.deleteIfExists(LOG_FILE);
+    }
+
+    @Benchmark
+    public void logEvent() {
+        logger.logEvent("Collection processed: Recipient Recipient 1 collected package X" + (sequence++)
+            + ". Charge: £20.00");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void logEventFourThreads() {
+        logger.logEvent("Collection processed: Recipient Recipient 1 collected package X1. Charge: £20.00");
+    }
+}
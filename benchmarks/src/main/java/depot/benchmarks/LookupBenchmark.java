@@ -0,0 +1,125 @@
+package depot.benchmarks;
+
+import depot.ColumnarPackageCollection;
+import depot.Customer;
+import depot.PackageCollection;
+import depot.Parcel;
+import depot.QueueOfCustomers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Package lookup by ID in both collection layouts, and the recipient search done by
+ * processNextRecipient, next to the linear scan over getQueueContents it replaced.
+ * The query benchmarks find heavy pending parcels through the secondary indexes and
+ * by scanning getAllPackages; the name searches go through the recipient name index
+ * and by scanning the queue.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+    private static final int LOOKUP_IDS = 4096;
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private PackageCollection packages;
+    private PackageCollection columnarPackages;
+    private QueueOfCustomers recipients;
+    private String[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        packages = new PackageCollection();
+        recipients = new QueueOfCustomers();
+        SyntheticDepotData.fill(packages, recipients, rows);
+        columnarPackages = new ColumnarPackageCollection();
+        SyntheticDepotData.fill(columnarPackages, null, rows);
+        ids = SyntheticDepotData.shuffledIds(rows, LOOKUP_IDS);
+    }
+
+    private String nextId() {
+        next = (next + 1) & (LOOKUP_IDS - 1);
+        return ids[next];
+    }
+
+    @Benchmark
+    public Parcel getPackageByID() {
+        return packages.getPackageByID(nextId());
+    }
+
+    @Benchmark
+    public Parcel getPackageByIDColumnar() {
+        return columnarPackages.getPackageByID(nextId());
+    }
+
+    @Benchmark
+    public Customer findRecipient() {
+        return recipients.findRecipientByPackageID(nextId());
+    }
+
+    // The search processNextRecipient used to do: copy the queue, then walk it
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Customer findRecipientByScan() {
+        String packageId = nextId();
+        for (Customer recipient : recipients.getQueueContents()) {
+            if (recipient.getPackageID().equals(packageId)) {
+                return recipient;
+            }
+        }
+        return null;
+    }
+
+    // A typo in the name, the way counter staff would type it
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Customer> searchRecipientByName() {
+        return recipients.searchByName("Recipeint " + (next++ % rows), 20);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Customer> searchRecipientByScan() {
+        String name = "recipient " + (next++ % rows);
+        List<Customer> matches = new ArrayList<>();
+        for (Customer recipient : recipients.getQueueContents()) {
+            if (recipient.getSurname().toLowerCase().startsWith(name)) {
+                matches.add(recipient);
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Parcel> queryHeavyPending() {
+        return packages.query().inState("Pending").heavierThan(30f).list();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Parcel> queryHeavyPendingColumnar() {
+        return columnarPackages.query().inState("Pending").heavierThan(30f).list();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Parcel> scanHeavyPending() {
+        List<Parcel> heavy = new ArrayList<>();
+        for (Parcel parcel : packages.getAllPackages()) {
+            if (parcel.getDeliveryState().equals("Pending") && parcel.getMassKg() > 30f) {
+                heavy.add(parcel);
+            }
+        }
+        return heavy;
+    }
+}
@@ -0,0 +1,64 @@
+package depot.benchmarks;
+
+import depot.CollectionProcessor;
+import depot.DepotMetrics;
+import depot.PackageCollection;
+import depot.Parcel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the stage timers add to the collection hot path: a package lookup and a charge
+ * quote, timed the way DepotSystem and CollectionProcessor time them, with metrics
+ * switched off and on, next to the same work with no timers at all.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private PackageCollection packages;
+    private CollectionProcessor processor;
+    private String[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        packages = new PackageCollection();
+        SyntheticDepotData.fill(packages, null, rows);
+        processor = new CollectionProcessor();
+        ids = SyntheticDepotData.shuffledIds(rows, 4096);
+        DepotMetrics.getInstance().setEnabled(metrics);
+    }
+
+    @TearDown(Level.Trial)
+    public void disable() {
+        DepotMetrics.getInstance().setEnabled(false);
+    }
+
+    @Benchmark
+    public float lookupAndQuote() {
+        Parcel parcel = packages.getPackageByID(ids[next++ & 4095]);
+        return processor.computeCollectionCharge(parcel);
+    }
+
+    @Benchmark
+    public float lookupAndQuoteTimed() {
+        long lookupStarted = DepotMetrics.start();
+        Parcel parcel = packages.getPackageByID(ids[next++ & 4095]);
+        DepotMetrics.stop(DepotMetrics.Stage.LOOKUP, lookupStarted);
+        long chargeStarted = DepotMetrics.start();
+        float charge = processor.computeCollectionCharge(parcel);
+        DepotMetrics.stop(DepotMetrics.Stage.CHARGE, chargeStarted);
+        return charge;
+    }
+}
@@ -0,0 +1,107 @@
+package depot.benchmarks;
+
+import depot.DepotJournal;
+import depot.MappedRecordStore;
+import depot.PackageCollection;
+import depot.Parcel;
+import depot.QueueOfCustomers;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Cost of persisting one removal: the old DepotSystem.updateFile rewrite of the whole
+ * CSV against one DepotJournal append (including its amortised compactions), and a
+ * MappedRecordStore tombstone (put back at once, so two in-place record writes). Both
+ * stores work on files in the working directory, so run the benchmarks from a scratch
+ * directory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersistenceBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private PackageCollection packages;
+    private QueueOfCustomers recipients;
+    private DepotJournal journal;
+    private MappedRecordStore records;
+    private int sequence;
+
+    @Setup(Level.Trial)
+    public void writeFiles() throws IOException {
+        SyntheticDepotData.writeCsv(Paths.get("."), rows);
+        packages = new PackageCollection();
+        recipients = new QueueOfCustomers();
+        SyntheticDepotData.fill(packages, recipients, rows);
+        journal = new DepotJournal(packages, recipients);
+        records = new MappedRecordStore(packages, recipients);
+        records.replay();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        journal.close();
+        records.close();
+        for (String name : new String[] {"Inventory.csv", "Recipients.csv", "depot_journal.log",
+                                         "depot_journal.compacting", "depot_events.log",
+                                         "depot_parcels.dat", "depot_recipients.dat"}) {
+            Files.deleteIfExists(Paths.get(name));
+        }
+    }
+
+    // Never matches, so every call rewrites the full file as a removal would
+    @Benchmark
+    public void updateFileRewrite() {
+        String missingId = "Z" + (sequence++);
+        updateFile("Inventory.csv", line -> {
+            String[] data = line.split(",");
+            return data.length >= 1 && data[0].trim().equals(missingId);
+        });
+    }
+
+    @Benchmark
+    public void journalAppend() {
+        journal.recordParcelRemoved("Z" + (sequence++));
+    }
+
+    @Benchmark
+    public void mappedTombstone() {
+        Parcel parcel = packages.getPackageByID(SyntheticDepotData.packageId(sequence++ % rows));
+        records.recordParcelRemoved(parcel.getPackageID());
+        records.recordParcelAdded(parcel);
+    }
+
+    // DepotSystem.updateFile as it was before the journal replaced it
+    private void updateFile(String filename, Predicate<String> skipCondition) {
+        try {
+            File originalFile = new File(filename);
+            File tempFile = new File(filename + ".tmp");
+
+            try (BufferedReader reader = new BufferedReader(new FileReader(originalFile));
+                 BufferedWriter writer = new BufferedWriter(new FileWriter(tempFile))) {
+
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!skipCondition.test(line)) {
+                        writer.write(line + System.lineSeparator());
+                    }
+                }
+            }
+
+            originalFile.delete();
+            tempFile.renameTo(originalFile);
+
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package depot.benchmarks;
+
+import depot.Customer;
+import depot.QueueOfCustomers;
+import depot.RecipientScheduler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The recipient scheduler under each policy: a counter calling the next recipient, who
+ * collects and is replaced by a new arrival, so the queue stays the same length; and
+ * the wait estimate for a recipient part way down the queue. One in ten recipients
+ * needs assistance and one in five has an overdue parcel, so every class has someone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SchedulerBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"FIFO", "PRIORITY", "FAIR_SHARE"})
+    public RecipientScheduler.Policy policy;
+
+    private QueueOfCustomers recipients;
+    private int arrivals;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        recipients = new QueueOfCustomers();
+        recipients.getScheduler().setPolicy(policy);
+        recipients.getScheduler().setDaysInDepot(packageId -> packageId.hashCode() % 5 == 0 ? 30 : 1);
+        for (arrivals = 0; arrivals < rows; arrivals++) {
+            recipients.enqueueRecipient(arrival(arrivals));
+        }
+        // Times the counters' services so there is a wait to estimate
+        for (int counter = 0; counter < 4; counter++) {
+            callAndCollect(counter);
+        }
+    }
+
+    private Customer arrival(int i) {
+        Customer recipient = new Customer("Recipient " + i, SyntheticDepotData.packageId(i), recipients.nextSequenceNumber());
+        recipient.setNeedsAssistance(i % 10 == 0);
+        return recipient;
+    }
+
+    private Customer callAndCollect(int counter) {
+        Customer called = recipients.callNext(counter);
+        recipients.removeRecipient(called);
+        recipients.enqueueRecipient(arrival(arrivals++));
+        return called;
+    }
+
+    @Benchmark
+    public Customer callNext() {
+        return callAndCollect(arrivals & 3);
+    }
+
+    @Benchmark
+    public long estimatedWait() {
+        return recipients.estimatedWaitMillis(SyntheticDepotData.packageId(arrivals - rows / 2));
+    }
+}
@@ -0,0 +1,77 @@
+package depot.benchmarks;
+
+import depot.Customer;
+import depot.PackageCollection;
+import depot.Parcel;
+import depot.QueueOfCustomers;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Generates depots of a given size: Inventory.csv and Recipients.csv in the same
+ * layout as the real files (header line first), or the equivalent in-memory state.
+ * Row i always describes package "X" + i, so benchmarks can pick IDs by index.
+ *
+ * Usage: java -cp benchmarks.jar depot.benchmarks.SyntheticDepotData rows [directory]
+ */
+public class SyntheticDepotData {
+    private static final long SEED = 42L;
+
+    public static String packageId(int row) {
+        return "X" + row;
+    }
+
+    public static void writeCsv(Path directory, int rows) throws IOException {
+        Files.createDirectories(directory);
+        Random random = new Random(SEED);
+        try (BufferedWriter inventory = Files.newBufferedWriter(directory.resolve("Inventory.csv"), StandardCharsets.UTF_8);
+             BufferedWriter recipients = Files.newBufferedWriter(directory.resolve("Recipients.csv"), StandardCharsets.UTF_8)) {
+            inventory.write("PackageID,Mass,Length,Width,Height,Days\n");
+            recipients.write("Name,PackageID\n");
+            for (int i = 0; i < rows; i++) {
+                inventory.write(packageId(i) + "," + (1 + random.nextInt(300) / 10f) + ","
+                    + (1 + random.nextInt(60)) + "," + (1 + random.nextInt(60)) + ","
+                    + (1 + random.nextInt(60)) + "," + random.nextInt(30) + "\n");
+                recipients.write("Recipient " + i + "," + packageId(i) + "\n");
+            }
+        }
+    }
+
+    public static void fill(PackageCollection packages, QueueOfCustomers recipients, int rows) {
+        Random random = new Random(SEED);
+        for (int i = 0; i < rows; i++) {
+            String spec = (1 + random.nextInt(60)) + "x" + (1 + random.nextInt(60)) + "x" + (1 + random.nextInt(60));
+            packages.addPackage(new Parcel(packageId(i), 1 + random.nextInt(300) / 10f, spec));
+            if (recipients != null) {
+                recipients.enqueueRecipient(new Customer("Recipient " + i, packageId(i), i + 1));
+            }
+        }
+    }
+
+    // Package IDs in a shuffled order, so lookups do not walk the table sequentially
+    public static String[] shuffledIds(int rows, int count) {
+        Random random = new Random(SEED + 1);
+        String[] ids = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = packageId(random.nextInt(rows));
+        }
+        return ids;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: SyntheticDepotData rows [directory]");
+            System.exit(1);
+        }
+        int rows = Integer.parseInt(args[0]);
+        Path directory = Paths.get(args.length > 1 ? args[1] : ".");
+        writeCsv(directory, rows);
+        System.out.println("Wrote " + rows + " parcels and recipients to " + directory.toAbsolutePath());
+    }
+}
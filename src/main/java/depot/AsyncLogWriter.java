@@ -0,0 +1,209 @@
+package depot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background writer for EventLogger. Producers claim slots in a bounded lock-free
+ * ring buffer; a single writer thread drains it in batches and writes them to a
+ * long-lived FileChannel according to the configured flush policy.
+ */
+public class AsyncLogWriter {
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    // tail once the writer has stopped, so no producer can claim a slot it would never drain
+    private static final long CLOSED = -1;
+
+    private final FileChannel channel;
+    private final DateTimeFormatter timeFormatter;
+    private final EventLogger.FlushPolicy policy;
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<Object> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+    // head as of the last drained batch, for readers on other threads
+    private volatile long drainedTo;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private final StringBuilder pending = new StringBuilder();
+    private int pendingEvents;
+    private long lastWriteMillis = System.currentTimeMillis();
+
+    private static final class Entry {
+        final long timeMillis;
+        final String event;
+
+        Entry(long timeMillis, String event) {
+            this.timeMillis = timeMillis;
+            this.event = event;
+        }
+    }
+
+    public AsyncLogWriter(String filename, DateTimeFormatter timeFormatter,
+                          EventLogger.FlushPolicy policy, int bufferSize) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filename),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.timeFormatter = timeFormatter;
+        this.policy = policy;
+        this.capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.writerThread = new Thread(this::drainLoop, "depot-event-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    // False once the writer has stopped; the caller then writes the event itself
+    public boolean submit(String event) {
+        return offer(new Entry(System.currentTimeMillis(), event));
+    }
+
+    // Blocks until everything submitted before this call has been written to the channel
+    public void flush() {
+        CountDownLatch written = new CountDownLatch(1);
+        if (!offer(written)) {
+            return;
+        }
+        try {
+            written.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Roughly how many items are queued and not yet taken by the writer
+    public long backlog() {
+        return Math.max(0, tail.get() - drainedTo);
+    }
+
+    private boolean offer(Object item) {
+        while (true) {
+            long position = tail.get();
+            if (position == CLOSED) {
+                return false;
+            }
+            int index = (int) (position & mask);
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, item);
+                    sequences.set(index, position + 1);
+                    LockSupport.unpark(writerThread);
+                    return true;
+                }
+            } else if (sequence < position) {
+                if (!writerThread.isAlive()) {
+                    return false;
+                }
+                // Buffer is full: let the writer catch up
+                LockSupport.unpark(writerThread);
+                Thread.onSpinWait();
+                Thread.yield();
+            }
+        }
+    }
+
+    private Object poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        Object item = slots.get(index);
+        slots.set(index, null);
+        sequences.set(index, head + capacity);
+        head++;
+        return item;
+    }
+
+    private void drainLoop() {
+        // Once stopped, the writer only leaves when it can close the tail on an empty buffer
+        while (running || !tail.compareAndSet(head, CLOSED)) {
+            boolean drained = false;
+            Object item;
+            while ((item = poll()) != null) {
+                drained = true;
+                if (item instanceof Entry) {
+                    append((Entry) item);
+                    if (policy.getEveryEvents() > 0 && pendingEvents >= policy.getEveryEvents()) {
+                        writePending();
+                    }
+                } else {
+                    writePending();
+                    ((CountDownLatch) item).countDown();
+                }
+            }
+            drainedTo = head;
+            if (pendingEvents > 0 && (policy.isFsyncEachBatch()
+                    || (policy.getEveryMillis() > 0
+                        && System.currentTimeMillis() - lastWriteMillis >= policy.getEveryMillis()))) {
+                writePending();
+            }
+            if (!drained && running) {
+                long parkMillis = policy.getEveryMillis() > 0 ? policy.getEveryMillis() : 100;
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(parkMillis));
+            }
+        }
+        writePending();
+    }
+
+    private void append(Entry entry) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.timeMillis), ZONE);
+        pending.append(time.format(timeFormatter)).append(" | ").append(entry.event)
+               .append(System.lineSeparator());
+        pendingEvents++;
+    }
+
+    private void writePending() {
+        lastWriteMillis = System.currentTimeMillis();
+        if (pendingEvents == 0) {
+            return;
+        }
+        try {
+            ByteBuffer buffer = StandardCharsets.UTF_8.encode(pending.toString());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (policy.isFsyncEachBatch()) {
+                channel.force(false);
+            }
+        } catch (IOException ex) {
+            System.err.println("Failed to write event batch to log: " + ex.getMessage());
+        }
+        pending.setLength(0);
+        pendingEvents = 0;
+    }
+
+    // Drains everything still queued, then closes the channel
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+            channel.close();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            System.err.println("Failed to close event log: " + ex.getMessage());
+        }
+    }
+}
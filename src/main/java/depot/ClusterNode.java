@@ -0,0 +1,284 @@
+package depot;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * One depot process in a cluster, owning the package IDs the ring gives it. It serves
+ * DepotCluster over keep-alive loopback connections with a line protocol: one request
+ * line of tab-separated fields, sometimes followed by a counted block of lines, and one
+ * reply line, "OK" followed by a counted block where there is a list to return.
+ *
+ *   GET id                     OK parcel | NONE
+ *   COLLECT id                 OK name sequence charge parcel | NONE reason | FAIL reason
+ *   PARCEL id mass dimensions  OK message | FAIL message
+ *   RECIPIENT name id          OK message | FAIL message
+ *   EXPORT self members        OK n, then the n pending IDs the ring of members gives elsewhere
+ *   COPY n, n IDs              OK n, then the n parcels with their recipients, left in place
+ *   HANDOFF n, n IDs           OK n, then the n parcels removed here, with their recipients
+ *   ADOPT n, n parcels         OK added
+ *   STATS                      OK parcels queued
+ *   SHUTDOWN                   OK, then the node saves its state and exits
+ *
+ * Like the HTTP API, lookups and collections run on the connection's thread and other
+ * changes go through the DepotSystem commands. Each node keeps its state in its own
+ * working directory. The protocol has no authentication, so a node listens on loopback
+ * only unless -Ddepot.cluster.address names the interface to serve on.
+ */
+public class ClusterNode {
+    static final String FIELD = "\t";
+
+    private final DepotSystem depotSystem;
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor;
+    private volatile boolean running = true;
+
+    public ClusterNode(DepotSystem depotSystem, int port) throws IOException {
+        this(depotSystem, InetAddress.getLoopbackAddress(), port);
+    }
+
+    public ClusterNode(DepotSystem depotSystem, InetAddress address, int port) throws IOException {
+        this.depotSystem = depotSystem;
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(address, port), 1024);
+        this.executor = createExecutor();
+    }
+
+    public void start() {
+        // Not a daemon: it keeps a node process alive until SHUTDOWN
+        new Thread(this::acceptConnections, "depot-cluster-accept").start();
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException ex) {
+            // Already closed
+        }
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptConnections() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                executor.execute(() -> serve(socket));
+            } catch (IOException ex) {
+                if (running) {
+                    EventLogger.getInstance().logEvent("Cluster node failed to accept a connection: " + ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String reply;
+                try {
+                    reply = handle(line.split(FIELD, -1), in);
+                } catch (RuntimeException | ExecutionException ex) {
+                    EventLogger.getInstance().logEvent("Cluster request " + line + " failed: " + ex);
+                    reply = "FAIL" + FIELD + String.valueOf(ex.getMessage()).replace('\n', ' ');
+                }
+                out.write(reply);
+                out.write('\n');
+                out.flush();
+                if (line.equals("SHUTDOWN")) {
+                    shutdownLater();
+                    return;
+                }
+            }
+        } catch (SocketException ex) {
+            // The router closed the connection
+        } catch (IOException ex) {
+            EventLogger.getInstance().logEvent("Cluster connection failed: " + ex.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String handle(String[] request, BufferedReader in)
+            throws IOException, InterruptedException, ExecutionException {
+        switch (request[0]) {
+            case "GET": {
+                Parcel parcel = depotSystem.getPackageCollection().getPackageByID(request[1]);
+                return parcel == null ? "NONE" : "OK" + FIELD + formatParcel(parcel);
+            }
+            case "COLLECT": {
+                CollectionProcessor.Result result = depotSystem.collectParcel(request[1]);
+                if (result.isSuccessful()) {
+                    Customer recipient = result.getRecipient();
+                    return "OK" + FIELD + recipient.getSurname() + FIELD + recipient.getSequenceNumber()
+                        + FIELD + result.getCharge() + FIELD + formatParcel(result.getParcel());
+                }
+                String status = result.getFailureReason().equals("package not found") ? "NONE" : "FAIL";
+                return status + FIELD + result.getFailureReason();
+            }
+            case "PARCEL":
+                return commandReply(depotSystem.registerParcel(request[1], Float.parseFloat(request[2]), request[3]));
+            case "RECIPIENT":
+                return commandReply(depotSystem.registerRecipient(request[1], request[2]));
+            case "EXPORT": {
+                HashRing ring = new HashRing(Arrays.asList(request[2].split(",")));
+                List<String> leaving = new ArrayList<>();
+                for (Parcel parcel : depotSystem.getPackageCollection().getAllPackages()) {
+                    String id = parcel.getPackageID();
+                    if (!parcel.getDeliveryState().equals("Collected") && !request[1].equals(ring.ownerOf(id))) {
+                        leaving.add(id);
+                    }
+                }
+                return block(leaving);
+            }
+            case "COPY":
+                return handoffBlock(depotSystem.copyParcels(readBlock(request, in)).get());
+            case "HANDOFF":
+                return handoffBlock(depotSystem.handOffParcels(readBlock(request, in)).get());
+            case "ADOPT": {
+                List<DepotSystem.Handoff> handoffs = new ArrayList<>();
+                for (String line : readBlock(request, in)) {
+                    handoffs.add(parseHandoff(line));
+                }
+                return "OK" + FIELD + depotSystem.adoptParcels(handoffs).get();
+            }
+            case "STATS":
+                return "OK" + FIELD + depotSystem.getPackageCollection().getAllPackages().size()
+                    + FIELD + depotSystem.getRecipientQueue().size();
+            case "SHUTDOWN":
+                return "OK";
+            default:
+                return "FAIL" + FIELD + "unknown request " + request[0];
+        }
+    }
+
+    private static String commandReply(CompletableFuture<DepotSystem.CommandResult> command)
+            throws InterruptedException, ExecutionException {
+        DepotSystem.CommandResult result = command.get();
+        return (result.isSuccessful() ? "OK" : "FAIL") + FIELD + result.getMessage();
+    }
+
+    // A counted block: "OK n" and then the n lines, sent as one reply
+    private static String block(List<String> lines) {
+        StringBuilder reply = new StringBuilder("OK").append(FIELD).append(lines.size());
+        for (String line : lines) {
+            reply.append('\n').append(line);
+        }
+        return reply.toString();
+    }
+
+    private static String handoffBlock(List<DepotSystem.Handoff> handoffs) {
+        List<String> lines = new ArrayList<>(handoffs.size());
+        for (DepotSystem.Handoff handoff : handoffs) {
+            lines.add(formatHandoff(handoff));
+        }
+        return block(lines);
+    }
+
+    private static List<String> readBlock(String[] request, BufferedReader in) throws IOException {
+        int count = Integer.parseInt(request[1]);
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String line = in.readLine();
+            if (line == null) {
+                throw new IOException("connection closed part way through a block");
+            }
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    // The reply goes out before the node saves its state and exits
+    private void shutdownLater() {
+        Thread thread = new Thread(() -> {
+            stop();
+            depotSystem.shutdown();
+            System.exit(0);
+        }, "depot-cluster-shutdown");
+        thread.start();
+    }
+
+    static String formatParcel(Parcel parcel) {
+        return parcel.getPackageID() + FIELD + parcel.getMassKg() + FIELD + parcel.getMeasurementSpec()
+            + FIELD + parcel.getArrivalTime() + FIELD + parcel.getDeliveryState();
+    }
+
+    static Parcel parseParcel(String[] fields, int from) {
+        return new Parcel(fields[from], Float.parseFloat(fields[from + 1]), fields[from + 2],
+            Long.parseLong(fields[from + 3]), fields[from + 4]);
+    }
+
+    // The parcel, then the recipient's name and sequence number, both empty when nobody is queued
+    static String formatHandoff(DepotSystem.Handoff handoff) {
+        Customer recipient = handoff.getRecipient();
+        return formatParcel(handoff.getParcel()) + FIELD
+            + (recipient == null ? FIELD : recipient.getSurname() + FIELD + recipient.getSequenceNumber());
+    }
+
+    static DepotSystem.Handoff parseHandoff(String line) {
+        String[] fields = line.split(FIELD, -1);
+        Parcel parcel = parseParcel(fields, 0);
+        Customer recipient = fields[5].isEmpty() ? null
+            : new Customer(fields[5], parcel.getPackageID(), Integer.parseInt(fields[6]));
+        return new DepotSystem.Handoff(parcel, recipient);
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            // Executors.newVirtualThreadPerTaskExecutor() from JDK 21 onwards
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            // A thread per router connection; the router keeps only a few per node
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "depot-cluster");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // Serves the depot in the working directory on the given port until told to shut down
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ClusterNode port");
+            System.exit(1);
+        }
+        DepotMetrics.getInstance().install();
+        EventLogger.getInstance().enableAsync(EventLogger.FlushPolicy.everyMillis(200));
+        DepotSystem system = new DepotSystem();
+        system.initializeSystem();
+        String address = System.getProperty("depot.cluster.address");
+        ClusterNode node = new ClusterNode(system,
+            address == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(address),
+            Integer.parseInt(args[0]));
+        node.start();
+        System.out.println("Cluster node serving on " + node.serverSocket.getInetAddress().getHostAddress()
+            + " port " + node.getPort());
+    }
+}
@@ -0,0 +1,59 @@
+package depot;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Several collection counters working against one DepotSystem at the same time.
+ * Each submitted package ID is collected by whichever counter is free; at most
+ * `counters` collections run at once. Tasks run on virtual threads when the JVM
+ * supports them and on a fixed pool of platform threads otherwise.
+ */
+public class CollectionCounters {
+    private final DepotSystem depotSystem;
+    private final ExecutorService executor;
+    private final Semaphore openCounters;
+
+    public CollectionCounters(DepotSystem depotSystem, int counters) {
+        this.depotSystem = depotSystem;
+        this.openCounters = new Semaphore(counters);
+        this.executor = createExecutor(counters);
+    }
+
+    public CompletableFuture<CollectionProcessor.Result> submit(String packageId) {
+        return CompletableFuture.supplyAsync(() -> {
+            openCounters.acquireUninterruptibly();
+            try {
+                return depotSystem.collectParcel(packageId);
+            } finally {
+                openCounters.release();
+            }
+        }, executor);
+    }
+
+    // Lets queued collections finish, then stops the counters
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ExecutorService createExecutor(int counters) {
+        try {
+            // Executors.newVirtualThreadPerTaskExecutor() from JDK 21 onwards
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return Executors.newFixedThreadPool(counters, task -> {
+                Thread thread = new Thread(task, "collection-counter");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package depot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CollectionProcessor {
+    private final Tariff tariff;
+    private volatile DepotEventBus eventBus;
+
+    public CollectionProcessor() {
+        this(Tariff.loadDefault());
+    }
+
+    public CollectionProcessor(Tariff tariff) {
+        this.tariff = tariff;
+    }
+
+    // Outcome of one collection in a batch; recipient or parcel is null when it could not be resolved
+    public static class Result {
+        private final String packageID;
+        private final Customer recipient;
+        private final Parcel parcel;
+        private final float charge;
+        private final String failureReason;
+
+        private Result(String packageID, Customer recipient, Parcel parcel, float charge, String failureReason) {
+            this.packageID = packageID;
+            this.recipient = recipient;
+            this.parcel = parcel;
+            this.charge = charge;
+            this.failureReason = failureReason;
+        }
+
+        public static Result failed(String packageID, String failureReason) {
+            return new Result(packageID, null, null, 0f, failureReason);
+        }
+
+        // A collection made elsewhere, e.g. on the cluster node that owns the parcel
+        static Result collected(Customer recipient, Parcel parcel, float charge) {
+            return new Result(parcel.getPackageID(), recipient, parcel, charge, null);
+        }
+
+        public String getPackageID() { return packageID; }
+        public Customer getRecipient() { return recipient; }
+        public Parcel getParcel() { return parcel; }
+        public float getCharge() { return charge; }
+        public boolean isSuccessful() { return failureReason == null; }
+        public String getFailureReason() { return failureReason; }
+    }
+
+    // Rounded to whole pence by the tariff
+    public float computeCollectionCharge(Parcel pkg) {
+        return tariff.quote(pkg);
+    }
+
+    public Tariff getTariff() { return tariff; }
+
+    // Collections, with their charge, are published here
+    public void setEventBus(DepotEventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    private void publishCollected(Parcel pkg, float charge) {
+        DepotEventBus bus = eventBus;
+        if (bus != null && bus.hasListeners()) {
+            bus.publish(DepotEvent.parcelCollected(pkg.getPackageID(), Math.round(charge * 100.0)));
+        }
+    }
+
+    public void processCollection(Customer recipient, Parcel pkg) {
+        if (pkg != null && !recipient.hasCollectedPackage()) {
+            collect(recipient, pkg);
+        }
+    }
+
+    // Exactly one concurrent caller wins the parcel's Pending -> Collected transition
+    public Result collect(Customer recipient, Parcel pkg) {
+        if (!pkg.tryMarkCollected()) {
+            return new Result(pkg.getPackageID(), recipient, pkg, 0f, "package already collected");
+        }
+        long started = DepotMetrics.start();
+        float charge = computeCollectionCharge(pkg);
+        DepotMetrics.stop(DepotMetrics.Stage.CHARGE, started);
+        recipient.markPackageCollected();
+        EventLogger.getInstance().logEvent(formatCollectionEvent(recipient, pkg, charge));
+        publishCollected(pkg, charge);
+        return new Result(pkg.getPackageID(), recipient, pkg, charge, null);
+    }
+
+    /**
+     * Collects a whole batch: parcels are resolved and charged in one pass and the
+     * outcome is logged as a single grouped write. Results follow the input order.
+     */
+    public List<Result> processBatch(List<Customer> recipients, PackageCollection packages) {
+        List<Result> results = new ArrayList<>(recipients.size());
+        List<String> events = new ArrayList<>(recipients.size());
+        for (Customer recipient : recipients) {
+            Parcel pkg = packages.getPackageByID(recipient.getPackageID());
+            String failure = null;
+            if (pkg == null) {
+                failure = "package not found";
+            } else if (recipient.hasCollectedPackage() || !pkg.tryMarkCollected()) {
+                failure = "package already collected";
+            }
+            if (failure != null) {
+                results.add(new Result(recipient.getPackageID(), recipient, pkg, 0f, failure));
+                events.add("Collection failed: Recipient " + recipient.getSurname() + ", package "
+                    + recipient.getPackageID() + " - " + failure);
+                continue;
+            }
+            long started = DepotMetrics.start();
+            float charge = computeCollectionCharge(pkg);
+            DepotMetrics.stop(DepotMetrics.Stage.CHARGE, started);
+            recipient.markPackageCollected();
+            results.add(new Result(recipient.getPackageID(), recipient, pkg, charge, null));
+            events.add(formatCollectionEvent(recipient, pkg, charge));
+            publishCollected(pkg, charge);
+        }
+        EventLogger.getInstance().logEvents(events);
+        return results;
+    }
+
+    private static String formatCollectionEvent(Customer recipient, Parcel pkg, float charge) {
+        return String.format("Collection processed: Recipient %s collected package %s. Charge: £%.2f",
+            recipient.getSurname(), pkg.getPackageID(), charge);
+    }
+}
@@ -0,0 +1,490 @@
+package depot;
+
+import java.time.Duration;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * PackageCollection stored as parallel primitive arrays instead of one Parcel object
+ * per package. Package IDs of up to 10 characters from [0-9A-Za-z-] are packed into a
+ * long and found through an open-addressing index; other IDs and measurement specs
+ * that are not plain "LxWxH" short integers fall back to small side maps.
+ *
+ * Safe for several threads: the columns are guarded by the secondary index's
+ * read-write lock, so readers run together and a writer has them to itself. Parcels
+ * handed out are views onto a slot, stamped with the slot's generation, which moves on
+ * when the package is removed. A view reads and writes its slot while the package is
+ * there; afterwards it reports the values it last saw and no longer changes anything,
+ * even once the slot holds another package.
+ */
+public class ColumnarPackageCollection extends PackageCollection {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final byte FREE = -1;
+    private static final String ID_ALPHABET =
+        "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz-";
+    private static final int MAX_PACKED_LENGTH = 10;
+
+    // Columns, indexed by slot
+    private long[] packedIds;
+    private float[] massKg;
+    private long[] arrivalTime;
+    private short[] dimensions;
+    private byte[] state;
+    // Bumped when a slot is freed, so views of the package that was there can tell
+    private int[] generations;
+
+    private final ReentrantReadWriteLock lock;
+    private int slotCount;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private volatile int size;
+
+    // Open-addressing index from packed ID to slot; key 0 marks an empty bucket
+    private long[] indexKeys;
+    private int[] indexSlots;
+    private int indexCount;
+
+    private final Map<String, Integer> overflowIndex = new HashMap<>();
+    private final Map<Integer, String> overflowIds = new HashMap<>();
+    private final Map<Integer, String> overflowSpecs = new HashMap<>();
+    private final List<String> stateNames = new ArrayList<>(List.of("Pending", "Collected"));
+
+    public ColumnarPackageCollection() {
+        packedIds = new long[INITIAL_CAPACITY];
+        massKg = new float[INITIAL_CAPACITY];
+        arrivalTime = new long[INITIAL_CAPACITY];
+        dimensions = new short[INITIAL_CAPACITY * 3];
+        state = new byte[INITIAL_CAPACITY];
+        generations = new int[INITIAL_CAPACITY];
+        lock = index.lock();
+        indexKeys = new long[INITIAL_CAPACITY * 2];
+        indexSlots = new int[INITIAL_CAPACITY * 2];
+    }
+
+    @Override
+    public boolean addPackage(Parcel par) {
+        String id = par.getPackageID();
+        lock.writeLock().lock();
+        try {
+            if (findSlot(id) >= 0) {
+                return false;
+            }
+            int slot = allocateSlot();
+            long packed = packId(id);
+            packedIds[slot] = packed;
+            if (packed == 0) {
+                overflowIndex.put(id, slot);
+                overflowIds.put(slot, id);
+            } else {
+                indexPut(packed, slot);
+            }
+            massKg[slot] = par.getMassKg();
+            arrivalTime[slot] = par.getArrivalTime();
+            storeSpec(slot, par.getMeasurementSpec());
+            state[slot] = stateCode(par.getDeliveryState());
+            size++;
+            index.add(slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        DepotEventBus bus = listeningBus();
+        if (bus != null) {
+            bus.publish(DepotEvent.parcelAdded(par));
+        }
+        return true;
+    }
+
+    @Override
+    public Parcel getPackageByID(String packageID) {
+        lock.readLock().lock();
+        try {
+            int slot = findSlot(packageID);
+            return slot < 0 ? null : new ParcelView(slot, packageID);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean removePackage(String packageID) {
+        Parcel removed;
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(packageID);
+            if (slot < 0) {
+                return false;
+            }
+            // Taken before the slot is freed, so it keeps the parcel's last values
+            removed = new ParcelView(slot, packageID);
+            if (packedIds[slot] == 0) {
+                overflowIndex.remove(packageID);
+                overflowIds.remove(slot);
+            } else {
+                indexRemove(packedIds[slot]);
+            }
+            index.remove(slot);
+            overflowSpecs.remove(slot);
+            state[slot] = FREE;
+            generations[slot]++;
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+            size--;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        DepotEventBus bus = listeningBus();
+        if (bus != null) {
+            bus.publish(DepotEvent.parcelRemoved(removed));
+        }
+        return true;
+    }
+
+    @Override
+    public Collection<Parcel> getAllPackages() {
+        return new AbstractCollection<Parcel>() {
+            @Override
+            public Iterator<Parcel> iterator() {
+                // Weakly consistent, like iterating a ConcurrentHashMap: each step takes the
+                // lock, so parcels added or removed meanwhile may or may not be seen
+                return new Iterator<Parcel>() {
+                    private int position;
+                    private Parcel next = advance();
+
+                    private Parcel advance() {
+                        lock.readLock().lock();
+                        try {
+                            while (position < slotCount && state[position] == FREE) {
+                                position++;
+                            }
+                            return position < slotCount ? new ParcelView(position++) : null;
+                        } finally {
+                            lock.readLock().unlock();
+                        }
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public Parcel next() {
+                        if (next == null) {
+                            throw new NoSuchElementException();
+                        }
+                        Parcel view = next;
+                        next = advance();
+                        return view;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // Null for a free slot, as in PackageCollection
+    @Override
+    Parcel parcelAt(int slot) {
+        lock.readLock().lock();
+        try {
+            return slot < slotCount && state[slot] != FREE ? new ParcelView(slot) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The methods below are called with the lock held
+
+    private int findSlot(String packageID) {
+        long packed = packId(packageID);
+        if (packed == 0) {
+            Integer slot = overflowIndex.get(packageID);
+            return slot == null ? -1 : slot;
+        }
+        return indexGet(packed);
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotCount == packedIds.length) {
+            int capacity = packedIds.length * 2;
+            packedIds = Arrays.copyOf(packedIds, capacity);
+            massKg = Arrays.copyOf(massKg, capacity);
+            arrivalTime = Arrays.copyOf(arrivalTime, capacity);
+            dimensions = Arrays.copyOf(dimensions, capacity * 3);
+            state = Arrays.copyOf(state, capacity);
+            generations = Arrays.copyOf(generations, capacity);
+        }
+        return slotCount++;
+    }
+
+    private void storeSpec(int slot, String spec) {
+        String[] parts = spec.split("x", -1);
+        if (parts.length == 3) {
+            try {
+                int length = Integer.parseInt(parts[0]);
+                int width = Integer.parseInt(parts[1]);
+                int height = Integer.parseInt(parts[2]);
+                if (fitsShort(length) && fitsShort(width) && fitsShort(height)
+                        && spec.equals(length + "x" + width + "x" + height)) {
+                    dimensions[slot * 3] = (short) length;
+                    dimensions[slot * 3 + 1] = (short) width;
+                    dimensions[slot * 3 + 2] = (short) height;
+                    overflowSpecs.remove(slot);
+                    return;
+                }
+            } catch (NumberFormatException ex) {
+                // Not plain integers; kept verbatim below
+            }
+        }
+        overflowSpecs.put(slot, spec);
+    }
+
+    private static boolean fitsShort(int value) {
+        return value >= Short.MIN_VALUE && value <= Short.MAX_VALUE;
+    }
+
+    private String specOf(int slot) {
+        String spec = overflowSpecs.get(slot);
+        if (spec != null) {
+            return spec;
+        }
+        return dimensions[slot * 3] + "x" + dimensions[slot * 3 + 1] + "x" + dimensions[slot * 3 + 2];
+    }
+
+    private byte stateCode(String name) {
+        int code = stateNames.indexOf(name);
+        if (code < 0) {
+            if (stateNames.size() == Byte.MAX_VALUE) {
+                throw new IllegalStateException("Too many distinct delivery states");
+            }
+            stateNames.add(name);
+            code = stateNames.size() - 1;
+        }
+        return (byte) code;
+    }
+
+    // 6 bits per character, codes starting at 1 so no packed ID is 0; 0 means "not packable"
+    private static long packId(String id) {
+        if (id.isEmpty() || id.length() > MAX_PACKED_LENGTH) {
+            return 0;
+        }
+        long packed = 0;
+        for (int i = 0; i < id.length(); i++) {
+            int code = ID_ALPHABET.indexOf(id.charAt(i));
+            if (code < 0) {
+                return 0;
+            }
+            packed = (packed << 6) | (code + 1);
+        }
+        return packed;
+    }
+
+    private String idOf(int slot) {
+        long packed = packedIds[slot];
+        if (packed == 0) {
+            return overflowIds.get(slot);
+        }
+        char[] chars = new char[MAX_PACKED_LENGTH];
+        int position = chars.length;
+        while (packed != 0) {
+            chars[--position] = ID_ALPHABET.charAt((int) (packed & 63) - 1);
+            packed >>>= 6;
+        }
+        return new String(chars, position, chars.length - position);
+    }
+
+    private static int bucketOf(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private int indexGet(long key) {
+        int mask = indexKeys.length - 1;
+        for (int i = bucketOf(key, mask); indexKeys[i] != 0; i = (i + 1) & mask) {
+            if (indexKeys[i] == key) {
+                return indexSlots[i];
+            }
+        }
+        return -1;
+    }
+
+    private void indexPut(long key, int slot) {
+        if ((indexCount + 1) * 2 > indexKeys.length) {
+            long[] oldKeys = indexKeys;
+            int[] oldSlots = indexSlots;
+            indexKeys = new long[oldKeys.length * 2];
+            indexSlots = new int[oldKeys.length * 2];
+            indexCount = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    indexPut(oldKeys[i], oldSlots[i]);
+                }
+            }
+        }
+        int mask = indexKeys.length - 1;
+        int i = bucketOf(key, mask);
+        while (indexKeys[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        indexKeys[i] = key;
+        indexSlots[i] = slot;
+        indexCount++;
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void indexRemove(long key) {
+        int mask = indexKeys.length - 1;
+        int i = bucketOf(key, mask);
+        while (indexKeys[i] != key) {
+            if (indexKeys[i] == 0) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        int gap = i;
+        for (int j = (gap + 1) & mask; indexKeys[j] != 0; j = (j + 1) & mask) {
+            int home = bucketOf(indexKeys[j], mask);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                indexKeys[gap] = indexKeys[j];
+                indexSlots[gap] = indexSlots[j];
+                gap = j;
+            }
+        }
+        indexKeys[gap] = 0;
+        indexCount--;
+    }
+
+    // Reads and writes go straight to the columns of one slot while its generation matches
+    private class ParcelView extends Parcel {
+        private final int slot;
+        private final int generation;
+        private final String id;
+        private final float mass;
+        private final String spec;
+        // Last seen, and all the view has once the package has left
+        private volatile long arrival;
+        private volatile String deliveryState;
+
+        // Called with the lock held, on a slot in use
+        ParcelView(int slot) {
+            this(slot, idOf(slot));
+        }
+
+        ParcelView(int slot, String id) {
+            super(null, 0f, null);
+            this.slot = slot;
+            this.generation = generations[slot];
+            this.id = id;
+            this.mass = massKg[slot];
+            this.spec = specOf(slot);
+            this.arrival = arrivalTime[slot];
+            this.deliveryState = stateNames.get(state[slot]);
+        }
+
+        private boolean isCurrent() {
+            return generations[slot] == generation;
+        }
+
+        @Override
+        public void updateStorageDuration() {
+            lock.writeLock().lock();
+            try {
+                if (isCurrent()) {
+                    arrivalTime[slot] -= Duration.ofDays(1).toMillis();
+                    arrival = arrivalTime[slot];
+                    parcelChanged(slot);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public void setDeliveryState(String deliveryState) {
+            lock.writeLock().lock();
+            try {
+                if (isCurrent()) {
+                    state[slot] = stateCode(deliveryState);
+                    this.deliveryState = deliveryState;
+                    parcelChanged(slot);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public void markAsCollected() {
+            setDeliveryState("Collected");
+        }
+
+        // False once the package has left, so a stale view never collects the slot's next package
+        @Override
+        public boolean tryMarkCollected() {
+            lock.writeLock().lock();
+            try {
+                if (!isCurrent() || state[slot] == 1) {
+                    return false;
+                }
+                state[slot] = 1;
+                deliveryState = "Collected";
+                parcelChanged(slot);
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public String getPackageID() { return id; }
+
+        @Override
+        public float getMassKg() { return mass; }
+
+        @Override
+        public String getMeasurementSpec() { return spec; }
+
+        @Override
+        public long getArrivalTime() {
+            lock.readLock().lock();
+            try {
+                if (isCurrent()) {
+                    arrival = arrivalTime[slot];
+                }
+                return arrival;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public String getDeliveryState() {
+            lock.readLock().lock();
+            try {
+                if (isCurrent()) {
+                    deliveryState = stateNames.get(state[slot]);
+                }
+                return deliveryState;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
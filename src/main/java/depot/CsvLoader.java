@@ -0,0 +1,403 @@
+package depot;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Startup loader for Inventory.csv and Recipients.csv. The file is memory-mapped and
+ * cut into newline-aligned chunks that are parsed in parallel on the common fork-join
+ * pool with a byte-level field parser; the chunks are then merged in file order so
+ * queue sequence numbers match the row order. The first line is skipped only when it
+ * reads as a header, such as a mass that is not a number; the depot's own files have
+ * none, so otherwise it is a row like any other.
+ */
+public class CsvLoader {
+    private static final int MIN_CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_FIELDS = 16;
+
+    public static class LoadReport {
+        private int loaded;
+        private final List<String> problems = new ArrayList<>();
+
+        public int getLoaded() { return loaded; }
+        public List<String> getProblems() { return problems; }
+    }
+
+    private interface RowParser<T> {
+        // Returns null and records a reason in problem[0] when the row is malformed
+        T parse(byte[] data, int[] fieldStarts, int[] fieldEnds, int fieldCount, String[] problem);
+    }
+
+    private interface HeaderTest {
+        boolean isHeader(byte[] data, int[] fieldStarts, int[] fieldEnds, int fieldCount);
+    }
+
+    private static class RecipientRow {
+        final String name;
+        final String packageID;
+
+        RecipientRow(String name, String packageID) {
+            this.name = name;
+            this.packageID = packageID;
+        }
+    }
+
+    // Rows parsed from one run of whole lines; line numbers are relative to the run
+    static class Chunk<T> {
+        final List<T> rows = new ArrayList<>();
+        int[] rowLines = new int[1024];
+        final List<Integer> problemLines = new ArrayList<>();
+        final List<String> problems = new ArrayList<>();
+        int lineCount;
+    }
+
+    public static LoadReport loadInventory(String filename, PackageCollection target) throws IOException {
+        List<Chunk<Parcel>> chunks = parseFile(filename, CsvLoader::parseParcel, CsvLoader::isInventoryHeader);
+        LoadReport report = new LoadReport();
+        int lineOffset = 0;
+        for (Chunk<Parcel> chunk : chunks) {
+            collectProblems(chunk, lineOffset, report);
+            for (int i = 0; i < chunk.rows.size(); i++) {
+                Parcel parcel = chunk.rows.get(i);
+                if (target.addPackage(parcel)) {
+                    report.loaded++;
+                } else {
+                    report.problems.add("line " + (lineOffset + chunk.rowLines[i])
+                        + ": duplicate package ID " + parcel.getPackageID());
+                }
+            }
+            lineOffset += chunk.lineCount;
+        }
+        return report;
+    }
+
+    public static LoadReport loadRecipients(String filename, QueueOfCustomers target) throws IOException {
+        List<Chunk<RecipientRow>> chunks = parseFile(filename, CsvLoader::parseRecipient, CsvLoader::isRecipientHeader);
+        LoadReport report = new LoadReport();
+        int lineOffset = 0;
+        for (Chunk<RecipientRow> chunk : chunks) {
+            collectProblems(chunk, lineOffset, report);
+            for (int i = 0; i < chunk.rows.size(); i++) {
+                RecipientRow row = chunk.rows.get(i);
+                if (target.enqueueRecipient(new Customer(row.name, row.packageID, target.nextSequenceNumber()))) {
+                    report.loaded++;
+                } else {
+                    report.problems.add("line " + (lineOffset + chunk.rowLines[i])
+                        + ": package " + row.packageID + " already has a recipient");
+                }
+            }
+            lineOffset += chunk.lineCount;
+        }
+        return report;
+    }
+
+    private static void collectProblems(Chunk<?> chunk, int lineOffset, LoadReport report) {
+        for (int i = 0; i < chunk.problems.size(); i++) {
+            report.problems.add("line " + (lineOffset + chunk.problemLines.get(i)) + ": " + chunk.problems.get(i));
+        }
+    }
+
+    private static <T> List<Chunk<T>> parseFile(String filename, RowParser<T> parser, HeaderTest headerTest)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<long[]> bounds = splitIntoChunks(channel, size);
+            List<ForkJoinTask<Chunk<T>>> tasks = new ArrayList<>();
+            for (int i = 0; i < bounds.size(); i++) {
+                long[] range = bounds.get(i);
+                HeaderTest header = i == 0 ? headerTest : null;
+                tasks.add(ForkJoinTask.adapt(() -> parseChunk(channel, range[0], range[1], header, parser)));
+            }
+            if (tasks.size() == 1) {
+                return List.of(tasks.get(0).invoke());
+            }
+            for (ForkJoinTask<Chunk<T>> task : tasks) {
+                ForkJoinPool.commonPool().execute(task);
+            }
+            List<Chunk<T>> chunks = new ArrayList<>();
+            for (ForkJoinTask<Chunk<T>> task : tasks) {
+                chunks.add(task.join());
+            }
+            return chunks;
+        }
+    }
+
+    // Nominal split points moved forward to just past the next newline
+    private static List<long[]> splitIntoChunks(FileChannel channel, long size) throws IOException {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        long chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size / (parallelism * 4L) + 1));
+        List<long[]> bounds = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkSize);
+            if (end < size) {
+                MappedByteBuffer probe = channel.map(FileChannel.MapMode.READ_ONLY, end,
+                    Math.min(size - end, MAX_CHUNK_SIZE));
+                int i = 0;
+                while (i < probe.limit() && probe.get(i) != '\n') {
+                    i++;
+                }
+                end = Math.min(size, end + i + 1);
+            }
+            bounds.add(new long[] {start, end});
+            start = end;
+        }
+        return bounds;
+    }
+
+    private static <T> Chunk<T> parseChunk(FileChannel channel, long start, long end,
+                                           HeaderTest headerTest, RowParser<T> parser) throws IOException {
+        byte[] data = new byte[(int) (end - start)];
+        channel.map(FileChannel.MapMode.READ_ONLY, start, end - start).get(data);
+        return parseLines(data, data.length, headerTest, parser);
+    }
+
+    // Inventory rows from the first `length` bytes of data, which end on a line boundary;
+    // with mayHaveHeader the first line is skipped if it reads as a header
+    static Chunk<Parcel> parseInventoryLines(byte[] data, int length, boolean mayHaveHeader) {
+        return parseLines(data, length, mayHaveHeader ? CsvLoader::isInventoryHeader : null, CsvLoader::parseParcel);
+    }
+
+    // For writers that carry a file's header over; a data row is not a header
+    static boolean isInventoryHeader(String line) {
+        return isHeader(line, CsvLoader::isInventoryHeader);
+    }
+
+    static boolean isRecipientHeader(String line) {
+        return isHeader(line, CsvLoader::isRecipientHeader);
+    }
+
+    private static boolean isHeader(String line, HeaderTest headerTest) {
+        byte[] data = line.getBytes(StandardCharsets.UTF_8);
+        int[] fieldStarts = new int[MAX_FIELDS];
+        int[] fieldEnds = new int[MAX_FIELDS];
+        int fieldCount = splitFields(data, 0, data.length, fieldStarts, fieldEnds);
+        return fieldCount > 0 && headerTest.isHeader(data, fieldStarts, fieldEnds, fieldCount);
+    }
+
+    // A header names the columns, so its mass is not a number
+    private static boolean isInventoryHeader(byte[] data, int[] starts, int[] ends, int count) {
+        return count >= 2 && Float.isNaN(parseFloat(data, starts[1], ends[1]));
+    }
+
+    // Both recipient columns are text, so the header is recognised by its column names
+    private static boolean isRecipientHeader(byte[] data, int[] starts, int[] ends, int count) {
+        if (count < 2) {
+            return false;
+        }
+        String name = columnName(data, starts[0], ends[0]);
+        String packageID = columnName(data, starts[1], ends[1]);
+        return name.equals("name") || name.equals("surname") || name.equals("recipient")
+            || packageID.equals("id") || packageID.equals("packageid") || packageID.equals("parcelid");
+    }
+
+    // Lower case without spaces, underscores or hyphens, so "Package ID" reads as "packageid"
+    private static String columnName(byte[] data, int start, int end) {
+        return new String(data, start, end - start, StandardCharsets.UTF_8)
+            .toLowerCase().replaceAll("[\\s_-]", "");
+    }
+
+    private static <T> Chunk<T> parseLines(byte[] data, int length, HeaderTest headerTest, RowParser<T> parser) {
+        Chunk<T> chunk = new Chunk<>();
+        int[] fieldStarts = new int[MAX_FIELDS];
+        int[] fieldEnds = new int[MAX_FIELDS];
+        String[] problem = new String[1];
+        int position = 0;
+        while (position < length) {
+            int lineEnd = position;
+            while (lineEnd < length && data[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd > position && data[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+            chunk.lineCount++;
+            if (contentEnd > position) {
+                int fieldCount = splitFields(data, position, contentEnd, fieldStarts, fieldEnds);
+                if (chunk.lineCount == 1 && headerTest != null && fieldCount > 0
+                        && headerTest.isHeader(data, fieldStarts, fieldEnds, fieldCount)) {
+                    position = lineEnd + 1;
+                    continue;
+                }
+                problem[0] = null;
+                T row = fieldCount < 0 ? null : parser.parse(data, fieldStarts, fieldEnds, fieldCount, problem);
+                if (row != null) {
+                    if (chunk.rows.size() == chunk.rowLines.length) {
+                        chunk.rowLines = Arrays.copyOf(chunk.rowLines, chunk.rowLines.length * 2);
+                    }
+                    chunk.rowLines[chunk.rows.size()] = chunk.lineCount;
+                    chunk.rows.add(row);
+                } else {
+                    String reason = fieldCount < 0 ? "too many fields" : problem[0];
+                    chunk.problemLines.add(chunk.lineCount);
+                    chunk.problems.add(reason + " ["
+                        + new String(data, position, contentEnd - position, StandardCharsets.UTF_8) + "]");
+                }
+            }
+            position = lineEnd + 1;
+        }
+        return chunk;
+    }
+
+    // Records trimmed field bounds; returns the field count, or -1 if there are too many
+    private static int splitFields(byte[] data, int start, int end, int[] fieldStarts, int[] fieldEnds) {
+        int count = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || data[i] == ',') {
+                if (count == MAX_FIELDS) {
+                    return -1;
+                }
+                int s = fieldStart;
+                int e = i;
+                while (s < e && (data[s] == ' ' || data[s] == '\t')) {
+                    s++;
+                }
+                while (e > s && (data[e - 1] == ' ' || data[e - 1] == '\t')) {
+                    e--;
+                }
+                fieldStarts[count] = s;
+                fieldEnds[count] = e;
+                count++;
+                fieldStart = i + 1;
+            }
+        }
+        return count;
+    }
+
+    // ID, mass, length, width, height[, arrival time or legacy days in storage]
+    private static Parcel parseParcel(byte[] data, int[] starts, int[] ends, int count, String[] problem) {
+        if (count < 5) {
+            problem[0] = "expected at least 5 fields, found " + count;
+            return null;
+        }
+        if (ends[0] == starts[0]) {
+            problem[0] = "missing package ID";
+            return null;
+        }
+        float mass = parseFloat(data, starts[1], ends[1]);
+        if (Float.isNaN(mass)) {
+            problem[0] = "invalid mass";
+            return null;
+        }
+        for (int i = 2; i <= 4; i++) {
+            if (ends[i] == starts[i]) {
+                problem[0] = "missing dimension";
+                return null;
+            }
+        }
+        long arrival = count > 5 ? parseArrival(data, starts[5], ends[5]) : DepotClock.currentTimeMillis();
+        if (arrival == Long.MIN_VALUE) {
+            problem[0] = "invalid arrival time";
+            return null;
+        }
+        String id = new String(data, starts[0], ends[0] - starts[0], StandardCharsets.UTF_8);
+        int specLength = (ends[2] - starts[2]) + (ends[3] - starts[3]) + (ends[4] - starts[4]) + 2;
+        byte[] spec = new byte[specLength];
+        int p = 0;
+        for (int i = 2; i <= 4; i++) {
+            if (i > 2) {
+                spec[p++] = 'x';
+            }
+            System.arraycopy(data, starts[i], spec, p, ends[i] - starts[i]);
+            p += ends[i] - starts[i];
+        }
+        return new Parcel(id, mass, new String(spec, StandardCharsets.UTF_8), arrival, "Pending");
+    }
+
+    // Legacy whole-day counts are parsed in place; Long.MIN_VALUE when invalid
+    private static long parseArrival(byte[] data, int start, int end) {
+        if (start == end) {
+            return DepotClock.currentTimeMillis();
+        }
+        if (end - start <= 6) {
+            int days = 0;
+            boolean digits = true;
+            for (int i = start; i < end && digits; i++) {
+                digits = data[i] >= '0' && data[i] <= '9';
+                days = days * 10 + (data[i] - '0');
+            }
+            if (digits) {
+                return DepotClock.arrivalFromDays(days);
+            }
+        }
+        try {
+            return DepotClock.parseArrival(new String(data, start, end - start, StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException ex) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    // Name, package ID
+    private static RecipientRow parseRecipient(byte[] data, int[] starts, int[] ends, int count, String[] problem) {
+        if (count < 2) {
+            problem[0] = "expected 2 fields, found " + count;
+            return null;
+        }
+        if (ends[0] == starts[0] || ends[1] == starts[1]) {
+            problem[0] = "missing name or package ID";
+            return null;
+        }
+        return new RecipientRow(
+            new String(data, starts[0], ends[0] - starts[0], StandardCharsets.UTF_8),
+            new String(data, starts[1], ends[1] - starts[1], StandardCharsets.UTF_8));
+    }
+
+    // Plain decimals are parsed in place; anything else goes through Float.parseFloat
+    private static float parseFloat(byte[] data, int start, int end) {
+        if (start == end) {
+            return Float.NaN;
+        }
+        int i = start;
+        boolean negative = data[i] == '-';
+        if (negative || data[i] == '+') {
+            i++;
+        }
+        long digits = 0;
+        int scale = 0;
+        int digitCount = 0;
+        boolean seenPoint = false;
+        for (; i < end; i++) {
+            byte b = data[i];
+            if (b >= '0' && b <= '9') {
+                if (digitCount < 18) {
+                    digits = digits * 10 + (b - '0');
+                    digitCount++;
+                    if (seenPoint) {
+                        scale++;
+                    }
+                } else {
+                    return slowParseFloat(data, start, end);
+                }
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                return slowParseFloat(data, start, end);
+            }
+        }
+        if (digitCount == 0) {
+            return Float.NaN;
+        }
+        double value = digits;
+        for (int s = 0; s < scale; s++) {
+            value /= 10;
+        }
+        return (float) (negative ? -value : value);
+    }
+
+    private static float slowParseFloat(byte[] data, int start, int end) {
+        try {
+            return Float.parseFloat(new String(data, start, end - start, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException ex) {
+            return Float.NaN;
+        }
+    }
+}
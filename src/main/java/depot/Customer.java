@@ -1,8 +1,13 @@
+package depot;
+
 public class Customer {
     private int sequenceNumber;
     private String surname;
     private String packageID;
-    private boolean collectedPackage;
+    private volatile boolean collectedPackage;
+    // Read by the scheduler when the recipient joins the queue; 0 when no slot was booked
+    private volatile long bookedSlot;
+    private volatile boolean needsAssistance;
     
     public Customer(String surname, String packageID, int sequenceNumber) {
         this.surname = surname;
@@ -15,6 +20,16 @@ public class Customer {
     public String getPackageID() { return packageID; }
     public int getSequenceNumber() { return sequenceNumber; }
     public boolean hasCollectedPackage() { return collectedPackage; }
+    public long getBookedSlot() { return bookedSlot; }
+    public boolean needsAssistance() { return needsAssistance; }
+    
+    public void setBookedSlot(long slotMillis) {
+        this.bookedSlot = slotMillis;
+    }
+    
+    public void setNeedsAssistance(boolean needsAssistance) {
+        this.needsAssistance = needsAssistance;
+    }
     
     public void markPackageCollected() {
         this.collectedPackage = true;
@@ -0,0 +1,64 @@
+package depot;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * The depot's notion of "now". Storage durations are derived from each parcel's
+ * arrival time against this clock, so nothing has to be swept to age parcels.
+ * Tests and simulations can install their own clock or fast-forward this one.
+ */
+public class DepotClock {
+    private static volatile Clock clock = Clock.systemDefaultZone();
+
+    private DepotClock() {
+    }
+
+    public static Clock getClock() {
+        return clock;
+    }
+
+    public static void setClock(Clock newClock) {
+        clock = newClock;
+    }
+
+    public static void fastForward(Duration amount) {
+        clock = Clock.offset(clock, amount);
+    }
+
+    public static long currentTimeMillis() {
+        return clock.millis();
+    }
+
+    // Whole days from the arrival time to now, never negative
+    public static int daysSince(long arrivalMillis) {
+        long elapsed = clock.millis() - arrivalMillis;
+        return elapsed <= 0 ? 0 : (int) (elapsed / Duration.ofDays(1).toMillis());
+    }
+
+    /**
+     * Reads the arrival column of an inventory row: an ISO-8601 instant, or, in files
+     * written before arrival times were kept, the whole days already spent in storage.
+     */
+    public static long parseArrival(String field) {
+        String value = field.trim();
+        try {
+            if (value.indexOf('T') >= 0) {
+                return Instant.parse(value).toEpochMilli();
+            }
+            return arrivalFromDays(Integer.parseInt(value));
+        } catch (NumberFormatException | DateTimeParseException ex) {
+            throw new IllegalArgumentException("Invalid arrival time: " + field, ex);
+        }
+    }
+
+    public static long arrivalFromDays(int days) {
+        return clock.millis() - days * Duration.ofDays(1).toMillis();
+    }
+
+    public static String formatArrival(long arrivalMillis) {
+        return Instant.ofEpochMilli(arrivalMillis).toString();
+    }
+}
@@ -0,0 +1,539 @@
+package depot;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Router for a cluster of ClusterNode processes. Each package ID belongs to the node the
+ * HashRing gives it, and lookups, collections and registrations are forwarded to that
+ * node over pooled loopback connections, so the router itself holds no depot state.
+ *
+ * Adding or removing a node rebalances incrementally: the nodes that lose IDs under the
+ * new ring list them, and they move a batch at a time, each batch adopted by the new
+ * owner before it is removed from the old one, so a failed move leaves parcels on both
+ * rather than neither. Requests keep flowing meanwhile; the new ring is used at once and
+ * a miss on the new owner is retried on the old one until the move ends, which after a
+ * failure is when finishRebalance succeeds.
+ */
+public class DepotCluster implements AutoCloseable {
+    private static final int HANDOFF_BATCH = 1000;
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+    private static final String FIELD = ClusterNode.FIELD;
+
+    private final Map<String, NodeClient> nodes = new ConcurrentHashMap<>();
+    private volatile HashRing ring;
+    // The ring before the current rebalance, or null when none is running
+    private volatile HashRing previousRing;
+
+    /** Keep-alive connections to one node, each used by one request at a time. */
+    private static final class NodeClient {
+        private final InetSocketAddress address;
+        private final ConcurrentLinkedQueue<Connection> idle = new ConcurrentLinkedQueue<>();
+
+        NodeClient(String member) {
+            int colon = member.lastIndexOf(':');
+            this.address = new InetSocketAddress(member.substring(0, colon), Integer.parseInt(member.substring(colon + 1)));
+        }
+
+        // The reply line, and for an "OK n" reply to a listing request the n lines after it
+        List<String> call(String request, List<String> block, boolean listReply) throws IOException {
+            Connection connection = idle.poll();
+            if (connection == null) {
+                connection = new Connection(address);
+            }
+            try {
+                List<String> reply = connection.exchange(request, block, listReply);
+                idle.offer(connection);
+                return reply;
+            } catch (IOException | RuntimeException ex) {
+                connection.close();
+                throw ex;
+            }
+        }
+
+        void close() {
+            Connection connection;
+            while ((connection = idle.poll()) != null) {
+                connection.close();
+            }
+        }
+    }
+
+    private static final class Connection {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+
+        Connection(InetSocketAddress address) throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        List<String> exchange(String request, List<String> block, boolean listReply) throws IOException {
+            out.write(request);
+            out.write('\n');
+            for (String line : block) {
+                out.write(line);
+                out.write('\n');
+            }
+            out.flush();
+            List<String> reply = new ArrayList<>();
+            reply.add(readLine());
+            if (listReply && reply.get(0).startsWith("OK" + FIELD)) {
+                int count = Integer.parseInt(reply.get(0).substring(3));
+                for (int i = 0; i < count; i++) {
+                    reply.add(readLine());
+                }
+            }
+            return reply;
+        }
+
+        private String readLine() throws IOException {
+            String line = in.readLine();
+            if (line == null) {
+                throw new IOException("cluster node at " + socket.getRemoteSocketAddress() + " closed the connection");
+            }
+            return line;
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                // Nothing left to release
+            }
+        }
+    }
+
+    // Members are "host:port" addresses of running ClusterNode processes
+    public DepotCluster(List<String> members) {
+        for (String member : members) {
+            nodes.put(member, new NodeClient(member));
+        }
+        this.ring = new HashRing(members);
+    }
+
+    public List<String> getMembers() {
+        return ring.members();
+    }
+
+    public String ownerOf(String packageId) {
+        return ring.ownerOf(packageId);
+    }
+
+    public Parcel getPackageByID(String packageId) throws IOException {
+        checkField(packageId);
+        for (String member : candidates(packageId)) {
+            String[] reply = call(member, "GET" + FIELD + packageId);
+            if (reply[0].equals("OK")) {
+                return ClusterNode.parseParcel(reply, 1);
+            }
+        }
+        return null;
+    }
+
+    public CollectionProcessor.Result collect(String packageId) throws IOException {
+        checkField(packageId);
+        String[] reply = null;
+        for (String member : candidates(packageId)) {
+            reply = call(member, "COLLECT" + FIELD + packageId);
+            if (!reply[0].equals("NONE")) {
+                break;
+            }
+        }
+        if (!reply[0].equals("OK")) {
+            return CollectionProcessor.Result.failed(packageId, reply.length > 1 ? reply[1] : "package not found");
+        }
+        Parcel parcel = ClusterNode.parseParcel(reply, 4);
+        Customer recipient = new Customer(reply[1], packageId, Integer.parseInt(reply[2]));
+        return CollectionProcessor.Result.collected(recipient, parcel, Float.parseFloat(reply[3]));
+    }
+
+    public DepotSystem.CommandResult registerParcel(String packageId, float massKg, String measurementSpec)
+            throws IOException {
+        checkField(packageId);
+        checkField(measurementSpec);
+        // While IDs are moving the parcel may still be on its old owner
+        if (previousRing != null && getPackageByID(packageId) != null) {
+            return DepotSystem.CommandResult.failed("Error: Package ID already exists.");
+        }
+        return commandResult(call(ring.ownerOf(packageId),
+            "PARCEL" + FIELD + packageId + FIELD + massKg + FIELD + measurementSpec));
+    }
+
+    // Goes to whichever node holds the parcel, so the recipient moves with it later
+    public DepotSystem.CommandResult registerRecipient(String name, String packageId) throws IOException {
+        checkField(name);
+        checkField(packageId);
+        String owner = ring.ownerOf(packageId);
+        for (String member : candidates(packageId)) {
+            if (call(member, "GET" + FIELD + packageId)[0].equals("OK")) {
+                owner = member;
+                break;
+            }
+        }
+        return commandResult(call(owner, "RECIPIENT" + FIELD + name + FIELD + packageId));
+    }
+
+    /**
+     * Spreads parcels, with their recipients, over the nodes that own them, e.g. to seed
+     * a new cluster from one depot's CSVs. Returns how many the nodes added.
+     */
+    public int adoptParcels(List<DepotSystem.Handoff> handoffs) throws IOException {
+        Map<String, List<String>> byOwner = new LinkedHashMap<>();
+        for (DepotSystem.Handoff handoff : handoffs) {
+            checkField(handoff.getParcel().getPackageID());
+            if (handoff.getRecipient() != null) {
+                checkField(handoff.getRecipient().getSurname());
+            }
+            byOwner.computeIfAbsent(ring.ownerOf(handoff.getParcel().getPackageID()), owner -> new ArrayList<>())
+                .add(ClusterNode.formatHandoff(handoff));
+        }
+        int added = 0;
+        for (Map.Entry<String, List<String>> entry : byOwner.entrySet()) {
+            added += adopt(entry.getKey(), entry.getValue());
+        }
+        return added;
+    }
+
+    /**
+     * Adds a running node and moves to it the parcels the ring now gives it, a batch at
+     * a time. Returns the number of parcels moved.
+     */
+    public synchronized int addNode(String member) throws IOException {
+        if (nodes.containsKey(member)) {
+            return 0;
+        }
+        finishRebalance();
+        nodes.put(member, new NodeClient(member));
+        previousRing = ring;
+        ring = ring.with(member);
+        int moved = moveParcels();
+        EventLogger.getInstance().logEvent("Cluster node " + member + " joined, " + moved + " parcels moved to it");
+        return moved;
+    }
+
+    /**
+     * Moves every parcel off a node onto the ones the ring now gives them, then shuts the
+     * node down. Returns the number of parcels moved.
+     */
+    public synchronized int removeNode(String member) throws IOException {
+        finishRebalance();
+        if (!nodes.containsKey(member) || ring.members().size() == 1) {
+            throw new IllegalArgumentException("cannot remove " + member + " from " + ring.members());
+        }
+        previousRing = ring;
+        ring = ring.without(member);
+        int moved = moveParcels();
+        EventLogger.getInstance().logEvent("Cluster node " + member + " left, " + moved + " parcels moved off it");
+        return moved;
+    }
+
+    /**
+     * Completes a move that addNode or removeNode could not finish, e.g. because a node
+     * refused an ADOPT, and shuts down a node that was leaving. Returns the number of
+     * parcels moved.
+     */
+    public synchronized int finishRebalance() throws IOException {
+        return previousRing == null ? 0 : moveParcels();
+    }
+
+    // Parcels and queued recipients held by each node
+    public Map<String, int[]> stats() throws IOException {
+        Map<String, int[]> stats = new LinkedHashMap<>();
+        for (String member : ring.members()) {
+            String[] reply = call(member, "STATS");
+            stats.put(member, new int[] {Integer.parseInt(reply[1]), Integer.parseInt(reply[2])});
+        }
+        return stats;
+    }
+
+    // Asks every node to save its state and exit
+    public void shutdownNodes() {
+        for (String member : ring.members()) {
+            try {
+                call(member, "SHUTDOWN");
+            } catch (IOException ex) {
+                System.err.println("Error stopping cluster node " + member + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        nodes.values().forEach(NodeClient::close);
+    }
+
+    // Moves parcels from every member of the previous ring to their owners under the current one
+    private int moveParcels() throws IOException {
+        int moved = 0;
+        try {
+            for (String member : previousRing.members()) {
+                moved += rebalance(member, ring);
+            }
+        } catch (IOException ex) {
+            EventLogger.getInstance().logEvent("Cluster rebalance stopped after " + moved
+                + " parcels, lookups fall back to the old owners until it is finished: " + ex.getMessage());
+            throw ex;
+        }
+        for (String member : previousRing.members()) {
+            if (!ring.members().contains(member)) {
+                call(member, "SHUTDOWN");
+                nodes.remove(member).close();
+            }
+        }
+        previousRing = null;
+        return moved;
+    }
+
+    /*
+     * Moves one node's leaving parcels a batch at a time. The new owners adopt a copy of
+     * the batch first, and the old owner then hands off only those IDs, so if an ADOPT
+     * fails the batch is still where it was.
+     */
+    private int rebalance(String from, HashRing next) throws IOException {
+        List<String> leaving = node(from).call("EXPORT" + FIELD + from + FIELD + String.join(",", next.members()),
+            List.of(), true);
+        List<String> ids = leaving.subList(1, leaving.size());
+        int moved = 0;
+        for (int start = 0; start < ids.size(); start += HANDOFF_BATCH) {
+            List<String> batch = ids.subList(start, Math.min(ids.size(), start + HANDOFF_BATCH));
+            List<String> copied = node(from).call("COPY" + FIELD + batch.size(), batch, true);
+            copied = copied.subList(1, copied.size());
+            for (Map.Entry<String, List<String>> entry : byOwner(copied, next).entrySet()) {
+                adopt(entry.getKey(), entry.getValue());
+            }
+            List<String> adopted = new ArrayList<>(copied.size());
+            for (String line : copied) {
+                adopted.add(idOf(line));
+            }
+            List<String> handed = node(from).call("HANDOFF" + FIELD + adopted.size(), adopted, true);
+            handed = handed.subList(1, handed.size());
+            moved += handed.size();
+
+            // Recipients who joined on the old owner since the copy; parcels already there are skipped
+            Set<String> copiedLines = new HashSet<>(copied);
+            List<String> changed = new ArrayList<>();
+            Set<String> handedIds = new HashSet<>();
+            for (String line : handed) {
+                handedIds.add(idOf(line));
+                if (!copiedLines.contains(line)) {
+                    changed.add(line);
+                }
+            }
+            for (Map.Entry<String, List<String>> entry : byOwner(changed, next).entrySet()) {
+                adopt(entry.getKey(), entry.getValue());
+            }
+            // Collected on the old owner before the copy was adopted, so the new owner's copy goes
+            Map<String, List<String>> stale = new LinkedHashMap<>();
+            for (String id : adopted) {
+                if (!handedIds.contains(id)) {
+                    stale.computeIfAbsent(next.ownerOf(id), owner -> new ArrayList<>()).add(id);
+                }
+            }
+            for (Map.Entry<String, List<String>> entry : stale.entrySet()) {
+                node(entry.getKey()).call("HANDOFF" + FIELD + entry.getValue().size(), entry.getValue(), true);
+            }
+        }
+        return moved;
+    }
+
+    private static Map<String, List<String>> byOwner(List<String> handoffLines, HashRing ring) {
+        Map<String, List<String>> byOwner = new LinkedHashMap<>();
+        for (String line : handoffLines) {
+            byOwner.computeIfAbsent(ring.ownerOf(idOf(line)), owner -> new ArrayList<>()).add(line);
+        }
+        return byOwner;
+    }
+
+    private static String idOf(String handoffLine) {
+        return handoffLine.substring(0, handoffLine.indexOf(FIELD));
+    }
+
+    private int adopt(String member, List<String> lines) throws IOException {
+        List<String> reply = node(member).call("ADOPT" + FIELD + lines.size(), lines, false);
+        String[] fields = reply.get(0).split(FIELD, -1);
+        if (!fields[0].equals("OK")) {
+            throw new IOException("cluster node " + member + " refused parcels: " + fields[1]);
+        }
+        return Integer.parseInt(fields[1]);
+    }
+
+    // The owner under the current ring, then the old owner while a rebalance is moving IDs
+    private List<String> candidates(String packageId) {
+        String owner = ring.ownerOf(packageId);
+        HashRing previous = previousRing;
+        String previousOwner = previous == null ? null : previous.ownerOf(packageId);
+        if (previousOwner == null || previousOwner.equals(owner)) {
+            return List.of(owner);
+        }
+        // The owner again last, in case the batch moved while the old owner was asked
+        return List.of(owner, previousOwner, owner);
+    }
+
+    private String[] call(String member, String request) throws IOException {
+        return node(member).call(request, List.of(), false).get(0).split(FIELD, -1);
+    }
+
+    private NodeClient node(String member) throws IOException {
+        NodeClient client = nodes.get(member);
+        if (client == null) {
+            throw new IOException("no cluster node " + member);
+        }
+        return client;
+    }
+
+    private static DepotSystem.CommandResult commandResult(String[] reply) {
+        String message = reply.length > 1 ? reply[1] : "";
+        return reply[0].equals("OK") ? DepotSystem.CommandResult.succeeded(message)
+            : DepotSystem.CommandResult.failed(message);
+    }
+
+    private static void checkField(String value) {
+        if (value.indexOf('\t') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("tabs and line breaks are not allowed: " + value);
+        }
+    }
+
+    /**
+     * Starts a ClusterNode process on this machine with its state in the given directory,
+     * and waits until it accepts connections. Its output goes to node.log there.
+     */
+    public static Process startLocalNode(Path directory, int port) throws IOException {
+        Files.createDirectories(directory);
+        Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+        ProcessBuilder builder = new ProcessBuilder(java.toString(), "-cp", System.getProperty("java.class.path"),
+            ClusterNode.class.getName(), String.valueOf(port));
+        builder.directory(directory.toFile());
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(ProcessBuilder.Redirect.appendTo(directory.resolve("node.log").toFile()));
+        Process process = builder.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (true) {
+            try (Socket probe = new Socket()) {
+                probe.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT_MILLIS);
+                return process;
+            } catch (IOException ex) {
+                if (!process.isAlive() || System.nanoTime() > deadline) {
+                    process.destroy();
+                    throw new IOException("cluster node on port " + port + " did not start, see "
+                        + directory.resolve("node.log"));
+                }
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                process.destroy();
+                throw new IOException("interrupted starting cluster node on port " + port);
+            }
+        }
+    }
+
+    /**
+     * A local cluster of node processes under cluster/ in the working directory, seeded
+     * from Inventory.csv and Recipients.csv the first time, with a small console.
+     *
+     * Usage: DepotCluster [nodes] [first-port]
+     */
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int firstPort = args.length > 1 ? Integer.parseInt(args[1]) : 7101;
+        Path base = Paths.get("cluster");
+        boolean seed = !Files.exists(base);
+        List<String> members = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            startLocalNode(base.resolve("node-" + (firstPort + i)), firstPort + i);
+            members.add("127.0.0.1:" + (firstPort + i));
+        }
+        try (DepotCluster cluster = new DepotCluster(members)) {
+            if (seed) {
+                PackageCollection parcels = new PackageCollection();
+                QueueOfCustomers recipients = new QueueOfCustomers();
+                CsvLoader.loadInventory("Inventory.csv", parcels);
+                CsvLoader.loadRecipients("Recipients.csv", recipients);
+                List<DepotSystem.Handoff> handoffs = new ArrayList<>();
+                for (Parcel parcel : parcels.getAllPackages()) {
+                    handoffs.add(new DepotSystem.Handoff(parcel, recipients.findRecipientByPackageID(parcel.getPackageID())));
+                }
+                System.out.println("Seeded " + cluster.adoptParcels(handoffs) + " parcels");
+            }
+            runConsole(cluster, firstPort + count);
+        }
+    }
+
+    private static void runConsole(DepotCluster cluster, int nextPort) {
+        Scanner input = new Scanner(System.in);
+        System.out.println("Commands: get ID, collect ID, owner ID, add-node, remove-node PORT, rebalance, stats, quit");
+        while (input.hasNextLine()) {
+            String[] command = input.nextLine().trim().split("\\s+");
+            try {
+                switch (command[0]) {
+                    case "get":
+                        System.out.println(cluster.getPackageByID(command[1]));
+                        break;
+                    case "collect": {
+                        CollectionProcessor.Result result = cluster.collect(command[1]);
+                        System.out.println(result.isSuccessful()
+                            ? "Collected by " + result.getRecipient().getSurname() + ", fee £"
+                                + String.format("%.2f", result.getCharge())
+                            : "Not collected: " + result.getFailureReason());
+                        break;
+                    }
+                    case "owner":
+                        System.out.println(cluster.ownerOf(command[1]));
+                        break;
+                    case "add-node": {
+                        int port = nextPort++;
+                        startLocalNode(Paths.get("cluster", "node-" + port), port);
+                        System.out.println("Moved " + cluster.addNode("127.0.0.1:" + port) + " parcels to port " + port);
+                        break;
+                    }
+                    case "remove-node":
+                        System.out.println("Moved " + cluster.removeNode("127.0.0.1:" + command[1]) + " parcels off port "
+                            + command[1]);
+                        break;
+                    case "rebalance":
+                        System.out.println("Moved " + cluster.finishRebalance() + " parcels");
+                        break;
+                    case "stats":
+                        cluster.stats().forEach((member, counts) ->
+                            System.out.println(member + ": " + counts[0] + " parcels, " + counts[1] + " queued"));
+                        break;
+                    case "quit":
+                        cluster.shutdownNodes();
+                        return;
+                    default:
+                        System.out.println("Unknown command");
+                }
+            } catch (IOException | RuntimeException ex) {
+                System.out.println("Error: " + ex.getMessage());
+            }
+        }
+        cluster.shutdownNodes();
+    }
+}
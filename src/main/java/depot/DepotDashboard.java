@@ -0,0 +1,129 @@
+package depot;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.function.Consumer;
+
+/**
+ * Live depot counters kept up to date from DepotEvents. The collections are read once,
+ * when the dashboard starts; after that every counter moves by one event at a time, so
+ * a refresh only copies a handful of numbers. Daily counters start again at midnight.
+ */
+public class DepotDashboard implements Consumer<DepotEvent> {
+    /** The counters at one moment, for painting. */
+    public static final class Snapshot {
+        private final long version;
+        private final long queueLength;
+        private final long parcelsPending;
+        private final long collectedToday;
+        private final long revenueTodayPence;
+        private final long averageWaitMillis;
+
+        private Snapshot(long version, long queueLength, long parcelsPending, long collectedToday,
+                         long revenueTodayPence, long averageWaitMillis) {
+            this.version = version;
+            this.queueLength = queueLength;
+            this.parcelsPending = parcelsPending;
+            this.collectedToday = collectedToday;
+            this.revenueTodayPence = revenueTodayPence;
+            this.averageWaitMillis = averageWaitMillis;
+        }
+
+        // Changes whenever a counter does, so unchanged snapshots need no repaint
+        public long getVersion() { return version; }
+        public long getQueueLength() { return queueLength; }
+        public long getParcelsPending() { return parcelsPending; }
+        public long getCollectedToday() { return collectedToday; }
+        public long getRevenueTodayPence() { return revenueTodayPence; }
+        public long getAverageWaitMillis() { return averageWaitMillis; }
+    }
+
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final Runnable unsubscribe;
+    private long version;
+    private long queueLength;
+    private long parcelsPending;
+    private LocalDate today;
+    private long collectedToday;
+    private long revenueTodayPence;
+    private long waitTodayMillis;
+    private long waitsToday;
+
+    public DepotDashboard(DepotSystem system) {
+        DepotEventBus bus = system.getEventBus();
+        // Subscribed before counting, so nothing published meanwhile is lost; an event
+        // racing the initial count can be off by one until the collection settles
+        synchronized (this) {
+            unsubscribe = bus.subscribe(this);
+            queueLength = system.getRecipientQueue().size();
+            parcelsPending = system.getPackageCollection().query().inState("Pending").count();
+            today = today();
+            ReleaseLedger ledger = system.getReleaseLedger();
+            if (ledger != null) {
+                collectedToday = ledger.getCount(today);
+                revenueTodayPence = ledger.getRevenuePence(today);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void accept(DepotEvent event) {
+        rollOver(eventDay(event.getTimestamp()));
+        switch (event.getType()) {
+            case PARCEL_ADDED:
+                if ("Pending".equals(event.getDeliveryState())) {
+                    parcelsPending++;
+                }
+                break;
+            case PARCEL_REMOVED:
+                if ("Pending".equals(event.getDeliveryState())) {
+                    parcelsPending--;
+                }
+                break;
+            case PARCEL_COLLECTED:
+                parcelsPending--;
+                collectedToday++;
+                revenueTodayPence += event.getChargePence();
+                break;
+            case RECIPIENT_ADDED:
+                queueLength++;
+                break;
+            case RECIPIENT_REMOVED:
+                queueLength--;
+                waitTodayMillis += event.getWaitMillis();
+                waitsToday++;
+                break;
+        }
+        version++;
+    }
+
+    public synchronized Snapshot snapshot() {
+        rollOver(today());
+        return new Snapshot(version, queueLength, parcelsPending, collectedToday, revenueTodayPence,
+            waitsToday == 0 ? 0 : waitTodayMillis / waitsToday);
+    }
+
+    public void close() {
+        unsubscribe.run();
+    }
+
+    private void rollOver(LocalDate day) {
+        if (day.isAfter(today)) {
+            today = day;
+            collectedToday = 0;
+            revenueTodayPence = 0;
+            waitTodayMillis = 0;
+            waitsToday = 0;
+            version++;
+        }
+    }
+
+    private LocalDate today() {
+        return eventDay(DepotClock.currentTimeMillis());
+    }
+
+    private LocalDate eventDay(long millis) {
+        return Instant.ofEpochMilli(millis).atZone(zone).toLocalDate();
+    }
+}
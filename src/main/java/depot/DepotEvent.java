@@ -0,0 +1,67 @@
+package depot;
+
+/**
+ * A change to depot state, published on a DepotEventBus by the collection that made
+ * it. Events are small and immutable so listeners can keep counters without looking
+ * back at the collections.
+ */
+public class DepotEvent {
+    public enum Type {
+        PARCEL_ADDED,
+        PARCEL_REMOVED,
+        PARCEL_COLLECTED,
+        RECIPIENT_ADDED,
+        RECIPIENT_REMOVED
+    }
+
+    private final Type type;
+    private final String packageID;
+    // Delivery state of the parcel when it was added or removed
+    private final String deliveryState;
+    private final long chargePence;
+    // Time the recipient spent in the queue, for RECIPIENT_REMOVED
+    private final long waitMillis;
+    private final long timestamp;
+
+    private DepotEvent(Type type, String packageID, String deliveryState, long chargePence, long waitMillis) {
+        this.type = type;
+        this.packageID = packageID;
+        this.deliveryState = deliveryState;
+        this.chargePence = chargePence;
+        this.waitMillis = waitMillis;
+        this.timestamp = DepotClock.currentTimeMillis();
+    }
+
+    public static DepotEvent parcelAdded(Parcel parcel) {
+        return new DepotEvent(Type.PARCEL_ADDED, parcel.getPackageID(), parcel.getDeliveryState(), 0, 0);
+    }
+
+    public static DepotEvent parcelRemoved(Parcel parcel) {
+        return new DepotEvent(Type.PARCEL_REMOVED, parcel.getPackageID(), parcel.getDeliveryState(), 0, 0);
+    }
+
+    public static DepotEvent parcelCollected(String packageID, long chargePence) {
+        return new DepotEvent(Type.PARCEL_COLLECTED, packageID, "Collected", chargePence, 0);
+    }
+
+    public static DepotEvent recipientAdded(Customer recipient) {
+        return new DepotEvent(Type.RECIPIENT_ADDED, recipient.getPackageID(), null, 0, 0);
+    }
+
+    public static DepotEvent recipientRemoved(Customer recipient, long waitMillis) {
+        return new DepotEvent(Type.RECIPIENT_REMOVED, recipient.getPackageID(), null, 0, waitMillis);
+    }
+
+    public Type getType() { return type; }
+    public String getPackageID() { return packageID; }
+    public String getDeliveryState() { return deliveryState; }
+    public long getChargePence() { return chargePence; }
+    public long getWaitMillis() { return waitMillis; }
+    public long getTimestamp() { return timestamp; }
+
+    @Override
+    public String toString() {
+        return String.format("DepotEvent[Type=%s, PackageID=%s, State=%s, Charge=%d, Wait=%d]",
+            type, packageID, deliveryState, chargePence, waitMillis);
+    }
+}
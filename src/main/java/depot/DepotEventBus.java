@@ -0,0 +1,36 @@
+package depot;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process publish/subscribe for DepotEvents. Events are delivered synchronously on
+ * the publishing thread, so listeners must be quick and thread-safe; anything slow,
+ * such as painting, belongs on another thread fed from what the listener records.
+ * Publishers check hasListeners first, so an unwatched depot builds no events.
+ */
+public class DepotEventBus {
+    private final List<Consumer<DepotEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    // Returns an action that removes the listener again
+    public Runnable subscribe(Consumer<DepotEvent> listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    public boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    public void publish(DepotEvent event) {
+        for (Consumer<DepotEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException ex) {
+                // One failing listener must not stop the change or the other listeners
+                System.err.println("Event listener failed: " + ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,855 @@
+package depot;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.TableModel;
+import java.awt.*;
+import java.awt.event.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+public class DepotGUI extends JFrame {
+    // Update these color constants at the start of your class variables
+    private final Color primaryColor = new Color(0, 75, 140);
+    private final Color secondaryColor = new Color(0, 90, 160);
+    private final Color accentColor = new Color(0, 105, 180);
+    private static final int SEARCH_RESULTS = 50;
+    private static final int SEARCH_DELAY_MILLIS = 150;
+    private static final int PROCESSED_ROWS = 1000;
+    private final DepotSystem depotSystem;
+    private final JTextArea mainDisplayArea;
+    private final CardLayout viewCards = new CardLayout();
+    private final JPanel viewPanel = new JPanel(viewCards);
+    private final InventoryTableModel inventoryModel;
+    private final QueueTableModel queueModel;
+    private final EventLogTableModel eventLogModel;
+    private final JComboBox<String> stateFilter = new JComboBox<>();
+    private int viewGeneration;
+    private final JLabel statusLabel;
+    private final DepotDashboard dashboard;
+    private final JLabel[] dashboardLabels = new JLabel[5];
+    private long shownDashboardVersion = -1;
+    private final Timer dashboardTimer;
+    private boolean exiting;
+
+    public DepotGUI() {
+        super("Depot Management System");
+        this.depotSystem = new DepotSystem();
+        this.depotSystem.initializeSystem();
+
+        // Set up the main frame
+        // Closing the window shuts the system down the same way Exit does
+        setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                exit();
+            }
+        });
+        setSize(1200, 800);
+        setLocationRelativeTo(null);
+        setLayout(new BorderLayout(10, 10));
+
+        // Create main components
+        JPanel sidebarPanel = createSidebar();
+        mainDisplayArea = createMainDisplayArea();
+        statusLabel = createStatusLabel();
+
+        inventoryModel = new InventoryTableModel(depotSystem.getPackageCollection());
+        queueModel = new QueueTableModel(depotSystem.getRecipientQueue());
+        eventLogModel = new EventLogTableModel(EventLogger.getInstance().getReader());
+
+        // Layout setup: messages and the three table views share the centre
+        viewPanel.add(new JScrollPane(mainDisplayArea), "messages");
+        viewPanel.add(createInventoryView(), "inventory");
+        viewPanel.add(createQueueView(), "queue");
+        viewPanel.add(createEventLogView(), "log");
+        JPanel centerPanel = new JPanel(new BorderLayout());
+        centerPanel.add(createSearchPanel(), BorderLayout.NORTH);
+        centerPanel.add(viewPanel, BorderLayout.CENTER);
+        add(sidebarPanel, BorderLayout.WEST);
+        add(centerPanel, BorderLayout.CENTER);
+        add(createStatusPanel(), BorderLayout.SOUTH);
+
+        // Counters follow the change events; the timer only paints them, at most once a frame
+        dashboard = new DepotDashboard(depotSystem);
+        dashboardTimer = new Timer(1000 / screenRefreshRate(), e -> updateDashboard());
+        dashboardTimer.start();
+
+        // Apply modern look and feel
+        applyModernStyle();
+    }
+
+    private JPanel createSidebar() {
+        JPanel sidebar = new JPanel();
+        sidebar.setLayout(new BoxLayout(sidebar, BoxLayout.Y_AXIS));
+        sidebar.setPreferredSize(new Dimension(200, getHeight()));
+        sidebar.setBackground(primaryColor);
+        sidebar.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        // Add buttons
+        String[] buttonLabels = {
+            "Process Parcel", "View Queue", "View Inventory",
+            "System Log", "Add Customer", "Add Parcel", "Import Manifest",
+            "Remove Customer", "Remove Parcel", "View Processed", "Exit" 
+        };
+
+        for (String label : buttonLabels) {
+            JButton button = createStyledButton(label);
+            sidebar.add(button);
+            sidebar.add(Box.createRigidArea(new Dimension(0, 10)));
+        }
+
+        return sidebar;
+    }
+
+    private JButton createStyledButton(String text) {
+        JButton button = new JButton(text);
+        button.setAlignmentX(Component.CENTER_ALIGNMENT);
+        button.setMaximumSize(new Dimension(180, 40));
+        button.setBackground(secondaryColor);
+        button.setForeground(Color.WHITE);
+        button.setFocusPainted(false);
+        button.setOpaque(true);  
+        button.setBorderPainted(false);
+        button.setBorder(BorderFactory.createEmptyBorder(8, 15, 8, 15));
+        button.setFont(new Font("Arial", Font.BOLD, 12));
+
+        button.addActionListener(e -> handleButtonClick(text, button));
+        button.addMouseListener(new MouseAdapter() {
+            public void mouseEntered(MouseEvent e) {
+                button.setBackground(accentColor);
+            }
+            public void mouseExited(MouseEvent e) {
+                button.setBackground(secondaryColor);
+            }
+        });
+
+        return button;
+    }
+
+    private JTextArea createMainDisplayArea() {
+        JTextArea textArea = new JTextArea();
+        textArea.setEditable(false);
+        textArea.setMargin(new Insets(10, 10, 10, 10));
+        textArea.setFont(new Font("Monospaced", Font.PLAIN, 14));
+        textArea.setBackground(new Color(245, 245, 245));
+        return textArea;
+    }
+
+    private JPanel createInventoryView() {
+        JSpinner minDays = new JSpinner(new SpinnerNumberModel(0, 0, 3650, 1));
+        Runnable applyFilter = () -> {
+            String state = stateFilter.getSelectedIndex() <= 0 ? null : (String) stateFilter.getSelectedItem();
+            inventoryModel.setFilter(state, (Integer) minDays.getValue());
+            refreshView(inventoryModel::rebuild);
+        };
+        stateFilter.addActionListener(e -> applyFilter.run());
+        minDays.addChangeListener(e -> applyFilter.run());
+
+        JTable table = createTable(inventoryModel);
+        onHeaderClick(table, column -> {
+            boolean ascending = column != inventoryModel.getSortColumn() || !inventoryModel.isAscending();
+            inventoryModel.setSort(column, ascending);
+            refreshView(inventoryModel::rebuild);
+        });
+        return createTableView(table, new JLabel("State:"), stateFilter, new JLabel("Stored at least (days):"), minDays);
+    }
+
+    private JPanel createQueueView() {
+        JTextField nameFilter = new JTextField(20);
+        onTextChange(nameFilter, () -> {
+            queueModel.setFilter(nameFilter.getText());
+            refreshView(queueModel::rebuild);
+        });
+
+        JTable table = createTable(queueModel);
+        onHeaderClick(table, column -> {
+            boolean ascending = column != queueModel.getSortColumn() || !queueModel.isAscending();
+            queueModel.setSort(column, ascending);
+            refreshView(queueModel::rebuild);
+        });
+        return createTableView(table, new JLabel("Name:"), nameFilter);
+    }
+
+    private JPanel createEventLogView() {
+        JTextField eventFilter = new JTextField(20);
+        // Filtering reads the whole log, so it waits for Enter rather than every keystroke
+        eventFilter.addActionListener(e -> {
+            eventLogModel.setFilter(eventFilter.getText());
+            refreshView(this::rebuildEventLog);
+        });
+
+        JTable table = createTable(eventLogModel);
+        table.getColumnModel().getColumn(0).setMaxWidth(200);
+        onHeaderClick(table, column -> {
+            eventLogModel.setNewestFirst(!eventLogModel.isNewestFirst());
+            refreshView(this::rebuildEventLog);
+        });
+        return createTableView(table, new JLabel("Containing:"), eventFilter);
+    }
+
+    // Events still queued by the async logger are written out first
+    private Runnable rebuildEventLog() {
+        EventLogger.getInstance().flush();
+        return eventLogModel.rebuild();
+    }
+
+    private JTable createTable(TableModel model) {
+        JTable table = new JTable(model);
+        table.setFont(new Font("Monospaced", Font.PLAIN, 14));
+        // A fixed row height lets the table work out which rows are visible without measuring any
+        table.setRowHeight(22);
+        table.setFillsViewportHeight(true);
+        table.getTableHeader().setReorderingAllowed(false);
+        table.getTableHeader().setToolTipText("Click a column to sort by it");
+        return table;
+    }
+
+    private JPanel createTableView(JTable table, JComponent... filters) {
+        JPanel filterBar = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+        for (JComponent filter : filters) {
+            filterBar.add(filter);
+        }
+        JPanel view = new JPanel(new BorderLayout());
+        view.add(filterBar, BorderLayout.NORTH);
+        view.add(new JScrollPane(table), BorderLayout.CENTER);
+        return view;
+    }
+
+    private static void onHeaderClick(JTable table, IntConsumer action) {
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                int column = table.columnAtPoint(e.getPoint());
+                if (column >= 0) {
+                    action.accept(table.convertColumnIndexToModel(column));
+                }
+            }
+        });
+    }
+
+    private static void onTextChange(JTextField field, Runnable action) {
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { action.run(); }
+            public void removeUpdate(DocumentEvent e) { action.run(); }
+            public void changedUpdate(DocumentEvent e) { action.run(); }
+        });
+    }
+
+    /*
+     * Rebuilds a table's rows on a worker thread and publishes them on this one. Only
+     * the latest request is published, so a slow rebuild cannot overwrite a newer one.
+     */
+    private void refreshView(Supplier<Runnable> rebuild) {
+        int generation = ++viewGeneration;
+        statusLabel.setText("Loading...");
+        new SwingWorker<Runnable, Void>() {
+            @Override
+            protected Runnable doInBackground() {
+                return rebuild.get();
+            }
+
+            @Override
+            protected void done() {
+                if (generation != viewGeneration) {
+                    return;
+                }
+                try {
+                    get().run();
+                    updateStatus();
+                } catch (Exception e) {
+                    statusLabel.setText("Could not load view: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    private void showInventoryView() {
+        // States can appear as parcels change, so the choices are refreshed on each visit
+        Object selected = stateFilter.getSelectedItem();
+        ActionListener[] listeners = stateFilter.getActionListeners();
+        for (ActionListener listener : listeners) {
+            stateFilter.removeActionListener(listener);
+        }
+        stateFilter.removeAllItems();
+        stateFilter.addItem("All states");
+        depotSystem.getPackageCollection().stateNames().forEach(stateFilter::addItem);
+        stateFilter.setSelectedItem(selected == null ? "All states" : selected);
+        for (ActionListener listener : listeners) {
+            stateFilter.addActionListener(listener);
+        }
+        viewCards.show(viewPanel, "inventory");
+        refreshView(inventoryModel::rebuild);
+    }
+
+    private void showMessages() {
+        viewCards.show(viewPanel, "messages");
+    }
+
+    private void appendMessage(String message) {
+        showMessages();
+        mainDisplayArea.append(message);
+    }
+
+    // Search-as-you-type over recipient names; results replace the main display
+    private JPanel createSearchPanel() {
+        JPanel searchPanel = new JPanel(new BorderLayout(10, 0));
+        searchPanel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+        JLabel label = new JLabel("Search recipients:");
+        label.setFont(new Font("Arial", Font.PLAIN, 12));
+        JTextField searchField = new JTextField();
+        // Searches once typing pauses rather than on every keystroke
+        Timer debounce = new Timer(SEARCH_DELAY_MILLIS, e -> showSearchResults(searchField.getText()));
+        debounce.setRepeats(false);
+        onTextChange(searchField, debounce::restart);
+        searchPanel.add(label, BorderLayout.WEST);
+        searchPanel.add(searchField, BorderLayout.CENTER);
+        return searchPanel;
+    }
+
+    private void showSearchResults(String query) {
+        showMessages();
+        if (query.trim().isEmpty()) {
+            // Keeps a search still running from filling the display again
+            viewGeneration++;
+            mainDisplayArea.setText("");
+            return;
+        }
+        refreshView(() -> {
+            List<Customer> matches = depotSystem.searchRecipients(query, SEARCH_RESULTS);
+            StringBuilder text = new StringBuilder("=== Recipients matching \"" + query.trim() + "\" ===\n\n");
+            if (matches.isEmpty()) {
+                text.append("No matching recipients\n");
+            }
+            for (Customer recipient : matches) {
+                text.append(recipient).append('\n');
+            }
+            return () -> mainDisplayArea.setText(text.toString());
+        });
+    }
+
+    private JLabel createStatusLabel() {
+        JLabel label = new JLabel("System Status: Ready");
+        label.setFont(new Font("Arial", Font.PLAIN, 12));
+        label.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+        return label;
+    }
+
+    private JPanel createStatusPanel() {
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        statusPanel.add(statusLabel, BorderLayout.WEST);
+        statusPanel.add(createDashboardPanel(), BorderLayout.EAST);
+        statusPanel.setBackground(new Color(240, 240, 240));
+        statusPanel.setBorder(BorderFactory.createMatteBorder(1, 0, 0, 0, Color.LIGHT_GRAY));
+        return statusPanel;
+    }
+
+    private JPanel createDashboardPanel() {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 15, 0));
+        panel.setOpaque(false);
+        for (int i = 0; i < dashboardLabels.length; i++) {
+            dashboardLabels[i] = new JLabel();
+            dashboardLabels[i].setFont(new Font("Arial", Font.PLAIN, 12));
+            panel.add(dashboardLabels[i]);
+        }
+        return panel;
+    }
+
+    // Repaints the counters only when an event has changed them since the last frame
+    private void updateDashboard() {
+        DepotDashboard.Snapshot counters = dashboard.snapshot();
+        if (counters.getVersion() == shownDashboardVersion) {
+            return;
+        }
+        shownDashboardVersion = counters.getVersion();
+        dashboardLabels[0].setText("Queue: " + counters.getQueueLength());
+        dashboardLabels[1].setText("Pending: " + counters.getParcelsPending());
+        dashboardLabels[2].setText("Collected today: " + counters.getCollectedToday());
+        dashboardLabels[3].setText(String.format("Revenue today: £%d.%02d",
+            counters.getRevenueTodayPence() / 100, counters.getRevenueTodayPence() % 100));
+        dashboardLabels[4].setText(String.format("Average wait: %.1f min", counters.getAverageWaitMillis() / 60000.0));
+    }
+
+    private static int screenRefreshRate() {
+        if (!GraphicsEnvironment.isHeadless()) {
+            int rate = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+            if (rate != DisplayMode.REFRESH_RATE_UNKNOWN) {
+                return rate;
+            }
+        }
+        return 60;
+    }
+
+    private void handleButtonClick(String buttonText, JButton source) {
+        switch (buttonText) {
+            case "Process Parcel":
+                showProcessParcelDialog();
+                break;
+            case "View Queue":
+                viewCards.show(viewPanel, "queue");
+                refreshView(queueModel::rebuild);
+                break;
+            case "View Inventory":
+                showInventoryView();
+                break;
+            case "System Log":
+                viewCards.show(viewPanel, "log");
+                refreshView(this::rebuildEventLog);
+                break;
+            case "Add Customer":
+                showAddCustomerDialog();
+                break;
+            case "Add Parcel":
+                showAddParcelDialog();
+                break;
+            case "Import Manifest":
+                importManifest(source);
+                break;
+            case "Remove Customer":
+                showRemoveCustomerDialog();
+                break;
+            case "Remove Parcel":
+                showRemoveParcelDialog();
+                break;
+            case "View Processed":
+                displayProcessedParcels();
+                break;    
+            case "Exit":
+                exit();
+                break;
+        }
+    }
+
+    // Shutdown waits on the command queue and writes snapshots, so it runs off this thread
+    private void exit() {
+        if (exiting) {
+            return;
+        }
+        exiting = true;
+        dashboardTimer.stop();
+        dashboard.close();
+        for (Component component : getContentPane().getComponents()) {
+            setEnabledTree(component, false);
+        }
+        statusLabel.setText("Shutting down...");
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() {
+                depotSystem.shutdown();
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                dispose();
+                System.exit(0);
+            }
+        }.execute();
+    }
+
+    private static void setEnabledTree(Component component, boolean enabled) {
+        component.setEnabled(enabled);
+        if (component instanceof Container container) {
+            for (Component child : container.getComponents()) {
+                setEnabledTree(child, enabled);
+            }
+        }
+    }
+
+    private void importManifest(JButton importButton) {
+        JFileChooser chooser = new JFileChooser(new File("."));
+        chooser.setDialogTitle("Import Manifest");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path manifest = chooser.getSelectedFile().toPath();
+        appendMessage("Importing manifest " + manifest.getFileName() + "...\n");
+        runCommand(importButton, depotSystem.ingestManifest(manifest), report -> {
+            StringBuilder message = new StringBuilder(String.format("Manifest %s: %d parcels added, %d rejected in %.1f s%n",
+                manifest.getFileName(), report.getAccepted(), report.getRejections().size(),
+                report.getElapsedMillis() / 1000.0));
+            if (report.getRejectionFile() != null) {
+                message.append("Rejected rows written to ").append(report.getRejectionFile()).append("\n");
+            }
+            if (!report.isComplete()) {
+                message.append("Import stopped early: ").append(report.getFailure()).append("\n");
+            }
+            appendMessage(message.toString());
+        });
+    }
+
+    // Totals come from the ledger's sidecar; only the newest rows are read, off this thread
+    private void displayProcessedParcels() {
+        showMessages();
+        mainDisplayArea.setText("=== Processed Parcels ===\n\nLoading...\n");
+        ReleaseLedger ledger = depotSystem.getReleaseLedger();
+        if (ledger == null) {
+            mainDisplayArea.setText("=== Processed Parcels ===\n\nRelease ledger unavailable\n");
+            return;
+        }
+        refreshView(() -> {
+            StringBuilder text = new StringBuilder("=== Processed Parcels ===\n\n");
+            LocalDate today = ledger.today();
+            long total = ledger.getTotalCount();
+            text.append(String.format("Released today: %d, revenue £%.2f, average £%.2f%n",
+                ledger.getCount(today), ledger.getRevenuePence(today) / 100.0,
+                ledger.getAverageChargePence(today) / 100.0));
+            text.append(String.format("Released in total: %d, revenue £%.2f%n%n",
+                total, ledger.getTotalRevenuePence() / 100.0));
+            try {
+                List<ReleaseLedger.Entry> entries = ledger.latest(PROCESSED_ROWS);
+                text.append("Latest ").append(entries.size()).append(", newest first:\n");
+                for (ReleaseLedger.Entry entry : entries) {
+                    text.append(entry).append('\n');
+                }
+            } catch (IOException e) {
+                text.append("Error loading processed parcels: ").append(e.getMessage()).append('\n');
+            }
+            return () -> mainDisplayArea.setText(text.toString());
+        });
+    }
+
+    private void showProcessParcelDialog() {
+        JDialog dialog = createStyledDialog("Process Parcel");
+        JPanel panel = new JPanel(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+
+        JTextField parcelIdField = new JTextField(20);
+        JButton processButton = createStyledButton("Process");
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false);
+        JButton cancelButton = createStyledButton("Cancel");
+        cancelButton.setVisible(false);
+        
+        processButton.addActionListener(e -> {
+            List<String> parcelIds = new ArrayList<>();
+            for (String id : parcelIdField.getText().trim().split("[,\\s]+")) {
+                if (!id.isEmpty()) {
+                    parcelIds.add(id);
+                }
+            }
+            if (parcelIds.isEmpty()) {
+                showError("Please enter a Parcel ID");
+            } else if (parcelIds.size() == 1) {
+                String parcelId = parcelIds.get(0);
+                runCommand(processButton, depotSystem.collect(parcelId), result -> {
+                    if (result.isSuccessful()) {
+                        dialog.dispose();
+                        appendMessage("Processed parcel: " + parcelId + ", fee £"
+                            + String.format("%.2f", result.getCharge()) + "\n");
+                    } else {
+                        showError("Could not process package " + parcelId + ": " + result.getFailureReason());
+                    }
+                });
+            } else {
+                // Several parcels: show progress and allow the rest to be cancelled
+                progressBar.setMaximum(parcelIds.size());
+                progressBar.setValue(0);
+                progressBar.setVisible(true);
+                cancelButton.setVisible(true);
+                dialog.pack();
+                CompletableFuture<List<CollectionProcessor.Result>> batch = depotSystem.collectAll(parcelIds,
+                    (completed, total) -> SwingUtilities.invokeLater(() -> progressBar.setValue(completed)));
+                ActionListener cancel = c -> batch.cancel(false);
+                cancelButton.addActionListener(cancel);
+                runCommand(processButton, batch, results -> {
+                    cancelButton.removeActionListener(cancel);
+                    dialog.dispose();
+                    showBatchResults(results);
+                });
+                batch.whenComplete((results, error) -> {
+                    if (batch.isCancelled()) {
+                        SwingUtilities.invokeLater(() -> {
+                            dialog.dispose();
+                            appendMessage("Batch cancelled; parcels processed before cancelling stay processed\n");
+                        });
+                    }
+                });
+            }
+        });
+
+        // Add components to panel
+        gbc.gridx = 0; gbc.gridy = 0;
+        panel.add(new JLabel("Enter Parcel ID (several separated by commas):"), gbc);
+        gbc.gridx = 0; gbc.gridy = 1;
+        panel.add(parcelIdField, gbc);
+        gbc.gridx = 0; gbc.gridy = 2;
+        panel.add(processButton, gbc);
+        gbc.gridx = 0; gbc.gridy = 3;
+        panel.add(progressBar, gbc);
+        gbc.gridx = 0; gbc.gridy = 4;
+        panel.add(cancelButton, gbc);
+
+        dialog.add(panel);
+        dialog.pack();
+        dialog.setVisible(true);
+    }
+
+    private void showAddCustomerDialog() {
+        JDialog dialog = createStyledDialog("Add New Customer");
+        JPanel panel = new JPanel(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+
+        JTextField nameField = new JTextField(20);
+        JTextField parcelIdField = new JTextField(20);
+        JButton addButton = createStyledButton("Add Customer");
+
+        addButton.addActionListener(e -> {
+            String name = nameField.getText().trim();
+            String parcelId = parcelIdField.getText().trim();
+            if (!name.isEmpty() && !parcelId.isEmpty()) {
+                runCommand(addButton, depotSystem.registerRecipient(name, parcelId), commandDone(dialog));
+            } else {
+                showError("Please fill all fields");
+            }
+        });
+
+        // Add components to panel
+        gbc.gridx = 0; gbc.gridy = 0;
+        panel.add(new JLabel("Customer Name:"), gbc);
+        gbc.gridx = 0; gbc.gridy = 1;
+        panel.add(nameField, gbc);
+        gbc.gridx = 0; gbc.gridy = 2;
+        panel.add(new JLabel("Parcel ID:"), gbc);
+        gbc.gridx = 0; gbc.gridy = 3;
+        panel.add(parcelIdField, gbc);
+        gbc.gridx = 0; gbc.gridy = 4;
+        panel.add(addButton, gbc);
+
+        dialog.add(panel);
+        dialog.pack();
+        dialog.setVisible(true);
+    }
+
+    private void showAddParcelDialog() {
+        JDialog dialog = createStyledDialog("Add New Parcel");
+        JPanel panel = new JPanel(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+    
+        JTextField idField = new JTextField(20);
+        JSpinner weightSpinner = new JSpinner(new SpinnerNumberModel(0.0, 0.0, 1000.0, 0.1));
+        JTextField dimensionsField = new JTextField(20);
+        JButton addButton = createStyledButton("Add Parcel");
+    
+        addButton.addActionListener(e -> {
+            String id = idField.getText().trim();
+            double weight = (Double) weightSpinner.getValue();
+            String dimensions = dimensionsField.getText().trim();
+            
+            if (!id.isEmpty() && !dimensions.isEmpty()) {
+                runCommand(addButton, depotSystem.registerParcel(id, (float) weight, dimensions), commandDone(dialog));
+            } else {
+                showError("Please fill all fields");
+            }
+        });
+    
+        // Add components to panel
+        gbc.gridx = 0; gbc.gridy = 0;
+        panel.add(new JLabel("Parcel ID:"), gbc);
+        gbc.gridx = 0; gbc.gridy = 1;
+        panel.add(idField, gbc);
+        
+        gbc.gridx = 0; gbc.gridy = 2;
+        panel.add(new JLabel("Weight (kg):"), gbc);
+        gbc.gridx = 0; gbc.gridy = 3;
+        panel.add(weightSpinner, gbc);
+        
+        gbc.gridx = 0; gbc.gridy = 4;
+        panel.add(new JLabel("Dimensions (LxWxH):"), gbc);
+        gbc.gridx = 0; gbc.gridy = 5;
+        panel.add(dimensionsField, gbc);
+        
+        gbc.gridx = 0; gbc.gridy = 6;
+        gbc.insets = new Insets(15, 5, 5, 5);
+        panel.add(addButton, gbc);
+    
+        dialog.add(panel);
+        dialog.pack();
+        dialog.setVisible(true);
+    }
+
+    private void showRemoveCustomerDialog() {
+        JDialog dialog = createStyledDialog("Remove Customer");
+        JPanel panel = new JPanel(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+    
+        JTextField nameField = new JTextField(20);
+        JTextField parcelIdField = new JTextField(20);
+        JButton removeButton = createStyledButton("Remove Customer");
+    
+        removeButton.addActionListener(e -> {
+            String name = nameField.getText().trim();
+            String parcelId = parcelIdField.getText().trim();
+            
+            if (!name.isEmpty() && !parcelId.isEmpty()) {
+                runCommand(removeButton, depotSystem.deregisterRecipient(name, parcelId), commandDone(dialog));
+            } else {
+                showError("Please fill all fields");
+            }
+        });
+    
+        // Add components to panel
+        gbc.gridx = 0; gbc.gridy = 0;
+        panel.add(new JLabel("Customer Name:"), gbc);
+        gbc.gridx = 0; gbc.gridy = 1;
+        panel.add(nameField, gbc);
+        
+        gbc.gridx = 0; gbc.gridy = 2;
+        panel.add(new JLabel("Parcel ID:"), gbc);
+        gbc.gridx = 0; gbc.gridy = 3;
+        panel.add(parcelIdField, gbc);
+        
+        gbc.gridx = 0; gbc.gridy = 4;
+        gbc.insets = new Insets(15, 5, 5, 5);
+        panel.add(removeButton, gbc);
+    
+        dialog.add(panel);
+        dialog.pack();
+        dialog.setVisible(true);
+    }
+
+    private void showRemoveParcelDialog() {
+        JDialog dialog = createStyledDialog("Remove Parcel");
+        JPanel panel = new JPanel(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+    
+        JTextField parcelIdField = new JTextField(20);
+        JButton removeButton = createStyledButton("Remove Parcel");
+    
+        removeButton.addActionListener(e -> {
+            String parcelId = parcelIdField.getText().trim();
+            
+            if (!parcelId.isEmpty()) {
+                runCommand(removeButton, depotSystem.removeParcel(parcelId), commandDone(dialog));
+            } else {
+                showError("Please enter a Parcel ID");
+            }
+        });
+    
+        // Add components to panel
+        gbc.gridx = 0; gbc.gridy = 0;
+        panel.add(new JLabel("Parcel ID:"), gbc);
+        gbc.gridx = 0; gbc.gridy = 1;
+        panel.add(parcelIdField, gbc);
+        
+        gbc.gridx = 0; gbc.gridy = 2;
+        gbc.insets = new Insets(15, 5, 5, 5);
+        panel.add(removeButton, gbc);
+    
+        dialog.add(panel);
+        dialog.pack();
+        dialog.setVisible(true);
+    }
+
+    /*
+     * Runs a command off the event thread. Only the control that issued it is disabled
+     * while it is in flight; the outcome is handled back on the event thread.
+     */
+    private <T> void runCommand(JComponent control, CompletableFuture<T> command, Consumer<T> onDone) {
+        control.setEnabled(false);
+        statusLabel.setText("Working...");
+        command.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            control.setEnabled(true);
+            updateStatus();
+            if (error instanceof CancellationException) {
+                return;
+            }
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                showError("Command failed: " + cause.getMessage());
+                return;
+            }
+            onDone.accept(result);
+        }));
+    }
+
+    // Closes the dialog and reports success, or keeps it open and shows why not
+    private Consumer<DepotSystem.CommandResult> commandDone(JDialog dialog) {
+        return result -> {
+            if (result.isSuccessful()) {
+                dialog.dispose();
+                appendMessage(result.getMessage() + "\n");
+            } else {
+                showError(result.getMessage());
+            }
+        };
+    }
+
+    private void showBatchResults(List<CollectionProcessor.Result> results) {
+        int processed = 0;
+        StringBuilder failures = new StringBuilder();
+        for (CollectionProcessor.Result result : results) {
+            if (result.isSuccessful()) {
+                processed++;
+            } else {
+                failures.append("Could not process package ").append(result.getPackageID())
+                        .append(": ").append(result.getFailureReason()).append("\n");
+            }
+        }
+        appendMessage("Processed " + processed + " of " + results.size() + " parcels\n" + failures);
+    }
+
+    private void showError(String message) {
+        JOptionPane.showMessageDialog(
+            this,
+            message,
+            "Error",
+            JOptionPane.ERROR_MESSAGE
+        );
+    }
+
+    private JDialog createStyledDialog(String title) {
+        JDialog dialog = new JDialog(this, title, true);
+        dialog.setLocationRelativeTo(this);
+        dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        dialog.getRootPane().setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        return dialog;
+    }
+
+    private void updateStatus() {
+        LocalDateTime now = LocalDateTime.now();
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm:ss");
+        statusLabel.setText("Last Updated: " + now.format(formatter));
+    }
+
+    private void applyModernStyle() {
+        try {
+            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+            SwingUtilities.updateComponentTreeUI(this);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static void main(String[] args) {
+        DepotMetrics.getInstance().install();
+        EventLogger.getInstance().enableAsync(EventLogger.FlushPolicy.everyMillis(200));
+        SwingUtilities.invokeLater(() -> {
+            DepotGUI gui = new DepotGUI();
+            gui.setVisible(true);
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,396 @@
+package depot;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON over HTTP for the handheld scanners, on the same state as the console and GUI:
+ *
+ *   GET    /parcels/{id}               parcel details
+ *   POST   /parcels                    {"packageID", "massKg", "dimensions"}
+ *   DELETE /parcels/{id}
+ *   GET    /queue/{id}                 recipient, place in the queue and estimated wait
+ *   POST   /call                       {"counter"}, calls the next recipient to the counter
+ *   POST   /collect                    {"packageID"}
+ *   POST   /recipients                 {"name", "packageID"}, optionally "bookedSlot" as an
+ *                                      ISO-8601 instant and "needsAssistance": true
+ *   DELETE /recipients/{id}?name=...
+ *
+ * Lookups read the collections directly. Changes go through the DepotSystem commands,
+ * so they are journalled and ordered with those from the other front ends, except
+ * collections, which run on the request's own thread as the counters' do. Requests are
+ * handled on virtual threads when the JVM supports them and on a fixed pool otherwise.
+ */
+public class DepotHttpServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_THREADS = 64;
+    // Connections the OS may queue before they are accepted
+    private static final int ACCEPT_BACKLOG = 4096;
+    private static final int MAX_BODY = 64 * 1024;
+    private static final int MAX_IDLE_CONNECTIONS = 10000;
+
+    private final DepotSystem depotSystem;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private static final class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private interface Route {
+        Response handle(HttpExchange exchange) throws IOException;
+    }
+
+    public DepotHttpServer(DepotSystem depotSystem, int port) throws IOException {
+        this(depotSystem, port, DEFAULT_THREADS);
+    }
+
+    // `threads` sizes the fallback pool; virtual threads need no limit
+    public DepotHttpServer(DepotSystem depotSystem, int port, int threads) throws IOException {
+        this.depotSystem = depotSystem;
+        // Read when the first server starts. Headers and body go out as separate writes, so
+        // without TCP_NODELAY each response waits about 40 ms on the client's delayed ACK;
+        // and by default only 200 idle keep-alive connections are kept, one per scanner
+        setDefault("sun.net.httpserver.nodelay", "true");
+        setDefault("sun.net.httpserver.maxIdleConnections", String.valueOf(MAX_IDLE_CONNECTIONS));
+        this.server = HttpServer.create(new InetSocketAddress(port), ACCEPT_BACKLOG);
+        this.executor = createExecutor(threads);
+        server.setExecutor(executor);
+        server.createContext("/parcels", exchange -> serve(exchange, this::parcels));
+        server.createContext("/queue", exchange -> serve(exchange, this::queue));
+        server.createContext("/call", exchange -> serve(exchange, this::call));
+        server.createContext("/collect", exchange -> serve(exchange, this::collect));
+        server.createContext("/recipients", exchange -> serve(exchange, this::recipients));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // Gives requests in flight up to a second to finish
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void serve(HttpExchange exchange, Route route) {
+        long started = DepotMetrics.start();
+        DepotMetrics.count(DepotMetrics.Operation.HTTP_REQUESTS);
+        Response response;
+        try {
+            response = route.handle(exchange);
+        } catch (IllegalArgumentException ex) {
+            response = error(400, ex.getMessage());
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("HTTP request failed: " + ex.getMessage());
+            EventLogger.getInstance().logEvent("HTTP " + exchange.getRequestMethod() + " "
+                + exchange.getRequestURI() + " failed: " + ex.getMessage());
+            response = error(500, "internal error");
+        }
+        if (response.status >= 500) {
+            DepotMetrics.count(DepotMetrics.Operation.HTTP_ERRORS);
+        }
+        try {
+            byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(response.status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException ex) {
+            // The scanner went away before the answer was sent
+        } finally {
+            exchange.close();
+            DepotMetrics.stop(DepotMetrics.Stage.HTTP_REQUEST, started);
+        }
+    }
+
+    private Response parcels(HttpExchange exchange) throws IOException {
+        String id = pathID(exchange);
+        switch (exchange.getRequestMethod()) {
+            case "GET":
+                if (id == null) {
+                    return error(400, "package ID missing from path");
+                }
+                Parcel parcel = depotSystem.getPackageCollection().getPackageByID(id);
+                return parcel == null ? error(404, "package " + id + " not found") : ok(parcelJson(parcel));
+            case "POST": {
+                Map<String, String> fields = readBody(exchange);
+                String packageID = required(fields, "packageID");
+                String dimensions = required(fields, "dimensions");
+                float massKg;
+                try {
+                    massKg = Float.parseFloat(required(fields, "massKg"));
+                } catch (NumberFormatException ex) {
+                    throw new IllegalArgumentException("massKg must be a number");
+                }
+                if (!(massKg > 0)) {
+                    throw new IllegalArgumentException("massKg must be positive");
+                }
+                return commandResponse(depotSystem.registerParcel(packageID, massKg, dimensions), packageID, 201);
+            }
+            case "DELETE":
+                if (id == null) {
+                    return error(400, "package ID missing from path");
+                }
+                return commandResponse(depotSystem.removeParcel(id), id, 200);
+            default:
+                return error(405, "method not allowed");
+        }
+    }
+
+    private Response queue(HttpExchange exchange) {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            return error(405, "method not allowed");
+        }
+        String id = pathID(exchange);
+        if (id == null) {
+            return error(400, "package ID missing from path");
+        }
+        QueueOfCustomers recipientQueue = depotSystem.getRecipientQueue();
+        Customer recipient = recipientQueue.findRecipientByPackageID(id);
+        int position = recipientQueue.positionOf(id);
+        if (recipient == null || position == 0) {
+            return error(404, "no recipient queued for package " + id);
+        }
+        Json.ObjectWriter body = Json.object()
+            .field("packageID", id)
+            .field("recipient", recipient.getSurname())
+            .field("position", position)
+            .field("queueLength", recipientQueue.size());
+        RecipientScheduler.Priority priority = recipientQueue.getScheduler().priorityOf(id);
+        if (priority != null) {
+            body.field("priority", priority.name());
+        }
+        long waitMillis = recipientQueue.estimatedWaitMillis(id);
+        if (waitMillis >= 0) {
+            body.field("estimatedWaitSeconds", Math.round(waitMillis / 1000.0));
+        }
+        return ok(body.toString());
+    }
+
+    private Response call(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            return error(405, "method not allowed");
+        }
+        int counter;
+        try {
+            counter = Integer.parseInt(required(readBody(exchange), "counter"));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("counter must be a whole number");
+        }
+        Customer recipient = depotSystem.callNextRecipient(counter);
+        if (recipient == null) {
+            return error(404, "nobody is waiting");
+        }
+        return ok(Json.object()
+            .field("counter", counter)
+            .field("recipient", recipient.getSurname())
+            .field("packageID", recipient.getPackageID())
+            .field("sequence", recipient.getSequenceNumber())
+            .toString());
+    }
+
+    private Response collect(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            return error(405, "method not allowed");
+        }
+        String packageID = required(readBody(exchange), "packageID");
+        CollectionProcessor.Result result = depotSystem.collectParcel(packageID);
+        if (!result.isSuccessful()) {
+            int status = result.getFailureReason().equals("package not found") ? 404 : 409;
+            return error(status, result.getFailureReason());
+        }
+        return ok(Json.object()
+            .field("packageID", result.getPackageID())
+            .field("recipient", result.getRecipient().getSurname())
+            .field("charge", Math.round(result.getCharge() * 100.0) / 100.0)
+            .field("collected", true)
+            .toString());
+    }
+
+    private Response recipients(HttpExchange exchange) throws IOException {
+        switch (exchange.getRequestMethod()) {
+            case "POST": {
+                Map<String, String> fields = readBody(exchange);
+                String packageID = required(fields, "packageID");
+                long bookedSlot = 0;
+                if (fields.get("bookedSlot") != null) {
+                    try {
+                        bookedSlot = Instant.parse(fields.get("bookedSlot").trim()).toEpochMilli();
+                    } catch (DateTimeParseException ex) {
+                        throw new IllegalArgumentException("bookedSlot must be an ISO-8601 instant");
+                    }
+                }
+                boolean needsAssistance = Boolean.parseBoolean(fields.get("needsAssistance"));
+                return commandResponse(depotSystem.registerRecipient(required(fields, "name"), packageID,
+                    bookedSlot, needsAssistance), packageID, 201);
+            }
+            case "DELETE": {
+                String id = pathID(exchange);
+                if (id == null) {
+                    return error(400, "package ID missing from path");
+                }
+                String name = required(queryParameters(exchange), "name");
+                return commandResponse(depotSystem.deregisterRecipient(name, id), id, 200);
+            }
+            default:
+                return error(405, "method not allowed");
+        }
+    }
+
+    private static String parcelJson(Parcel parcel) {
+        return Json.object()
+            .field("packageID", parcel.getPackageID())
+            .field("massKg", (double) parcel.getMassKg())
+            .field("dimensions", parcel.getMeasurementSpec())
+            .field("daysInDepot", parcel.getStorageDuration())
+            .field("deliveryState", parcel.getDeliveryState())
+            .toString();
+    }
+
+    private static Response commandResponse(CompletableFuture<DepotSystem.CommandResult> command,
+                                            String packageID, int successStatus) {
+        DepotSystem.CommandResult result = await(command);
+        if (!result.isSuccessful()) {
+            return error(409, result.getMessage());
+        }
+        return new Response(successStatus, Json.object()
+            .field("packageID", packageID)
+            .field("message", result.getMessage())
+            .toString());
+    }
+
+    private static <T> T await(CompletableFuture<T> command) {
+        try {
+            return command.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            throw new IllegalStateException("command failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static Response ok(String body) {
+        return new Response(200, body);
+    }
+
+    private static Response error(int status, String message) {
+        return new Response(status, Json.object().field("error", message).toString());
+    }
+
+    // The path segment after the context, such as "X123" in /parcels/X123
+    private static String pathID(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        String rest = path.substring(Math.min(path.length(), exchange.getHttpContext().getPath().length()));
+        while (rest.startsWith("/")) {
+            rest = rest.substring(1);
+        }
+        if (rest.endsWith("/")) {
+            rest = rest.substring(0, rest.length() - 1);
+        }
+        if (rest.indexOf('/') >= 0) {
+            throw new IllegalArgumentException("unknown path " + path);
+        }
+        return rest.isEmpty() ? null : rest;
+    }
+
+    private static Map<String, String> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY + 1);
+            if (body.length > MAX_BODY) {
+                throw new IllegalArgumentException("request body too large");
+            }
+            return Json.parseObject(new String(body, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static String required(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(name + " is required");
+        }
+        return value.trim();
+    }
+
+    private static void setDefault(String property, String value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, value);
+        }
+    }
+
+    private static ExecutorService createExecutor(int threads) {
+        try {
+            // Executors.newVirtualThreadPerTaskExecutor() from JDK 21 onwards
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return Executors.newFixedThreadPool(threads, task -> {
+                Thread thread = new Thread(task, "depot-http");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // Serves the depot in the working directory until the process is stopped
+    public static void main(String[] args) throws IOException {
+        DepotMetrics.getInstance().install();
+        EventLogger.getInstance().enableAsync(EventLogger.FlushPolicy.everyMillis(200));
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        DepotSystem system = new DepotSystem();
+        system.initializeSystem();
+        DepotHttpServer httpServer = new DepotHttpServer(system, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            httpServer.stop();
+            system.shutdown();
+        }, "depot-http-stop"));
+        httpServer.start();
+        System.out.println("Depot HTTP API listening on port " + httpServer.getPort());
+    }
+}
@@ -0,0 +1,386 @@
+package depot;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Append-only journal of depot mutations. Inventory.csv and Recipients.csv act as
+ * the last snapshot; every change since then is appended here as one record and
+ * replayed on startup. Once enough records build up, the in-memory state is written
+ * out as a fresh snapshot on a background thread and the journal starts over.
+ */
+public class DepotJournal implements DepotStore {
+    private static final String JOURNAL_FILE = "depot_journal.log";
+    private static final String COMPACTING_FILE = "depot_journal.compacting";
+    private static final String INVENTORY_FILE = "Inventory.csv";
+    private static final String RECIPIENTS_FILE = "Recipients.csv";
+    private static final int COMPACTION_THRESHOLD = 1000;
+    private static final int MANIFEST_CHUNK = 4096;
+    private static final Pattern DIMENSION_SEPARATOR = Pattern.compile("[x\\s]+");
+
+    private static final String ADD_PARCEL = "ADD_PARCEL";
+    private static final String REMOVE_PARCEL = "REMOVE_PARCEL";
+    private static final String ADD_RECIPIENT = "ADD_RECIPIENT";
+    private static final String REMOVE_RECIPIENT = "REMOVE_RECIPIENT";
+    private static final String COLLECT = "COLLECT";
+
+    private final PackageCollection packageCollection;
+    private final QueueOfCustomers recipientQueue;
+    private final ExecutorService compactor;
+    private final AtomicBoolean compacting = new AtomicBoolean(false);
+    private Writer journalWriter;
+    private int recordsSinceSnapshot;
+    // Rows in the last snapshot; a large depot waits for more records before copying it all again
+    private int snapshotRows;
+    private int malformedRecords;
+
+    public DepotJournal(PackageCollection packageCollection, QueueOfCustomers recipientQueue) {
+        this.packageCollection = packageCollection;
+        this.recipientQueue = recipientQueue;
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "depot-journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // The journal only holds changes since the CSV snapshot
+    @Override
+    public boolean hasState() {
+        return false;
+    }
+
+    // Applies any records written after the last snapshot; call once the CSVs are loaded
+    @Override
+    public void replay() throws IOException {
+        replayFile(COMPACTING_FILE);
+        replayFile(JOURNAL_FILE);
+    }
+
+    private void replayFile(String filename) throws IOException {
+        File file = new File(filename);
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String record = reader.readLine();
+            int line = 0;
+            while (record != null) {
+                line++;
+                String next = reader.readLine();
+                try {
+                    applyRecord(record.split(","));
+                    recordsSinceSnapshot++;
+                } catch (RuntimeException ex) {
+                    // A crash mid-append tears the last record; a bad record further up means damage
+                    String problem = next == null
+                        ? "Skipped incomplete last record in " + filename + ": " + record
+                        : "Skipped malformed record at line " + line + " of " + filename + ": " + record;
+                    System.err.println(problem + " (" + ex.getMessage() + ")");
+                    EventLogger.getInstance().logEvent(problem);
+                    malformedRecords++;
+                }
+                record = next;
+            }
+        }
+    }
+
+    // Records skipped by replay because they could not be parsed
+    public int getMalformedRecords() {
+        return malformedRecords;
+    }
+
+    private void applyRecord(String[] fields) {
+        switch (fields[0]) {
+            case ADD_PARCEL:
+                if (fields.length >= 5) {
+                    // Everything between the mass and the trailing arrival time is a dimension
+                    String dimensions = String.join("x", Arrays.copyOfRange(fields, 3, fields.length - 1));
+                    packageCollection.addPackage(new Parcel(fields[1], Float.parseFloat(fields[2]), dimensions,
+                        DepotClock.parseArrival(fields[fields.length - 1]), "Pending"));
+                }
+                break;
+            case REMOVE_PARCEL:
+                packageCollection.removePackage(fields[1]);
+                break;
+            case ADD_RECIPIENT:
+                if (fields.length >= 3) {
+                    recipientQueue.enqueueRecipient(new Customer(fields[1], fields[2], recipientQueue.nextSequenceNumber()));
+                }
+                break;
+            case REMOVE_RECIPIENT:
+            case COLLECT:
+                if (fields.length >= 3) {
+                    Customer recipient = recipientQueue.findRecipientByPackageID(fields[2]);
+                    if (recipient != null && recipient.getSurname().equals(fields[1])) {
+                        recipientQueue.removeRecipient(recipient);
+                    }
+                    if (fields[0].equals(COLLECT)) {
+                        packageCollection.removePackage(fields[2]);
+                    }
+                }
+                break;
+            default:
+                System.err.println("Skipping unknown journal record: " + String.join(",", fields));
+        }
+    }
+
+    @Override
+    public void recordParcelAdded(Parcel parcel) {
+        append(ADD_PARCEL + "," + formatInventoryRow(parcel));
+    }
+
+    /**
+     * Journals a whole manifest. Rows are formatted before taking the journal lock and
+     * written a few thousand at a time, so counter traffic is not held up behind one
+     * huge write. Parcels collected or removed since they were added are left out: their
+     * removal is journalled already, and replaying it before the addition would bring
+     * them back. The check runs under the journal lock, so any removal it misses is
+     * journalled after its chunk.
+     */
+    @Override
+    public void recordParcelsAdded(List<Parcel> parcels) {
+        String[] rows = new String[parcels.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = ADD_PARCEL + "," + formatInventoryRow(parcels.get(i));
+        }
+        for (int from = 0; from < rows.length; from += MANIFEST_CHUNK) {
+            int to = Math.min(rows.length, from + MANIFEST_CHUNK);
+            synchronized (this) {
+                List<String> records = new ArrayList<>(to - from);
+                for (int i = from; i < to; i++) {
+                    Parcel current = packageCollection.getPackageByID(parcels.get(i).getPackageID());
+                    if (current != null && !current.getDeliveryState().equals("Collected")) {
+                        records.add(rows[i]);
+                    }
+                }
+                append(records);
+            }
+        }
+    }
+
+    @Override
+    public void recordParcelRemoved(String packageId) {
+        append(REMOVE_PARCEL + "," + packageId);
+    }
+
+    @Override
+    public void recordRecipientAdded(Customer recipient) {
+        append(ADD_RECIPIENT + "," + recipient.getSurname() + "," + recipient.getPackageID());
+    }
+
+    @Override
+    public void recordRecipientRemoved(String surname, String packageId) {
+        append(REMOVE_RECIPIENT + "," + surname + "," + packageId);
+    }
+
+    @Override
+    public void recordCollection(Customer recipient, String packageId) {
+        append(COLLECT + "," + recipient.getSurname() + "," + packageId);
+    }
+
+    // One write and flush for the whole batch
+    @Override
+    public void recordCollections(List<Customer> recipients) {
+        List<String> records = new ArrayList<>(recipients.size());
+        for (Customer recipient : recipients) {
+            records.add(COLLECT + "," + recipient.getSurname() + "," + recipient.getPackageID());
+        }
+        append(records);
+    }
+
+    private void append(String record) {
+        append(List.of(record));
+    }
+
+    private synchronized void append(List<String> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        long started = DepotMetrics.start();
+        try {
+            if (journalWriter == null) {
+                boolean torn = endsMidRecord(JOURNAL_FILE);
+                journalWriter = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(JOURNAL_FILE, true), StandardCharsets.UTF_8));
+                if (torn) {
+                    // Keeps the first new record off the end of a torn one
+                    journalWriter.write(System.lineSeparator());
+                }
+            }
+            for (String record : records) {
+                journalWriter.write(record);
+                journalWriter.write(System.lineSeparator());
+            }
+            journalWriter.flush();
+        } catch (IOException ex) {
+            System.err.println("Failed to append to journal: " + ex.getMessage());
+            EventLogger.getInstance().logEvent("Failed to append to journal: " + ex.getMessage());
+            return;
+        }
+        DepotMetrics.stop(DepotMetrics.Stage.JOURNAL_APPEND, started);
+        DepotMetrics.count(DepotMetrics.Operation.JOURNAL_RECORDS, records.size());
+        recordsSinceSnapshot += records.size();
+        if (recordsSinceSnapshot >= Math.max(COMPACTION_THRESHOLD, snapshotRows / 2)) {
+            compact();
+        }
+    }
+
+    private static boolean endsMidRecord(String filename) throws IOException {
+        File file = new File(filename);
+        if (file.length() == 0) {
+            return false;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(file.length() - 1);
+            return raf.read() != '\n';
+        }
+    }
+
+    /**
+     * Rolls the journal over and writes a new snapshot in the background. The state is
+     * copied on the calling thread so the snapshot matches the rolled-over journal exactly;
+     * the rows are formatted from detached copies in the background, off the journal lock.
+     */
+    public synchronized void compact() {
+        if (recordsSinceSnapshot == 0 || !compacting.compareAndSet(false, true)) {
+            return;
+        }
+        List<Parcel> inventory = new ArrayList<>();
+        for (Parcel parcel : packageCollection.getAllPackages()) {
+            String state = parcel.getDeliveryState();
+            if (!state.equals("Collected")) {
+                inventory.add(new Parcel(parcel.getPackageID(), parcel.getMassKg(),
+                    parcel.getMeasurementSpec(), parcel.getArrivalTime(), state));
+            }
+        }
+        List<String> recipientRows = new ArrayList<>();
+        for (Customer recipient : recipientQueue.getQueueContents()) {
+            recipientRows.add(recipient.getSurname() + "," + recipient.getPackageID());
+        }
+
+        try {
+            if (journalWriter != null) {
+                journalWriter.close();
+                journalWriter = null;
+            }
+            rollOver();
+        } catch (IOException ex) {
+            compacting.set(false);
+            EventLogger.getInstance().logEvent("Failed to roll over journal: " + ex.getMessage());
+            return;
+        }
+        recordsSinceSnapshot = 0;
+        snapshotRows = inventory.size() + recipientRows.size();
+
+        compactor.execute(() -> {
+            try {
+                List<String> inventoryRows = new ArrayList<>(inventory.size());
+                for (Parcel parcel : inventory) {
+                    inventoryRows.add(formatInventoryRow(parcel));
+                }
+                writeSnapshot(INVENTORY_FILE, inventoryRows, CsvLoader::isInventoryHeader);
+                writeSnapshot(RECIPIENTS_FILE, recipientRows, CsvLoader::isRecipientHeader);
+                Files.deleteIfExists(Paths.get(COMPACTING_FILE));
+                EventLogger.getInstance().logEvent("Compacted journal into snapshot: "
+                    + inventoryRows.size() + " packages, " + recipientRows.size() + " recipients");
+            } catch (IOException ex) {
+                EventLogger.getInstance().logEvent("Failed to compact journal: " + ex.getMessage());
+            } finally {
+                compacting.set(false);
+            }
+        });
+    }
+
+    /**
+     * Moves the journal aside for the snapshot being written. A compacting file left by
+     * a snapshot that failed holds records no snapshot has folded in yet, so the journal
+     * is appended to it rather than replacing it; replay reads it first either way.
+     */
+    private void rollOver() throws IOException {
+        Path journal = Paths.get(JOURNAL_FILE);
+        Path rolled = Paths.get(COMPACTING_FILE);
+        if (!Files.exists(journal)) {
+            return;
+        }
+        if (!Files.exists(rolled)) {
+            Files.move(journal, rolled);
+            return;
+        }
+        boolean torn = endsMidRecord(COMPACTING_FILE);
+        try (OutputStream out = Files.newOutputStream(rolled, StandardOpenOption.APPEND)) {
+            if (torn) {
+                out.write(System.lineSeparator().getBytes(StandardCharsets.UTF_8));
+            }
+            Files.copy(journal, out);
+        }
+        Files.delete(journal);
+    }
+
+    // A header line the file already has is carried over untouched; a first data row is not
+    private void writeSnapshot(String filename, List<String> rows, Predicate<String> isHeader) throws IOException {
+        Path target = Paths.get(filename);
+        Path tempFile = Paths.get(filename + ".tmp");
+        String header = null;
+        if (Files.exists(target)) {
+            try (BufferedReader reader = Files.newBufferedReader(target, StandardCharsets.UTF_8)) {
+                header = reader.readLine();
+            }
+            if (header != null && !isHeader.test(header)) {
+                header = null;
+            }
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            if (header != null) {
+                writer.write(header + System.lineSeparator());
+            }
+            for (String row : rows) {
+                writer.write(row + System.lineSeparator());
+            }
+        }
+        Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Compacts and waits until the snapshot CSVs are on disk
+    @Override
+    public void compactAndWait() {
+        compact();
+        try {
+            compactor.submit(() -> { }).get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ex) {
+            EventLogger.getInstance().logEvent("Timed out waiting for journal compaction: " + ex.getMessage());
+        }
+    }
+
+    // Final compaction on shutdown, waiting for it to reach disk
+    @Override
+    public void close() {
+        compactAndWait();
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String formatInventoryRow(Parcel parcel) {
+        String[] dims = DIMENSION_SEPARATOR.split(parcel.getMeasurementSpec().trim());
+        return parcel.getPackageID() + "," + parcel.getMassKg() + "," + String.join(",", dims)
+            + "," + DepotClock.formatArrival(parcel.getArrivalTime());
+    }
+}
@@ -0,0 +1,219 @@
+package depot;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Latency histograms per stage of the collection path, operation counters and queue
+ * depth gauges. Hot paths bracket a stage with start() and stop(); while metrics are
+ * off, start() returns 0 without reading the clock and stop() ignores it, so the cost
+ * is one flag read. Once installed, everything is visible over JMX under "depot:" and,
+ * while enabled, appended to depot_metrics.log every interval.
+ *
+ * Switched on with -Ddepot.metrics=true (interval in seconds: -Ddepot.metrics.interval)
+ * or at run time through the Enabled attribute of depot:type=Metrics.
+ */
+public class DepotMetrics implements DepotMetricsMXBean {
+    private static final String METRICS_FILE = "depot_metrics.log";
+    private static final DateTimeFormatter timeFormatter =
+        DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
+
+    public enum Stage {
+        LOOKUP,
+        CHARGE,
+        LEDGER_APPEND,
+        JOURNAL_APPEND,
+        LOG_EVENT,
+        COLLECTION,
+        BATCH_COLLECTION,
+        HTTP_REQUEST;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public enum Operation {
+        COLLECTIONS,
+        FAILED_COLLECTIONS,
+        COMMANDS,
+        JOURNAL_RECORDS,
+        LOGGED_EVENTS,
+        HTTP_REQUESTS,
+        HTTP_ERRORS;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static volatile boolean enabled;
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private final LongAdder[] counters = new LongAdder[Operation.values().length];
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private boolean installed;
+
+    private DepotMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+    }
+
+    private static class Holder {
+        private static final DepotMetrics INSTANCE = new DepotMetrics();
+    }
+
+    public static DepotMetrics getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    // The start of a timed stage, or 0 when metrics are off
+    public static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public static void stop(Stage stage, long start) {
+        if (start != 0L) {
+            Holder.INSTANCE.histograms[stage.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    public static void count(Operation operation) {
+        count(operation, 1);
+    }
+
+    public static void count(Operation operation, long amount) {
+        if (enabled) {
+            Holder.INSTANCE.counters[operation.ordinal()].add(amount);
+        }
+    }
+
+    // A gauge is read only when the metrics are reported; a later gauge replaces one of the same name
+    public static void registerGauge(String name, LongSupplier gauge) {
+        Holder.INSTANCE.gauges.put(name, gauge);
+    }
+
+    /**
+     * Registers the JMX beans and schedules the periodic dump, once per JVM. Reads the
+     * depot.metrics properties, so call it early in main.
+     */
+    public synchronized void install() {
+        if (installed) {
+            return;
+        }
+        installed = true;
+        enabled = Boolean.getBoolean("depot.metrics");
+        registerGauge("event_log_backlog", EventLogger.getInstance()::getBacklog);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName("depot:type=Metrics"));
+            for (Stage stage : Stage.values()) {
+                server.registerMBean(histograms[stage.ordinal()],
+                    new ObjectName("depot:type=Latency,name=" + stage.label()));
+            }
+        } catch (JMException ex) {
+            System.err.println("Failed to register metrics with JMX: " + ex.getMessage());
+        }
+        long interval = Math.max(1, Long.getLong("depot.metrics.interval", 60));
+        ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "depot-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> {
+            if (enabled) {
+                dump();
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (enabled) {
+                dump();
+            }
+        }, "depot-metrics-dump"));
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        DepotMetrics.enabled = enabled;
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            values.put(operation.label(), counters[operation.ordinal()].sum());
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getGauges() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            values.put(gauge.getKey(), gauge.getValue().getAsLong());
+        }
+        return values;
+    }
+
+    @Override
+    public void resetHistograms() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    // Appends every histogram, counter and gauge to the metrics file under one timestamp
+    @Override
+    public synchronized void dump() {
+        String timeStamp = LocalDateTime.now().format(timeFormatter);
+        try (PrintWriter outputStream = new PrintWriter(new BufferedWriter(new FileWriter(METRICS_FILE, true)))) {
+            for (Stage stage : Stage.values()) {
+                LatencyHistogram.Snapshot latency = histograms[stage.ordinal()].snapshot();
+                outputStream.println(String.format(Locale.ROOT,
+                    "%s | latency %s count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                    timeStamp, stage.label(), latency.getCount(), latency.getMeanNanos() / 1000.0,
+                    latency.valueAtPercentile(50) / 1000.0, latency.valueAtPercentile(90) / 1000.0,
+                    latency.valueAtPercentile(99) / 1000.0, latency.valueAtPercentile(99.9) / 1000.0,
+                    latency.getMaxNanos() / 1000.0));
+            }
+            for (Map.Entry<String, Long> counter : getCounters().entrySet()) {
+                outputStream.println(timeStamp + " | counter " + counter.getKey() + "=" + counter.getValue());
+            }
+            for (Map.Entry<String, Long> gauge : getGauges().entrySet()) {
+                outputStream.println(timeStamp + " | gauge " + gauge.getKey() + "=" + gauge.getValue());
+            }
+        } catch (IOException ex) {
+            System.err.println("Failed to write metrics: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package depot;
+
+import java.util.Map;
+
+/**
+ * JMX control of DepotMetrics. Per-stage latencies are separate LatencyHistogram beans
+ * under the same domain.
+ */
+public interface DepotMetricsMXBean {
+    boolean isEnabled();
+    void setEnabled(boolean enabled);
+    Map<String, Long> getCounters();
+    Map<String, Long> getGauges();
+    void resetHistograms();
+    void dump();
+}
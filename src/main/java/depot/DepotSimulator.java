@@ -0,0 +1,584 @@
+package depot;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Discrete-event simulation of a depot, for capacity planning. Parcels and recipients
+ * arrive at seeded random times; counters call recipients through a real
+ * QueueOfCustomers and its scheduler and collect through a real CollectionProcessor and
+ * tariff, with the parcels in a real PackageCollection. Time is a virtual clock installed
+ * as the DepotClock for the run, so storage charges come out as they would and a month
+ * takes seconds. The same configuration and seed always give the same report.
+ *
+ *   parcels     arrive around the clock, parcelsPerDay on average (a Poisson process)
+ *   recipients  one per parcel, an exponential pickup delay after it arrives, moved into
+ *               opening hours; some have booked a slot and some need assistance
+ *   counters    call recipients during opening hours and until the queue inside has been
+ *               served; service times follow a ServiceTime distribution
+ *   patience    a recipient not called within an exponential patience leaves, and comes
+ *               back at a random time on the next day
+ *
+ * The depot starts empty, so the first warmup days are simulated but not reported.
+ * DepotClock and the event log are global: do not run a simulation in a JVM that is
+ * also serving a real depot.
+ */
+public class DepotSimulator {
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    // Booked slots start on the quarter hour
+    private static final long SLOT = 15 * MINUTE;
+
+    private static final int PARCEL_ARRIVES = 0;
+    private static final int RECIPIENT_ARRIVES = 1;
+    private static final int SERVICE_ENDS = 2;
+    private static final int PATIENCE_ENDS = 3;
+    private static final int SAMPLE_QUEUE = 4;
+
+    /** How long a counter takes over one recipient. */
+    public static final class ServiceTime {
+        private final String kind;
+        private final double meanMillis;
+        private final double sigma;
+
+        private ServiceTime(String kind, double meanSeconds, double sigma) {
+            if (!(meanSeconds > 0) || sigma < 0) {
+                throw new IllegalArgumentException("Invalid service time: " + kind + " " + meanSeconds + " " + sigma);
+            }
+            this.kind = kind;
+            this.meanMillis = meanSeconds * 1000;
+            this.sigma = sigma;
+        }
+
+        public static ServiceTime fixed(double seconds) { return new ServiceTime("fixed", seconds, 0); }
+        public static ServiceTime exponential(double meanSeconds) { return new ServiceTime("exponential", meanSeconds, 0); }
+        // sigma is that of the underlying normal; the mean stays meanSeconds
+        public static ServiceTime lognormal(double meanSeconds, double sigma) {
+            return new ServiceTime("lognormal", meanSeconds, sigma);
+        }
+
+        // "fixed:60", "exponential:90" or "lognormal:90:0.5", in seconds
+        public static ServiceTime parse(String text) {
+            String[] parts = text.trim().split(":");
+            try {
+                switch (parts[0]) {
+                    case "fixed": return fixed(Double.parseDouble(parts[1]));
+                    case "exponential": return exponential(Double.parseDouble(parts[1]));
+                    case "lognormal": return lognormal(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                    default: throw new IllegalArgumentException("Unknown service time distribution: " + parts[0]);
+                }
+            } catch (ArrayIndexOutOfBoundsException | NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid service time: " + text, ex);
+            }
+        }
+
+        long sampleMillis(SplittableRandom random) {
+            double millis;
+            switch (kind) {
+                case "exponential":
+                    millis = random.nextExponential() * meanMillis;
+                    break;
+                case "lognormal":
+                    millis = Math.exp(Math.log(meanMillis) - sigma * sigma / 2 + sigma * random.nextGaussian());
+                    break;
+                default:
+                    millis = meanMillis;
+            }
+            return Math.max(1, Math.round(millis));
+        }
+
+        @Override
+        public String toString() {
+            String mean = String.valueOf(meanMillis / 1000);
+            return kind.equals("lognormal") ? kind + ":" + mean + ":" + sigma : kind + ":" + mean;
+        }
+    }
+
+    /** What to simulate. Every setter returns the config, so they chain. */
+    public static final class Config {
+        private long seed = 1;
+        private int days = 30;
+        private int warmupDays = 3;
+        private double parcelsPerDay = 20000;
+        private int counters = 48;
+        private int openHour = 8;
+        private int closeHour = 20;
+        private double pickupDays = 2;
+        private double patienceMinutes = 45;
+        private double bookedFraction = 0.1;
+        private double assistanceFraction = 0.05;
+        private ServiceTime serviceTime = ServiceTime.lognormal(90, 0.5);
+        private RecipientScheduler.Policy policy = RecipientScheduler.Policy.FIFO;
+        private Instant start = Instant.parse("2026-01-05T00:00:00Z");
+
+        public Config seed(long seed) { this.seed = seed; return this; }
+        public Config days(int days) { this.days = days; return this; }
+        public Config warmupDays(int warmupDays) { this.warmupDays = warmupDays; return this; }
+        public Config parcelsPerDay(double parcelsPerDay) { this.parcelsPerDay = parcelsPerDay; return this; }
+        public Config counters(int counters) { this.counters = counters; return this; }
+        public Config openingHours(int openHour, int closeHour) {
+            this.openHour = openHour;
+            this.closeHour = closeHour;
+            return this;
+        }
+        public Config pickupDays(double pickupDays) { this.pickupDays = pickupDays; return this; }
+        // 0 for recipients who never give up
+        public Config patienceMinutes(double patienceMinutes) { this.patienceMinutes = patienceMinutes; return this; }
+        public Config bookedFraction(double bookedFraction) { this.bookedFraction = bookedFraction; return this; }
+        public Config assistanceFraction(double assistanceFraction) { this.assistanceFraction = assistanceFraction; return this; }
+        public Config serviceTime(ServiceTime serviceTime) { this.serviceTime = serviceTime; return this; }
+        public Config policy(RecipientScheduler.Policy policy) { this.policy = policy; return this; }
+        // Midnight UTC on the first day
+        public Config start(Instant start) { this.start = start; return this; }
+
+        // One key=value setting, with the keys main accepts
+        public Config set(String key, String value) {
+            switch (key) {
+                case "seed": return seed(Long.parseLong(value));
+                case "days": return days(Integer.parseInt(value));
+                case "warmup-days": return warmupDays(Integer.parseInt(value));
+                case "parcels-per-day": return parcelsPerDay(Double.parseDouble(value));
+                case "counters": return counters(Integer.parseInt(value));
+                case "open": {
+                    String[] hours = value.split("-");
+                    return openingHours(Integer.parseInt(hours[0]), Integer.parseInt(hours[1]));
+                }
+                case "pickup-days": return pickupDays(Double.parseDouble(value));
+                case "patience-minutes": return patienceMinutes(Double.parseDouble(value));
+                case "booked": return bookedFraction(Double.parseDouble(value));
+                case "assistance": return assistanceFraction(Double.parseDouble(value));
+                case "service": return serviceTime(ServiceTime.parse(value));
+                case "policy": return policy(RecipientScheduler.Policy.fromName(value));
+                default: throw new IllegalArgumentException("Unknown setting: " + key);
+            }
+        }
+
+        private void validate() {
+            if (days < 1 || warmupDays < 0 || counters < 1 || !(parcelsPerDay > 0) || pickupDays < 0
+                    || patienceMinutes < 0 || openHour < 0 || closeHour > 24 || openHour >= closeHour) {
+                throw new IllegalArgumentException("Invalid simulation settings: " + this);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("seed=%d days=%d warmup-days=%d parcels-per-day=%.0f counters=%d open=%d-%d "
+                    + "pickup-days=%.1f patience-minutes=%.0f booked=%.2f assistance=%.2f service=%s policy=%s",
+                seed, days, warmupDays, parcelsPerDay, counters, openHour, closeHour, pickupDays,
+                patienceMinutes, bookedFraction, assistanceFraction, serviceTime, policy);
+        }
+    }
+
+    /**
+     * Totals and distributions over the reported days. Waits run from a recipient
+     * arriving to a counter calling them, overall and by the priority class they were
+     * called from; dwell from a parcel arriving to its collection; the queue length, of
+     * recipients not yet called, is sampled every minute of opening hours.
+     */
+    public static final class Report {
+        private final Config config;
+        private long parcelsArrived;
+        private long collections;
+        private long abandonments;
+        private long revenuePence;
+        private long busyMillis;
+        private long parcelsLeft;
+        private long events;
+        private long elapsedNanos;
+        // Recorded in milliseconds rather than the nanoseconds the histograms are named for
+        private final LatencyHistogram waits = new LatencyHistogram();
+        private final Map<RecipientScheduler.Priority, LatencyHistogram> classWaits =
+            new EnumMap<>(RecipientScheduler.Priority.class);
+        private final LatencyHistogram dwell = new LatencyHistogram();
+        private long longestWaitMillis;
+        private final QueueLengths queueLengths = new QueueLengths();
+        private LatencyHistogram.Snapshot waitSnapshot;
+        private LatencyHistogram.Snapshot dwellSnapshot;
+
+        private Report(Config config) {
+            this.config = config;
+        }
+
+        private void finish() {
+            waitSnapshot = waits.snapshot();
+            dwellSnapshot = dwell.snapshot();
+        }
+
+        public long getCollections() { return collections; }
+        public double getCollectionsPerDay() { return (double) collections / config.days; }
+        public long getAbandonments() { return abandonments; }
+        public long getRevenuePence() { return revenuePence; }
+        public long getWaitMillisAtPercentile(double percentile) { return waitSnapshot.valueAtPercentile(percentile); }
+        public long getDwellMillisAtPercentile(double percentile) { return dwellSnapshot.valueAtPercentile(percentile); }
+        public long getQueueLengthAtPercentile(double percentile) { return queueLengths.atPercentile(percentile); }
+
+        // Counter time spent serving over counter time open; service after closing can push it past 1
+        public double getUtilisation() {
+            return (double) busyMillis / ((long) config.counters * config.days * (config.closeHour - config.openHour) * 60 * MINUTE);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder();
+            out.append(config).append('\n');
+            out.append(String.format("parcels arrived     %d (%.0f a day)%n", parcelsArrived, (double) parcelsArrived / config.days));
+            out.append(String.format("collections         %d (%.0f a day), counter utilisation %.1f%%%n",
+                collections, getCollectionsPerDay(), 100 * getUtilisation()));
+            out.append(String.format("abandonments        %d (%.1f%% of visits)%n",
+                abandonments, 100.0 * abandonments / Math.max(1, collections + abandonments)));
+            out.append(String.format("wait                p50 %s  p90 %s  p99 %s  max %s%n",
+                minutes(waitSnapshot.valueAtPercentile(50)), minutes(waitSnapshot.valueAtPercentile(90)),
+                minutes(waitSnapshot.valueAtPercentile(99)), minutes(longestWaitMillis)));
+            classWaits.forEach((priority, histogram) -> {
+                LatencyHistogram.Snapshot waited = histogram.snapshot();
+                out.append(String.format("  %-17s p50 %s  p90 %s  p99 %s  (%d called)%n", priority.name().toLowerCase(),
+                    minutes(waited.valueAtPercentile(50)), minutes(waited.valueAtPercentile(90)),
+                    minutes(waited.valueAtPercentile(99)), waited.getCount()));
+            });
+            out.append(String.format("queue length        p50 %d  p90 %d  p99 %d  max %d%n",
+                queueLengths.atPercentile(50), queueLengths.atPercentile(90),
+                queueLengths.atPercentile(99), queueLengths.longest()));
+            out.append(String.format("dwell               p50 %s  p90 %s  p99 %s%n",
+                hours(dwellSnapshot.valueAtPercentile(50)), hours(dwellSnapshot.valueAtPercentile(90)),
+                hours(dwellSnapshot.valueAtPercentile(99))));
+            out.append(String.format("revenue             £%.2f (£%.2f a day)%n",
+                revenuePence / 100.0, revenuePence / 100.0 / config.days));
+            out.append(String.format("parcels left        %d%n", parcelsLeft));
+            out.append(String.format("simulated %d events in %d ms", events, TimeUnit.NANOSECONDS.toMillis(elapsedNanos)));
+            return out.toString();
+        }
+
+        private static String minutes(long millis) {
+            return String.format("%.1f min", millis / (double) MINUTE);
+        }
+
+        private static String hours(long millis) {
+            return String.format("%.1f h", millis / (60.0 * MINUTE));
+        }
+    }
+
+    // Exact counts of each sampled queue length, which stays small enough to count one by one
+    private static final class QueueLengths {
+        private long[] counts = new long[64];
+        private long samples;
+        private int longest;
+
+        void record(int length) {
+            if (length >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(length + 1, counts.length * 2));
+            }
+            counts[length]++;
+            samples++;
+            longest = Math.max(longest, length);
+        }
+
+        // The shortest sampled length that `percentile` percent of samples do not exceed
+        int atPercentile(double percentile) {
+            long wanted = Math.max(1, (long) Math.ceil(samples * percentile / 100));
+            long seen = 0;
+            for (int length = 0; length <= longest; length++) {
+                seen += counts[length];
+                if (seen >= wanted) {
+                    return length;
+                }
+            }
+            return longest;
+        }
+
+        int longest() {
+            return longest;
+        }
+    }
+
+    // The simulation's time; the depot classes read it through DepotClock
+    private static final class VirtualClock extends Clock {
+        private long millis;
+
+        VirtualClock(long millis) {
+            this.millis = millis;
+        }
+
+        @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(ZoneId zone) { return this; }
+        @Override public long millis() { return millis; }
+        @Override public Instant instant() { return Instant.ofEpochMilli(millis); }
+    }
+
+    private static final class Event {
+        final long time;
+        final long order;
+        final int type;
+        final Visit visit;
+        final int counter;
+
+        Event(long time, long order, int type, Visit visit, int counter) {
+            this.time = time;
+            this.order = order;
+            this.type = type;
+            this.visit = visit;
+            this.counter = counter;
+        }
+    }
+
+    // One trip to the depot by a recipient
+    private static final class Visit {
+        final String packageID;
+        Customer recipient;
+        long arrivedAt;
+        boolean called;
+
+        Visit(String packageID) {
+            this.packageID = packageID;
+        }
+    }
+
+    private final Config config;
+    // Separate streams, so changing the counters or policy leaves the parcels and their
+    // recipients' first arrivals as they were
+    private final SplittableRandom arrivals;
+    private final SplittableRandom recipients;
+    private final SplittableRandom services;
+    private final VirtualClock clock;
+    private final PackageCollection packages = new PackageCollection();
+    private final QueueOfCustomers queue = new QueueOfCustomers();
+    private final CollectionProcessor processor = new CollectionProcessor();
+    // Events in time order; ties go in the order they were scheduled
+    private final PriorityQueue<Event> events = new PriorityQueue<>((a, b) ->
+        a.time != b.time ? Long.compare(a.time, b.time) : Long.compare(a.order, b.order));
+    private final Map<String, Visit> waiting = new HashMap<>();
+    private final Visit[] serving;
+    private final long startMillis;
+    private final long reportFrom;
+    private final long end;
+    private final Report report;
+    private long scheduled;
+    private long parcels;
+
+    public DepotSimulator(Config config) {
+        config.validate();
+        this.config = config;
+        SplittableRandom random = new SplittableRandom(config.seed);
+        this.arrivals = random.split();
+        this.recipients = random.split();
+        this.services = random.split();
+        this.startMillis = config.start.toEpochMilli();
+        this.reportFrom = startMillis + config.warmupDays * DAY;
+        this.end = reportFrom + config.days * DAY;
+        this.clock = new VirtualClock(startMillis);
+        this.serving = new Visit[config.counters];
+        this.report = new Report(config);
+        queue.getScheduler().setPolicy(config.policy);
+        queue.getScheduler().setDaysInDepot(packageID -> {
+            Parcel parcel = packages.getPackageByID(packageID);
+            return parcel == null ? 0 : parcel.getStorageDuration();
+        });
+    }
+
+    /** Runs the whole simulation on the calling thread. A simulator runs once. */
+    public Report run() {
+        long started = System.nanoTime();
+        Clock previousClock = DepotClock.getClock();
+        EventLogger logger = EventLogger.getInstance();
+        boolean previouslyDiscarding = logger.isDiscarding();
+        DepotClock.setClock(clock);
+        // A collection logs an event; a month of them would bury the real log
+        logger.setDiscarding(true);
+        try {
+            schedule(startMillis + nextParcelGap(), PARCEL_ARRIVES, null, -1);
+            schedule(reportFrom, SAMPLE_QUEUE, null, -1);
+            while (!events.isEmpty() && events.peek().time < end) {
+                Event event = events.poll();
+                clock.millis = event.time;
+                report.events++;
+                handle(event);
+            }
+            report.parcelsLeft = packages.getAllPackages().size();
+        } finally {
+            logger.setDiscarding(previouslyDiscarding);
+            DepotClock.setClock(previousClock);
+        }
+        report.elapsedNanos = System.nanoTime() - started;
+        report.finish();
+        return report;
+    }
+
+    private void handle(Event event) {
+        switch (event.type) {
+            case PARCEL_ARRIVES:
+                parcelArrives();
+                break;
+            case RECIPIENT_ARRIVES:
+                recipientArrives(event.visit);
+                break;
+            case SERVICE_ENDS:
+                serviceEnds(event.counter);
+                break;
+            case PATIENCE_ENDS:
+                patienceEnds(event.visit);
+                break;
+            case SAMPLE_QUEUE:
+                if (isOpen(clock.millis)) {
+                    report.queueLengths.record(waiting.size());
+                }
+                schedule(clock.millis + MINUTE, SAMPLE_QUEUE, null, -1);
+                break;
+            default:
+                throw new IllegalStateException("Unknown event type " + event.type);
+        }
+    }
+
+    private void parcelArrives() {
+        String packageID = "S" + (++parcels);
+        // Mostly light parcels, a few up to 30 kg
+        double u = arrivals.nextDouble();
+        float mass = Math.round((0.1 + 29.9 * u * u) * 10) / 10f;
+        String spec = (5 + arrivals.nextInt(56)) + "x" + (5 + arrivals.nextInt(56)) + "x" + (5 + arrivals.nextInt(56));
+        packages.addPackage(new Parcel(packageID, mass, spec));
+        if (clock.millis >= reportFrom) {
+            report.parcelsArrived++;
+        }
+        long pickup = clock.millis + Math.round(arrivals.nextExponential() * config.pickupDays * DAY);
+        schedule(intoOpeningHours(pickup), RECIPIENT_ARRIVES, new Visit(packageID), -1);
+        schedule(clock.millis + nextParcelGap(), PARCEL_ARRIVES, null, -1);
+    }
+
+    private long nextParcelGap() {
+        return Math.max(1, Math.round(arrivals.nextExponential() * DAY / config.parcelsPerDay));
+    }
+
+    private void recipientArrives(Visit visit) {
+        Customer recipient = new Customer("Recipient " + visit.packageID, visit.packageID, queue.nextSequenceNumber());
+        if (recipients.nextDouble() < config.bookedFraction) {
+            // They booked the slot they turn up for, and come up to a slot early
+            recipient.setBookedSlot((clock.millis / SLOT + 1) * SLOT);
+        }
+        recipient.setNeedsAssistance(recipients.nextDouble() < config.assistanceFraction);
+        visit.recipient = recipient;
+        visit.arrivedAt = clock.millis;
+        visit.called = false;
+        queue.enqueueRecipient(recipient);
+        waiting.put(visit.packageID, visit);
+        if (config.patienceMinutes > 0) {
+            long patience = Math.round(recipients.nextExponential() * config.patienceMinutes * MINUTE);
+            schedule(clock.millis + patience, PATIENCE_ENDS, visit, -1);
+        }
+        callRecipients();
+    }
+
+    // Every free counter calls the next recipient; counters carry on after closing time
+    private void callRecipients() {
+        for (int counter = 0; counter < serving.length && !waiting.isEmpty(); counter++) {
+            if (serving[counter] != null) {
+                continue;
+            }
+            Customer recipient = queue.callNext(counter);
+            if (recipient == null) {
+                return;
+            }
+            Visit visit = waiting.remove(recipient.getPackageID());
+            visit.called = true;
+            serving[counter] = visit;
+            long service = config.serviceTime.sampleMillis(services);
+            if (clock.millis >= reportFrom) {
+                long waited = clock.millis - visit.arrivedAt;
+                report.waits.record(waited);
+                report.longestWaitMillis = Math.max(report.longestWaitMillis, waited);
+                report.classWaits.computeIfAbsent(queue.getScheduler().priorityOf(visit.packageID),
+                    priority -> new LatencyHistogram()).record(waited);
+                report.busyMillis += service;
+            }
+            schedule(clock.millis + service, SERVICE_ENDS, visit, counter);
+        }
+    }
+
+    private void serviceEnds(int counter) {
+        Visit visit = serving[counter];
+        serving[counter] = null;
+        Parcel parcel = packages.getPackageByID(visit.packageID);
+        CollectionProcessor.Result result = processor.collect(visit.recipient, parcel);
+        queue.removeRecipient(visit.recipient);
+        if (result.isSuccessful() && clock.millis >= reportFrom) {
+            report.collections++;
+            report.revenuePence += Math.round(result.getCharge() * 100.0);
+            report.dwell.record(clock.millis - parcel.getArrivalTime());
+        }
+        packages.removePackage(visit.packageID);
+        callRecipients();
+    }
+
+    // Gives up and comes back tomorrow, unless a counter has called them meanwhile
+    private void patienceEnds(Visit visit) {
+        if (visit.called || waiting.get(visit.packageID) != visit) {
+            return;
+        }
+        waiting.remove(visit.packageID);
+        queue.removeRecipient(visit.recipient);
+        if (clock.millis >= reportFrom) {
+            report.abandonments++;
+        }
+        long tomorrow = (clock.millis - startMillis) / DAY * DAY + DAY + startMillis;
+        schedule(randomOpenTime(tomorrow, recipients), RECIPIENT_ARRIVES, visit, -1);
+    }
+
+    private boolean isOpen(long time) {
+        long timeOfDay = Math.floorMod(time - startMillis, DAY);
+        return timeOfDay >= config.openHour * 60 * MINUTE && timeOfDay < config.closeHour * 60 * MINUTE;
+    }
+
+    // The time itself when the depot is open, or a random time on the next open day
+    private long intoOpeningHours(long time) {
+        if (isOpen(time)) {
+            return time;
+        }
+        long day = startMillis + (time - startMillis) / DAY * DAY;
+        if (time - day >= config.closeHour * 60 * MINUTE) {
+            day += DAY;
+        }
+        return randomOpenTime(day, arrivals);
+    }
+
+    private long randomOpenTime(long midnight, SplittableRandom random) {
+        long open = config.openHour * 60 * MINUTE;
+        long length = (config.closeHour - config.openHour) * 60 * MINUTE;
+        return midnight + open + (long) (random.nextDouble() * length);
+    }
+
+    private void schedule(long time, int type, Visit visit, int counter) {
+        events.add(new Event(time, scheduled++, type, visit, counter));
+    }
+
+    /**
+     * Runs one simulation and prints the report.
+     *
+     * Usage: DepotSimulator [key=value ...] with keys seed, days, warmup-days,
+     * parcels-per-day, counters, open (e.g. 8-20), pickup-days, patience-minutes,
+     * booked, assistance, service (e.g. lognormal:90:0.5) and policy.
+     */
+    public static void main(String[] args) {
+        Config config = new Config();
+        try {
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (equals < 0) {
+                    throw new IllegalArgumentException("Expected key=value: " + arg);
+                }
+                config.set(arg.substring(0, equals), arg.substring(equals + 1));
+            }
+            config.validate();
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println("Usage: DepotSimulator [key=value ...], e.g. days=30 counters=40 policy=fair-share");
+            System.exit(1);
+        }
+        System.out.println(new DepotSimulator(config).run());
+    }
+}
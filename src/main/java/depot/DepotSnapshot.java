@@ -0,0 +1,157 @@
+package depot;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary image of the package collection and recipient queue for fast startup.
+ * Layout: magic, version, a stamp (size and modification time) of each source file,
+ * the parcel and recipient records with length-prefixed UTF-8 strings, then a CRC32
+ * of everything before it. A snapshot is only used while every stamp still matches,
+ * so any change to the CSVs or the journal since it was written sends startup back
+ * to the CSV loader.
+ */
+public class DepotSnapshot {
+    private static final int MAGIC = 0x44505331; // "DPS1"
+    private static final int VERSION = 2;
+    private static final String SNAPSHOT_FILE = "depot_snapshot.bin";
+    private static final String[] SOURCE_FILES = {"Inventory.csv", "Recipients.csv", "depot_journal.log"};
+
+    public static void write(PackageCollection packageCollection, QueueOfCustomers recipientQueue) throws IOException {
+        Path target = Paths.get(SNAPSHOT_FILE);
+        Path tempFile = Paths.get(SNAPSHOT_FILE + ".tmp");
+        CRC32 checksum = new CRC32();
+        try (FileOutputStream fileStream = new FileOutputStream(tempFile.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                 new CheckedOutputStream(fileStream, checksum), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (String source : SOURCE_FILES) {
+                long[] stamp = stampOf(source);
+                out.writeLong(stamp[0]);
+                out.writeLong(stamp[1]);
+            }
+
+            // Collected parcels are dropped, as they are from Inventory.csv
+            List<Parcel> parcels = new ArrayList<>();
+            for (Parcel parcel : packageCollection.getAllPackages()) {
+                if (!parcel.getDeliveryState().equals("Collected")) {
+                    parcels.add(parcel);
+                }
+            }
+            out.writeInt(parcels.size());
+            for (Parcel parcel : parcels) {
+                writeString(out, parcel.getPackageID());
+                out.writeFloat(parcel.getMassKg());
+                writeString(out, parcel.getMeasurementSpec());
+                out.writeLong(parcel.getArrivalTime());
+                writeString(out, parcel.getDeliveryState());
+            }
+
+            out.writeInt(recipientQueue.size());
+            for (Customer recipient : recipientQueue.getQueueContents()) {
+                writeString(out, recipient.getSurname());
+                writeString(out, recipient.getPackageID());
+                out.writeInt(recipient.getSequenceNumber());
+                out.writeBoolean(recipient.hasCollectedPackage());
+            }
+            out.flush();
+            // Appended outside the checked stream so it is not part of its own input
+            new DataOutputStream(fileStream).writeLong(checksum.getValue());
+        }
+        Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Fills the (empty) collections from the snapshot. Returns false, leaving them
+     * untouched, when the snapshot is missing, corrupt, from another version or stale.
+     */
+    public static boolean load(PackageCollection packageCollection, QueueOfCustomers recipientQueue) {
+        Path source = Paths.get(SNAPSHOT_FILE);
+        if (!Files.exists(source)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 8 + 8 + SOURCE_FILES.length * 16L + 8 + 8) {
+                return false;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            long expected = buffer.getLong((int) (size - 8));
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.duplicate().limit((int) (size - 8)));
+            if (checksum.getValue() != expected) {
+                System.err.println("Snapshot checksum mismatch, loading from CSV");
+                return false;
+            }
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return false;
+            }
+            for (String file : SOURCE_FILES) {
+                long[] stamp = stampOf(file);
+                if (buffer.getLong() != stamp[0] || buffer.getLong() != stamp[1]) {
+                    return false;
+                }
+            }
+
+            int parcelCount = buffer.getInt();
+            List<Parcel> parcels = new ArrayList<>(parcelCount);
+            for (int i = 0; i < parcelCount; i++) {
+                String id = readString(buffer);
+                float mass = buffer.getFloat();
+                String spec = readString(buffer);
+                long arrival = buffer.getLong();
+                String state = readString(buffer);
+                parcels.add(new Parcel(id, mass, spec, arrival, state));
+            }
+
+            int recipientCount = buffer.getInt();
+            List<Customer> recipients = new ArrayList<>(recipientCount);
+            for (int i = 0; i < recipientCount; i++) {
+                Customer recipient = new Customer(readString(buffer), readString(buffer), buffer.getInt());
+                if (buffer.get() != 0) {
+                    recipient.markPackageCollected();
+                }
+                recipients.add(recipient);
+            }
+
+            parcels.forEach(packageCollection::addPackage);
+            recipients.forEach(recipientQueue::enqueueRecipient);
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Failed to read snapshot, loading from CSV: " + ex.getMessage());
+            return false;
+        }
+    }
+
+    // Size and modification time; {-1, -1} when the file does not exist
+    private static long[] stampOf(String filename) throws IOException {
+        Path path = Paths.get(filename);
+        if (!Files.exists(path)) {
+            return new long[] {-1, -1};
+        }
+        return new long[] {Files.size(path), Files.getLastModifiedTime(path).toMillis()};
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
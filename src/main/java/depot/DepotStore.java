@@ -0,0 +1,36 @@
+package depot;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where depot mutations are persisted. DepotJournal appends them to a log over the CSV
+ * snapshot; MappedRecordStore keeps fixed-width records in memory-mapped files and
+ * changes them in place. Each record method is called after the in-memory change.
+ */
+public interface DepotStore {
+    // True when the store holds the whole depot, so the CSVs need not be loaded first
+    boolean hasState();
+
+    // Brings the in-memory collections up to date; call once anything else is loaded
+    void replay() throws IOException;
+
+    void recordParcelAdded(Parcel parcel);
+
+    void recordParcelsAdded(List<Parcel> parcels);
+
+    void recordParcelRemoved(String packageId);
+
+    void recordRecipientAdded(Customer recipient);
+
+    void recordRecipientRemoved(String surname, String packageId);
+
+    void recordCollection(Customer recipient, String packageId);
+
+    void recordCollections(List<Customer> recipients);
+
+    // Reclaims space (journal compaction, record vacuum) and waits for it to reach disk
+    void compactAndWait();
+
+    void close();
+}
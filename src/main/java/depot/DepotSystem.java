@@ -0,0 +1,789 @@
+package depot;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+public class DepotSystem {
+    private static final int COMMAND_BATCH = 256;
+
+    // Outcome of a command: whether it took effect and a message to show the user
+    public static class CommandResult {
+        private final boolean successful;
+        private final String message;
+
+        private CommandResult(boolean successful, String message) {
+            this.successful = successful;
+            this.message = message;
+        }
+
+        static CommandResult succeeded(String message) { return new CommandResult(true, message); }
+        static CommandResult failed(String message) { return new CommandResult(false, message); }
+
+        public boolean isSuccessful() { return successful; }
+        public String getMessage() { return message; }
+    }
+
+    // A parcel passed between cluster nodes, with the recipient queued for it if any
+    public static class Handoff {
+        private final Parcel parcel;
+        private final Customer recipient;
+
+        public Handoff(Parcel parcel, Customer recipient) {
+            this.parcel = parcel;
+            this.recipient = recipient;
+        }
+
+        public Parcel getParcel() { return parcel; }
+        public Customer getRecipient() { return recipient; }
+    }
+
+    public interface ProgressListener {
+        void progress(int completed, int total);
+    }
+
+    private PackageCollection packageCollection;
+    private QueueOfCustomers recipientQueue;
+    private EventLogger logger;
+    private CollectionProcessor processor;
+    private DepotStore store;
+    private ReleaseLedger releaseLedger;
+    private final DepotEventBus eventBus = new DepotEventBus();
+    private final ExecutorService commandExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "depot-commands");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Collections are safe to run at once, so they do not queue behind the command thread
+    private final ExecutorService collectionExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "depot-collections");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger pendingCommands = new AtomicInteger();
+    private Scanner inputReader;
+
+    public DepotSystem() {
+        this(new PackageCollection());
+    }
+
+    // e.g. a ColumnarPackageCollection for depots with millions of parcels
+    public DepotSystem(PackageCollection packageCollection) {
+        this.packageCollection = packageCollection;
+        recipientQueue = new QueueOfCustomers();
+        logger = EventLogger.getInstance();
+        RecipientScheduler scheduler = recipientQueue.getScheduler();
+        scheduler.setPolicy(schedulerPolicy());
+        scheduler.setDaysInDepot(packageId -> {
+            Parcel parcel = packageCollection.getPackageByID(packageId);
+            return parcel == null ? 0 : parcel.getStorageDuration();
+        });
+        processor = new CollectionProcessor();
+        store = openStore();
+        packageCollection.setEventBus(eventBus);
+        recipientQueue.setEventBus(eventBus);
+        processor.setEventBus(eventBus);
+        DepotMetrics.registerGauge("recipient_queue", recipientQueue::size);
+        DepotMetrics.registerGauge("pending_commands", pendingCommands::get);
+        inputReader = new Scanner(System.in);
+    }
+
+    // -Ddepot.store=mapped keeps the depot in memory-mapped record files instead of the journal
+    private DepotStore openStore() {
+        if ("mapped".equals(System.getProperty("depot.store"))) {
+            try {
+                return new MappedRecordStore(packageCollection, recipientQueue);
+            } catch (IOException ex) {
+                System.err.println("Error opening record store, using the journal: " + ex.getMessage());
+                logger.logEvent("Failed to open record store: " + ex.getMessage());
+            }
+        }
+        return new DepotJournal(packageCollection, recipientQueue);
+    }
+
+    // -Ddepot.scheduler=priority or fair-share changes whom the counters call next; FIFO otherwise
+    private RecipientScheduler.Policy schedulerPolicy() {
+        String name = System.getProperty("depot.scheduler");
+        if (name != null) {
+            try {
+                return RecipientScheduler.Policy.fromName(name);
+            } catch (IllegalArgumentException ex) {
+                System.err.println("Unknown scheduler policy " + name + ", using FIFO");
+                logger.logEvent("Unknown scheduler policy: " + name);
+            }
+        }
+        return RecipientScheduler.Policy.FIFO;
+    }
+
+    public void initializeSystem() {
+        if (!store.hasState() && !DepotSnapshot.load(packageCollection, recipientQueue)) {
+            initializePackageList();
+            initializeRecipientQueue();
+        }
+        try {
+            releaseLedger = new ReleaseLedger();
+        } catch (IOException ex) {
+            System.err.println("Error opening release ledger: " + ex.getMessage());
+            logger.logEvent("Failed to open release ledger: " + ex.getMessage());
+        }
+        try {
+            store.replay();
+        } catch (IOException ex) {
+            System.err.println("Error replaying depot store: " + ex.getMessage());
+            logger.logEvent("Failed to replay depot store: " + ex.getMessage());
+        }
+    }
+
+    private void initializePackageList() {
+        try {
+            CsvLoader.LoadReport report = CsvLoader.loadInventory("Inventory.csv", packageCollection);
+            reportLoadProblems("Inventory.csv", report);
+        } catch (IOException ex) {
+            System.err.println("Error loading inventory data: " + ex.getMessage());
+            logger.logEvent("Failed to initialize package list: " + ex.getMessage());
+        }
+    }
+
+    private void initializeRecipientQueue() {
+        try {
+            CsvLoader.LoadReport report = CsvLoader.loadRecipients("Recipients.csv", recipientQueue);
+            reportLoadProblems("Recipients.csv", report);
+        } catch (IOException ex) {
+            System.err.println("Error loading recipient data: " + ex.getMessage());
+            logger.logEvent("Failed to initialize recipient queue: " + ex.getMessage());
+        }
+    }
+
+    private void reportLoadProblems(String filename, CsvLoader.LoadReport report) {
+        for (String problem : report.getProblems()) {
+            System.err.println("Skipped row in " + filename + ", " + problem);
+            logger.logEvent("Skipped row in " + filename + ", " + problem);
+        }
+    }
+
+    public void startSystem() {
+        runMenu();
+        shutdown();
+    }
+
+    // Returns once the user exits, leaving the system running
+    private void runMenu() {
+        boolean systemActive = true;
+        while (systemActive) {
+            showSystemMenu();
+            String userChoice = inputReader.nextLine();
+
+            switch (userChoice) {
+                case "1": processNextRecipient(); break;
+                case "2": displayRecipientList(); break;
+                case "3": displayInventory(); break;
+                case "4": displayEventLog(); break;
+                case "5": registerNewRecipient(); break;
+                case "6": registerNewPackage(); break;
+                case "7": deregisterRecipient(); break;
+                case "8": removePackage(); break;
+                case "9": systemActive = false; break;
+                default: System.out.println("Invalid selection. Try again.");
+            }
+        }
+        inputReader.close();
+    }
+
+    // Closes the store, which flushes the journal into the CSVs, and leaves a binary snapshot for the next start
+    public void shutdown() {
+        // Let commands and collections already issued finish before the store closes
+        commandExecutor.shutdown();
+        collectionExecutor.shutdown();
+        try {
+            commandExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            collectionExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        store.close();
+        writeSnapshot();
+        closeReleaseLedger();
+    }
+
+    private void closeReleaseLedger() {
+        if (releaseLedger == null) {
+            return;
+        }
+        try {
+            releaseLedger.close();
+        } catch (IOException ex) {
+            System.err.println("Error closing release ledger: " + ex.getMessage());
+            logger.logEvent("Failed to close release ledger: " + ex.getMessage());
+        }
+    }
+
+    public void saveSnapshot() {
+        store.compactAndWait();
+        writeSnapshot();
+    }
+
+    // The binary snapshot only speeds up loading the CSVs, which a record store does not need
+    private void writeSnapshot() {
+        if (store.hasState()) {
+            return;
+        }
+        try {
+            DepotSnapshot.write(packageCollection, recipientQueue);
+        } catch (IOException ex) {
+            System.err.println("Error writing snapshot: " + ex.getMessage());
+            logger.logEvent("Failed to write snapshot: " + ex.getMessage());
+        }
+    }
+
+    private void showSystemMenu() {
+        System.out.println("\n=== Depot Management System ===");
+        System.out.println("1. Process Next Recipient");
+        System.out.println("2. View Recipients Queue");
+        System.out.println("3. View Inventory");
+        System.out.println("4. View System Log");
+        System.out.println("5. Register New Recipient");
+        System.out.println("6. Register New Package");
+        System.out.println("7. Deregister Recipient");
+        System.out.println("8. Remove Package");
+        System.out.println("9. Exit System");
+        System.out.print("Select option: ");
+    }
+
+    // Like the GUI's, menu commands run on the command thread; the menu waits for each result
+    public void processNextRecipient() {
+        System.out.print("Enter package identifier: ");
+        String packageId = inputReader.nextLine();
+    
+        CollectionProcessor.Result result = collect(packageId).join();
+        if (!result.isSuccessful()) {
+            System.out.println("Could not process package " + packageId + ": " + result.getFailureReason());
+            return;
+        }
+        System.out.println("Details added to the release ledger");
+        System.out.println("Processed recipient: " + result.getRecipient().getSurname() + 
+                          " with package: " + packageId +
+                          ". Fee: £" + String.format("%.2f", result.getCharge()));
+    }
+
+    /**
+     * Collects one parcel. Safe to call from several counters at once: the parcel's
+     * state transition decides which caller wins, so each parcel is collected once.
+     * In-memory state changes before the journal record is written, which keeps a
+     * concurrent compaction consistent with the journal.
+     */
+    public CollectionProcessor.Result collectParcel(String packageId) {
+        long started = DepotMetrics.start();
+        CollectionProcessor.Result result = collectParcelTimed(packageId);
+        DepotMetrics.stop(DepotMetrics.Stage.COLLECTION, started);
+        DepotMetrics.count(result.isSuccessful()
+            ? DepotMetrics.Operation.COLLECTIONS : DepotMetrics.Operation.FAILED_COLLECTIONS);
+        return result;
+    }
+
+    private CollectionProcessor.Result collectParcelTimed(String packageId) {
+        long lookupStarted = DepotMetrics.start();
+        Parcel currentPackage = packageCollection.getPackageByID(packageId);
+        Customer recipientToProcess = currentPackage == null ? null : recipientQueue.findRecipientByPackageID(packageId);
+        DepotMetrics.stop(DepotMetrics.Stage.LOOKUP, lookupStarted);
+        if (currentPackage == null) {
+            logger.logEvent("Failed to process package: " + packageId + " - not found");
+            return CollectionProcessor.Result.failed(packageId, "package not found");
+        }
+        if (recipientToProcess == null) {
+            logger.logEvent("Failed to process package: " + packageId + " - no recipient found");
+            return CollectionProcessor.Result.failed(packageId, "no recipient found");
+        }
+    
+        CollectionProcessor.Result result = processor.collect(recipientToProcess, currentPackage);
+        if (!result.isSuccessful()) {
+            return result;
+        }
+        recipientQueue.removeRecipient(recipientToProcess);
+        appendReleased(List.of(releaseEntry(result)));
+        store.recordCollection(recipientToProcess, packageId);
+        return result;
+    }
+
+    private void appendReleased(List<ReleaseLedger.Entry> entries) {
+        if (releaseLedger == null) {
+            logger.logEvent("Release ledger unavailable, " + entries.size() + " release(s) not recorded");
+            return;
+        }
+        long started = DepotMetrics.start();
+        try {
+            releaseLedger.append(entries);
+        } catch (IOException e) {
+            System.err.println("Error updating release ledger: " + e.getMessage());
+            logger.logEvent("Error adding release details to the release ledger: " + e.getMessage());
+        }
+        DepotMetrics.stop(DepotMetrics.Stage.LEDGER_APPEND, started);
+    }
+
+    public PackageCollection getPackageCollection() {
+        return packageCollection;
+    }
+
+    public QueueOfCustomers getRecipientQueue() {
+        return recipientQueue;
+    }
+
+    // Changes to parcels, recipients and collections are published here
+    public DepotEventBus getEventBus() {
+        return eventBus;
+    }
+
+    public ReleaseLedger getReleaseLedger() {
+        return releaseLedger;
+    }
+
+    /**
+     * Collects the parcels for several package IDs at once, with one release ledger append,
+     * one journal write and one grouped log write for the whole batch. Results come back
+     * in the order of the package IDs, failures included.
+     */
+    public List<CollectionProcessor.Result> processBatch(List<String> packageIds) {
+        long started = DepotMetrics.start();
+        List<CollectionProcessor.Result> results = processBatchTimed(packageIds);
+        DepotMetrics.stop(DepotMetrics.Stage.BATCH_COLLECTION, started);
+        long collected = results.stream().filter(CollectionProcessor.Result::isSuccessful).count();
+        DepotMetrics.count(DepotMetrics.Operation.COLLECTIONS, collected);
+        DepotMetrics.count(DepotMetrics.Operation.FAILED_COLLECTIONS, results.size() - collected);
+        return results;
+    }
+
+    private List<CollectionProcessor.Result> processBatchTimed(List<String> packageIds) {
+        long lookupStarted = DepotMetrics.start();
+        List<Customer> recipients = new ArrayList<>(packageIds.size());
+        List<CollectionProcessor.Result> unmatched = new ArrayList<>();
+        boolean[] matched = new boolean[packageIds.size()];
+        for (int i = 0; i < packageIds.size(); i++) {
+            String packageId = packageIds.get(i);
+            Customer recipient = recipientQueue.findRecipientByPackageID(packageId);
+            if (recipient != null) {
+                matched[i] = true;
+                recipients.add(recipient);
+            } else {
+                unmatched.add(CollectionProcessor.Result.failed(packageId, "no recipient found"));
+            }
+        }
+        DepotMetrics.stop(DepotMetrics.Stage.LOOKUP, lookupStarted);
+
+        List<CollectionProcessor.Result> results = processor.processBatch(recipients, packageCollection);
+        List<Customer> collected = new ArrayList<>(results.size());
+        List<ReleaseLedger.Entry> released = new ArrayList<>(results.size());
+        for (CollectionProcessor.Result result : results) {
+            if (result.isSuccessful()) {
+                collected.add(result.getRecipient());
+                released.add(releaseEntry(result));
+            }
+        }
+
+        if (!collected.isEmpty()) {
+            collected.forEach(recipientQueue::removeRecipient);
+            appendReleased(released);
+            store.recordCollections(collected);
+        }
+
+        if (unmatched.isEmpty()) {
+            return results;
+        }
+        List<String> events = new ArrayList<>(unmatched.size());
+        for (CollectionProcessor.Result result : unmatched) {
+            events.add("Failed to process package: " + result.getPackageID() + " - no recipient found");
+        }
+        logger.logEvents(events);
+
+        List<CollectionProcessor.Result> ordered = new ArrayList<>(packageIds.size());
+        Iterator<CollectionProcessor.Result> processed = results.iterator();
+        Iterator<CollectionProcessor.Result> failed = unmatched.iterator();
+        for (int i = 0; i < packageIds.size(); i++) {
+            ordered.add(matched[i] ? processed.next() : failed.next());
+        }
+        return ordered;
+    }
+
+    private static ReleaseLedger.Entry releaseEntry(CollectionProcessor.Result result) {
+        Parcel parcel = result.getParcel();
+        return new ReleaseLedger.Entry(Instant.ofEpochMilli(DepotClock.currentTimeMillis()),
+            result.getRecipient().getSurname(), result.getPackageID(), parcel.getMassKg(),
+            parcel.getMeasurementSpec(), parcel.getDeliveryState(), Math.round(result.getCharge() * 100.0));
+    }
+
+    private void displayRecipientList() {
+        System.out.println("\nCurrent Recipients Queue:");
+        recipientQueue.getQueueContents().forEach(System.out::println);
+    }
+
+    private void displayInventory() {
+        System.out.println("\nCurrent Inventory Status:");
+        packageCollection.getAllPackages().forEach(System.out::println);
+    }
+
+    private void displayEventLog() {
+        System.out.println("\nSystem Event History:");
+        try (Stream<String> events = logger.getReader().page(0, Integer.MAX_VALUE)) {
+            events.forEach(System.out::println);
+        }
+    }
+
+    private void registerNewRecipient() {
+        System.out.print("Enter recipient name: ");
+        String name = inputReader.nextLine();
+        System.out.print("Enter package ID: ");
+        String packageId = inputReader.nextLine();
+        printFailure(registerRecipient(name, packageId).join());
+    }
+
+    private void registerNewPackage() {
+        System.out.print("Enter package ID: ");
+        String id = inputReader.nextLine();
+        System.out.print("Enter weight: ");
+        float mass = Float.parseFloat(inputReader.nextLine());
+        System.out.print("Enter dimensions (length width height): ");
+        String dimensions = inputReader.nextLine();
+        printFailure(registerParcel(id, mass, dimensions).join());
+    }
+
+    private void deregisterRecipient() {
+        System.out.print("Enter recipient name to remove: ");
+        String name = inputReader.nextLine();
+        System.out.print("Enter package ID: ");
+        String packageId = inputReader.nextLine();
+        printFailure(deregisterRecipient(name, packageId).join());
+    }
+
+    private void removePackage() {
+        System.out.print("Enter package ID to remove: ");
+        String id = inputReader.nextLine();
+        printFailure(removeParcel(id).join());
+    }
+
+    private static void printFailure(CommandResult result) {
+        if (!result.isSuccessful()) {
+            System.out.println(result.getMessage());
+        }
+    }
+
+    /**
+     * Calls the next recipient to a counter as the scheduler policy decides, or returns
+     * null when nobody is waiting. They stay queued until their parcel is collected,
+     * which also times the service for the wait estimates.
+     */
+    public Customer callNextRecipient(int counter) {
+        Customer recipient = recipientQueue.callNext(counter);
+        if (recipient != null) {
+            logger.logEvent("Counter " + counter + " called recipient " + recipient.getSurname()
+                + " for package " + recipient.getPackageID());
+        }
+        return recipient;
+    }
+
+    public List<Customer> searchRecipients(String query, int limit) {
+        return recipientQueue.searchByName(query, limit);
+    }
+
+    /*
+     * Typed commands. Each runs on the command thread, one at a time in the order they
+     * were issued, so a caller such as the GUI never does journal or log I/O itself.
+     * Collections are the exception: collectParcel is safe from several threads, so
+     * collect runs it on a pooled thread, and callers already off the event thread,
+     * such as the HTTP API and cluster nodes, call collectParcel directly.
+     */
+
+    public CompletableFuture<CollectionProcessor.Result> collect(String packageId) {
+        return CompletableFuture.supplyAsync(() -> collectParcel(packageId), collectionExecutor);
+    }
+
+    public CompletableFuture<CommandResult> registerRecipient(String name, String packageId) {
+        return submitCommand(() -> registerRecipientNow(name, packageId, 0, false));
+    }
+
+    // bookedSlot is the start of a booked collection slot in epoch milliseconds, or 0 for none
+    public CompletableFuture<CommandResult> registerRecipient(String name, String packageId,
+                                                              long bookedSlot, boolean needsAssistance) {
+        return submitCommand(() -> registerRecipientNow(name, packageId, bookedSlot, needsAssistance));
+    }
+
+    public CompletableFuture<CommandResult> registerParcel(String packageId, float massKg, String measurementSpec) {
+        return submitCommand(() -> registerParcelNow(packageId, massKg, measurementSpec));
+    }
+
+    public CompletableFuture<CommandResult> deregisterRecipient(String name, String packageId) {
+        return submitCommand(() -> deregisterRecipientNow(name, packageId));
+    }
+
+    public CompletableFuture<CommandResult> removeParcel(String packageId) {
+        return submitCommand(() -> removeParcelNow(packageId));
+    }
+
+    /**
+     * Takes over parcels handed off by another cluster node. Arrival times are kept, so
+     * charges come out as they would have there; recipients join the back of the queue.
+     * Parcels already here are skipped. Completes with the number of parcels added.
+     */
+    public CompletableFuture<Integer> adoptParcels(List<Handoff> handoffs) {
+        return submitCommand(() -> adoptParcelsNow(handoffs));
+    }
+
+    /**
+     * Removes parcels that another cluster node now owns, with their queued recipients,
+     * and completes with what was removed for the caller to pass on. Collected and
+     * unknown parcels are left alone.
+     */
+    public CompletableFuture<List<Handoff>> handOffParcels(List<String> packageIds) {
+        return submitCommand(() -> handOffParcelsNow(packageIds));
+    }
+
+    /**
+     * What handOffParcels would hand on, without removing anything, so the new owner can
+     * adopt the parcels before they leave here.
+     */
+    public CompletableFuture<List<Handoff>> copyParcels(List<String> packageIds) {
+        return submitCommand(() -> copyParcelsNow(packageIds));
+    }
+
+    // Commands waiting or running are counted for the pending_commands gauge
+    private <T> CompletableFuture<T> submitCommand(Supplier<T> command) {
+        pendingCommands.incrementAndGet();
+        DepotMetrics.count(DepotMetrics.Operation.COMMANDS);
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return command.get();
+                } finally {
+                    pendingCommands.decrementAndGet();
+                }
+            }, commandExecutor);
+        } catch (RejectedExecutionException ex) {
+            pendingCommands.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    /**
+     * Adds every parcel in a manifest file. The pipeline runs on its own threads rather
+     * than the command thread, so other commands carry on while a large manifest loads.
+     */
+    public CompletableFuture<ManifestIngest.Report> ingestManifest(Path manifest) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return new ManifestIngest(manifest, packageCollection, store).run();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(ex);
+            }
+        }, task -> {
+            Thread thread = new Thread(task, "depot-manifest");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    /**
+     * Collects several parcels in batches of COMMAND_BATCH, reporting progress after
+     * each batch. Cancelling the returned future stops the work before the next batch;
+     * parcels already collected stay collected.
+     */
+    public CompletableFuture<List<CollectionProcessor.Result>> collectAll(List<String> packageIds,
+                                                                          ProgressListener progress) {
+        CompletableFuture<List<CollectionProcessor.Result>> future = new CompletableFuture<>();
+        submitCommand(() -> {
+            try {
+                List<CollectionProcessor.Result> results = new ArrayList<>(packageIds.size());
+                for (int start = 0; start < packageIds.size() && !future.isCancelled(); start += COMMAND_BATCH) {
+                    List<String> batch = packageIds.subList(start, Math.min(packageIds.size(), start + COMMAND_BATCH));
+                    results.addAll(processBatch(batch));
+                    progress.progress(results.size(), packageIds.size());
+                }
+                future.complete(results);
+            } catch (RuntimeException ex) {
+                future.completeExceptionally(ex);
+            }
+            return null;
+        });
+        return future;
+    }
+
+    private int adoptParcelsNow(List<Handoff> handoffs) {
+        List<Parcel> added = new ArrayList<>(handoffs.size());
+        for (Handoff handoff : handoffs) {
+            if (packageCollection.addPackage(handoff.getParcel())) {
+                added.add(handoff.getParcel());
+            }
+        }
+        store.recordParcelsAdded(added);
+        for (Handoff handoff : handoffs) {
+            Customer recipient = handoff.getRecipient();
+            if (recipient != null && packageCollection.getPackageByID(recipient.getPackageID()) != null
+                    && recipientQueue.enqueueRecipient(recipient)) {
+                store.recordRecipientAdded(recipient);
+            }
+        }
+        logger.logEvent("Adopted " + added.size() + " parcels from another node");
+        return added.size();
+    }
+
+    private List<Handoff> handOffParcelsNow(List<String> packageIds) {
+        List<Handoff> handoffs = copyParcelsNow(packageIds);
+        for (Handoff handoff : handoffs) {
+            String id = handoff.getParcel().getPackageID();
+            Customer recipient = handoff.getRecipient();
+            if (recipient != null) {
+                recipientQueue.removeRecipient(recipient);
+                store.recordRecipientRemoved(recipient.getSurname(), id);
+            }
+            packageCollection.removePackage(id);
+            store.recordParcelRemoved(id);
+        }
+        logger.logEvent("Handed off " + handoffs.size() + " parcels to another node");
+        return handoffs;
+    }
+
+    private List<Handoff> copyParcelsNow(List<String> packageIds) {
+        List<Handoff> handoffs = new ArrayList<>(packageIds.size());
+        for (String id : packageIds) {
+            Parcel parcel = packageCollection.getPackageByID(id);
+            if (parcel == null || parcel.getDeliveryState().equals("Collected")) {
+                continue;
+            }
+            // A plain copy to hand on, since a columnar collection hands out views tied to its slots
+            Parcel copy = new Parcel(id, parcel.getMassKg(), parcel.getMeasurementSpec(),
+                parcel.getArrivalTime(), parcel.getDeliveryState());
+            handoffs.add(new Handoff(copy, recipientQueue.findRecipientByPackageID(id)));
+        }
+        return handoffs;
+    }
+
+    private CommandResult registerRecipientNow(String name, String packageId, long bookedSlot, boolean needsAssistance) {
+        if (!isRecordable(name) || !isRecordable(packageId)) {
+            logger.logEvent("Failed to add recipient: name or package ID contains a comma or line break");
+            return CommandResult.failed("Error: Names and package IDs cannot contain commas or line breaks.");
+        }
+        // Check if package exists
+        if (packageCollection.getPackageByID(packageId) == null) {
+            logger.logEvent("Failed to add recipient " + name + ": Package ID " + packageId + " not found");
+            return CommandResult.failed("Error: Package ID does not exist.");
+        }
+    
+        Customer newRecipient = new Customer(name, packageId, recipientQueue.nextSequenceNumber());
+        newRecipient.setBookedSlot(bookedSlot);
+        newRecipient.setNeedsAssistance(needsAssistance);
+        if (!recipientQueue.enqueueRecipient(newRecipient)) {
+            logger.logEvent("Failed to add recipient " + name + ": Package ID " + packageId + " already has a recipient");
+            return CommandResult.failed("Error: A recipient is already queued for this package.");
+        }
+    
+        store.recordRecipientAdded(newRecipient);
+        logger.logEvent("Added new recipient: " + name + " with package ID: " + packageId);
+        return CommandResult.succeeded("Added customer: " + name + " with parcel: " + packageId);
+    }
+
+    private CommandResult registerParcelNow(String id, float mass, String dimensions) {
+        if (!isRecordable(id) || !isRecordable(dimensions)) {
+            logger.logEvent("Failed to add package: ID or dimensions contain a comma or line break");
+            return CommandResult.failed("Error: Package IDs and dimensions cannot contain commas or line breaks.");
+        }
+        Parcel newPackage = new Parcel(id, mass, dimensions);
+        if (!packageCollection.addPackage(newPackage)) {
+            logger.logEvent("Failed to add package " + id + ": already in depot");
+            return CommandResult.failed("Error: Package ID already exists.");
+        }
+    
+        store.recordParcelAdded(newPackage);
+        logger.logEvent("Added new package: " + id + " with mass: " + mass + " and dimensions: " + dimensions);
+        return CommandResult.succeeded("Added parcel: " + id);
+    }
+
+    // The journal and the CSVs hold one comma-separated record per line, so a field must not split one
+    private static boolean isRecordable(String field) {
+        return field == null || (field.indexOf(',') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0);
+    }
+
+    private CommandResult deregisterRecipientNow(String name, String packageId) {
+        Parcel parcel = packageCollection.getPackageByID(packageId);
+        if (parcel != null && !parcel.getDeliveryState().equals("Collected")) {
+            logger.logEvent("Failed to remove recipient " + name + ": Package " + packageId + " is still in depot");
+            return CommandResult.failed("Cannot remove recipient: associated package is still in depot");
+        }
+    
+        Customer recipient = recipientQueue.findRecipientByPackageID(packageId);
+        if (recipient == null) {
+            StringBuilder message = new StringBuilder("No recipient with package " + packageId);
+            List<Customer> similar = recipientQueue.searchByName(name, 5);
+            if (!similar.isEmpty()) {
+                message.append(". Similar names:");
+                similar.forEach(match -> message.append(System.lineSeparator()).append(match));
+            }
+            logger.logEvent("Failed to remove recipient " + name + ": no recipient for package " + packageId);
+            return CommandResult.failed(message.toString());
+        }
+        if (!recipient.getSurname().trim().equalsIgnoreCase(name.trim())) {
+            logger.logEvent("Failed to remove recipient " + name + ": package " + packageId + " belongs to another recipient");
+            return CommandResult.failed("Package " + packageId + " belongs to a different recipient");
+        }
+        recipientQueue.removeRecipient(recipient);
+        // Journal the stored spelling so replay matches it exactly
+        store.recordRecipientRemoved(recipient.getSurname(), packageId);
+        
+        logger.logEvent("Removed recipient: " + recipient.getSurname() + " with package ID: " + packageId);
+        return CommandResult.succeeded("Removed customer: " + recipient.getSurname());
+    }
+
+    private CommandResult removeParcelNow(String id) {
+        Parcel packageToRemove = packageCollection.getPackageByID(id);
+        if (packageToRemove == null) {
+            logger.logEvent("Failed to remove package " + id + ": not found");
+            return CommandResult.failed("Package not found");
+        }
+    
+        if (!packageToRemove.getDeliveryState().equals("Collected")) {
+            logger.logEvent("Failed to remove package " + id + ": still in depot");
+            return CommandResult.failed("Cannot remove package: still in depot");
+        }
+    
+        packageCollection.removePackage(id);
+        store.recordParcelRemoved(id);
+        
+        logger.logEvent("Removed package: " + id);
+        return CommandResult.succeeded("Removed parcel: " + id);
+    }
+
+    public static void main(String[] args) {
+        DepotMetrics.getInstance().install();
+        EventLogger.getInstance().enableAsync(EventLogger.FlushPolicy.everyMillis(200));
+        DepotSystem system = Boolean.getBoolean("depot.columnar")
+            ? new DepotSystem(new ColumnarPackageCollection()) : new DepotSystem();
+        system.initializeSystem();
+        // -Ddepot.http.port serves the scanner API alongside the menu, on the same state
+        DepotHttpServer httpServer = null;
+        Integer httpPort = Integer.getInteger("depot.http.port");
+        if (httpPort != null) {
+            try {
+                httpServer = new DepotHttpServer(system, httpPort);
+                httpServer.start();
+            } catch (IOException ex) {
+                System.err.println("Error starting HTTP API: " + ex.getMessage());
+                system.logger.logEvent("Failed to start HTTP API: " + ex.getMessage());
+            }
+        }
+        system.runMenu();
+        // No requests may start commands once the command thread is shutting down
+        if (httpServer != null) {
+            httpServer.stop();
+        }
+        system.shutdown();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,366 @@
+package depot;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Read-only view over depot_events.log. The file is memory-mapped in windows and a
+ * sparse index records the byte offset and timestamp of every INDEX_INTERVAL-th line,
+ * so queries jump close to where they start and stream lines from there instead of
+ * loading the whole log. The index is extended incrementally as the log grows.
+ */
+public class EventLogReader {
+    private static final int INDEX_INTERVAL = 1024;
+    private static final long WINDOW_SIZE = 32L * 1024 * 1024;
+
+    private final Path logFile;
+    private long indexedLength;
+    private long indexedLines;
+    private long lastTimestamp;
+    private long[] offsets = new long[64];
+    private long[] timestamps = new long[64];
+    private int indexSize;
+
+    public EventLogReader(String filename) {
+        this.logFile = Paths.get(filename);
+    }
+
+    // Number of complete events in the log; blank lines are not events and are not counted
+    public synchronized long lineCount() {
+        extendIndex();
+        return indexedLines;
+    }
+
+    // Last n events, oldest first
+    public synchronized List<String> tail(int n) {
+        return tail(n, null);
+    }
+
+    public synchronized List<String> tail(int n, String filter) {
+        Deque<String> lines = new ArrayDeque<>();
+        if (n <= 0) {
+            return new ArrayList<>(lines);
+        }
+        byte[] pattern = toPattern(filter);
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            MappedWindow window = new MappedWindow(channel);
+            long end = window.size;
+            while (end > 0 && lines.size() < n) {
+                // Step back over the newline ending the previous line, then find its start
+                long lineEnd = end;
+                if (window.byteAt(lineEnd - 1) == '\n') {
+                    lineEnd--;
+                }
+                long start = lineEnd;
+                while (start > 0 && window.byteAt(start - 1) != '\n') {
+                    start--;
+                }
+                if (!window.isBlank(start, lineEnd) && window.matches(start, lineEnd, pattern)) {
+                    lines.addFirst(window.decode(start, lineEnd));
+                }
+                end = start;
+            }
+        } catch (IOException ex) {
+            System.err.println("Failed to read event log: " + ex.getMessage());
+        }
+        return new ArrayList<>(lines);
+    }
+
+    // Events from position offset (0 = oldest), at most limit of them
+    public Stream<String> page(long offset, int limit) {
+        return page(offset, limit, null);
+    }
+
+    /**
+     * With a filter, offset and limit count matching events only and the scan starts
+     * at the beginning; without one, the index positions the scan directly.
+     */
+    public Stream<String> page(long offset, int limit, String filter) {
+        long startOffset = 0;
+        long skip = offset;
+        if (filter == null) {
+            synchronized (this) {
+                extendIndex();
+                int entry = (int) Math.min(offset / INDEX_INTERVAL, indexSize - 1);
+                if (entry >= 0) {
+                    startOffset = offsets[entry];
+                    skip = offset - (long) entry * INDEX_INTERVAL;
+                }
+            }
+        }
+        return stream(startOffset, toPattern(filter), Long.MIN_VALUE, Long.MAX_VALUE)
+            .skip(skip).limit(limit);
+    }
+
+    // Events with from <= timestamp <= to
+    public Stream<String> range(LocalDateTime from, LocalDateTime to) {
+        return range(from, to, null);
+    }
+
+    public Stream<String> range(LocalDateTime from, LocalDateTime to, String filter) {
+        long fromKey = toKey(from);
+        long toKey = toKey(to);
+        long startOffset = 0;
+        synchronized (this) {
+            extendIndex();
+            // Last indexed line strictly before the range, so no earlier match is skipped
+            int low = 0;
+            int high = indexSize - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (timestamps[mid] < fromKey) {
+                    startOffset = offsets[mid];
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+        }
+        return stream(startOffset, toPattern(filter), fromKey, toKey);
+    }
+
+    private Stream<String> stream(long startOffset, byte[] pattern, long fromKey, long toKey) {
+        LineIterator lines;
+        try {
+            lines = new LineIterator(startOffset, pattern, fromKey, toKey);
+        } catch (IOException ex) {
+            System.err.println("Failed to read event log: " + ex.getMessage());
+            return Stream.empty();
+        }
+        return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(lines, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(lines::close);
+    }
+
+    private void extendIndex() {
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            MappedWindow window = new MappedWindow(channel);
+            if (window.size < indexedLength) {
+                // The log was truncated or replaced; start over
+                indexedLength = 0;
+                indexedLines = 0;
+                indexSize = 0;
+                lastTimestamp = 0;
+            }
+            long position = indexedLength;
+            while (position < window.size) {
+                long lineEnd = window.indexOf('\n', position);
+                if (lineEnd < 0) {
+                    break;
+                }
+                // Counted the way LineIterator returns lines, so page offsets line up
+                if (!window.isBlank(position, lineEnd)) {
+                    long timestamp = window.timestampAt(position, lineEnd);
+                    if (timestamp > 0) {
+                        lastTimestamp = timestamp;
+                    }
+                    if (indexedLines % INDEX_INTERVAL == 0) {
+                        addIndexEntry(position, lastTimestamp);
+                    }
+                    indexedLines++;
+                }
+                position = lineEnd + 1;
+            }
+            indexedLength = position;
+        } catch (IOException ex) {
+            System.err.println("Failed to index event log: " + ex.getMessage());
+        }
+    }
+
+    private void addIndexEntry(long offset, long timestamp) {
+        if (indexSize == offsets.length) {
+            offsets = Arrays.copyOf(offsets, indexSize * 2);
+            timestamps = Arrays.copyOf(timestamps, indexSize * 2);
+        }
+        offsets[indexSize] = offset;
+        timestamps[indexSize] = timestamp;
+        indexSize++;
+    }
+
+    private static byte[] toPattern(String filter) {
+        return filter == null || filter.isEmpty() ? null : filter.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // yyyyMMddHHmmss as a number, which sorts the same way as the log's timestamps
+    private static long toKey(LocalDateTime time) {
+        return time.getYear() * 10000000000L + time.getMonthValue() * 100000000L
+            + time.getDayOfMonth() * 1000000L + time.getHour() * 10000L
+            + time.getMinute() * 100L + time.getSecond();
+    }
+
+    private class LineIterator implements Iterator<String> {
+        private final FileChannel channel;
+        private final MappedWindow window;
+        private final byte[] pattern;
+        private final long fromKey;
+        private final long toKey;
+        private long position;
+        private long lastKey;
+        private String next;
+        private boolean finished;
+
+        LineIterator(long startOffset, byte[] pattern, long fromKey, long toKey) throws IOException {
+            this.channel = FileChannel.open(logFile, StandardOpenOption.READ);
+            this.window = new MappedWindow(channel);
+            this.position = startOffset;
+            this.pattern = pattern;
+            this.fromKey = fromKey;
+            this.toKey = toKey;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !finished) {
+                if (position >= window.size) {
+                    close();
+                    break;
+                }
+                long lineEnd = window.indexOf('\n', position);
+                if (lineEnd < 0) {
+                    lineEnd = window.size;
+                }
+                long start = position;
+                position = lineEnd + 1;
+                long key = window.timestampAt(start, lineEnd);
+                if (key > 0) {
+                    lastKey = key;
+                }
+                if (lastKey > toKey) {
+                    close();
+                    break;
+                }
+                if (!window.isBlank(start, lineEnd) && lastKey >= fromKey && window.matches(start, lineEnd, pattern)) {
+                    next = window.decode(start, lineEnd);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String line = next;
+            next = null;
+            return line;
+        }
+
+        void close() {
+            finished = true;
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                System.err.println("Failed to close event log: " + ex.getMessage());
+            }
+        }
+    }
+
+    // Maps WINDOW_SIZE bytes at a time and remaps when a read leaves the current window
+    private static class MappedWindow {
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer buffer;
+        private long windowStart;
+        private long windowEnd;
+
+        MappedWindow(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        byte byteAt(long position) {
+            if (position < windowStart || position >= windowEnd) {
+                remap(Math.max(0, position - WINDOW_SIZE / 2));
+            }
+            return buffer.get((int) (position - windowStart));
+        }
+
+        private void remap(long start) {
+            try {
+                windowStart = start;
+                windowEnd = Math.min(size, start + WINDOW_SIZE);
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Failed to map event log: " + ex.getMessage(), ex);
+            }
+        }
+
+        long indexOf(char target, long from) {
+            for (long i = from; i < size; i++) {
+                if (byteAt(i) == target) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // Parses the leading "yyyy/MM/dd HH:mm:ss" without allocating; 0 when absent
+        long timestampAt(long start, long end) {
+            if (end - start < 19) {
+                return 0;
+            }
+            long key = 0;
+            for (int i = 0; i < 19; i++) {
+                byte b = byteAt(start + i);
+                if (i == 4 || i == 7 || i == 10 || i == 13 || i == 16) {
+                    continue;
+                }
+                if (b < '0' || b > '9') {
+                    return 0;
+                }
+                key = key * 10 + (b - '0');
+            }
+            return key;
+        }
+
+        // Empty, or only the carriage return of a CRLF line ending
+        boolean isBlank(long start, long end) {
+            return end == start || (end - start == 1 && byteAt(start) == '\r');
+        }
+
+        boolean matches(long start, long end, byte[] pattern) {
+            if (pattern == null) {
+                return true;
+            }
+            outer:
+            for (long i = start; i <= end - pattern.length; i++) {
+                for (int j = 0; j < pattern.length; j++) {
+                    if (byteAt(i + j) != pattern[j]) {
+                        continue outer;
+                    }
+                }
+                return true;
+            }
+            return false;
+        }
+
+        String decode(long start, long end) {
+            if (end > start && byteAt(end - 1) == '\r') {
+                end--;
+            }
+            byte[] bytes = new byte[(int) (end - start)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = byteAt(start + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
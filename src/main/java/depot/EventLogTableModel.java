@@ -0,0 +1,101 @@
+package depot;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Table model over the event log. Unfiltered, the row count comes from the reader's
+ * line index and rows are read a block at a time as they are painted, through a small
+ * cache of recently shown blocks, so a long log opens as quickly as a short one. A
+ * filter reads the matching events once, up to MAX_FILTERED_ROWS of them.
+ */
+public class EventLogTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = { "Time", "Event" };
+    private static final int BLOCK_LINES = 256;
+    private static final int CACHED_BLOCKS = 32;
+    private static final int MAX_FILTERED_ROWS = 100_000;
+
+    private final EventLogReader reader;
+    private String filter;
+    private boolean newestFirst;
+    private long lineCount;
+    // Matching events when filtered, otherwise null
+    private String[] filtered;
+
+    private final Map<Long, String[]> blocks = new LinkedHashMap<Long, String[]>(CACHED_BLOCKS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String[]> eldest) {
+            return size() > CACHED_BLOCKS;
+        }
+    };
+
+    public EventLogTableModel(EventLogReader reader) {
+        this.reader = reader;
+    }
+
+    public void setFilter(String filter) {
+        this.filter = filter == null || filter.isEmpty() ? null : filter;
+    }
+
+    public void setNewestFirst(boolean newestFirst) {
+        this.newestFirst = newestFirst;
+    }
+
+    public boolean isNewestFirst() { return newestFirst; }
+
+    // Safe off the event thread; run the result on it to publish the new rows
+    public Runnable rebuild() {
+        String[] matches = null;
+        long count;
+        if (filter != null) {
+            try (Stream<String> events = reader.page(0, MAX_FILTERED_ROWS, filter)) {
+                matches = events.toArray(String[]::new);
+            }
+            count = matches.length;
+        } else {
+            count = reader.lineCount();
+        }
+        String[] newFiltered = matches;
+        return () -> {
+            filtered = newFiltered;
+            lineCount = count;
+            blocks.clear();
+            fireTableDataChanged();
+        };
+    }
+
+    @Override
+    public int getRowCount() { return (int) Math.min(lineCount, Integer.MAX_VALUE); }
+
+    @Override
+    public int getColumnCount() { return COLUMNS.length; }
+
+    @Override
+    public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        long line = newestFirst ? lineCount - 1 - row : row;
+        String event = filtered != null ? filtered[(int) line] : lineAt(line);
+        int separator = event.indexOf(" | ");
+        if (separator < 0) {
+            return column == 0 ? "" : event;
+        }
+        return column == 0 ? event.substring(0, separator) : event.substring(separator + 3);
+    }
+
+    private String lineAt(long line) {
+        long blockStart = line - line % BLOCK_LINES;
+        String[] block = blocks.get(blockStart);
+        if (block == null) {
+            try (Stream<String> events = reader.page(blockStart, BLOCK_LINES)) {
+                block = events.toArray(String[]::new);
+            }
+            blocks.put(blockStart, block);
+        }
+        int at = (int) (line - blockStart);
+        return at < block.length ? block[at] : "";
+    }
+}
@@ -0,0 +1,182 @@
+package depot;
+
+import java.io.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+public class EventLogger {
+    private static final String EVENT_LOG_FILE = "depot_events.log";
+    private static final int ASYNC_BUFFER_SIZE = 8192;
+    private static final DateTimeFormatter timeFormatter = 
+        DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
+
+    private volatile AsyncLogWriter asyncWriter;
+    private volatile boolean discarding;
+    private final EventLogReader reader = new EventLogReader(EVENT_LOG_FILE);
+    
+    private EventLogger() {
+
+    }
+
+    // Initialised by the JVM on first access, so concurrent callers always see one instance
+    private static class Holder {
+        private static final EventLogger INSTANCE = new EventLogger();
+    }
+    
+    public static EventLogger getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * When the async writer pushes buffered events to disk: after every N events,
+     * every T milliseconds, or at the end of every drained batch followed by an fsync.
+     */
+    public static class FlushPolicy {
+        private final int everyEvents;
+        private final long everyMillis;
+        private final boolean fsyncEachBatch;
+
+        private FlushPolicy(int everyEvents, long everyMillis, boolean fsyncEachBatch) {
+            this.everyEvents = everyEvents;
+            this.everyMillis = everyMillis;
+            this.fsyncEachBatch = fsyncEachBatch;
+        }
+
+        public static FlushPolicy everyEvents(int count) { return new FlushPolicy(count, 0, false); }
+        public static FlushPolicy everyMillis(long millis) { return new FlushPolicy(0, millis, false); }
+        public static FlushPolicy fsyncEachBatch() { return new FlushPolicy(0, 0, true); }
+
+        public int getEveryEvents() { return everyEvents; }
+        public long getEveryMillis() { return everyMillis; }
+        public boolean isFsyncEachBatch() { return fsyncEachBatch; }
+    }
+
+    // Switches to batched background writes; events still queued are drained on JVM exit
+    public synchronized void enableAsync(FlushPolicy policy) {
+        if (asyncWriter != null) {
+            return;
+        }
+        try {
+            asyncWriter = new AsyncLogWriter(EVENT_LOG_FILE, timeFormatter, policy, ASYNC_BUFFER_SIZE);
+            Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "depot-event-drain"));
+        } catch (IOException ex) {
+            System.err.println("Failed to start async event log, staying synchronous: " + ex.getMessage());
+        }
+    }
+
+    // Events logged once shutdown starts are written synchronously, after the drained ones
+    public synchronized void shutdown() {
+        AsyncLogWriter writer = asyncWriter;
+        if (writer != null) {
+            asyncWriter = null;
+            writer.shutdown();
+        }
+    }
+    
+    // Drops events instead of writing them, e.g. while a simulation drives the depot classes
+    public void setDiscarding(boolean discarding) {
+        this.discarding = discarding;
+    }
+
+    public boolean isDiscarding() {
+        return discarding;
+    }
+    
+    public void logEvent(String event) {
+        if (discarding) {
+            return;
+        }
+        long started = DepotMetrics.start();
+        DepotMetrics.count(DepotMetrics.Operation.LOGGED_EVENTS);
+        AsyncLogWriter writer = asyncWriter;
+        if (writer != null && writer.submit(event)) {
+            DepotMetrics.stop(DepotMetrics.Stage.LOG_EVENT, started);
+            return;
+        }
+        synchronized (this) {
+            try (FileWriter fileStream = new FileWriter(EVENT_LOG_FILE, true);
+                 BufferedWriter buffStream = new BufferedWriter(fileStream);
+                 PrintWriter outputStream = new PrintWriter(buffStream)) {
+                
+                String timeStamp = LocalDateTime.now().format(timeFormatter);
+                outputStream.println(timeStamp + " | " + event);
+                
+            } catch (IOException ex) {
+                System.err.println("Failed to write event to log: " + ex.getMessage());
+            }
+        }
+        DepotMetrics.stop(DepotMetrics.Stage.LOG_EVENT, started);
+    }
+
+    // Writes several events under one timestamp with a single file open
+    public void logEvents(List<String> events) {
+        if (events.isEmpty() || discarding) {
+            return;
+        }
+        long started = DepotMetrics.start();
+        DepotMetrics.count(DepotMetrics.Operation.LOGGED_EVENTS, events.size());
+        AsyncLogWriter writer = asyncWriter;
+        if (writer != null) {
+            int submitted = 0;
+            while (submitted < events.size() && writer.submit(events.get(submitted))) {
+                submitted++;
+            }
+            if (submitted == events.size()) {
+                DepotMetrics.stop(DepotMetrics.Stage.LOG_EVENT, started);
+                return;
+            }
+            // The writer stopped part way through; the rest are written here
+            events = events.subList(submitted, events.size());
+        }
+        synchronized (this) {
+            try (FileWriter fileStream = new FileWriter(EVENT_LOG_FILE, true);
+                 BufferedWriter buffStream = new BufferedWriter(fileStream);
+                 PrintWriter outputStream = new PrintWriter(buffStream)) {
+                
+                String timeStamp = LocalDateTime.now().format(timeFormatter);
+                for (String event : events) {
+                    outputStream.println(timeStamp + " | " + event);
+                }
+                
+            } catch (IOException ex) {
+                System.err.println("Failed to write events to log: " + ex.getMessage());
+            }
+        }
+        DepotMetrics.stop(DepotMetrics.Stage.LOG_EVENT, started);
+    }
+
+    // Events queued for the async writer and not yet written; 0 when logging synchronously
+    public long getBacklog() {
+        AsyncLogWriter writer = asyncWriter;
+        return writer == null ? 0 : writer.backlog();
+    }
+
+    // Makes every event logged so far visible in the log file
+    public void flush() {
+        AsyncLogWriter writer = asyncWriter;
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+    
+    // Paged and filtered queries over the log; the reader's index is kept between calls
+    public EventLogReader getReader() {
+        flush();
+        return reader;
+    }
+    
+    public String getEventHistory() {
+        flush();
+        StringBuilder eventLog = new StringBuilder();
+        try (BufferedReader inputStream = new BufferedReader(new FileReader(EVENT_LOG_FILE))) {
+            String eventEntry;
+            while ((eventEntry = inputStream.readLine()) != null) {
+                eventLog.append(eventEntry).append("\n");
+            }
+        } catch (IOException ex) {
+            System.err.println("Failed to retrieve event log: " + ex.getMessage());
+        }
+        return eventLog.toString();
+    }
+}
@@ -0,0 +1,70 @@
+package depot;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hashing of package IDs onto cluster nodes. Each node is placed on the ring
+ * at many points, so adding or removing one moves only about 1/n of the package IDs and
+ * spreads them over all the other nodes. The ring is a pure function of its members,
+ * which lets the router and every node work out owners without talking to each other.
+ */
+final class HashRing {
+    private static final int POINTS_PER_NODE = 160;
+
+    private final List<String> members;
+    private final TreeMap<Long, String> points = new TreeMap<>();
+
+    HashRing(Collection<String> members) {
+        this.members = List.copyOf(members);
+        for (String member : this.members) {
+            for (int i = 0; i < POINTS_PER_NODE; i++) {
+                points.put(hash(member + "#" + i), member);
+            }
+        }
+    }
+
+    // Null only when the ring has no members
+    String ownerOf(String packageID) {
+        if (points.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> owner = points.ceilingEntry(hash(packageID));
+        return owner != null ? owner.getValue() : points.firstEntry().getValue();
+    }
+
+    List<String> members() {
+        return members;
+    }
+
+    HashRing with(String member) {
+        List<String> grown = new ArrayList<>(members);
+        grown.add(member);
+        return new HashRing(grown);
+    }
+
+    HashRing without(String member) {
+        List<String> shrunk = new ArrayList<>(members);
+        shrunk.remove(member);
+        return new HashRing(shrunk);
+    }
+
+    // FNV-1a over the UTF-8 bytes, then the MurmurHash3 finaliser to spread similar IDs apart
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,198 @@
+package depot;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+
+/**
+ * Table model over a PackageCollection that never copies or formats the parcels up
+ * front. Rows are slot numbers: unsorted, row i is the i-th matching slot, found through
+ * a rank count per block of the slot bitmap, so opening the view costs a bitmap copy
+ * rather than a pass over the parcels. Sorting by mass, measurements or days stored
+ * reads the order straight from the collection's sorted indexes; only sorting by
+ * package ID compares the parcels themselves. A parcel is looked up when its row is
+ * painted.
+ */
+public class InventoryTableModel extends AbstractTableModel {
+    public static final int ID = 0;
+    public static final int MASS = 1;
+    public static final int MEASUREMENTS = 2;
+    public static final int DAYS_STORED = 3;
+    public static final int STATE = 4;
+    private static final String[] COLUMNS = { "Package ID", "Mass (kg)", "Measurements", "Days Stored", "State" };
+    private static final int BLOCK_WORDS = 64;
+
+    private final PackageCollection packages;
+    private String stateFilter;
+    private int minDaysStored;
+    private int sortColumn = -1;
+    private boolean ascending = true;
+
+    // Unsorted view: the slot bitmap's words and the set bits before each block
+    private long[] words = new long[0];
+    private int[] blockRanks = new int[1];
+    // Sorted view: slots in row order, or null when unsorted
+    private int[] sortedSlots;
+    private int rowCount;
+
+    private int cachedRow = -1;
+    private Parcel cachedParcel;
+
+    public InventoryTableModel(PackageCollection packages) {
+        this.packages = packages;
+    }
+
+    public void setFilter(String state, int minDaysStored) {
+        this.stateFilter = state;
+        this.minDaysStored = minDaysStored;
+    }
+
+    public void setSort(int column, boolean ascending) {
+        this.sortColumn = column;
+        this.ascending = ascending;
+    }
+
+    public int getSortColumn() { return sortColumn; }
+    public boolean isAscending() { return ascending; }
+
+    /**
+     * Works out the new row order from the collection. Safe to call off the event
+     * thread; nothing changes until the returned Runnable runs, which must be on it.
+     */
+    public Runnable rebuild() {
+        PackageQuery query = packages.query().storedAtLeastDays(minDaysStored);
+        if (stateFilter != null) {
+            query.inState(stateFilter);
+        }
+        BitSet matching = query.slots();
+        int[] slots = sortColumn < 0 ? null : sortedSlots(matching);
+        long[] newWords = matching.toLongArray();
+        int[] newRanks = new int[newWords.length / BLOCK_WORDS + 2];
+        for (int i = 0; i < newWords.length; i++) {
+            newRanks[i / BLOCK_WORDS + 1] += Long.bitCount(newWords[i]);
+        }
+        for (int b = 1; b < newRanks.length; b++) {
+            newRanks[b] += newRanks[b - 1];
+        }
+        int count = slots != null ? slots.length : newRanks[newRanks.length - 1];
+        return () -> {
+            words = newWords;
+            blockRanks = newRanks;
+            sortedSlots = slots;
+            rowCount = count;
+            cachedRow = -1;
+            cachedParcel = null;
+            fireTableDataChanged();
+        };
+    }
+
+    private int[] sortedSlots(BitSet matching) {
+        ParcelIndex index = packages.index;
+        int[] ordered;
+        switch (sortColumn) {
+            case MASS: ordered = index.slotsOrderedBy(ParcelIndex.MASS); break;
+            case MEASUREMENTS: ordered = index.slotsOrderedBy(ParcelIndex.VOLUME); break;
+            // Most days stored means earliest arrival, so the order is reversed
+            case DAYS_STORED: ordered = reverse(index.slotsOrderedBy(ParcelIndex.ARRIVAL)); break;
+            case STATE: ordered = index.slotsOrderedByState(); break;
+            default: ordered = slotsById(matching); break;
+        }
+        int[] slots = new int[ordered.length];
+        int count = 0;
+        for (int slot : ordered) {
+            if (matching.get(slot)) {
+                slots[count++] = slot;
+            }
+        }
+        slots = Arrays.copyOf(slots, count);
+        return ascending ? slots : reverse(slots);
+    }
+
+    private int[] slotsById(BitSet matching) {
+        String[] ids = new String[matching.length()];
+        Integer[] order = new Integer[matching.cardinality()];
+        int count = 0;
+        for (int slot = matching.nextSetBit(0); slot >= 0; slot = matching.nextSetBit(slot + 1)) {
+            Parcel parcel = packages.parcelAt(slot);
+            ids[slot] = parcel == null ? "" : parcel.getPackageID();
+            order[count++] = slot;
+        }
+        Arrays.sort(order, 0, count, Comparator.comparing(slot -> ids[slot]));
+        int[] slots = new int[count];
+        for (int i = 0; i < count; i++) {
+            slots[i] = order[i];
+        }
+        return slots;
+    }
+
+    private static int[] reverse(int[] slots) {
+        for (int i = 0, j = slots.length - 1; i < j; i++, j--) {
+            int swap = slots[i];
+            slots[i] = slots[j];
+            slots[j] = swap;
+        }
+        return slots;
+    }
+
+    @Override
+    public int getRowCount() { return rowCount; }
+
+    @Override
+    public int getColumnCount() { return COLUMNS.length; }
+
+    @Override
+    public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Parcel parcel = parcelAtRow(row);
+        if (parcel == null) {
+            return column == ID ? "(removed)" : "";
+        }
+        switch (column) {
+            case ID: return parcel.getPackageID();
+            case MASS: return String.format("%.2f", parcel.getMassKg());
+            case MEASUREMENTS: return parcel.getMeasurementSpec();
+            case DAYS_STORED: return parcel.getStorageDuration();
+            default: return parcel.getDeliveryState();
+        }
+    }
+
+    // A row's cells are read one after another, so the last parcel is kept
+    private Parcel parcelAtRow(int row) {
+        if (row != cachedRow) {
+            int slot = sortedSlots != null ? sortedSlots[row] : selectSlot(row);
+            cachedParcel = packages.parcelAt(slot);
+            cachedRow = row;
+        }
+        return cachedParcel;
+    }
+
+    // The slot of the row-th set bit: find its block, then count through the words
+    private int selectSlot(int row) {
+        int low = 0;
+        int high = blockRanks.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (blockRanks[mid] <= row) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        int remaining = row - blockRanks[low];
+        for (int w = low * BLOCK_WORDS; w < words.length; w++) {
+            int bits = Long.bitCount(words[w]);
+            if (remaining < bits) {
+                long word = words[w];
+                for (int i = 0; i < remaining; i++) {
+                    word &= word - 1;
+                }
+                return w * 64 + Long.numberOfTrailingZeros(word);
+            }
+            remaining -= bits;
+        }
+        throw new IndexOutOfBoundsException("Row " + row + " of " + rowCount);
+    }
+}
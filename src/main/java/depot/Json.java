@@ -0,0 +1,222 @@
+package depot;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The little JSON the HTTP API needs: flat objects of strings, numbers, booleans and
+ * nulls, read into a map of strings and written field by field. Nested objects and
+ * arrays are rejected rather than half-read.
+ */
+final class Json {
+    private Json() {
+    }
+
+    /** Builds one flat JSON object. */
+    static final class ObjectWriter {
+        private final StringBuilder out = new StringBuilder("{");
+
+        ObjectWriter field(String name, String value) {
+            key(name);
+            if (value == null) {
+                out.append("null");
+            } else {
+                quote(value, out);
+            }
+            return this;
+        }
+
+        ObjectWriter field(String name, long value) {
+            key(name);
+            out.append(value);
+            return this;
+        }
+
+        ObjectWriter field(String name, double value) {
+            key(name);
+            out.append(value);
+            return this;
+        }
+
+        ObjectWriter field(String name, boolean value) {
+            key(name);
+            out.append(value);
+            return this;
+        }
+
+        private void key(String name) {
+            if (out.length() > 1) {
+                out.append(',');
+            }
+            quote(name, out);
+            out.append(':');
+        }
+
+        @Override
+        public String toString() {
+            return out + "}";
+        }
+    }
+
+    static ObjectWriter object() {
+        return new ObjectWriter();
+    }
+
+    static void quote(String value, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    // Values come back as their text: strings unescaped, numbers and booleans as written, null as null
+    static Map<String, String> parseObject(String text) {
+        Parser parser = new Parser(text);
+        Map<String, String> fields = parser.object();
+        parser.skipWhitespace();
+        if (parser.position != text.length()) {
+            throw parser.error("unexpected text after the object");
+        }
+        return fields;
+    }
+
+    private static final class Parser {
+        private final String text;
+        private int position;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Map<String, String> object() {
+            Map<String, String> fields = new LinkedHashMap<>();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return fields;
+            }
+            while (true) {
+                skipWhitespace();
+                String name = string();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                fields.put(name, value());
+                skipWhitespace();
+                char next = next();
+                if (next == '}') {
+                    return fields;
+                }
+                if (next != ',') {
+                    throw error("expected ',' or '}'");
+                }
+            }
+        }
+
+        private String value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (c == '{' || c == '[') {
+                throw error("nested values are not supported");
+            }
+            int start = position;
+            while (position < text.length() && ",} \t\r\n".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.equals("true") || literal.equals("false")) {
+                return literal;
+            }
+            try {
+                Double.parseDouble(literal);
+            } catch (NumberFormatException ex) {
+                throw error("invalid value '" + literal + "'");
+            }
+            return literal;
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw error("truncated escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw error("invalid escape");
+                        }
+                        position += 4;
+                        break;
+                    default: value.append(escaped);
+                }
+            }
+        }
+
+        void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private void expect(char expected) {
+            if (next() != expected) {
+                throw error("expected '" + expected + "'");
+            }
+        }
+
+        private char peek() {
+            if (position >= text.length()) {
+                throw error("unexpected end of input");
+            }
+            return text.charAt(position);
+        }
+
+        private char next() {
+            char c = peek();
+            position++;
+            return c;
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid JSON at " + position + ": " + message);
+        }
+    }
+}
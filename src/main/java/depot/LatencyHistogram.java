@@ -0,0 +1,120 @@
+package depot;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency distribution in the style of an HDR histogram: buckets are linear below 128 ns
+ * and then 64 to each power of two, so any recorded value is reported within 1/64 (about
+ * 1.6%) of itself up to 2^40 ns. Recording is one array increment and takes no lock;
+ * percentiles are worked out from a copy of the counts when somebody asks.
+ */
+public class LatencyHistogram implements LatencyHistogramMXBean {
+    private static final int SUB_BITS = 7;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF = SUB_COUNT / 2;
+    // Larger values, about 18 minutes, are recorded as this
+    private static final long MAX_VALUE = (1L << 40) - 1;
+    private static final int BUCKETS = indexOf(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /** Counts and totals copied at one moment, for percentiles and reports. */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        private Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() { return count; }
+        public long getMaxNanos() { return maxNanos; }
+
+        public double getMeanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        // The smallest recorded value that `percentile` percent of recordings do not exceed
+        public long valueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Math.min(highestValue(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+    }
+
+    public void record(long nanos) {
+        long value = nanos < 0 ? 0 : Math.min(nanos, MAX_VALUE);
+        counts.incrementAndGet(indexOf(value));
+        totalNanos.add(value);
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    // Recordings made while the copy is taken may land in either the copy or the next one
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, totalNanos.sum(), maxNanos.get());
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    @Override public long getCount() { return snapshot().getCount(); }
+    @Override public double getMeanMicros() { return snapshot().getMeanNanos() / 1000.0; }
+    @Override public double getP50Micros() { return snapshot().valueAtPercentile(50) / 1000.0; }
+    @Override public double getP90Micros() { return snapshot().valueAtPercentile(90) / 1000.0; }
+    @Override public double getP99Micros() { return snapshot().valueAtPercentile(99) / 1000.0; }
+    @Override public double getP999Micros() { return snapshot().valueAtPercentile(99.9) / 1000.0; }
+    @Override public double getMaxMicros() { return maxNanos.get() / 1000.0; }
+
+    private static int indexOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    private static long lowestValue(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int shift = index / HALF - 1;
+        return (long) (index - shift * HALF) << shift;
+    }
+
+    private static long highestValue(int index) {
+        return lowestValue(index + 1) - 1;
+    }
+}
@@ -0,0 +1,16 @@
+package depot;
+
+/**
+ * JMX view of one LatencyHistogram. Times are in microseconds and cover everything
+ * recorded since start or the last reset.
+ */
+public interface LatencyHistogramMXBean {
+    long getCount();
+    double getMeanMicros();
+    double getP50Micros();
+    double getP90Micros();
+    double getP99Micros();
+    double getP999Micros();
+    double getMaxMicros();
+    void reset();
+}
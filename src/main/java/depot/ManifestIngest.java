@@ -0,0 +1,400 @@
+package depot;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bulk intake of a truck manifest in the Inventory.csv layout, header line optional. The
+ * work runs as a pipeline of stages on their own threads, joined by small bounded
+ * queues so a slow stage holds back the ones before it instead of filling memory:
+ *
+ *   read     cuts the file into blocks of whole lines
+ *   parse    parses and validates blocks, several workers at once
+ *   dedupe   puts blocks back in file order and drops IDs seen earlier in the
+ *            manifest or already in the depot
+ *   insert   adds the parcels to the PackageCollection one at a time, so collections
+ *            at the counters are never held up for long
+ *   persist  stores every accepted parcel in one batch at the end and writes the
+ *            rejected rows next to the manifest
+ *
+ * Parcels are visible as soon as they are inserted but only stored once the
+ * manifest is done; after a crash in between, ingesting the manifest again adds
+ * the missing parcels and rejects the rest as duplicates.
+ */
+public class ManifestIngest {
+    private static final int BLOCK_SIZE = 1024 * 1024;
+    private static final int QUEUE_CAPACITY = 4;
+
+    /** A manifest row that was not added, with the reason. */
+    public static final class Rejection {
+        private final long line;
+        private final String packageID;
+        private final String reason;
+
+        Rejection(long line, String packageID, String reason) {
+            this.line = line;
+            this.packageID = packageID;
+            this.reason = reason;
+        }
+
+        public long getLine() { return line; }
+        public String getPackageID() { return packageID; }
+        public String getReason() { return reason; }
+    }
+
+    /** What one manifest did to the depot. */
+    public static final class Report {
+        private final int accepted;
+        private final List<Rejection> rejections;
+        private final Path rejectionFile;
+        private final long elapsedMillis;
+        private final String failure;
+
+        Report(int accepted, List<Rejection> rejections, Path rejectionFile, long elapsedMillis, String failure) {
+            this.accepted = accepted;
+            this.rejections = rejections;
+            this.rejectionFile = rejectionFile;
+            this.elapsedMillis = elapsedMillis;
+            this.failure = failure;
+        }
+
+        public int getAccepted() { return accepted; }
+        public List<Rejection> getRejections() { return rejections; }
+        // Null when every row was accepted
+        public Path getRejectionFile() { return rejectionFile; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        // Why the manifest stopped part way, or null if it was read to the end
+        public String getFailure() { return failure; }
+        public boolean isComplete() { return failure == null; }
+    }
+
+    // Lines straight from the file
+    private static final class Block {
+        final int sequence;
+        final byte[] data;
+        final int length;
+
+        Block(int sequence, byte[] data, int length) {
+            this.sequence = sequence;
+            this.data = data;
+            this.length = length;
+        }
+    }
+
+    // Parcels on their way through the later stages, with the rows dropped so far
+    private static final class Batch {
+        final int sequence;
+        final int lineCount;
+        List<Parcel> parcels;
+        long[] lines;
+        final List<Rejection> rejections;
+
+        Batch(int sequence, int lineCount, List<Parcel> parcels, long[] lines, List<Rejection> rejections) {
+            this.sequence = sequence;
+            this.lineCount = lineCount;
+            this.parcels = parcels;
+            this.lines = lines;
+            this.rejections = rejections;
+        }
+    }
+
+    private static final Block END_OF_BLOCKS = new Block(-1, new byte[0], 0);
+    private static final Batch END_OF_BATCHES = new Batch(-1, 0, List.of(), new long[0], List.of());
+
+    private final Path manifest;
+    private final PackageCollection packages;
+    private final DepotStore store;
+    private final int parseWorkers;
+    private final BlockingQueue<Block> blocks = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Batch> parsed = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Batch> unique = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Batch> inserted = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private volatile String failure;
+    private Report report;
+
+    public ManifestIngest(Path manifest, PackageCollection packages, DepotStore store) {
+        this(manifest, packages, store, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    public ManifestIngest(Path manifest, PackageCollection packages, DepotStore store, int parseWorkers) {
+        this.manifest = manifest;
+        this.packages = packages;
+        this.store = store;
+        this.parseWorkers = parseWorkers;
+    }
+
+    // Runs the whole pipeline and waits for it; call once
+    public Report run() throws InterruptedException {
+        long started = System.currentTimeMillis();
+        List<Thread> stages = new ArrayList<>();
+        stages.add(stage("read", this::read));
+        for (int i = 0; i < parseWorkers; i++) {
+            stages.add(stage("parse-" + i, this::parse));
+        }
+        stages.add(stage("dedupe", this::dedupe));
+        stages.add(stage("insert", this::insert));
+        stages.add(stage("persist", () -> persist(started)));
+        for (Thread thread : stages) {
+            thread.start();
+        }
+        for (Thread thread : stages) {
+            thread.join();
+        }
+        if (report == null) {
+            return new Report(0, List.of(), null, System.currentTimeMillis() - started, failure);
+        }
+        return report;
+    }
+
+    private interface Stage {
+        void run() throws InterruptedException;
+    }
+
+    private Thread stage(String name, Stage body) {
+        Thread thread = new Thread(() -> {
+            try {
+                body.run();
+            } catch (InterruptedException ex) {
+                fail("interrupted");
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException ex) {
+                fail(name + " stage failed: " + ex);
+            }
+        }, "depot-manifest-" + name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private void fail(String reason) {
+        if (failure == null) {
+            failure = reason;
+        }
+    }
+
+    // Blocks end on a newline; a line longer than a block grows the block until it fits
+    private void read() throws InterruptedException {
+        try (InputStream in = Files.newInputStream(manifest)) {
+            byte[] carry = new byte[0];
+            int sequence = 0;
+            while (failure == null) {
+                byte[] data = Arrays.copyOf(carry, carry.length + BLOCK_SIZE);
+                int length = carry.length + in.readNBytes(data, carry.length, BLOCK_SIZE);
+                if (length == 0) {
+                    break;
+                }
+                if (length < data.length) {
+                    blocks.put(new Block(sequence++, data, length));
+                    break;
+                }
+                int lastNewline = length - 1;
+                while (lastNewline >= 0 && data[lastNewline] != '\n') {
+                    lastNewline--;
+                }
+                if (lastNewline < 0) {
+                    carry = data;
+                    continue;
+                }
+                carry = Arrays.copyOfRange(data, lastNewline + 1, length);
+                blocks.put(new Block(sequence++, data, lastNewline + 1));
+            }
+        } catch (IOException ex) {
+            fail("could not read " + manifest + ": " + ex.getMessage());
+        } finally {
+            for (int i = 0; i < parseWorkers; i++) {
+                blocks.put(END_OF_BLOCKS);
+            }
+        }
+    }
+
+    private void parse() throws InterruptedException {
+        try {
+            Block block;
+            while ((block = blocks.take()) != END_OF_BLOCKS) {
+                try {
+                    parsed.put(parseBlock(block));
+                } catch (RuntimeException ex) {
+                    fail("could not parse block " + block.sequence + ": " + ex);
+                }
+            }
+        } finally {
+            parsed.put(END_OF_BATCHES);
+        }
+    }
+
+    // Parses and validates one block; line numbers stay relative to the block
+    private static Batch parseBlock(Block block) {
+        CsvLoader.Chunk<Parcel> chunk = CsvLoader.parseInventoryLines(block.data, block.length, block.sequence == 0);
+        List<Rejection> rejections = new ArrayList<>();
+        for (int i = 0; i < chunk.problems.size(); i++) {
+            rejections.add(new Rejection(chunk.problemLines.get(i), null, chunk.problems.get(i)));
+        }
+        List<Parcel> parcels = new ArrayList<>(chunk.rows.size());
+        long[] lines = new long[chunk.rows.size()];
+        for (int i = 0; i < chunk.rows.size(); i++) {
+            Parcel parcel = chunk.rows.get(i);
+            String problem = validate(parcel);
+            if (problem != null) {
+                rejections.add(new Rejection(chunk.rowLines[i], parcel.getPackageID(), problem));
+            } else {
+                lines[parcels.size()] = chunk.rowLines[i];
+                parcels.add(parcel);
+            }
+        }
+        return new Batch(block.sequence, chunk.lineCount, parcels, Arrays.copyOf(lines, parcels.size()), rejections);
+    }
+
+    private static String validate(Parcel parcel) {
+        float mass = parcel.getMassKg();
+        if (!(mass > 0) || Float.isInfinite(mass)) {
+            return "mass must be a positive number";
+        }
+        for (String side : parcel.getMeasurementSpec().split("x")) {
+            float length;
+            try {
+                length = Float.parseFloat(side);
+            } catch (NumberFormatException ex) {
+                return "invalid dimension " + side;
+            }
+            if (!(length > 0) || Float.isInfinite(length)) {
+                return "dimensions must be positive";
+            }
+        }
+        return null;
+    }
+
+    private void dedupe() throws InterruptedException {
+        Map<Integer, Batch> early = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        int next = 0;
+        long lineOffset = 0;
+        int ended = 0;
+        try {
+            while (ended < parseWorkers) {
+                Batch batch = parsed.take();
+                if (batch == END_OF_BATCHES) {
+                    ended++;
+                    continue;
+                }
+                early.put(batch.sequence, batch);
+                while ((batch = early.remove(next)) != null) {
+                    next++;
+                    try {
+                        lineOffset = dedupeBatch(batch, lineOffset, seen);
+                        unique.put(batch);
+                    } catch (RuntimeException ex) {
+                        // Keep draining so the parse workers are never left blocked
+                        fail("could not check block " + batch.sequence + ": " + ex);
+                    }
+                }
+            }
+            if (!early.isEmpty()) {
+                fail("manifest blocks missing after block " + next);
+            }
+        } finally {
+            unique.put(END_OF_BATCHES);
+        }
+    }
+
+    // Makes line numbers absolute and drops repeated IDs; returns the next block's offset
+    private long dedupeBatch(Batch batch, long lineOffset, Set<String> seen) {
+        for (int i = 0; i < batch.rejections.size(); i++) {
+            Rejection rejection = batch.rejections.get(i);
+            batch.rejections.set(i, new Rejection(lineOffset + rejection.line, rejection.packageID, rejection.reason));
+        }
+        List<Parcel> kept = new ArrayList<>(batch.parcels.size());
+        long[] keptLines = new long[batch.parcels.size()];
+        for (int i = 0; i < batch.parcels.size(); i++) {
+            Parcel parcel = batch.parcels.get(i);
+            long line = lineOffset + batch.lines[i];
+            if (!seen.add(parcel.getPackageID())) {
+                batch.rejections.add(new Rejection(line, parcel.getPackageID(), "duplicate package ID in manifest"));
+            } else if (packages.getPackageByID(parcel.getPackageID()) != null) {
+                batch.rejections.add(new Rejection(line, parcel.getPackageID(), "package ID already in depot"));
+            } else {
+                keptLines[kept.size()] = line;
+                kept.add(parcel);
+            }
+        }
+        batch.parcels = kept;
+        batch.lines = keptLines;
+        return lineOffset + batch.lineCount;
+    }
+
+    private void insert() throws InterruptedException {
+        try {
+            Batch batch;
+            while ((batch = unique.take()) != END_OF_BATCHES) {
+                List<Parcel> added = new ArrayList<>(batch.parcels.size());
+                try {
+                    for (int i = 0; i < batch.parcels.size(); i++) {
+                        Parcel parcel = batch.parcels.get(i);
+                        // Somebody may have registered the same ID since the dedupe stage looked
+                        if (packages.addPackage(parcel)) {
+                            added.add(parcel);
+                        } else {
+                            batch.rejections.add(new Rejection(batch.lines[i], parcel.getPackageID(),
+                                "package ID already in depot"));
+                        }
+                    }
+                } catch (RuntimeException ex) {
+                    fail("could not insert block " + batch.sequence + ": " + ex);
+                }
+                // Whatever was added is stored, even if the block stopped part way
+                batch.parcels = added;
+                inserted.put(batch);
+            }
+        } finally {
+            inserted.put(END_OF_BATCHES);
+        }
+    }
+
+    private void persist(long started) throws InterruptedException {
+        List<Parcel> accepted = new ArrayList<>();
+        List<Rejection> rejections = new ArrayList<>();
+        Batch batch;
+        while ((batch = inserted.take()) != END_OF_BATCHES) {
+            accepted.addAll(batch.parcels);
+            rejections.addAll(batch.rejections);
+        }
+        store.recordParcelsAdded(accepted);
+        rejections.sort(Comparator.comparingLong(Rejection::getLine));
+        Path rejectionFile = rejections.isEmpty() ? null : writeRejections(rejections);
+        EventLogger.getInstance().logEvent("Ingested manifest " + manifest.getFileName() + ": "
+            + accepted.size() + " parcels added, " + rejections.size() + " rejected"
+            + (failure == null ? "" : ", stopped early: " + failure));
+        report = new Report(accepted.size(), rejections, rejectionFile,
+            System.currentTimeMillis() - started, failure);
+    }
+
+    private Path writeRejections(List<Rejection> rejections) {
+        Path file = manifest.resolveSibling(manifest.getFileName() + ".rejected.csv");
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("Line,PackageID,Reason");
+            out.newLine();
+            for (Rejection rejection : rejections) {
+                out.write(rejection.line + "," + (rejection.packageID == null ? "" : rejection.packageID)
+                    + "," + rejection.reason.replace(',', ';'));
+                out.newLine();
+            }
+            return file;
+        } catch (IOException ex) {
+            System.err.println("Error writing manifest rejections: " + ex.getMessage());
+            EventLogger.getInstance().logEvent("Failed to write manifest rejections: " + ex.getMessage());
+            return null;
+        }
+    }
+}
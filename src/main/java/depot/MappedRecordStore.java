@@ -0,0 +1,509 @@
+package depot;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Inventory and recipients as fixed-width records in two memory-mapped files, the
+ * alternative to the journal selected with -Ddepot.store=mapped. A change touches only
+ * its own record: removals and collections flip the state byte in place, additions take
+ * the lowest free slot, so each operation dirties one page and nothing is rewritten.
+ * Once most of a file is free, a background vacuum moves the records at the end into
+ * the holes and shrinks the file.
+ *
+ * Each file starts with a header of magic, version and record size. Every record starts
+ * with its state byte and package ID, and the state byte is written last, so a record
+ * never goes live half-written. Records are aligned so none straddles a page.
+ *
+ *   parcel     64 bytes: state, ID (22 bytes), mass, arrival millis, dimensions (27 bytes)
+ *   recipient 128 bytes: state, ID (22 bytes), queue order, sequence number, name (91 bytes)
+ *
+ * Strings are UTF-8 behind a length byte; one that does not fit is refused and logged.
+ * Writes reach the page cache at once, as the journal's flushed appends do, and are
+ * forced to disk by a vacuum and on close.
+ */
+public class MappedRecordStore implements DepotStore {
+    private static final String PARCEL_FILE = "depot_parcels.dat";
+    private static final String RECIPIENT_FILE = "depot_recipients.dat";
+    private static final int MAGIC = 0x44505231; // "DPR1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 128;
+    private static final int INITIAL_RECORDS = 1024;
+    private static final int VACUUM_STEP = 4096;
+    private static final int MANIFEST_CHUNK = 4096;
+
+    // Slots never used read as EMPTY, since the file grows zero-filled
+    private static final byte EMPTY = 0;
+    private static final byte TOMBSTONE = 1;
+    private static final byte PENDING = 2;
+    private static final byte COLLECTED = 3;
+
+    // Shared by both record layouts
+    private static final int STATE = 0;
+    private static final int ID = 1;
+    private static final int ID_BYTES = 22;
+
+    private static final int PARCEL_SIZE = 64;
+    private static final int MASS = 24;
+    private static final int ARRIVAL = 28;
+    private static final int SPEC = 36;
+    private static final int SPEC_BYTES = 27;
+
+    private static final int RECIPIENT_SIZE = 128;
+    private static final int ORDER = 24;
+    private static final int SEQUENCE = 32;
+    private static final int NAME = 36;
+    private static final int NAME_BYTES = 91;
+
+    private final PackageCollection packageCollection;
+    private final QueueOfCustomers recipientQueue;
+    private final RecordFile parcels;
+    private final RecordFile recipients;
+    private final ExecutorService vacuumer;
+    private final AtomicBoolean vacuuming = new AtomicBoolean(false);
+    private boolean populated;
+    private long nextOrder;
+
+    /**
+     * One file of fixed-width records. Live slots are tracked in a bit set, and the
+     * lowest free slot is always taken next, which keeps the records packed towards
+     * the front and leaves the vacuum little to move.
+     */
+    private static final class RecordFile {
+        final Path path;
+        final int recordSize;
+        final FileChannel channel;
+        final BitSet live = new BitSet();
+        final Map<String, Integer> slots = new HashMap<>();
+        MappedByteBuffer buffer;
+        int capacity;
+        int liveCount;
+        // No slot below this one is free
+        int lowestFree;
+
+        RecordFile(Path path, int recordSize) throws IOException {
+            this.path = path;
+            this.recordSize = recordSize;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() == 0) {
+                remap(INITIAL_RECORDS);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, recordSize);
+                return;
+            }
+            remap((int) ((channel.size() - HEADER_SIZE) / recordSize));
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != recordSize) {
+                channel.close();
+                throw new IOException(path + " is not a depot record file of this version");
+            }
+        }
+
+        int offset(int slot) {
+            return HEADER_SIZE + slot * recordSize;
+        }
+
+        byte state(int slot) {
+            return buffer.get(offset(slot) + STATE);
+        }
+
+        String key(int slot) {
+            return readString(offset(slot) + ID);
+        }
+
+        String readString(int at) {
+            byte[] bytes = new byte[buffer.get(at) & 0xFF];
+            buffer.get(at + 1, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        void writeString(int at, byte[] bytes) {
+            buffer.put(at, (byte) bytes.length);
+            buffer.put(at + 1, bytes);
+        }
+
+        int allocate() throws IOException {
+            int slot = live.nextClearBit(lowestFree);
+            if (slot >= capacity) {
+                if (capacity > (Integer.MAX_VALUE - HEADER_SIZE) / recordSize / 2) {
+                    throw new IOException(path + " is full");
+                }
+                remap(capacity * 2);
+            }
+            live.set(slot);
+            liveCount++;
+            lowestFree = slot + 1;
+            return slot;
+        }
+
+        // Flips the state byte; the rest of the record stays until the slot is reused
+        void release(int slot, byte state) {
+            buffer.put(offset(slot) + STATE, state);
+            live.clear(slot);
+            liveCount--;
+            lowestFree = Math.min(lowestFree, slot);
+        }
+
+        // Marks a slot found live while loading
+        void adopt(int slot, String key) {
+            live.set(slot);
+            liveCount++;
+            slots.put(key, slot);
+        }
+
+        boolean mostlyFree() {
+            return capacity > INITIAL_RECORDS && liveCount < capacity / 4;
+        }
+
+        // Moves up to limit records from the end into the lowest holes; false once packed
+        boolean moveTail(int limit) {
+            byte[] record = new byte[recordSize];
+            for (int moved = 0; moved < limit; moved++) {
+                int last = live.length() - 1;
+                int hole = live.nextClearBit(lowestFree);
+                if (last < 0 || hole >= last) {
+                    return false;
+                }
+                buffer.get(offset(last), record);
+                buffer.put(offset(hole) + 1, record, 1, recordSize - 1);
+                buffer.put(offset(hole), record[STATE]);
+                live.set(hole);
+                lowestFree = hole + 1;
+                slots.put(key(hole), hole);
+                liveCount++;
+                release(last, TOMBSTONE);
+            }
+            return true;
+        }
+
+        // Gives back the free tail, keeping room to double the live records
+        void shrink() throws IOException {
+            int target = INITIAL_RECORDS;
+            while (target < live.length() * 2L) {
+                target *= 2;
+            }
+            if (target >= capacity) {
+                return;
+            }
+            buffer.force();
+            remap(target);
+            channel.truncate(HEADER_SIZE + (long) target * recordSize);
+        }
+
+        // Mapping past the end of the file extends it
+        void remap(int records) throws IOException {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) records * recordSize);
+            capacity = records;
+        }
+
+        void close() throws IOException {
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    public MappedRecordStore(PackageCollection packageCollection, QueueOfCustomers recipientQueue) throws IOException {
+        this.packageCollection = packageCollection;
+        this.recipientQueue = recipientQueue;
+        Path parcelPath = Paths.get(PARCEL_FILE);
+        Path recipientPath = Paths.get(RECIPIENT_FILE);
+        this.populated = Files.exists(parcelPath) && Files.exists(recipientPath);
+        this.parcels = new RecordFile(parcelPath, PARCEL_SIZE);
+        try {
+            this.recipients = new RecordFile(recipientPath, RECIPIENT_SIZE);
+        } catch (IOException ex) {
+            parcels.close();
+            throw ex;
+        }
+        this.vacuumer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "depot-store-vacuum");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // False until the record files have been filled once, from the CSVs on first use
+    @Override
+    public synchronized boolean hasState() {
+        return populated;
+    }
+
+    /**
+     * Loads the depot from the record files or, on first use, writes the state already
+     * loaded from the CSVs into them. A record found twice, left by a vacuum move cut
+     * short, is loaded once and its later copy dropped.
+     */
+    @Override
+    public synchronized void replay() throws IOException {
+        if (!populated) {
+            for (Parcel parcel : packageCollection.getAllPackages()) {
+                if (!parcel.getDeliveryState().equals("Collected")) {
+                    writeParcel(parcel);
+                }
+            }
+            for (Customer recipient : recipientQueue.getQueueContents()) {
+                writeRecipient(recipient);
+            }
+            parcels.buffer.force();
+            recipients.buffer.force();
+            populated = true;
+            return;
+        }
+
+        for (int slot = 0; slot < parcels.capacity; slot++) {
+            if (parcels.state(slot) != PENDING) {
+                continue;
+            }
+            String id = parcels.key(slot);
+            int at = parcels.offset(slot);
+            Parcel parcel = new Parcel(id, parcels.buffer.getFloat(at + MASS), parcels.readString(at + SPEC),
+                parcels.buffer.getLong(at + ARRIVAL), "Pending");
+            if (parcels.slots.containsKey(id) || !packageCollection.addPackage(parcel)) {
+                parcels.buffer.put(at + STATE, TOMBSTONE);
+                continue;
+            }
+            parcels.adopt(slot, id);
+        }
+
+        // Slots are reused in any order, so the queue order is kept in each record
+        List<long[]> queued = new ArrayList<>();
+        for (int slot = 0; slot < recipients.capacity; slot++) {
+            if (recipients.state(slot) == PENDING) {
+                queued.add(new long[] {recipients.buffer.getLong(recipients.offset(slot) + ORDER), slot});
+            }
+        }
+        queued.sort((a, b) -> Long.compare(a[0], b[0]));
+        for (long[] entry : queued) {
+            int slot = (int) entry[1];
+            int at = recipients.offset(slot);
+            String id = recipients.key(slot);
+            Customer recipient = new Customer(recipients.readString(at + NAME), id,
+                recipients.buffer.getInt(at + SEQUENCE));
+            if (recipients.slots.containsKey(id) || !recipientQueue.enqueueRecipient(recipient)) {
+                recipients.buffer.put(at + STATE, TOMBSTONE);
+                continue;
+            }
+            recipients.adopt(slot, id);
+            nextOrder = entry[0] + 1;
+        }
+        parcels.lowestFree = parcels.live.nextClearBit(0);
+        recipients.lowestFree = recipients.live.nextClearBit(0);
+    }
+
+    @Override
+    public synchronized void recordParcelAdded(Parcel parcel) {
+        writeParcel(parcel);
+    }
+
+    /**
+     * Stores a whole manifest a few thousand records at a time, so counter traffic is
+     * not held up behind it. Parcels collected or removed since they were added are
+     * left out, as the journal leaves them out, or storing them now would bring them back.
+     */
+    @Override
+    public void recordParcelsAdded(List<Parcel> added) {
+        for (int from = 0; from < added.size(); from += MANIFEST_CHUNK) {
+            int to = Math.min(added.size(), from + MANIFEST_CHUNK);
+            synchronized (this) {
+                for (Parcel parcel : added.subList(from, to)) {
+                    Parcel current = packageCollection.getPackageByID(parcel.getPackageID());
+                    if (current != null && !current.getDeliveryState().equals("Collected")) {
+                        writeParcel(parcel);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void recordParcelRemoved(String packageId) {
+        releaseParcel(packageId, TOMBSTONE);
+    }
+
+    @Override
+    public synchronized void recordRecipientAdded(Customer recipient) {
+        writeRecipient(recipient);
+    }
+
+    @Override
+    public synchronized void recordRecipientRemoved(String surname, String packageId) {
+        releaseRecipient(surname, packageId);
+    }
+
+    @Override
+    public synchronized void recordCollection(Customer recipient, String packageId) {
+        releaseRecipient(recipient.getSurname(), packageId);
+        releaseParcel(packageId, COLLECTED);
+    }
+
+    @Override
+    public synchronized void recordCollections(List<Customer> collected) {
+        for (Customer recipient : collected) {
+            recordCollection(recipient, recipient.getPackageID());
+        }
+    }
+
+    private void writeParcel(Parcel parcel) {
+        String id = parcel.getPackageID();
+        byte[] idBytes = encode(id, ID_BYTES);
+        byte[] specBytes = encode(parcel.getMeasurementSpec(), SPEC_BYTES);
+        if (idBytes == null || specBytes == null) {
+            refuse("parcel " + id, "package ID or dimensions too long for a record");
+            return;
+        }
+        if (parcels.slots.containsKey(id)) {
+            return;
+        }
+        try {
+            int slot = parcels.allocate();
+            int at = parcels.offset(slot);
+            parcels.writeString(at + ID, idBytes);
+            parcels.buffer.putFloat(at + MASS, parcel.getMassKg());
+            parcels.buffer.putLong(at + ARRIVAL, parcel.getArrivalTime());
+            parcels.writeString(at + SPEC, specBytes);
+            parcels.buffer.put(at + STATE, PENDING);
+            parcels.slots.put(id, slot);
+        } catch (IOException ex) {
+            refuse("parcel " + id, ex.getMessage());
+        }
+    }
+
+    private void writeRecipient(Customer recipient) {
+        String id = recipient.getPackageID();
+        byte[] idBytes = encode(id, ID_BYTES);
+        byte[] nameBytes = encode(recipient.getSurname(), NAME_BYTES);
+        if (idBytes == null || nameBytes == null) {
+            refuse("recipient " + recipient.getSurname(), "name or package ID too long for a record");
+            return;
+        }
+        if (recipients.slots.containsKey(id)) {
+            return;
+        }
+        try {
+            int slot = recipients.allocate();
+            int at = recipients.offset(slot);
+            recipients.writeString(at + ID, idBytes);
+            recipients.buffer.putLong(at + ORDER, nextOrder++);
+            recipients.buffer.putInt(at + SEQUENCE, recipient.getSequenceNumber());
+            recipients.writeString(at + NAME, nameBytes);
+            recipients.buffer.put(at + STATE, PENDING);
+            recipients.slots.put(id, slot);
+        } catch (IOException ex) {
+            refuse("recipient " + recipient.getSurname(), ex.getMessage());
+        }
+    }
+
+    private void releaseParcel(String packageId, byte state) {
+        Integer slot = parcels.slots.remove(packageId);
+        if (slot != null) {
+            parcels.release(slot, state);
+            vacuumIfMostlyFree();
+        }
+    }
+
+    // As in the journal, a recipient only leaves when the name matches too
+    private void releaseRecipient(String surname, String packageId) {
+        Integer slot = recipients.slots.get(packageId);
+        if (slot == null || !recipients.readString(recipients.offset(slot) + NAME).equals(surname)) {
+            return;
+        }
+        recipients.slots.remove(packageId);
+        recipients.release(slot, TOMBSTONE);
+        vacuumIfMostlyFree();
+    }
+
+    private static byte[] encode(String value, int maxBytes) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= maxBytes ? bytes : null;
+    }
+
+    private static void refuse(String what, String reason) {
+        System.err.println("Failed to store " + what + ": " + reason);
+        EventLogger.getInstance().logEvent("Failed to store " + what + ": " + reason);
+    }
+
+    private void vacuumIfMostlyFree() {
+        if ((parcels.mostlyFree() || recipients.mostlyFree()) && vacuuming.compareAndSet(false, true)) {
+            vacuumer.execute(this::vacuum);
+        }
+    }
+
+    // Moves records a step at a time so the store lock is never held for long
+    private void vacuum() {
+        try {
+            boolean moving = true;
+            while (moving) {
+                synchronized (this) {
+                    // Both files take a step each round, so no short-circuit
+                    moving = parcels.moveTail(VACUUM_STEP) | recipients.moveTail(VACUUM_STEP);
+                }
+            }
+            synchronized (this) {
+                parcels.shrink();
+                recipients.shrink();
+                parcels.buffer.force();
+                recipients.buffer.force();
+                EventLogger.getInstance().logEvent("Vacuumed record store: " + parcels.liveCount
+                    + " packages, " + recipients.liveCount + " recipients");
+            }
+        } catch (IOException ex) {
+            System.err.println("Failed to vacuum record store: " + ex.getMessage());
+            EventLogger.getInstance().logEvent("Failed to vacuum record store: " + ex.getMessage());
+        } finally {
+            vacuuming.set(false);
+        }
+    }
+
+    // Runs a vacuum whether or not the files are mostly free and waits until it is on disk
+    @Override
+    public void compactAndWait() {
+        try {
+            vacuumer.submit(() -> {
+                vacuuming.set(true);
+                vacuum();
+            }).get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ex) {
+            EventLogger.getInstance().logEvent("Timed out waiting for record store vacuum: " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        compactAndWait();
+        vacuumer.shutdown();
+        try {
+            vacuumer.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                parcels.close();
+                recipients.close();
+            } catch (IOException ex) {
+                System.err.println("Failed to close record store: " + ex.getMessage());
+                EventLogger.getInstance().logEvent("Failed to close record store: " + ex.getMessage());
+            }
+        }
+    }
+}
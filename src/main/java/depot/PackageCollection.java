@@ -0,0 +1,109 @@
+package depot;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class PackageCollection {
+    private Map<String, Parcel> parcels;
+    // Secondary indexes address parcels by slot; see query()
+    final ParcelIndex index = new ParcelIndex(this::parcelAt);
+    private final Object slotLock = new Object();
+    private volatile Parcel[] slotParcels = new Parcel[1024];
+    private int slotCount;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private volatile DepotEventBus events;
+    
+    public PackageCollection() {
+        // Safe for several collection counters at once
+        parcels = new ConcurrentHashMap<>();
+    }
+    
+    public boolean addPackage(Parcel par) {
+        synchronized (slotLock) {
+            if (parcels.putIfAbsent(par.getPackageID(), par) != null) {
+                return false;
+            }
+            int slot = freeCount > 0 ? freeSlots[--freeCount] : slotCount++;
+            if (slot == slotParcels.length) {
+                slotParcels = Arrays.copyOf(slotParcels, slot * 2);
+            }
+            slotParcels[slot] = par;
+            index.add(slot);
+            par.attach(this, slot);
+        }
+        DepotEventBus bus = listeningBus();
+        if (bus != null) {
+            bus.publish(DepotEvent.parcelAdded(par));
+        }
+        return true;
+    }
+    
+    public Parcel getPackageByID(String packageID) {
+        return parcels.get(packageID);
+    }
+    
+    public boolean removePackage(String packageID) {
+        Parcel removed;
+        synchronized (slotLock) {
+            removed = parcels.remove(packageID);
+            if (removed == null) {
+                return false;
+            }
+            int slot = removed.attachedSlot(this);
+            if (slot < 0) {
+                // The parcel has since been added to another collection as well
+                slot = Arrays.asList(slotParcels).indexOf(removed);
+            }
+            removed.attach(null, -1);
+            index.remove(slot);
+            slotParcels[slot] = null;
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+        }
+        DepotEventBus bus = listeningBus();
+        if (bus != null) {
+            bus.publish(DepotEvent.parcelRemoved(removed));
+        }
+        return true;
+    }
+    
+    public Collection<Parcel> getAllPackages() {
+        return parcels.values();
+    }
+
+    // Starts a query over the secondary indexes on state, mass, volume and storage duration
+    public PackageQuery query() {
+        return new PackageQuery(this, index);
+    }
+
+    // The delivery states some parcel is in, sorted
+    public List<String> stateNames() {
+        return index.stateNames();
+    }
+
+    // Added and removed parcels are published here
+    public void setEventBus(DepotEventBus events) {
+        this.events = events;
+    }
+
+    // The bus to publish on, or null when nobody is listening
+    DepotEventBus listeningBus() {
+        DepotEventBus bus = events;
+        return bus != null && bus.hasListeners() ? bus : null;
+    }
+
+    Parcel parcelAt(int slot) {
+        return slotParcels[slot];
+    }
+
+    // Called by a parcel in this collection after its state or arrival time changed
+    void parcelChanged(int slot) {
+        index.refresh(slot);
+    }
+}
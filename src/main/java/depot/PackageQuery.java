@@ -0,0 +1,154 @@
+package depot;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Combines conditions on a PackageCollection's secondary indexes, e.g.
+ * <pre>
+ *     packages.query().inState("Pending").storedAtLeastDays(14).heavierThan(20).list();
+ * </pre>
+ * The condition expected to match the fewest parcels picks the candidates; state
+ * conditions are intersected as bitmaps and the rest are checked per candidate against
+ * the indexed values, so a selective condition keeps the whole query cheap.
+ */
+public class PackageQuery {
+    private final PackageCollection packages;
+    private final ParcelIndex index;
+    private final List<Set<String>> stateConditions = new ArrayList<>();
+    private final List<long[]> rangeConditions = new ArrayList<>();
+
+    PackageQuery(PackageCollection packages, ParcelIndex index) {
+        this.packages = packages;
+        this.index = index;
+    }
+
+    public PackageQuery inState(String... states) {
+        stateConditions.add(new LinkedHashSet<>(List.of(states)));
+        return this;
+    }
+
+    // Inclusive on both ends
+    public PackageQuery massBetween(float minKg, float maxKg) {
+        return range(ParcelIndex.MASS, ParcelIndex.massValue(minKg), ParcelIndex.massValue(maxKg));
+    }
+
+    public PackageQuery heavierThan(float kg) {
+        return range(ParcelIndex.MASS, ParcelIndex.massValue(Math.nextUp(kg)),
+            ParcelIndex.massValue(Float.POSITIVE_INFINITY));
+    }
+
+    public PackageQuery lighterThan(float kg) {
+        return range(ParcelIndex.MASS, ParcelIndex.massValue(Float.NEGATIVE_INFINITY),
+            ParcelIndex.massValue(Math.nextDown(kg)));
+    }
+
+    // Cubic centimetres from the "LxWxH" spec; parcels without one never match
+    public PackageQuery volumeBetween(long minCm3, long maxCm3) {
+        return range(ParcelIndex.VOLUME, minCm3, maxCm3);
+    }
+
+    // Same whole-day count as Parcel.getStorageDuration, at the time the query is built
+    public PackageQuery storedAtLeastDays(int days) {
+        if (days <= 0) {
+            return this;
+        }
+        return range(ParcelIndex.ARRIVAL, Long.MIN_VALUE,
+            DepotClock.currentTimeMillis() - days * Duration.ofDays(1).toMillis());
+    }
+
+    public PackageQuery storedAtMostDays(int days) {
+        return range(ParcelIndex.ARRIVAL,
+            DepotClock.currentTimeMillis() - (days + 1L) * Duration.ofDays(1).toMillis() + 1, Long.MAX_VALUE);
+    }
+
+    private PackageQuery range(int dimension, long from, long to) {
+        rangeConditions.add(new long[] { dimension, from, to });
+        return this;
+    }
+
+    public List<Parcel> list() {
+        index.readLock();
+        try {
+            BitSet slots = matchingSlots();
+            List<Parcel> parcels = new ArrayList<>(slots.cardinality());
+            for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+                parcels.add(packages.parcelAt(slot));
+            }
+            return parcels;
+        } finally {
+            index.readUnlock();
+        }
+    }
+
+    public int count() {
+        index.readLock();
+        try {
+            return matchingSlots().cardinality();
+        } finally {
+            index.readUnlock();
+        }
+    }
+
+    // Slot numbers of the matching parcels, for views that look parcels up lazily
+    BitSet slots() {
+        index.readLock();
+        try {
+            return matchingSlots();
+        } finally {
+            index.readUnlock();
+        }
+    }
+
+    private BitSet matchingSlots() {
+        // Drive from the most selective condition
+        int driver = -1;
+        int best = Integer.MAX_VALUE;
+        for (int i = 0; i < stateConditions.size(); i++) {
+            int estimate = index.countInStates(stateConditions.get(i));
+            if (estimate < best) {
+                best = estimate;
+                driver = i;
+            }
+        }
+        int rangeDriver = -1;
+        for (int i = 0; i < rangeConditions.size(); i++) {
+            long[] range = rangeConditions.get(i);
+            int estimate = index.countInRange((int) range[0], range[1], range[2]);
+            if (estimate < best) {
+                best = estimate;
+                rangeDriver = i;
+            }
+        }
+
+        BitSet slots;
+        if (rangeDriver >= 0) {
+            long[] range = rangeConditions.get(rangeDriver);
+            slots = index.slotsInRange((int) range[0], range[1], range[2]);
+        } else if (driver >= 0) {
+            slots = index.slotsInStates(stateConditions.get(driver));
+        } else {
+            slots = index.liveSlots();
+        }
+        for (int i = 0; i < stateConditions.size(); i++) {
+            if (i != driver || rangeDriver >= 0) {
+                slots.and(index.slotsInStates(stateConditions.get(i)));
+            }
+        }
+        if (!rangeConditions.isEmpty()) {
+            for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+                for (long[] range : rangeConditions) {
+                    if (!index.inRange((int) range[0], slot, range[1], range[2])) {
+                        slots.clear(slot);
+                        break;
+                    }
+                }
+            }
+        }
+        return slots;
+    }
+}
@@ -0,0 +1,106 @@
+package depot;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+
+public class Parcel {
+    private static final VarHandle DELIVERY_STATE;
+    static {
+        try {
+            DELIVERY_STATE = MethodHandles.lookup().findVarHandle(Parcel.class, "deliveryState", String.class);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private String packageID;
+    private volatile long arrivalTime;
+    private float massKg;
+    private String measurementSpec;
+    private volatile String deliveryState;
+    private float collectionCharge;
+    // The collection whose indexes follow this parcel; a parcel reports to one at a time
+    private volatile PackageCollection owner;
+    private int ownerSlot;
+    
+    public Parcel(String packageID, float massKg, String measurementSpec) {
+        this.packageID = packageID;
+        this.massKg = massKg;
+        this.measurementSpec = measurementSpec;
+        this.arrivalTime = DepotClock.currentTimeMillis();
+        this.deliveryState = "Pending";
+        this.collectionCharge = 0.0f;
+    }
+    
+    // Restores a parcel with its saved arrival time (epoch millis) and state
+    public Parcel(String packageID, float massKg, String measurementSpec, long arrivalTime, String deliveryState) {
+        this(packageID, massKg, measurementSpec);
+        this.arrivalTime = arrivalTime;
+        this.deliveryState = deliveryState;
+    }
+    
+    // Durations follow the depot clock; this only moves the arrival back a day
+    public void updateStorageDuration() {
+        arrivalTime -= Duration.ofDays(1).toMillis();
+        notifyOwner();
+    }
+    
+    public void setDeliveryState(String state) {
+        this.deliveryState = state;
+        notifyOwner();
+    }
+    
+    public float computeCollectionCharge() {
+        return collectionCharge;
+    }
+    
+    public void markAsCollected() {
+        this.deliveryState = "Collected";
+        notifyOwner();
+    }
+    
+    // Atomic transition to Collected; false when the parcel was already collected
+    public boolean tryMarkCollected() {
+        while (true) {
+            String current = deliveryState;
+            if (current.equals("Collected")) {
+                return false;
+            }
+            if (DELIVERY_STATE.compareAndSet(this, current, "Collected")) {
+                notifyOwner();
+                return true;
+            }
+        }
+    }
+    
+    void attach(PackageCollection owner, int slot) {
+        this.ownerSlot = slot;
+        this.owner = owner;
+    }
+    
+    int attachedSlot(PackageCollection collection) {
+        return owner == collection ? ownerSlot : -1;
+    }
+    
+    private void notifyOwner() {
+        PackageCollection collection = owner;
+        if (collection != null) {
+            collection.parcelChanged(ownerSlot);
+        }
+    }
+    
+    // Getters
+    public String getPackageID() { return packageID; }
+    public float getMassKg() { return massKg; }
+    public String getMeasurementSpec() { return measurementSpec; }
+    public long getArrivalTime() { return arrivalTime; }
+    public int getStorageDuration() { return DepotClock.daysSince(getArrivalTime()); }
+    public String getDeliveryState() { return deliveryState; }
+    
+    @Override
+    public String toString() {
+        return String.format("Package[ID=%s, Mass=%.2f, Measurements=%s, Duration=%d, State=%s]",
+                getPackageID(), getMassKg(), getMeasurementSpec(), getStorageDuration(), getDeliveryState());
+    }
+}
\ No newline at end of file
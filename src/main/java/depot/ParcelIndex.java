@@ -0,0 +1,418 @@
+package depot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+
+/**
+ * Secondary indexes over a PackageCollection, addressed by the collection's slot
+ * numbers: a bitmap of slots per delivery state, and sorted indexes on mass, volume
+ * (from an "LxWxH" measurement spec) and arrival time. Storage duration is derived
+ * from arrival time, so "stored at least N days" is a range on arrival that stays
+ * correct as the clock moves. The collection reports adds, removes and changes to a
+ * parcel's state or arrival; the index re-reads the parcel through the slot lookup it
+ * was built with, so the last report always leaves the current values in place.
+ */
+class ParcelIndex {
+    static final int MASS = 0;
+    static final int VOLUME = 1;
+    static final int ARRIVAL = 2;
+    private static final int DIMENSIONS = 3;
+    private static final long NO_VALUE = Long.MIN_VALUE;
+
+    private final IntFunction<Parcel> parcelAt;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitSet live = new BitSet();
+    private final Map<String, BitSet> byState = new HashMap<>();
+    private final SortedKeys[] sorted = new SortedKeys[DIMENSIONS];
+    // Exact indexed values per slot, so the sorted keys only need to narrow candidates
+    private long[][] values = new long[DIMENSIONS][1024];
+    private String[] states = new String[1024];
+
+    ParcelIndex(IntFunction<Parcel> parcelAt) {
+        this.parcelAt = parcelAt;
+        for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+            sorted[dimension] = new SortedKeys();
+            Arrays.fill(values[dimension], NO_VALUE);
+        }
+    }
+
+    void add(int slot) {
+        Parcel parcel = parcelAt.apply(slot);
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(slot);
+            live.set(slot);
+            setState(slot, parcel.getDeliveryState());
+            setValue(MASS, slot, massValue(parcel.getMassKg()));
+            setValue(VOLUME, slot, volumeOf(parcel.getMeasurementSpec()));
+            setValue(ARRIVAL, slot, parcel.getArrivalTime());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(int slot) {
+        lock.writeLock().lock();
+        try {
+            if (!live.get(slot)) {
+                return;
+            }
+            live.clear(slot);
+            setState(slot, null);
+            for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+                setValue(dimension, slot, NO_VALUE);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // A parcel's state or arrival time changed; mass and measurements never do
+    void refresh(int slot) {
+        lock.writeLock().lock();
+        try {
+            if (!live.get(slot)) {
+                return;
+            }
+            Parcel parcel = parcelAt.apply(slot);
+            setState(slot, parcel.getDeliveryState());
+            setValue(ARRIVAL, slot, parcel.getArrivalTime());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Live slots ordered by one dimension, then the live slots that have no value for it
+    int[] slotsOrderedBy(int dimension) {
+        lock.readLock().lock();
+        try {
+            int[] slots = new int[live.cardinality()];
+            BitSet placed = new BitSet();
+            int count = sorted[dimension].copySlotsInOrder(slots, placed);
+            for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+                if (!placed.get(slot)) {
+                    slots[count++] = slot;
+                }
+            }
+            return slots;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Live slots grouped by delivery state, states in alphabetical order
+    int[] slotsOrderedByState() {
+        lock.readLock().lock();
+        try {
+            int[] slots = new int[live.cardinality()];
+            int count = 0;
+            for (String state : new TreeSet<>(byState.keySet())) {
+                BitSet bitmap = byState.get(state);
+                for (int slot = bitmap.nextSetBit(0); slot >= 0; slot = bitmap.nextSetBit(slot + 1)) {
+                    slots[count++] = slot;
+                }
+            }
+            return slots;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    List<String> stateNames() {
+        lock.readLock().lock();
+        try {
+            List<String> names = new ArrayList<>();
+            for (Map.Entry<String, BitSet> state : byState.entrySet()) {
+                if (!state.getValue().isEmpty()) {
+                    names.add(state.getKey());
+                }
+            }
+            Collections.sort(names);
+            return names;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void readLock() { lock.readLock().lock(); }
+    void readUnlock() { lock.readLock().unlock(); }
+
+    // The lock itself, for a collection that guards its own storage with it; sharing it
+    // keeps one lock order between the index and the parcels it reads
+    ReentrantReadWriteLock lock() { return lock; }
+
+    // The methods below are called with the read lock held
+
+    BitSet liveSlots() {
+        return (BitSet) live.clone();
+    }
+
+    BitSet slotsInStates(Iterable<String> stateNames) {
+        BitSet slots = new BitSet();
+        for (String state : stateNames) {
+            BitSet bitmap = byState.get(state);
+            if (bitmap != null) {
+                slots.or(bitmap);
+            }
+        }
+        return slots;
+    }
+
+    int countInStates(Iterable<String> stateNames) {
+        int count = 0;
+        for (String state : stateNames) {
+            BitSet bitmap = byState.get(state);
+            if (bitmap != null) {
+                count += bitmap.cardinality();
+            }
+        }
+        return count;
+    }
+
+    int countInRange(int dimension, long from, long to) {
+        return sorted[dimension].count(keyOf(dimension, from), keyOf(dimension, to));
+    }
+
+    // A superset of the slots in range; callers check candidates with inRange
+    BitSet slotsInRange(int dimension, long from, long to) {
+        BitSet slots = new BitSet();
+        sorted[dimension].collect(keyOf(dimension, from), keyOf(dimension, to), slots);
+        return slots;
+    }
+
+    boolean inRange(int dimension, int slot, long from, long to) {
+        long value = values[dimension][slot];
+        return value != NO_VALUE && value >= from && value <= to;
+    }
+
+    // Mass as a long that orders the same way as the float
+    static long massValue(float massKg) {
+        int bits = Float.floatToIntBits(massKg);
+        return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+    }
+
+    // Volume in cubic centimetres of an "LxWxH" spec, or NO_VALUE when it is not one
+    static long volumeOf(String spec) {
+        long volume = 1;
+        int side = 0;
+        int digits = 0;
+        int sides = 0;
+        for (int i = 0; i <= spec.length(); i++) {
+            char c = i < spec.length() ? spec.charAt(i) : 'x';
+            if (c >= '0' && c <= '9' && digits < 7) {
+                side = side * 10 + (c - '0');
+                digits++;
+            } else if (c == 'x' && digits > 0) {
+                volume *= side;
+                sides++;
+                side = 0;
+                digits = 0;
+            } else {
+                return NO_VALUE;
+            }
+        }
+        return sides == 3 ? volume : NO_VALUE;
+    }
+
+    private void setState(int slot, String state) {
+        String previous = states[slot];
+        if (previous != null && !previous.equals(state)) {
+            byState.get(previous).clear(slot);
+        }
+        if (state != null) {
+            byState.computeIfAbsent(state, key -> new BitSet()).set(slot);
+        }
+        states[slot] = state;
+    }
+
+    private void setValue(int dimension, int slot, long value) {
+        long previous = values[dimension][slot];
+        if (previous == value) {
+            return;
+        }
+        if (previous != NO_VALUE) {
+            sorted[dimension].remove(sortKey(dimension, previous, slot));
+        }
+        if (value != NO_VALUE) {
+            sorted[dimension].add(sortKey(dimension, value, slot));
+        }
+        values[dimension][slot] = value;
+    }
+
+    private void ensureCapacity(int slot) {
+        if (slot < states.length) {
+            return;
+        }
+        int capacity = Math.max(slot + 1, states.length * 2);
+        states = Arrays.copyOf(states, capacity);
+        for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+            int oldLength = values[dimension].length;
+            values[dimension] = Arrays.copyOf(values[dimension], capacity);
+            Arrays.fill(values[dimension], oldLength, capacity, NO_VALUE);
+        }
+    }
+
+    /*
+     * Sorted keys pack a 32-bit unsigned, order-preserving form of the value above the
+     * slot number, with the sign bit flipped so signed comparison sorts them. Mass maps
+     * exactly, volume saturates, and arrival drops to seconds, so a key range can include
+     * a few slots just outside the exact value range.
+     */
+    private static long sortKey(int dimension, long value, int slot) {
+        return ((keyOf(dimension, value) << 32) | slot) ^ Long.MIN_VALUE;
+    }
+
+    private static long keyOf(int dimension, long value) {
+        switch (dimension) {
+            case MASS: return (value ^ 0x80000000L) & 0xFFFFFFFFL;
+            case VOLUME: return Math.max(0, Math.min(value, 0xFFFFFFFFL));
+            default: return Math.max(0, Math.min(Math.floorDiv(value, 1000), 0xFFFFFFFFL));
+        }
+    }
+
+    /**
+     * A sorted long array with a small unsorted buffer in front of it. Adds go to the
+     * buffer and are merged in once it fills, so loading a million parcels does not
+     * shift the array on every insert; range lookups binary-search the array and scan
+     * the buffer. The buffer grows with the array, up to MAX_BUFFER keys. Removed keys
+     * stay where they are and are listed as dead until the next merge drops them, so a
+     * removal costs a hash insert rather than a scan and a shift of the array; there are
+     * never more dead keys than the buffer holds.
+     */
+    private static class SortedKeys {
+        private static final int MIN_BUFFER = 2048;
+        private static final int MAX_BUFFER = 32768;
+
+        private long[] keys = new long[1024];
+        private int size;
+        private long[] buffer = new long[MIN_BUFFER];
+        private int buffered;
+        // Keys removed but still in keys or buffer
+        private final Set<Long> dead = new HashSet<>();
+
+        void add(long key) {
+            // Added back before its dead copy was dropped: the copy is live again
+            if (!dead.isEmpty() && dead.remove(key)) {
+                return;
+            }
+            if (buffered == buffer.length) {
+                merge();
+            }
+            buffer[buffered++] = key;
+        }
+
+        void remove(long key) {
+            dead.add(key);
+            if (dead.size() >= buffer.length) {
+                merge();
+            }
+        }
+
+        int count(long fromKey, long toKey) {
+            int count = upperBound(toKey) - lowerBound(fromKey);
+            for (int i = 0; i < buffered; i++) {
+                if (inRange(buffer[i], fromKey, toKey)) {
+                    count++;
+                }
+            }
+            for (long key : dead) {
+                if (inRange(key, fromKey, toKey)) {
+                    count--;
+                }
+            }
+            return Math.max(count, 0);
+        }
+
+        // May include slots of dead keys; callers check candidates against the exact values
+        void collect(long fromKey, long toKey, BitSet slots) {
+            for (int i = lowerBound(fromKey), end = upperBound(toKey); i < end; i++) {
+                slots.set((int) keys[i]);
+            }
+            for (int i = 0; i < buffered; i++) {
+                if (inRange(buffer[i], fromKey, toKey)) {
+                    slots.set((int) buffer[i]);
+                }
+            }
+        }
+
+        // Slots in key order into slots, marking each in placed; returns how many
+        int copySlotsInOrder(int[] slots, BitSet placed) {
+            long[] pending = Arrays.copyOf(buffer, buffered);
+            Arrays.sort(pending);
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size || j < pending.length) {
+                long key = j == pending.length || (i < size && keys[i] < pending[j]) ? keys[i++] : pending[j++];
+                if (!dead.isEmpty() && dead.contains(key)) {
+                    continue;
+                }
+                slots[count++] = (int) key;
+                placed.set((int) key);
+            }
+            return count;
+        }
+
+        private static boolean inRange(long key, long fromKey, long toKey) {
+            long value = (key ^ Long.MIN_VALUE) >>> 32;
+            return value >= fromKey && value <= toKey;
+        }
+
+        // First position whose value part is at least fromKey
+        private int lowerBound(long fromKey) {
+            int at = Arrays.binarySearch(keys, 0, size, (fromKey << 32) ^ Long.MIN_VALUE);
+            return at >= 0 ? at : -at - 1;
+        }
+
+        // First position whose value part is above toKey
+        private int upperBound(long toKey) {
+            int at = Arrays.binarySearch(keys, 0, size, ((toKey << 32) | 0xFFFFFFFFL) ^ Long.MIN_VALUE);
+            return at >= 0 ? at + 1 : -at - 1;
+        }
+
+        private void merge() {
+            if (!dead.isEmpty()) {
+                size = dropDead(keys, size);
+                buffered = dropDead(buffer, buffered);
+                dead.clear();
+            }
+            Arrays.sort(buffer, 0, buffered);
+            if (size + buffered > keys.length) {
+                keys = Arrays.copyOf(keys, Math.max(size + buffered, keys.length * 2));
+            }
+            // Merge from the back so the existing keys move at most once
+            int i = size - 1;
+            int j = buffered - 1;
+            for (int out = size + buffered - 1; j >= 0; out--) {
+                keys[out] = i >= 0 && keys[i] > buffer[j] ? keys[i--] : buffer[j--];
+            }
+            size += buffered;
+            buffered = 0;
+            int bufferSize = Math.max(MIN_BUFFER, Math.min(MAX_BUFFER, Integer.highestOneBit(size / 32)));
+            if (bufferSize != buffer.length) {
+                buffer = new long[bufferSize];
+            }
+        }
+
+        // Compacts the first length keys without the dead ones, keeping their order
+        private int dropDead(long[] array, int length) {
+            int kept = 0;
+            for (int i = 0; i < length; i++) {
+                if (!dead.contains(array[i])) {
+                    array[kept++] = array[i];
+                }
+            }
+            return kept;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package depot;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recipients in arrival order, safe for several collection counters at once. A hash
+ * index by package ID gives constant-time lookup; a skip list keyed by arrival order
+ * keeps the queue ordered and lets a recipient leave from any position. A name
+ * index follows the queue for searches by recipient name, and a RecipientScheduler
+ * decides whom the counters call next.
+ */
+public class QueueOfCustomers {
+    private static final class Entry {
+        final Customer recipient;
+        final long arrival;
+        final long enqueuedAt;
+        // Both guarded by the entry: an enqueue links the recipient into the ordered map,
+        // rank tree and name index only if no removal got to the entry first
+        boolean linked;
+        boolean removed;
+
+        Entry(Customer recipient, long arrival) {
+            this.recipient = recipient;
+            this.arrival = arrival;
+            this.enqueuedAt = DepotClock.currentTimeMillis();
+        }
+    }
+
+    private final Map<String, Entry> byPackageID = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Customer> recipients = new ConcurrentSkipListMap<>();
+    private final AtomicLong arrivals = new AtomicLong();
+    // Never reused, unlike size() + 1, so sequence numbers stay unique after removals
+    private final AtomicInteger sequenceNumbers = new AtomicInteger();
+    private final RecipientScheduler scheduler = new RecipientScheduler();
+    private final RecipientSearchIndex nameIndex = new RecipientSearchIndex();
+    private volatile DepotEventBus events;
+    // Holds 1 at the arrival number of each recipient still queued, so the number queued
+    // ahead of an arrival is a prefix sum. Sized by the arrivals still queued, not all since start
+    private final Object rankLock = new Object();
+    private final RankTree ranks = new RankTree();
+    
+    public QueueOfCustomers() {
+    }
+    
+    public boolean enqueueRecipient(Customer recipient) {
+        Entry entry = new Entry(recipient, arrivals.incrementAndGet());
+        if (byPackageID.putIfAbsent(recipient.getPackageID(), entry) != null) {
+            return false;
+        }
+        synchronized (entry) {
+            if (!entry.removed) {
+                recipients.put(entry.arrival, recipient);
+                addRank(entry.arrival, 1);
+                nameIndex.add(recipient);
+                entry.linked = true;
+            }
+        }
+        sequenceNumbers.accumulateAndGet(recipient.getSequenceNumber(), Math::max);
+        // Skipped if the recipient was removed meanwhile, possibly before the scheduler had them
+        scheduler.add(recipient, () -> byPackageID.get(recipient.getPackageID()) == entry);
+        DepotEventBus bus = events;
+        if (bus != null && bus.hasListeners()) {
+            bus.publish(DepotEvent.recipientAdded(recipient));
+        }
+        return true;
+    }
+    
+    public boolean dequeueRecipient() {
+        while (true) {
+            Map.Entry<Long, Customer> head = recipients.firstEntry();
+            if (head == null) {
+                return false;
+            }
+            Entry entry = byPackageID.get(head.getValue().getPackageID());
+            // Whoever removes the index entry owns the removal
+            boolean removed = entry != null && entry.arrival == head.getKey()
+                && byPackageID.remove(head.getValue().getPackageID(), entry);
+            recipients.remove(head.getKey(), head.getValue());
+            if (removed) {
+                unlink(entry);
+                scheduler.remove(head.getValue());
+                publishRemoved(entry);
+                return true;
+            }
+        }
+    }
+    
+    public Customer findRecipientByPackageID(String packageID) {
+        Entry entry = byPackageID.get(packageID);
+        return entry == null ? null : entry.recipient;
+    }
+    
+    // 1-based place in the queue, or 0 when nobody is queued for the package
+    public int positionOf(String packageID) {
+        Entry entry = byPackageID.get(packageID);
+        if (entry == null) {
+            return 0;
+        }
+        synchronized (rankLock) {
+            return ranks.countUpTo(entry.arrival - 1) + 1;
+        }
+    }
+
+    private void addRank(long arrival, int delta) {
+        synchronized (rankLock) {
+            ranks.add(arrival, delta);
+        }
+    }
+    
+    public boolean removeRecipient(Customer recipient) {
+        Entry entry = byPackageID.get(recipient.getPackageID());
+        if (entry == null || entry.recipient != recipient || !byPackageID.remove(recipient.getPackageID(), entry)) {
+            return false;
+        }
+        unlink(entry);
+        scheduler.remove(recipient);
+        publishRemoved(entry);
+        return true;
+    }
+
+    // Called by whoever removed the index entry; undoes whatever the enqueue has linked
+    private void unlink(Entry entry) {
+        synchronized (entry) {
+            entry.removed = true;
+            if (entry.linked) {
+                recipients.remove(entry.arrival, entry.recipient);
+                addRank(entry.arrival, -1);
+                nameIndex.remove(entry.recipient);
+            }
+        }
+    }
+
+    // For a recipient about to join; always above every number already handed out or queued
+    public int nextSequenceNumber() {
+        return sequenceNumbers.incrementAndGet();
+    }
+
+    public RecipientScheduler getScheduler() {
+        return scheduler;
+    }
+
+    // The recipient the scheduler calls to the counter, who stays queued until they collect
+    public Customer callNext(int counter) {
+        return scheduler.next(counter);
+    }
+
+    // -1 when nobody is queued for the package or no wait can be estimated yet
+    public long estimatedWaitMillis(String packageID) {
+        return scheduler.estimatedWaitMillis(packageID);
+    }
+
+    private void publishRemoved(Entry entry) {
+        DepotEventBus bus = events;
+        if (bus != null && bus.hasListeners()) {
+            bus.publish(DepotEvent.recipientRemoved(entry.recipient, DepotClock.currentTimeMillis() - entry.enqueuedAt));
+        }
+    }
+
+    // Recipients joining and leaving the queue are published here
+    public void setEventBus(DepotEventBus events) {
+        this.events = events;
+    }
+    
+    public boolean evaluateRecipient(Customer recipient) {
+        return findRecipientByPackageID(recipient.getPackageID()) == recipient;
+    }
+    
+    // Case-insensitive prefix search on recipient names that tolerates small typos
+    public List<Customer> searchByName(String query, int limit) {
+        List<Customer> matches = nameIndex.search(query, limit);
+        // A recipient being removed stays in the name index until the removal unlinks them
+        matches.removeIf(recipient -> !evaluateRecipient(recipient));
+        return matches;
+    }
+    
+    public int size() {
+        return byPackageID.size();
+    }
+    
+    // The queue in arrival order, as one array
+    public Customer[] snapshot() {
+        return recipients.values().toArray(new Customer[0]);
+    }
+    
+    public Queue<Customer> getQueueContents() {
+        return new LinkedList<>(recipients.values());
+    }
+}
@@ -0,0 +1,85 @@
+package depot;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Table model over a QueueOfCustomers. The queue has no positional access, so a
+ * rebuild takes one array of references to the recipients; cells are formatted only
+ * when painted. A name filter goes through the queue's name index instead of the whole
+ * queue.
+ */
+public class QueueTableModel extends AbstractTableModel {
+    public static final int SEQUENCE = 0;
+    public static final int NAME = 1;
+    public static final int PACKAGE_ID = 2;
+    private static final String[] COLUMNS = { "Sequence", "Name", "Package ID" };
+    private static final int MAX_FILTERED_ROWS = 100_000;
+
+    private final QueueOfCustomers recipients;
+    private String nameFilter;
+    private int sortColumn = -1;
+    private boolean ascending = true;
+    private Customer[] rows = new Customer[0];
+
+    public QueueTableModel(QueueOfCustomers recipients) {
+        this.recipients = recipients;
+    }
+
+    public void setFilter(String name) {
+        this.nameFilter = name == null || name.trim().isEmpty() ? null : name;
+    }
+
+    public void setSort(int column, boolean ascending) {
+        this.sortColumn = column;
+        this.ascending = ascending;
+    }
+
+    public int getSortColumn() { return sortColumn; }
+    public boolean isAscending() { return ascending; }
+
+    // Safe off the event thread; run the result on it to publish the new rows
+    public Runnable rebuild() {
+        Customer[] snapshot;
+        if (nameFilter != null) {
+            List<Customer> matches = recipients.searchByName(nameFilter, MAX_FILTERED_ROWS);
+            snapshot = matches.toArray(new Customer[0]);
+        } else {
+            snapshot = recipients.snapshot();
+        }
+        if (sortColumn >= 0) {
+            Comparator<Customer> order;
+            switch (sortColumn) {
+                case NAME: order = Comparator.comparing(Customer::getSurname, String.CASE_INSENSITIVE_ORDER); break;
+                case PACKAGE_ID: order = Comparator.comparing(Customer::getPackageID); break;
+                default: order = Comparator.comparingInt(Customer::getSequenceNumber); break;
+            }
+            Arrays.sort(snapshot, ascending ? order : order.reversed());
+        }
+        return () -> {
+            rows = snapshot;
+            fireTableDataChanged();
+        };
+    }
+
+    @Override
+    public int getRowCount() { return rows.length; }
+
+    @Override
+    public int getColumnCount() { return COLUMNS.length; }
+
+    @Override
+    public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Customer recipient = rows[row];
+        switch (column) {
+            case SEQUENCE: return recipient.getSequenceNumber();
+            case NAME: return recipient.getSurname();
+            default: return recipient.getPackageID();
+        }
+    }
+}
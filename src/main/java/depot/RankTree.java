@@ -0,0 +1,97 @@
+package depot;
+
+/**
+ * Fenwick tree holding a count at each position, so the number of entries before a
+ * position is a prefix sum in O(log n). Positions only need to be increasing longs:
+ * the tree covers a window of them starting just after base, and when a position falls
+ * outside it, the tree is rebuilt around the positions still holding a count. The
+ * array is therefore bounded by the span between the oldest and newest live entries,
+ * not by how many positions have been used. Not thread-safe; callers hold their own lock.
+ */
+final class RankTree {
+    private static final int MIN_SIZE = 1024;
+    // Larger spans than this would not fit an int index
+    private static final long MAX_SPAN = 1L << 29;
+
+    // Index i holds position base + i, for i in 1..counts.length - 1
+    private int[] counts = new int[MIN_SIZE + 1];
+    private long base;
+    private int total;
+
+    void add(long position, int delta) {
+        if (position <= base || position - base >= counts.length) {
+            rebase(position);
+        }
+        for (int i = (int) (position - base); i < counts.length; i += i & -i) {
+            counts[i] += delta;
+        }
+        total += delta;
+    }
+
+    // Total held at positions up to and including position
+    int countUpTo(long position) {
+        if (position <= base) {
+            return 0;
+        }
+        if (position - base >= counts.length) {
+            return total;
+        }
+        int count = 0;
+        for (int i = (int) (position - base); i > 0; i -= i & -i) {
+            count += counts[i];
+        }
+        return count;
+    }
+
+    /*
+     * Rebuilds the tree over the live positions and the new one, with at least as much
+     * room again above them, so rebuilding costs O(1) per add over time. An empty tree
+     * starts afresh at the new position.
+     */
+    private void rebase(long position) {
+        int size = counts.length - 1;
+        // Undo the tree's partial sums, leaving the count at each index
+        for (int i = size; i > 0; i--) {
+            int parent = i + (i & -i);
+            if (parent <= size) {
+                counts[parent] -= counts[i];
+            }
+        }
+        long low = position;
+        long high = position;
+        if (total != 0) {
+            for (int i = 1; i <= size; i++) {
+                if (counts[i] != 0) {
+                    low = Math.min(low, base + i);
+                    high = Math.max(high, base + i);
+                }
+            }
+        }
+        long span = high - low + 1;
+        if (span > MAX_SPAN) {
+            throw new IllegalStateException("positions " + low + " to " + high + " are too far apart to rank");
+        }
+        int newSize = MIN_SIZE;
+        while (newSize < span * 2) {
+            newSize *= 2;
+        }
+        int[] rebuilt = new int[newSize + 1];
+        long newBase = low - 1;
+        if (total != 0) {
+            for (int i = 1; i <= size; i++) {
+                if (counts[i] != 0) {
+                    rebuilt[(int) (base + i - newBase)] = counts[i];
+                }
+            }
+        }
+        // Partial sums again, in one pass
+        for (int i = 1; i <= newSize; i++) {
+            int parent = i + (i & -i);
+            if (parent <= newSize) {
+                rebuilt[parent] += rebuilt[i];
+            }
+        }
+        counts = rebuilt;
+        base = newBase;
+    }
+}
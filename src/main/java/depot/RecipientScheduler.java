@@ -0,0 +1,357 @@
+package depot;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.BooleanSupplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Decides whom a counter calls next from the recipients waiting in a QueueOfCustomers,
+ * and estimates how long each of them still has to wait.
+ *
+ * Every recipient is put in a priority class when they join. Each class keeps a heap
+ * ordered by a sequence number that only ever grows, so equal recipients are called in
+ * the order they joined, and a Fenwick tree over the same numbers gives how many of the
+ * class are ahead of someone. The policy only chooses between the class heads:
+ *
+ *   FIFO        whoever joined first, whatever their class
+ *   PRIORITY    the highest class with anyone waiting
+ *   FAIR_SHARE  stride scheduling across the counters: each class gets a share of the
+ *               calls in proportion to its weight, so no class waits behind another
+ *               for ever
+ *
+ * Recipients who come before their booked slot wait as their other needs place them
+ * and move up to BOOKED when the slot starts. Waits are estimated from the running
+ * mean service time of each open counter: the time from a counter calling someone
+ * to that recipient leaving the queue.
+ */
+public class RecipientScheduler {
+    public enum Policy {
+        FIFO, PRIORITY, FAIR_SHARE;
+
+        // "fifo", "priority" or "fair-share"
+        public static Policy fromName(String name) {
+            return valueOf(name.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    // Highest first; the weight is the class's share of the calls under FAIR_SHARE
+    public enum Priority {
+        BOOKED(4), ASSISTANCE(3), OVERDUE(2), STANDARD(1);
+
+        private final int weight;
+
+        Priority(int weight) {
+            this.weight = weight;
+        }
+
+        public int getWeight() { return weight; }
+    }
+
+    private static final Priority[] PRIORITIES = Priority.values();
+    private static final int DEFAULT_OVERDUE_DAYS = 7;
+    // How much of each new service time goes into the running mean
+    private static final double SMOOTHING = 0.2;
+    // A counter that has called nobody for this long no longer counts as open
+    private static final long COUNTER_IDLE_MILLIS = 30 * 60 * 1000L;
+    // Pass added per call under FAIR_SHARE is STRIDE / weight
+    private static final long STRIDE = 1L << 20;
+
+    private static final class Ticket {
+        final Customer recipient;
+        final long slot;
+        Priority priority;
+        // Where the recipient waits; null once called or gone
+        Place place;
+        int counter = -1;
+        long calledAt;
+
+        Ticket(Customer recipient) {
+            this.recipient = recipient;
+            this.slot = recipient.getBookedSlot();
+        }
+    }
+
+    // A heap entry. Moving a ticket to another class leaves its old entry behind, stale
+    private static final class Place {
+        final Ticket ticket;
+        final Priority priority;
+        final long sequence;
+
+        Place(Ticket ticket, Priority priority, long sequence) {
+            this.ticket = ticket;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        boolean isCurrent() {
+            return ticket.place == this;
+        }
+    }
+
+    private static final class Counter {
+        // 0 until the counter's first service ends
+        double meanServiceMillis;
+        long lastCalled;
+    }
+
+    private final Map<String, Ticket> tickets = new HashMap<>();
+    private final PriorityQueue<Place>[] heaps;
+    private final RankTree[] ranks = new RankTree[PRIORITIES.length];
+    private final int[] waiting = new int[PRIORITIES.length];
+    private final long[] pass = new long[PRIORITIES.length];
+    private final PriorityQueue<Ticket> earlyBookings =
+        new PriorityQueue<>(Comparator.comparingLong((Ticket ticket) -> ticket.slot));
+    private final Map<Integer, Counter> counters = new HashMap<>();
+    private long sequence;
+    private long virtualTime;
+    private int stale;
+    private volatile Policy policy = Policy.FIFO;
+    private volatile ToIntFunction<String> daysInDepot = packageID -> 0;
+    private volatile int overdueDays = DEFAULT_OVERDUE_DAYS;
+
+    @SuppressWarnings("unchecked")
+    public RecipientScheduler() {
+        heaps = new PriorityQueue[PRIORITIES.length];
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            heaps[i] = new PriorityQueue<>(Comparator.comparingLong((Place place) -> place.sequence));
+            ranks[i] = new RankTree();
+        }
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    // Takes effect from the next call; recipients already waiting keep their classes
+    public void setPolicy(Policy policy) {
+        this.policy = policy;
+    }
+
+    // How long each parcel has been in the depot, for the OVERDUE class
+    public void setDaysInDepot(ToIntFunction<String> daysInDepot) {
+        this.daysInDepot = daysInDepot;
+    }
+
+    public void setOverdueDays(int overdueDays) {
+        this.overdueDays = overdueDays;
+    }
+
+    // Removals take the scheduler's lock after leaving the queue, so checking under it is enough
+    void add(Customer recipient, BooleanSupplier stillQueued) {
+        Priority priority = classify(recipient, DepotClock.currentTimeMillis());
+        synchronized (this) {
+            if (!stillQueued.getAsBoolean()) {
+                return;
+            }
+            Ticket ticket = new Ticket(recipient);
+            Ticket replaced = tickets.put(recipient.getPackageID(), ticket);
+            if (replaced != null) {
+                leave(replaced);
+            }
+            join(ticket, priority);
+            if (priority != Priority.BOOKED && ticket.slot != 0) {
+                earlyBookings.add(ticket);
+            }
+        }
+    }
+
+    private Priority classify(Customer recipient, long now) {
+        long slot = recipient.getBookedSlot();
+        if (slot != 0 && slot <= now) {
+            return Priority.BOOKED;
+        }
+        if (recipient.needsAssistance()) {
+            return Priority.ASSISTANCE;
+        }
+        if (daysInDepot.applyAsInt(recipient.getPackageID()) >= overdueDays) {
+            return Priority.OVERDUE;
+        }
+        return Priority.STANDARD;
+    }
+
+    // The recipient left the queue; if a counter had called them, their service is over
+    synchronized void remove(Customer recipient) {
+        Ticket ticket = tickets.get(recipient.getPackageID());
+        if (ticket == null || ticket.recipient != recipient) {
+            return;
+        }
+        tickets.remove(recipient.getPackageID());
+        if (ticket.counter >= 0) {
+            Counter counter = counters.get(ticket.counter);
+            long served = Math.max(1, DepotClock.currentTimeMillis() - ticket.calledAt);
+            counter.meanServiceMillis = smooth(counter.meanServiceMillis, served);
+        }
+        leave(ticket);
+    }
+
+    private static double smooth(double mean, long sample) {
+        return mean == 0 ? sample : mean + SMOOTHING * (sample - mean);
+    }
+
+    /**
+     * Calls the next recipient to the given counter, or returns null when nobody is
+     * waiting. The recipient stays queued until they collect or leave.
+     */
+    public synchronized Customer next(int counter) {
+        long now = DepotClock.currentTimeMillis();
+        Counter calling = counters.computeIfAbsent(counter, id -> new Counter());
+        calling.lastCalled = now;
+        Policy current = policy;
+        if (current != Policy.FIFO) {
+            promoteBookings(now);
+        }
+        int chosen = choose(current);
+        if (chosen < 0) {
+            return null;
+        }
+        Ticket ticket = head(chosen).ticket;
+        heaps[chosen].poll();
+        vacate(ticket);
+        ticket.counter = counter;
+        ticket.calledAt = now;
+        if (current == Policy.FAIR_SHARE) {
+            virtualTime = pass[chosen];
+            pass[chosen] += STRIDE / PRIORITIES[chosen].weight;
+        }
+        return ticket.recipient;
+    }
+
+    private int choose(Policy current) {
+        int chosen = -1;
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            if (waiting[i] == 0) {
+                continue;
+            }
+            if (current == Policy.PRIORITY) {
+                return i;
+            }
+            if (chosen < 0 || (current == Policy.FIFO ? head(i).sequence < head(chosen).sequence : pass[i] < pass[chosen])) {
+                chosen = i;
+            }
+        }
+        return chosen;
+    }
+
+    // The first current entry of a class that has someone waiting
+    private Place head(int priority) {
+        PriorityQueue<Place> heap = heaps[priority];
+        while (!heap.peek().isCurrent()) {
+            heap.poll();
+            stale--;
+        }
+        return heap.peek();
+    }
+
+    private void promoteBookings(long now) {
+        while (!earlyBookings.isEmpty() && earlyBookings.peek().slot <= now) {
+            Ticket ticket = earlyBookings.poll();
+            if (ticket.place != null) {
+                leave(ticket);
+                join(ticket, Priority.BOOKED);
+            }
+        }
+    }
+
+    private void join(Ticket ticket, Priority priority) {
+        int i = priority.ordinal();
+        if (waiting[i] == 0) {
+            // A class that was empty does not bank the calls it missed
+            pass[i] = Math.max(pass[i], virtualTime);
+        }
+        Place place = new Place(ticket, priority, ++sequence);
+        ticket.priority = priority;
+        ticket.place = place;
+        heaps[i].add(place);
+        ranks[i].add(place.sequence, 1);
+        waiting[i]++;
+    }
+
+    // Leaves the heap entry behind until it reaches the top or the heaps are swept
+    private void leave(Ticket ticket) {
+        if (vacate(ticket) && ++stale > waitingCount() + 1024) {
+            for (PriorityQueue<Place> heap : heaps) {
+                heap.removeIf(entry -> !entry.isCurrent());
+            }
+            stale = 0;
+        }
+    }
+
+    // False if the ticket was not waiting
+    private boolean vacate(Ticket ticket) {
+        Place place = ticket.place;
+        if (place == null) {
+            return false;
+        }
+        ticket.place = null;
+        int i = place.priority.ordinal();
+        ranks[i].add(place.sequence, -1);
+        waiting[i]--;
+        return true;
+    }
+
+    private int waitingCount() {
+        int total = 0;
+        for (int count : waiting) {
+            total += count;
+        }
+        return total;
+    }
+
+    // Null when nobody is queued for the package
+    public synchronized Priority priorityOf(String packageID) {
+        Ticket ticket = tickets.get(packageID);
+        return ticket == null ? null : ticket.priority;
+    }
+
+    /**
+     * Expected wait in milliseconds before the recipient for a package is called: the
+     * recipients the policy would call first, over the combined service rate of the open
+     * counters. 0 once called; -1 when nobody is queued for the package or no open
+     * counter has timed a service yet.
+     */
+    public synchronized long estimatedWaitMillis(String packageID) {
+        Ticket ticket = tickets.get(packageID);
+        if (ticket == null) {
+            return -1;
+        }
+        if (ticket.place == null) {
+            return 0;
+        }
+        long now = DepotClock.currentTimeMillis();
+        double perMilli = 0;
+        for (Counter counter : counters.values()) {
+            if (counter.meanServiceMillis > 0 && now - counter.lastCalled <= COUNTER_IDLE_MILLIS) {
+                perMilli += 1 / counter.meanServiceMillis;
+            }
+        }
+        return perMilli == 0 ? -1 : Math.round(ahead(ticket.place) / perMilli);
+    }
+
+    // How many waiting recipients the current policy would call before this one
+    private long ahead(Place place) {
+        int own = place.priority.ordinal();
+        long sameClass = ranks[own].countUpTo(place.sequence - 1);
+        long ahead = sameClass;
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            if (i == own) {
+                continue;
+            }
+            switch (policy) {
+                case FIFO:
+                    ahead += ranks[i].countUpTo(place.sequence - 1);
+                    break;
+                case PRIORITY:
+                    ahead += i < own ? waiting[i] : 0;
+                    break;
+                case FAIR_SHARE:
+                    // Other classes get weight / own weight calls for each call of this one
+                    ahead += Math.min(waiting[i], (sameClass + 1) * PRIORITIES[i].weight / PRIORITIES[own].weight);
+                    break;
+            }
+        }
+        return ahead;
+    }
+}
@@ -0,0 +1,337 @@
+package depot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Case-insensitive, typo-tolerant search over recipient names. Each word of a name is
+ * stored in a trie; a search walks the trie with one row of an edit-distance table per
+ * level and drops branches that are already too far from the query, so a misspelt
+ * query still finds the names it is close to without visiting the rest. A word matches
+ * when some prefix of it is within the allowed edits of the query, which is what a
+ * search-as-you-type field needs: "jnoe" finds "Jones".
+ */
+public class RecipientSearchIndex {
+    private static final class Node {
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        // Recipients with a name word ending here
+        Set<Customer> recipients;
+
+        Node child(char key) {
+            int at = Arrays.binarySearch(keys, key);
+            return at >= 0 ? children[at] : null;
+        }
+
+        Node addChild(char key) {
+            int at = Arrays.binarySearch(keys, key);
+            if (at >= 0) {
+                return children[at];
+            }
+            at = -at - 1;
+            Node child = new Node();
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            System.arraycopy(keys, at, keys, at + 1, keys.length - at - 1);
+            System.arraycopy(children, at, children, at + 1, children.length - at - 1);
+            keys[at] = key;
+            children[at] = child;
+            return child;
+        }
+
+        void removeChild(char key) {
+            int at = Arrays.binarySearch(keys, key);
+            if (at < 0) {
+                return;
+            }
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, at);
+            System.arraycopy(keys, at + 1, newKeys, at, newKeys.length - at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            System.arraycopy(children, at + 1, newChildren, at, newChildren.length - at);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        boolean isEmpty() {
+            return keys.length == 0 && (recipients == null || recipients.isEmpty());
+        }
+    }
+
+    private final Node root = new Node();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void add(Customer recipient) {
+        lock.writeLock().lock();
+        try {
+            for (String word : words(recipient.getSurname())) {
+                Node node = root;
+                for (int i = 0; i < word.length(); i++) {
+                    node = node.addChild(word.charAt(i));
+                }
+                if (node.recipients == null) {
+                    node.recipients = new LinkedHashSet<>(2);
+                }
+                node.recipients.add(recipient);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Customer recipient) {
+        lock.writeLock().lock();
+        try {
+            for (String word : words(recipient.getSurname())) {
+                Node[] path = new Node[word.length() + 1];
+                path[0] = root;
+                for (int i = 0; i < word.length() && path[i] != null; i++) {
+                    path[i + 1] = path[i].child(word.charAt(i));
+                }
+                Node node = path[word.length()];
+                if (node == null || node.recipients == null || !node.recipients.remove(recipient)) {
+                    continue;
+                }
+                // Prune the branch back to the last node still in use
+                for (int i = word.length(); i > 0 && path[i].isEmpty(); i--) {
+                    path[i - 1].removeChild(word.charAt(i - 1));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Recipients whose name has a word starting with, or within a typo or two of
+     * starting with, each word of the query. Closer matches come first, then recipients
+     * by sequence number, which is arrival order. A one-word query stops collecting at
+     * a distance once limit recipients are at least that close, so when more match,
+     * the ones returned are those with the alphabetically first name words.
+     */
+    public List<Customer> search(String query, int limit) {
+        List<String> queryWords = words(query);
+        if (queryWords.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            // Other query words filter the lead word's matches, so those cannot be cut short
+            int wanted = queryWords.size() == 1 ? limit : Integer.MAX_VALUE;
+            List<Matches> matches = new ArrayList<>(queryWords.size());
+            int lead = 0;
+            for (String word : queryWords) {
+                Matches found = match(word, wanted);
+                // The word matching fewest recipients drives; the others filter it
+                if (matches.isEmpty() || found.count() < matches.get(lead).count()) {
+                    lead = matches.size();
+                }
+                matches.add(found);
+            }
+
+            List<String> otherWords = new ArrayList<>(queryWords);
+            otherWords.remove(lead);
+
+            Set<Customer> results = new LinkedHashSet<>();
+            for (Set<Customer> atDistance : matches.get(lead).byDistance) {
+                List<Customer> inArrivalOrder = new ArrayList<>(atDistance);
+                inArrivalOrder.sort(Comparator.comparingInt(Customer::getSequenceNumber));
+                for (Customer recipient : inArrivalOrder) {
+                    if (results.size() >= limit) {
+                        return new ArrayList<>(results);
+                    }
+                    if (otherWords.isEmpty() || matchesAll(recipient, otherWords)) {
+                        results.add(recipient);
+                    }
+                }
+            }
+            return new ArrayList<>(results);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Recipients matching one query word, by edit distance, each counted once at the
+     * closest distance however many of their name words match. Once wanted recipients are within some distance,
+     * farther ones could never be returned, so maxEdits shrinks and the walk prunes
+     * more; with wanted exact matches it stops.
+     */
+    private static final class Matches {
+        final List<Set<Customer>> byDistance = new ArrayList<>();
+        final int wanted;
+        int maxEdits;
+
+        Matches(int maxEdits, int wanted) {
+            this.maxEdits = maxEdits;
+            this.wanted = wanted;
+            for (int d = 0; d <= maxEdits; d++) {
+                byDistance.add(new HashSet<>());
+            }
+        }
+
+        void add(int distance, Set<Customer> recipients) {
+            Set<Customer> atDistance = byDistance.get(distance);
+            for (Customer recipient : recipients) {
+                if (atDistance.size() >= wanted) {
+                    break;
+                }
+                if (isCloserThan(recipient, distance) || !atDistance.add(recipient)) {
+                    continue;
+                }
+                for (int d = distance + 1; d < byDistance.size(); d++) {
+                    byDistance.get(d).remove(recipient);
+                }
+            }
+            long closer = 0;
+            for (int d = 0; d < maxEdits; d++) {
+                closer += byDistance.get(d).size();
+                if (closer >= wanted) {
+                    maxEdits = d;
+                    break;
+                }
+            }
+        }
+
+        private boolean isCloserThan(Customer recipient, int distance) {
+            for (int d = 0; d < distance; d++) {
+                if (byDistance.get(d).contains(recipient)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean isDone() {
+            return byDistance.get(0).size() >= wanted;
+        }
+
+        long count() {
+            long count = 0;
+            for (Set<Customer> atDistance : byDistance) {
+                count += atDistance.size();
+            }
+            return count;
+        }
+    }
+
+    private Matches match(String word, int wanted) {
+        Matches matches = new Matches(maxEdits(word), wanted);
+        int[] firstRow = new int[word.length() + 1];
+        for (int j = 0; j <= word.length(); j++) {
+            firstRow[j] = j;
+        }
+        walk(root, (char) 0, word, null, firstRow, Integer.MAX_VALUE, matches);
+        return matches;
+    }
+
+    /*
+     * Depth-first walk computing one edit-distance row per trie level. row[j] is the
+     * distance between the first j query characters and the word prefix ending at this
+     * node; transpositions of neighbouring characters count as one edit. best is the
+     * closest any prefix on the path so far came to the whole query.
+     */
+    private void walk(Node node, char key, String query, int[] previousRow, int[] row, int best, Matches matches) {
+        best = Math.min(best, row[query.length()]);
+        if (best <= matches.maxEdits && node.recipients != null && !node.recipients.isEmpty()) {
+            matches.add(best, node.recipients);
+        }
+        int rowMin = Integer.MAX_VALUE;
+        for (int value : row) {
+            rowMin = Math.min(rowMin, value);
+        }
+        for (int c = 0; c < node.keys.length && !matches.isDone(); c++) {
+            char childKey = node.keys[c];
+            if (rowMin > matches.maxEdits) {
+                // No extension can get closer; the subtree matches at best or not at all
+                if (best <= matches.maxEdits) {
+                    walk(node.children[c], childKey, query, row, row, best, matches);
+                }
+                continue;
+            }
+            int[] next = new int[row.length];
+            next[0] = row[0] + 1;
+            for (int j = 1; j < row.length; j++) {
+                int cost = query.charAt(j - 1) == childKey ? 0 : 1;
+                next[j] = Math.min(Math.min(next[j - 1] + 1, row[j] + 1), row[j - 1] + cost);
+                if (previousRow != null && j > 1 && query.charAt(j - 1) == key
+                        && query.charAt(j - 2) == childKey) {
+                    next[j] = Math.min(next[j], previousRow[j - 2] + 1);
+                }
+            }
+            walk(node.children[c], childKey, query, row, next, best, matches);
+        }
+    }
+
+    private static boolean matchesAll(Customer recipient, List<String> queryWords) {
+        List<String> nameWords = words(recipient.getSurname());
+        for (String queryWord : queryWords) {
+            boolean found = false;
+            for (String nameWord : nameWords) {
+                if (prefixDistance(queryWord, nameWord) <= maxEdits(queryWord)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Smallest edit distance between the query and any prefix of the word, as walk computes it
+    private static int prefixDistance(String query, String word) {
+        int[] previousRow = null;
+        int[] row = new int[query.length() + 1];
+        for (int j = 0; j <= query.length(); j++) {
+            row[j] = j;
+        }
+        int best = row[query.length()];
+        for (int i = 0; i < word.length(); i++) {
+            int[] next = new int[row.length];
+            next[0] = i + 1;
+            for (int j = 1; j < row.length; j++) {
+                int cost = query.charAt(j - 1) == word.charAt(i) ? 0 : 1;
+                next[j] = Math.min(Math.min(next[j - 1] + 1, row[j] + 1), row[j - 1] + cost);
+                if (previousRow != null && j > 1 && query.charAt(j - 1) == word.charAt(i - 1)
+                        && query.charAt(j - 2) == word.charAt(i)) {
+                    next[j] = Math.min(next[j], previousRow[j - 2] + 1);
+                }
+            }
+            previousRow = row;
+            row = next;
+            best = Math.min(best, row[query.length()]);
+        }
+        return best;
+    }
+
+    // Short queries must match exactly, or almost everything would be a match
+    private static int maxEdits(String word) {
+        return word.length() <= 2 ? 0 : word.length() <= 5 ? 1 : 2;
+    }
+
+    // Lower-case words split on whitespace, without a regex
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>(2);
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean space = i == text.length() || Character.isWhitespace(text.charAt(i));
+            if (space && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            } else if (!space && start < 0) {
+                start = i;
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,673 @@
+package depot;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Record of released parcels, replacing the free-form released.csv. Rows go into
+ * rolling segment files of SEGMENT_ROWS rows each; every segment has an index file
+ * (byte offset, package ID, date, charge, recipient) and a small summary kept in
+ * memory, so lookups by package ID, recipient or date read only the index files of
+ * segments that may match. aggregates.properties keeps the running totals per day and
+ * is read on startup, so "how much did we take today" never scans history. Full reads
+ * stream across segments in order.
+ */
+public class ReleaseLedger {
+    private static final String LEDGER_DIR = "ledger";
+    private static final String LEGACY_FILE = "released.csv";
+    private static final String AGGREGATES_FILE = "aggregates.properties";
+    private static final String REJECTED_FILE = "released-rejected.csv";
+    private static final int SEGMENT_ROWS = 100_000;
+    // Rows appended between rewrites of the aggregates sidecar; opening catches up on the rest
+    private static final int AGGREGATES_EVERY_ROWS = 1000;
+    // About 10 bits per key for a package ID and a recipient per row: a 1% false-positive rate
+    private static final int FILTER_BITS = SEGMENT_ROWS * 2 * 10;
+    private static final int FILTER_HASHES = 7;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    public static class Entry {
+        private final Instant releasedAt;
+        private final String recipient;
+        private final String packageID;
+        private final float massKg;
+        private final String measurementSpec;
+        private final String deliveryState;
+        private final long chargePence;
+
+        public Entry(Instant releasedAt, String recipient, String packageID, float massKg,
+                     String measurementSpec, String deliveryState, long chargePence) {
+            this.releasedAt = releasedAt;
+            this.recipient = recipient;
+            this.packageID = packageID;
+            this.massKg = massKg;
+            this.measurementSpec = measurementSpec;
+            this.deliveryState = deliveryState;
+            this.chargePence = chargePence;
+        }
+
+        // Null for rows imported from released.csv, which carried no date
+        public Instant getReleasedAt() { return releasedAt; }
+        public String getRecipient() { return recipient; }
+        public String getPackageID() { return packageID; }
+        public float getMassKg() { return massKg; }
+        public String getMeasurementSpec() { return measurementSpec; }
+        public String getDeliveryState() { return deliveryState; }
+        public long getChargePence() { return chargePence; }
+
+        @Override
+        public String toString() {
+            return String.format("Released[Date=%s, Recipient=%s, PackageID=%s, Mass=%.2f, Measurements=%s, Charge=£%d.%02d]",
+                releasedAt == null ? "unknown" : releasedAt, recipient, packageID, massKg, measurementSpec,
+                chargePence / 100, chargePence % 100);
+        }
+    }
+
+    // Where a row lives in the segment files
+    private static class Location {
+        final int segment;
+        final long offset;
+
+        Location(int segment, long offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+
+    private static class DayTotal {
+        long count;
+        long revenuePence;
+    }
+
+    /**
+     * All the ledger holds of a segment in memory: a Bloom filter over its package IDs
+     * and recipients and the range of its release dates, so a lookup only reads the
+     * index files of segments that may hold a match. It is kept in a .sum file next to
+     * the index, written when the segment fills up and on close, and says how much of
+     * the index it covers, so opening only reads index rows added after it was written.
+     */
+    private static class SegmentSummary {
+        private final long[] filter = new long[FILTER_BITS / 64];
+        private LocalDate firstDate;
+        private LocalDate lastDate;
+        private int rows;
+        private long indexBytes;
+
+        void add(String packageID, String recipient, LocalDate date) {
+            rows++;
+            set(packageKey(packageID));
+            set(recipientKey(recipient));
+            if (date != null) {
+                firstDate = firstDate == null || date.isBefore(firstDate) ? date : firstDate;
+                lastDate = lastDate == null || date.isAfter(lastDate) ? date : lastDate;
+            }
+        }
+
+        boolean mayContain(String key) {
+            long hash = hash(key);
+            for (int i = 0; i < FILTER_HASHES; i++) {
+                int bit = bitOf(hash, i);
+                if ((filter[bit >>> 6] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean mayContain(LocalDate date) {
+            return firstDate != null && !date.isBefore(firstDate) && !date.isAfter(lastDate);
+        }
+
+        private void set(String key) {
+            long hash = hash(key);
+            for (int i = 0; i < FILTER_HASHES; i++) {
+                int bit = bitOf(hash, i);
+                filter[bit >>> 6] |= 1L << bit;
+            }
+        }
+
+        // Double hashing: the i-th probe is h1 + i * h2, from the two halves of one 64-bit hash
+        private static int bitOf(long hash, int i) {
+            return Math.floorMod((int) hash + i * (int) (hash >>> 32), FILTER_BITS);
+        }
+
+        // FNV-1a, then the MurmurHash3 finaliser so both halves are well mixed
+        private static long hash(String key) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                h = (h ^ key.charAt(i)) * 0x100000001b3L;
+            }
+            h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+            h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+            return h ^ (h >>> 33);
+        }
+
+        void write(Path file) throws IOException {
+            Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(FILTER_BITS);
+                out.writeInt(rows);
+                out.writeLong(indexBytes);
+                out.writeLong(firstDate == null ? NO_DATE : firstDate.toEpochDay());
+                out.writeLong(lastDate == null ? NO_DATE : lastDate.toEpochDay());
+                for (long word : filter) {
+                    out.writeLong(word);
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        // Empty when the file is missing or was written with another filter size
+        static SegmentSummary read(Path file) throws IOException {
+            if (!Files.exists(file)) {
+                return new SegmentSummary();
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (in.readInt() != FILTER_BITS) {
+                    return new SegmentSummary();
+                }
+                SegmentSummary summary = new SegmentSummary();
+                summary.rows = in.readInt();
+                summary.indexBytes = in.readLong();
+                long first = in.readLong();
+                long last = in.readLong();
+                summary.firstDate = first == NO_DATE ? null : LocalDate.ofEpochDay(first);
+                summary.lastDate = last == NO_DATE ? null : LocalDate.ofEpochDay(last);
+                for (int i = 0; i < summary.filter.length; i++) {
+                    summary.filter[i] = in.readLong();
+                }
+                return summary;
+            } catch (EOFException ex) {
+                return new SegmentSummary();
+            }
+        }
+    }
+
+    private final Path directory;
+    private final ZoneId zone = ZoneId.systemDefault();
+    // One per segment, the current one last
+    private final List<SegmentSummary> segments = new ArrayList<>();
+    private final Map<LocalDate, DayTotal> dayTotals = new TreeMap<>();
+    private long totalCount;
+    private long totalRevenuePence;
+    private int currentSegment;
+    private long currentSegmentLength;
+    // Appended since aggregates.properties was last written
+    private int rowsSinceAggregates;
+
+    public ReleaseLedger() throws IOException {
+        this(Paths.get(LEDGER_DIR));
+    }
+
+    public ReleaseLedger(Path directory) throws IOException {
+        this.directory = directory;
+        boolean created = !Files.isDirectory(directory);
+        Files.createDirectories(directory);
+        open();
+        if (created && Files.exists(Paths.get(LEGACY_FILE))) {
+            importLegacy(Paths.get(LEGACY_FILE));
+        }
+    }
+
+    public synchronized void append(Entry entry) throws IOException {
+        append(List.of(entry));
+    }
+
+    // One data write and one index write per segment the list spans
+    public synchronized void append(List<Entry> entries) throws IOException {
+        int start = 0;
+        while (start < entries.size()) {
+            if (currentSegment == 0 || currentSummary().rows >= SEGMENT_ROWS) {
+                if (currentSegment > 0) {
+                    currentSummary().write(summaryFile(currentSegment));
+                }
+                currentSegment++;
+                currentSegmentLength = 0;
+                segments.add(new SegmentSummary());
+            }
+            int end = Math.min(entries.size(), start + SEGMENT_ROWS - currentSummary().rows);
+            writeToCurrentSegment(entries.subList(start, end));
+            start = end;
+        }
+        rowsSinceAggregates += entries.size();
+        if (rowsSinceAggregates >= AGGREGATES_EVERY_ROWS) {
+            writeAggregates();
+        }
+    }
+
+    private void writeToCurrentSegment(List<Entry> entries) throws IOException {
+        StringBuilder data = new StringBuilder();
+        StringBuilder index = new StringBuilder();
+        long offset = currentSegmentLength;
+        SegmentSummary summary = currentSummary();
+        for (Entry entry : entries) {
+            String row = formatRow(entry) + "\n";
+            LocalDate date = entry.releasedAt == null ? null : entry.releasedAt.atZone(zone).toLocalDate();
+            data.append(row);
+            index.append(offset).append(',').append(escape(entry.packageID)).append(',')
+                 .append(date == null ? "" : date.toString()).append(',')
+                 .append(entry.chargePence).append(',').append(escape(entry.recipient)).append('\n');
+            summary.add(entry.packageID, entry.recipient, date);
+            addToTotals(date, entry.chargePence);
+            offset += row.getBytes(StandardCharsets.UTF_8).length;
+        }
+        byte[] indexBytes = index.toString().getBytes(StandardCharsets.UTF_8);
+        Files.write(dataFile(currentSegment), data.toString().getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        Files.write(indexFile(currentSegment), indexBytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        currentSegmentLength = offset;
+        summary.indexBytes += indexBytes.length;
+    }
+
+    private SegmentSummary currentSummary() {
+        return segments.get(segments.size() - 1);
+    }
+
+    public synchronized List<Entry> findByPackageID(String packageID) throws IOException {
+        String key = packageKey(packageID);
+        return read(find(summary -> summary.mayContain(key), fields -> unescape(fields[1]).equals(packageID), false));
+    }
+
+    public synchronized boolean wasReleased(String packageID) throws IOException {
+        String key = packageKey(packageID);
+        return !find(summary -> summary.mayContain(key), fields -> unescape(fields[1]).equals(packageID), true).isEmpty();
+    }
+
+    public synchronized List<Entry> findByRecipient(String recipient) throws IOException {
+        String key = recipientKey(recipient);
+        return read(find(summary -> summary.mayContain(key),
+            fields -> unescape(fields[4]).equalsIgnoreCase(recipient), false));
+    }
+
+    public synchronized List<Entry> findByDate(LocalDate date) throws IOException {
+        String day = date.toString();
+        return read(find(summary -> summary.mayContain(date), fields -> fields[2].equals(day), false));
+    }
+
+    // Reads the index files of the segments whose summary may hold a match, oldest first
+    private List<Location> find(Predicate<SegmentSummary> mayHold, Predicate<String[]> matches,
+                                boolean firstOnly) throws IOException {
+        List<Location> locations = new ArrayList<>();
+        for (int segment = 1; segment <= currentSegment; segment++) {
+            if (!mayHold.test(segments.get(segment - 1))) {
+                continue;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(indexFile(segment), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split(",", 5);
+                    if (matches.test(fields)) {
+                        locations.add(new Location(segment, Long.parseLong(fields[0])));
+                        if (firstOnly) {
+                            return locations;
+                        }
+                    }
+                }
+            }
+        }
+        return locations;
+    }
+
+    public synchronized long getCount(LocalDate date) {
+        DayTotal total = dayTotals.get(date);
+        return total == null ? 0 : total.count;
+    }
+
+    public synchronized long getRevenuePence(LocalDate date) {
+        DayTotal total = dayTotals.get(date);
+        return total == null ? 0 : total.revenuePence;
+    }
+
+    public synchronized long getAverageChargePence(LocalDate date) {
+        long count = getCount(date);
+        return count == 0 ? 0 : Math.round((double) getRevenuePence(date) / count);
+    }
+
+    public synchronized long getTotalCount() { return totalCount; }
+    public synchronized long getTotalRevenuePence() { return totalRevenuePence; }
+
+    public LocalDate today() {
+        return Instant.ofEpochMilli(DepotClock.currentTimeMillis()).atZone(zone).toLocalDate();
+    }
+
+    // Every row, oldest first, read one segment at a time
+    public Stream<Entry> stream() {
+        int lastSegment;
+        synchronized (this) {
+            lastSegment = currentSegment;
+        }
+        return Stream.iterate(1, segment -> segment <= lastSegment, segment -> segment + 1)
+            .flatMap(segment -> {
+                try {
+                    Stream<String> lines = Files.lines(dataFile(segment), StandardCharsets.UTF_8);
+                    return lines.map(ReleaseLedger::parseRow).onClose(lines::close);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+    }
+
+    // The newest rows, newest first, reading back only as many segments as they span
+    public List<Entry> latest(int limit) throws IOException {
+        List<Integer> rowCounts = new ArrayList<>();
+        synchronized (this) {
+            for (SegmentSummary summary : segments) {
+                rowCounts.add(summary.rows);
+            }
+        }
+        List<Entry> entries = new ArrayList<>(limit);
+        for (int segment = rowCounts.size(); segment >= 1 && entries.size() < limit; segment--) {
+            int wanted = limit - entries.size();
+            Deque<String> lastLines = new ArrayDeque<>(wanted);
+            try (Stream<String> lines = Files.lines(dataFile(segment), StandardCharsets.UTF_8)) {
+                lines.skip(Math.max(0, rowCounts.get(segment - 1) - wanted)).forEach(line -> {
+                    if (lastLines.size() == wanted) {
+                        lastLines.removeFirst();
+                    }
+                    lastLines.addLast(line);
+                });
+            }
+            lastLines.descendingIterator().forEachRemaining(line -> entries.add(parseRow(line)));
+        }
+        return entries;
+    }
+
+    // Writes the running totals and the current segment's summary out, so the next start reads no rows
+    public synchronized void close() throws IOException {
+        if (currentSegment > 0) {
+            currentSummary().write(summaryFile(currentSegment));
+        }
+        if (rowsSinceAggregates > 0) {
+            writeAggregates();
+        }
+    }
+
+    private List<Entry> read(List<Location> locations) throws IOException {
+        List<Entry> entries = new ArrayList<>(locations.size());
+        RandomAccessFile file = null;
+        int openSegment = -1;
+        try {
+            for (Location location : locations) {
+                if (location.segment != openSegment) {
+                    if (file != null) {
+                        file.close();
+                    }
+                    file = new RandomAccessFile(dataFile(location.segment).toFile(), "r");
+                    openSegment = location.segment;
+                }
+                file.seek(location.offset);
+                String line = file.readLine();
+                entries.add(parseRow(new String(line.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8)));
+            }
+        } finally {
+            if (file != null) {
+                file.close();
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Takes the totals from aggregates.properties and each segment's summary from its
+     * .sum file, then reads only the index rows one of them does not cover yet: none
+     * after a clean shutdown, the rows since the last write after a crash, and all of
+     * them when a file is missing.
+     */
+    private void open() throws IOException {
+        while (Files.exists(indexFile(currentSegment + 1))) {
+            currentSegment++;
+        }
+        long[] covered = readAggregates();
+        boolean caughtUp = false;
+        for (int segment = 1; segment <= currentSegment; segment++) {
+            Path indexFile = indexFile(segment);
+            long size = Files.size(indexFile);
+            SegmentSummary summary = SegmentSummary.read(summaryFile(segment));
+            if (summary.indexBytes > size) {
+                summary = new SegmentSummary();
+            }
+            long summarised = summary.indexBytes;
+            long totalled = segment < covered[0] ? size : segment == covered[0] ? covered[1] : 0;
+            long offset = Math.min(summarised, totalled);
+            if (offset < size) {
+                try (InputStream in = Files.newInputStream(indexFile)) {
+                    in.skipNBytes(offset);
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] fields = line.split(",", 5);
+                        LocalDate date = fields[2].isEmpty() ? null : LocalDate.parse(fields[2]);
+                        if (offset >= summarised) {
+                            summary.add(unescape(fields[1]), unescape(fields[4]), date);
+                        }
+                        if (offset >= totalled) {
+                            addToTotals(date, Long.parseLong(fields[3]));
+                            caughtUp = true;
+                        }
+                        offset += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                    }
+                }
+                summary.indexBytes = offset;
+                if (summarised < offset) {
+                    summary.write(summaryFile(segment));
+                }
+            }
+            segments.add(summary);
+        }
+        if (currentSegment > 0) {
+            currentSegmentLength = Files.size(dataFile(currentSegment));
+        }
+        if (caughtUp) {
+            writeAggregates();
+        }
+    }
+
+    private void addToTotals(LocalDate date, long chargePence) {
+        totalCount++;
+        totalRevenuePence += chargePence;
+        if (date != null) {
+            DayTotal total = dayTotals.computeIfAbsent(date, key -> new DayTotal());
+            total.count++;
+            total.revenuePence += chargePence;
+        }
+    }
+
+    // The segment and index byte up to which the loaded totals count; {0, 0} without a usable sidecar
+    private long[] readAggregates() {
+        Path file = directory.resolve(AGGREGATES_FILE);
+        if (!Files.exists(file)) {
+            return new long[] {0, 0};
+        }
+        Properties sidecar = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            sidecar.load(reader);
+            long[] covered = {Long.parseLong(sidecar.getProperty("covered.segment")),
+                Long.parseLong(sidecar.getProperty("covered.indexBytes"))};
+            totalCount = Long.parseLong(sidecar.getProperty("total.count"));
+            totalRevenuePence = Long.parseLong(sidecar.getProperty("total.revenuePence"));
+            for (String name : sidecar.stringPropertyNames()) {
+                if (name.startsWith("day.") && name.endsWith(".count")) {
+                    String day = name.substring("day.".length(), name.length() - ".count".length());
+                    DayTotal total = dayTotals.computeIfAbsent(LocalDate.parse(day), key -> new DayTotal());
+                    total.count = Long.parseLong(sidecar.getProperty(name));
+                    total.revenuePence = Long.parseLong(sidecar.getProperty("day." + day + ".revenuePence"));
+                }
+            }
+            return covered;
+        } catch (IOException | RuntimeException ex) {
+            // Rebuilt from the index files instead
+            EventLogger.getInstance().logEvent("Ignoring unreadable " + AGGREGATES_FILE + ": " + ex.getMessage());
+            totalCount = 0;
+            totalRevenuePence = 0;
+            dayTotals.clear();
+            return new long[] {0, 0};
+        }
+    }
+
+    private void writeAggregates() throws IOException {
+        StringBuilder out = new StringBuilder();
+        out.append("covered.segment=").append(currentSegment).append('\n');
+        out.append("covered.indexBytes=").append(currentSegment == 0 ? 0 : currentSummary().indexBytes).append('\n');
+        out.append("total.count=").append(totalCount).append('\n');
+        out.append("total.revenuePence=").append(totalRevenuePence).append('\n');
+        for (Map.Entry<LocalDate, DayTotal> day : dayTotals.entrySet()) {
+            out.append("day.").append(day.getKey()).append(".count=").append(day.getValue().count).append('\n');
+            out.append("day.").append(day.getKey()).append(".revenuePence=").append(day.getValue().revenuePence).append('\n');
+        }
+        Path tempFile = directory.resolve(AGGREGATES_FILE + ".tmp");
+        Files.write(tempFile, out.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(tempFile, directory.resolve(AGGREGATES_FILE),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        rowsSinceAggregates = 0;
+    }
+
+    /**
+     * Brings over released.csv rows once. Charges in pounds ("£12.00" or a bare
+     * "12.00") are imported. A row with no charge would count as a free release in the
+     * revenue and averages, and the ledger only holds pence, so a row charged in another
+     * currency, such as "$70.0", is not converted either; both are left out and reported,
+     * and copied with the other rejected rows to released-rejected.csv in the ledger
+     * directory. The rows had no release date, so none is recorded.
+     */
+    private void importLegacy(Path legacyFile) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        List<String> rejected = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(legacyFile, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            String problem = null;
+            String[] fields = line.split(",");
+            float mass = 0;
+            long charge = 0;
+            if (fields.length < 5) {
+                problem = "expected at least 5 fields, found " + fields.length;
+            } else {
+                try {
+                    mass = Float.parseFloat(fields[2].trim());
+                } catch (NumberFormatException ex) {
+                    problem = "invalid mass";
+                }
+            }
+            if (problem == null) {
+                String amount = fields.length > 5 ? fields[5].trim() : "";
+                if (amount.startsWith("£")) {
+                    amount = amount.substring(1).trim();
+                }
+                if (amount.isEmpty()) {
+                    problem = "no charge";
+                } else {
+                    try {
+                        charge = Math.round(Double.parseDouble(amount) * 100);
+                    } catch (NumberFormatException ex) {
+                        problem = "charge not in pounds: " + fields[5].trim();
+                    }
+                }
+            }
+            if (problem != null) {
+                rejected.add(line);
+                String message = "Not imported from " + legacyFile + ", line " + lineNumber + ": " + problem;
+                System.err.println(message);
+                EventLogger.getInstance().logEvent(message);
+                continue;
+            }
+            entries.add(new Entry(null, fields[0].trim(), fields[1].trim(), mass, fields[3].trim(),
+                fields[4].trim(), charge));
+        }
+        if (!rejected.isEmpty()) {
+            Files.write(directory.resolve(REJECTED_FILE), rejected, StandardCharsets.UTF_8);
+        }
+        if (!entries.isEmpty()) {
+            append(entries);
+        }
+    }
+
+    private static String formatRow(Entry entry) {
+        return (entry.releasedAt == null ? "" : entry.releasedAt.toString()) + "," + escape(entry.recipient) + ","
+            + escape(entry.packageID) + "," + entry.massKg + "," + escape(entry.measurementSpec) + ","
+            + escape(entry.deliveryState) + "," + entry.chargePence / 100 + "." + String.format("%02d", entry.chargePence % 100);
+    }
+
+    private static Entry parseRow(String line) {
+        String[] fields = line.split(",");
+        String[] amount = fields[6].split("\\.");
+        long charge = Long.parseLong(amount[0]) * 100 + Long.parseLong(amount[1]);
+        return new Entry(fields[0].isEmpty() ? null : Instant.parse(fields[0]), unescape(fields[1]), unescape(fields[2]),
+            Float.parseFloat(fields[3]), unescape(fields[4]), unescape(fields[5]), charge);
+    }
+
+    /*
+     * Rows and index lines are split on commas and read a line at a time, so commas and
+     * line breaks in a field are written as %2C, %0A and %0D, and % itself as %25. Fields
+     * without them, which is every row from before, are written and read unchanged.
+     */
+    private static String escape(String field) {
+        if (field == null) {
+            return "";
+        }
+        StringBuilder escaped = null;
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            String code = c == '%' ? "%25" : c == ',' ? "%2C" : c == '\n' ? "%0A" : c == '\r' ? "%0D" : null;
+            if (code != null && escaped == null) {
+                escaped = new StringBuilder(field.length() + 8).append(field, 0, i);
+            }
+            if (escaped != null) {
+                if (code != null) {
+                    escaped.append(code);
+                } else {
+                    escaped.append(c);
+                }
+            }
+        }
+        return escaped == null ? field : escaped.toString();
+    }
+
+    private static String unescape(String field) {
+        if (field.indexOf('%') < 0) {
+            return field;
+        }
+        StringBuilder plain = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            String code = c == '%' && i + 3 <= field.length() ? field.substring(i, i + 3) : "";
+            switch (code) {
+                case "%25": plain.append('%'); i += 2; break;
+                case "%2C": plain.append(','); i += 2; break;
+                case "%0A": plain.append('\n'); i += 2; break;
+                case "%0D": plain.append('\r'); i += 2; break;
+                default: plain.append(c);
+            }
+        }
+        return plain.toString();
+    }
+
+    private Path dataFile(int segment) {
+        return directory.resolve(String.format("released-%05d.csv", segment));
+    }
+
+    private Path indexFile(int segment) {
+        return directory.resolve(String.format("released-%05d.idx", segment));
+    }
+
+    private Path summaryFile(int segment) {
+        return directory.resolve(String.format("released-%05d.sum", segment));
+    }
+
+    // Package IDs and recipients share each segment's filter, so their keys are kept apart
+    private static String packageKey(String packageID) {
+        return "p" + packageID;
+    }
+
+    private static String recipientKey(String recipient) {
+        return "r" + recipient.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,219 @@
+package depot;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Collection charge rules compiled into flat tables. A rule file lists weight bands
+ * and dwell-time tiers ("from:fee:rate" entries), an optional volumetric divisor,
+ * surcharges, a minimum and a cap (see tariff.properties). Money is held as integer
+ * micro-pounds and a quote is summed in thousandths of those, so the weight charge
+ * needs no rounding of its own; quoting never allocates, and only the total is rounded,
+ * exactly like BigDecimal HALF_UP to whole pence, negative totals included. The fixed
+ * part of every (weight band, duration tier) pair is precomputed, so a quote is two
+ * table lookups and a few multiplications.
+ */
+public class Tariff {
+    public static final String TARIFF_FILE = "tariff.properties";
+    private static final long MICROS = 1_000_000L;
+    private static final long MICROS_PER_PENNY = 10_000L;
+    // A rate per kg times grams is in thousandths of a micro-pound
+    private static final long PER_MICRO = 1000L;
+
+    private final long[] bandFromGrams;
+    private final long[] bandRateMicrosPerKg;
+    private final int[] tierFromDays;
+    private final long[] tierRateMicrosPerDay;
+    // base + band fee + tier fee, for every band/tier pair
+    private final long[][] fixedMicros;
+    private final long volumetricDivisor;
+    private final int oversizeSide;
+    private final long oversizeMicros;
+    private final long heavyGrams;
+    private final long heavyMicros;
+    private final long minimumMicros;
+    private final long capMicros;
+
+    private Tariff(Properties rules) {
+        long base = money(rules, "base", "12.50");
+        long[][] bands = entries(rules, "weight.bands", "0:0.00:0.75");
+        long[][] tiers = entries(rules, "duration.tiers", "0:0.00:1.25");
+
+        bandFromGrams = new long[bands.length];
+        bandRateMicrosPerKg = new long[bands.length];
+        for (int i = 0; i < bands.length; i++) {
+            bandFromGrams[i] = bands[i][0] / 1000;
+            bandRateMicrosPerKg[i] = bands[i][2];
+        }
+        tierFromDays = new int[tiers.length];
+        tierRateMicrosPerDay = new long[tiers.length];
+        for (int i = 0; i < tiers.length; i++) {
+            tierFromDays[i] = (int) (tiers[i][0] / MICROS);
+            tierRateMicrosPerDay[i] = tiers[i][2];
+        }
+        fixedMicros = new long[bands.length][tiers.length];
+        for (int b = 0; b < bands.length; b++) {
+            for (int t = 0; t < tiers.length; t++) {
+                fixedMicros[b][t] = base + bands[b][1] + tiers[t][1];
+            }
+        }
+
+        volumetricDivisor = Long.parseLong(rules.getProperty("volumetric.divisor", "0").trim());
+        oversizeSide = Integer.parseInt(rules.getProperty("surcharge.oversize.side", "0").trim());
+        oversizeMicros = money(rules, "surcharge.oversize.amount", "0");
+        heavyGrams = money(rules, "surcharge.heavy.weight", "0") / 1000;
+        heavyMicros = money(rules, "surcharge.heavy.amount", "0");
+        minimumMicros = money(rules, "minimum", "0");
+        capMicros = money(rules, "cap", "0");
+    }
+
+    // The original formula: £12.50 + £0.75 per kg + £1.25 per day
+    public static Tariff defaults() {
+        return new Tariff(new Properties());
+    }
+
+    public static Tariff fromProperties(Properties rules) {
+        return new Tariff(rules);
+    }
+
+    public static Tariff load(String filename) throws IOException {
+        Properties rules = new Properties();
+        try (InputStream in = new FileInputStream(filename)) {
+            rules.load(in);
+        }
+        return new Tariff(rules);
+    }
+
+    // tariff.properties from the working directory when present, otherwise the defaults
+    public static Tariff loadDefault() {
+        if (!new java.io.File(TARIFF_FILE).exists()) {
+            return defaults();
+        }
+        try {
+            return load(TARIFF_FILE);
+        } catch (IOException | IllegalArgumentException ex) {
+            System.err.println("Invalid tariff file, using default charges: " + ex.getMessage());
+            EventLogger.getInstance().logEvent("Failed to load tariff, using defaults: " + ex.getMessage());
+            return defaults();
+        }
+    }
+
+    public long quotePence(Parcel parcel) {
+        String spec = parcel.getMeasurementSpec();
+        long grams = Math.round(parcel.getMassKg() * 1000.0);
+        boolean oversize = false;
+        if (volumetricDivisor > 0 || oversizeSide > 0) {
+            long volume = 1;
+            int longestSide = 0;
+            int side = 0;
+            int sides = 0;
+            for (int i = 0; i <= spec.length(); i++) {
+                char c = i < spec.length() ? spec.charAt(i) : 'x';
+                if (c >= '0' && c <= '9') {
+                    side = side * 10 + (c - '0');
+                } else if (c == 'x' || c == ' ') {
+                    if (i > 0 && spec.charAt(i - 1) >= '0' && spec.charAt(i - 1) <= '9') {
+                        volume *= side;
+                        longestSide = Math.max(longestSide, side);
+                        sides++;
+                    }
+                    side = 0;
+                } else {
+                    // Not plain whole centimetres; no volumetric weight or oversize check
+                    sides = -1;
+                    break;
+                }
+            }
+            if (sides == 3) {
+                if (volumetricDivisor > 0) {
+                    grams = Math.max(grams, (volume * 1000 + volumetricDivisor / 2) / volumetricDivisor);
+                }
+                oversize = oversizeSide > 0 && longestSide > oversizeSide;
+            }
+        }
+
+        int days = parcel.getStorageDuration();
+        int band = floorIndex(bandFromGrams, grams);
+        int tier = floorIndex(tierFromDays, days);
+        long micros = fixedMicros[band][tier] + tierRateMicrosPerDay[tier] * days;
+        if (oversize) {
+            micros += oversizeMicros;
+        }
+        if (heavyGrams > 0 && grams > heavyGrams) {
+            micros += heavyMicros;
+        }
+        long total = micros * PER_MICRO + bandRateMicrosPerKg[band] * grams;
+        if (total < minimumMicros * PER_MICRO) {
+            total = minimumMicros * PER_MICRO;
+        }
+        if (capMicros > 0 && total > capMicros * PER_MICRO) {
+            total = capMicros * PER_MICRO;
+        }
+        return roundHalfUp(total, MICROS_PER_PENNY * PER_MICRO);
+    }
+
+    // Halves round away from zero, as HALF_UP does, on either side of it
+    private static long roundHalfUp(long value, long unit) {
+        long magnitude = (Math.abs(value) + unit / 2) / unit;
+        return value < 0 ? -magnitude : magnitude;
+    }
+
+    public float quote(Parcel parcel) {
+        return quotePence(parcel) / 100f;
+    }
+
+    public BigDecimal quoteExact(Parcel parcel) {
+        return BigDecimal.valueOf(quotePence(parcel), 2);
+    }
+
+    private static int floorIndex(long[] lowerBounds, long value) {
+        int index = 0;
+        while (index + 1 < lowerBounds.length && lowerBounds[index + 1] <= value) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int floorIndex(int[] lowerBounds, int value) {
+        int index = 0;
+        while (index + 1 < lowerBounds.length && lowerBounds[index + 1] <= value) {
+            index++;
+        }
+        return index;
+    }
+
+    private static long money(Properties rules, String key, String defaultValue) {
+        return toMicros(rules.getProperty(key, defaultValue), key);
+    }
+
+    private static long toMicros(String value, String key) {
+        try {
+            return new BigDecimal(value.trim()).movePointRight(6).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        } catch (ArithmeticException | NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid number for " + key + ": " + value, ex);
+        }
+    }
+
+    // "from:fee:rate" entries, sorted by lower bound; the first must start at 0
+    private static long[][] entries(Properties rules, String key, String defaultValue) {
+        String[] items = rules.getProperty(key, defaultValue).split(",");
+        long[][] entries = new long[items.length][];
+        for (int i = 0; i < items.length; i++) {
+            String[] parts = items[i].trim().split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Expected from:fee:rate in " + key + ": " + items[i]);
+            }
+            entries[i] = new long[] {toMicros(parts[0], key), toMicros(parts[1], key), toMicros(parts[2], key)};
+        }
+        Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+        if (entries[0][0] != 0) {
+            throw new IllegalArgumentException(key + " must start at 0");
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,63 @@
+package depot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CollectionProcessorTest {
+    private static final int COUNTERS = 8;
+    private static final int ROUNDS = 200;
+
+    @Test
+    void concurrentCollectsOfOneParcelHaveOneWinner() throws Exception {
+        assertOneWinnerPerParcel(PackageCollection::new);
+    }
+
+    @Test
+    void concurrentCollectsOfOneColumnarParcelHaveOneWinner() throws Exception {
+        assertOneWinnerPerParcel(ColumnarPackageCollection::new);
+    }
+
+    // Every counter looks the parcel up and collects it at the same moment
+    private static void assertOneWinnerPerParcel(Supplier<PackageCollection> collections) throws Exception {
+        CollectionProcessor processor = new CollectionProcessor(Tariff.defaults());
+        PackageCollection packages = collections.get();
+        ExecutorService counters = Executors.newFixedThreadPool(COUNTERS);
+        EventLogger.getInstance().setDiscarding(true);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                String id = "P" + round;
+                packages.addPackage(new Parcel(id, 2.5f, "10x20x30", DepotClock.arrivalFromDays(3), "Pending"));
+                CyclicBarrier start = new CyclicBarrier(COUNTERS);
+                List<Callable<Boolean>> attempts = new ArrayList<>();
+                for (int counter = 0; counter < COUNTERS; counter++) {
+                    attempts.add(() -> {
+                        Parcel parcel = packages.getPackageByID(id);
+                        start.await();
+                        return processor.collect(new Customer("Recipient", id, 1), parcel).isSuccessful();
+                    });
+                }
+                int winners = 0;
+                for (Future<Boolean> attempt : counters.invokeAll(attempts)) {
+                    winners += attempt.get() ? 1 : 0;
+                }
+                assertEquals(1, winners, "collections of " + id);
+                assertEquals("Collected", packages.getPackageByID(id).getDeliveryState());
+                // Frees the slot, so the columnar store reuses it next round
+                packages.removePackage(id);
+            }
+        } finally {
+            counters.shutdownNow();
+            EventLogger.getInstance().setDiscarding(false);
+        }
+    }
+}
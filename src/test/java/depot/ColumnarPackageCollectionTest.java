@@ -0,0 +1,94 @@
+package depot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarPackageCollectionTest {
+    private static Parcel parcel(String id) {
+        return new Parcel(id, 1.5f, "10x20x30", DepotClock.arrivalFromDays(2), "Pending");
+    }
+
+    @Test
+    void viewKeepsLastValuesOnceRemoved() {
+        ColumnarPackageCollection packages = new ColumnarPackageCollection();
+        packages.addPackage(parcel("A1"));
+        Parcel held = packages.getPackageByID("A1");
+        assertTrue(held.tryMarkCollected());
+
+        packages.removePackage("A1");
+
+        assertEquals("A1", held.getPackageID());
+        assertEquals("Collected", held.getDeliveryState());
+        assertEquals("10x20x30", held.getMeasurementSpec());
+    }
+
+    @Test
+    void staleViewDoesNotTouchTheSlotsNextPackage() {
+        ColumnarPackageCollection packages = new ColumnarPackageCollection();
+        packages.addPackage(parcel("A1"));
+        Parcel held = packages.getPackageByID("A1");
+        packages.removePackage("A1");
+        // Takes the slot A1 had
+        packages.addPackage(parcel("B2"));
+
+        assertFalse(held.tryMarkCollected());
+        held.setDeliveryState("Lost");
+
+        assertEquals("A1", held.getPackageID());
+        assertEquals("Pending", packages.getPackageByID("B2").getDeliveryState());
+        assertEquals(1, packages.query().inState("Pending").count());
+    }
+
+    @Test
+    void readersSurviveConcurrentWriters() throws Exception {
+        ColumnarPackageCollection packages = new ColumnarPackageCollection();
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            List<Future<?>> work = new ArrayList<>();
+            // Grows the columns and reuses slots while the readers run
+            work.add(threads.submit(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    packages.addPackage(parcel("W" + i));
+                    if (i % 3 == 0) {
+                        packages.removePackage("W" + (i / 2));
+                    }
+                }
+                writing.set(false);
+            }));
+            for (int reader = 0; reader < 3; reader++) {
+                work.add(threads.submit(() -> {
+                    while (writing.get()) {
+                        for (Parcel parcel : packages.getAllPackages()) {
+                            assertNotNull(parcel.getDeliveryState());
+                        }
+                        Parcel parcel = packages.getPackageByID("W" + (int) (Math.random() * 50_000));
+                        if (parcel != null) {
+                            assertNotNull(parcel.getDeliveryState());
+                            assertTrue(parcel.getPackageID().startsWith("W"));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> done : work) {
+                done.get();
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+        int live = 0;
+        for (Parcel parcel : packages.getAllPackages()) {
+            live++;
+        }
+        assertEquals(packages.getAllPackages().size(), live);
+        assertEquals(live, packages.query().inState("Pending").count());
+    }
+}
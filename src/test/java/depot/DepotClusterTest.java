@@ -0,0 +1,110 @@
+package depot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DepotClusterTest {
+    private static final int PARCELS = 200;
+
+    @Test
+    void rebalanceSurvivesAFailedAdopt(@TempDir Path directory) throws Exception {
+        int port;
+        try (ServerSocket free = new ServerSocket(0)) {
+            port = free.getLocalPort();
+        }
+        Process process = DepotCluster.startLocalNode(directory.resolve("node"), port);
+        String node = "127.0.0.1:" + port;
+        try (RefusingNode refusing = new RefusingNode();
+             DepotCluster cluster = new DepotCluster(List.of(node))) {
+            List<DepotSystem.Handoff> handoffs = new ArrayList<>();
+            for (int i = 0; i < PARCELS; i++) {
+                Parcel parcel = new Parcel("C" + i, 1.5f, "10x20x30", DepotClock.arrivalFromDays(2), "Pending");
+                handoffs.add(new DepotSystem.Handoff(parcel, new Customer("Recipient" + i, "C" + i, i + 1)));
+            }
+            assertEquals(PARCELS, cluster.adoptParcels(handoffs));
+
+            String joining = "127.0.0.1:" + refusing.getPort();
+            assertThrows(IOException.class, () -> cluster.addNode(joining));
+
+            // Nothing left the old owner, and lookups still find it there
+            assertArrayEquals(new int[] { PARCELS, PARCELS }, cluster.stats().get(node));
+            String movingId = null;
+            for (int i = 0; i < PARCELS; i++) {
+                assertNotNull(cluster.getPackageByID("C" + i), "C" + i);
+                if (cluster.ownerOf("C" + i).equals(joining)) {
+                    movingId = "C" + i;
+                }
+            }
+            assertNotNull(movingId);
+            assertTrue(cluster.collect(movingId).isSuccessful());
+            assertThrows(IOException.class, cluster::finishRebalance);
+        } finally {
+            process.destroy();
+            process.waitFor(30, TimeUnit.SECONDS);
+        }
+    }
+
+    /** Speaks enough of the node protocol to join a cluster, then refuses every ADOPT. */
+    private static final class RefusingNode implements AutoCloseable {
+        private final ServerSocket serverSocket = new ServerSocket(0);
+
+        RefusingNode() throws IOException {
+            Thread thread = new Thread(this::accept, "refusing-node");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        private void accept() {
+            while (!serverSocket.isClosed()) {
+                try (Socket socket = serverSocket.accept();
+                     BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                     Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        String[] request = line.split(ClusterNode.FIELD, -1);
+                        if (request[0].equals("ADOPT") || request[0].equals("COPY") || request[0].equals("HANDOFF")) {
+                            for (int i = Integer.parseInt(request[1]); i > 0; i--) {
+                                in.readLine();
+                            }
+                        }
+                        String reply = switch (request[0]) {
+                            case "ADOPT" -> "FAIL" + ClusterNode.FIELD + "disk full";
+                            case "GET", "COLLECT" -> "NONE";
+                            case "STATS" -> "OK" + ClusterNode.FIELD + 0 + ClusterNode.FIELD + 0;
+                            case "SHUTDOWN" -> "OK";
+                            default -> "OK" + ClusterNode.FIELD + 0;
+                        };
+                        out.write(reply + "\n");
+                        out.flush();
+                    }
+                } catch (IOException ex) {
+                    // The router closed the connection, or the test is over
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
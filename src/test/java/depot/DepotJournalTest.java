@@ -0,0 +1,134 @@
+package depot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DepotJournalTest {
+    private static final Path JOURNAL = Paths.get("depot_journal.log");
+    private static final Path COMPACTING = Paths.get("depot_journal.compacting");
+    private static final Path INVENTORY = Paths.get("Inventory.csv");
+    private static final Path RECIPIENTS = Paths.get("Recipients.csv");
+    private static final List<Path> FILES = List.of(JOURNAL, COMPACTING, INVENTORY, RECIPIENTS,
+        Paths.get("depot_snapshot.bin"));
+
+    @BeforeEach
+    @AfterEach
+    void clean() throws IOException {
+        for (Path file : FILES) {
+            if (Files.isDirectory(file)) {
+                try (Stream<Path> inside = Files.list(file)) {
+                    for (Path child : inside.toList()) {
+                        Files.delete(child);
+                    }
+                }
+            }
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void replaySkipsTornLastRecord() throws IOException {
+        // A crash while the second record was being appended
+        Files.writeString(JOURNAL, "ADD_PARCEL,X1,2.5,10,20,30,5\nADD_PARCEL,X2,1.0,1,2,3,2026-10-1",
+            StandardCharsets.UTF_8);
+        PackageCollection parcels = new PackageCollection();
+        DepotJournal journal = new DepotJournal(parcels, new QueueOfCustomers());
+
+        journal.replay();
+
+        assertNotNull(parcels.getPackageByID("X1"));
+        assertNull(parcels.getPackageByID("X2"));
+        assertEquals(1, journal.getMalformedRecords());
+
+        // The next record starts on its own line rather than running on from the torn one
+        journal.recordParcelAdded(new Parcel("X3", 1.0f, "1x2x3", DepotClock.arrivalFromDays(1), "Pending"));
+        PackageCollection restarted = new PackageCollection();
+        DepotJournal again = new DepotJournal(restarted, new QueueOfCustomers());
+        again.replay();
+
+        assertNotNull(restarted.getPackageByID("X1"));
+        assertNotNull(restarted.getPackageByID("X3"));
+        assertEquals(1, again.getMalformedRecords());
+        journal.close();
+    }
+
+    @Test
+    void replayReportsMalformedRecordsAndCarriesOn() throws IOException {
+        Files.writeString(JOURNAL, String.join("\n",
+            "ADD_PARCEL,X1,heavy,10,20,30,5",
+            "REMOVE_PARCEL",
+            "ADD_PARCEL,X2,1.0,1,2,3,2",
+            "ADD_RECIPIENT,Smith,X2",
+            ""), StandardCharsets.UTF_8);
+        PackageCollection parcels = new PackageCollection();
+        QueueOfCustomers recipients = new QueueOfCustomers();
+        DepotJournal journal = new DepotJournal(parcels, recipients);
+
+        journal.replay();
+
+        assertNull(parcels.getPackageByID("X1"));
+        assertNotNull(parcels.getPackageByID("X2"));
+        assertNotNull(recipients.findRecipientByPackageID("X2"));
+        assertEquals(2, journal.getMalformedRecords());
+        journal.close();
+    }
+
+    // A comma or line break would split the record and the CSV row it is flushed to
+    @Test
+    void fieldsThatWouldSplitARecordAreRefused() throws IOException {
+        DepotSystem system = new DepotSystem();
+        try {
+            assertFalse(system.registerParcel("X1,X2", 1.0f, "1x2x3").join().isSuccessful());
+            assertFalse(system.registerParcel("X1", 1.0f, "1x2\nx3").join().isSuccessful());
+            assertTrue(system.registerParcel("X1", 1.0f, "1x2x3").join().isSuccessful());
+            assertFalse(system.registerRecipient("Smith, J", "X1").join().isSuccessful());
+            assertFalse(system.registerRecipient("Smith\rJ", "X1").join().isSuccessful());
+            assertTrue(system.registerRecipient("Smith J", "X1").join().isSuccessful());
+        } finally {
+            system.shutdown();
+        }
+
+        PackageCollection parcels = new PackageCollection();
+        QueueOfCustomers recipients = new QueueOfCustomers();
+        assertTrue(CsvLoader.loadInventory(INVENTORY.toString(), parcels).getProblems().isEmpty());
+        assertTrue(CsvLoader.loadRecipients(RECIPIENTS.toString(), recipients).getProblems().isEmpty());
+        assertEquals(1, parcels.getAllPackages().size());
+        assertEquals("Smith J", recipients.findRecipientByPackageID("X1").getSurname());
+    }
+
+    @Test
+    void rollOverKeepsRecordsOfAFailedSnapshot() throws IOException {
+        // Left by a background snapshot that never finished
+        Files.writeString(COMPACTING, "ADD_PARCEL,X1,2.5,10,20,30,5", StandardCharsets.UTF_8);
+        PackageCollection parcels = new PackageCollection();
+        DepotJournal journal = new DepotJournal(parcels, new QueueOfCustomers());
+        journal.replay();
+        Parcel added = new Parcel("X2", 1.0f, "1x2x3", DepotClock.arrivalFromDays(1), "Pending");
+        parcels.addPackage(added);
+        journal.recordParcelAdded(added);
+
+        // A directory in the way makes this snapshot fail as well
+        Files.createDirectory(INVENTORY);
+        Files.writeString(INVENTORY.resolve("blocker"), "", StandardCharsets.UTF_8);
+        journal.compactAndWait();
+
+        assertFalse(Files.exists(JOURNAL));
+        PackageCollection restarted = new PackageCollection();
+        DepotJournal again = new DepotJournal(restarted, new QueueOfCustomers());
+        again.replay();
+        assertNotNull(restarted.getPackageByID("X1"));
+        assertNotNull(restarted.getPackageByID("X2"));
+        assertEquals(0, again.getMalformedRecords());
+    }
+}
@@ -0,0 +1,27 @@
+package depot;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DepotSimulatorTest {
+    private static DepotSimulator.Config small(long seed) {
+        return new DepotSimulator.Config().seed(seed).days(2).warmupDays(1).parcelsPerDay(500).counters(2);
+    }
+
+    // The report without its last line, the only one that depends on how fast the run was
+    private static String withoutElapsedTime(DepotSimulator.Report report) {
+        String text = report.toString();
+        String last = text.substring(text.lastIndexOf('\n') + 1);
+        assertTrue(last.matches("simulated \\d+ events in \\d+ ms"), last);
+        return text.substring(0, text.lastIndexOf('\n'));
+    }
+
+    @Test
+    void theSameSeedGivesTheSameReport() {
+        String first = withoutElapsedTime(new DepotSimulator(small(7)).run());
+        String second = withoutElapsedTime(new DepotSimulator(small(7)).run());
+        assertEquals(first, second);
+        assertNotEquals(first, withoutElapsedTime(new DepotSimulator(small(8)).run()));
+    }
+}
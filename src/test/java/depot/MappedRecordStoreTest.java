@@ -0,0 +1,170 @@
+package depot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedRecordStoreTest {
+    private static final Path PARCELS = Paths.get("depot_parcels.dat");
+    private static final Path RECIPIENTS = Paths.get("depot_recipients.dat");
+    private static final int HEADER_SIZE = 128;
+    private static final int PARCEL_SIZE = 64;
+    private static final int RECIPIENT_SIZE = 128;
+    private static final long ARRIVAL = DepotClock.arrivalFromDays(30);
+
+    private PackageCollection packages;
+    private QueueOfCustomers queue;
+
+    @BeforeEach
+    @AfterEach
+    void clean() throws IOException {
+        Files.deleteIfExists(PARCELS);
+        Files.deleteIfExists(RECIPIENTS);
+    }
+
+    // A store on the files in the working directory, loaded into fresh collections
+    private MappedRecordStore open() throws IOException {
+        packages = new PackageCollection();
+        queue = new QueueOfCustomers();
+        MappedRecordStore store = new MappedRecordStore(packages, queue);
+        store.replay();
+        return store;
+    }
+
+    private static Parcel parcel(String id, int minutesLater) {
+        return new Parcel(id, 2.5f, "10x20x30", ARRIVAL + minutesLater * 60_000L, "Pending");
+    }
+
+    private static String keyAt(Path file, int recordSize, int slot) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        int at = HEADER_SIZE + slot * recordSize + 1;
+        return new String(bytes, at + 1, bytes[at] & 0xFF, StandardCharsets.UTF_8);
+    }
+
+    // As if a vacuum had copied a record into a hole and stopped before tombstoning the original
+    private static void copyRecord(Path file, int recordSize, int from, int to) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer record = ByteBuffer.allocate(recordSize);
+            channel.read(record, HEADER_SIZE + (long) from * recordSize);
+            record.flip();
+            channel.write(record, HEADER_SIZE + (long) to * recordSize);
+        }
+    }
+
+    @Test
+    void vacuumedRecordsLoadOnceAfterReopening() throws IOException {
+        MappedRecordStore store = open();
+        for (int i = 0; i < 3000; i++) {
+            store.recordParcelAdded(parcel("P" + i, i));
+        }
+        // Leaves the live records at the end of a mostly free file, so they are moved down
+        for (int i = 0; i < 2500; i++) {
+            store.recordParcelRemoved("P" + i);
+        }
+        store.close();
+        assertEquals(HEADER_SIZE + 1024L * PARCEL_SIZE, Files.size(PARCELS));
+
+        store = open();
+        assertEquals(500, packages.getAllPackages().size());
+        for (int i = 2500; i < 3000; i++) {
+            Parcel loaded = packages.getPackageByID("P" + i);
+            assertEquals(2.5f, loaded.getMassKg());
+            assertEquals("10x20x30", loaded.getMeasurementSpec());
+            assertEquals(ARRIVAL + i * 60_000L, loaded.getArrivalTime());
+        }
+        assertEquals("P2999", keyAt(PARCELS, PARCEL_SIZE, 0));
+
+        // A second live copy of a moved record would bring it back after this
+        store.recordParcelRemoved("P2999");
+        store.close();
+        store = open();
+        assertNull(packages.getPackageByID("P2999"));
+        assertEquals(499, packages.getAllPackages().size());
+        store.close();
+    }
+
+    @Test
+    void aCopyLeftByACutShortMoveIsDropped() throws IOException {
+        MappedRecordStore store = open();
+        store.recordParcelAdded(parcel("A", 1));
+        store.recordParcelAdded(parcel("B", 2));
+        store.recordRecipientAdded(new Customer("Smith", "A", 1));
+        store.recordRecipientAdded(new Customer("Jones", "B", 2));
+        store.close();
+        copyRecord(PARCELS, PARCEL_SIZE, 1, 5);
+        copyRecord(RECIPIENTS, RECIPIENT_SIZE, 0, 7);
+
+        store = open();
+        assertEquals(2, packages.getAllPackages().size());
+        assertEquals(2, queue.size());
+        store.recordCollection(queue.findRecipientByPackageID("A"), "A");
+        store.recordParcelRemoved("B");
+        store.close();
+
+        store = open();
+        assertTrue(packages.getAllPackages().isEmpty());
+        assertEquals(1, queue.size());
+        assertEquals("Jones", queue.findRecipientByPackageID("B").getSurname());
+        store.close();
+    }
+
+    @Test
+    void freedSlotsAreReusedLowestFirst() throws IOException {
+        MappedRecordStore store = open();
+        for (String id : List.of("A", "B", "C", "D")) {
+            store.recordParcelAdded(parcel(id, 1));
+        }
+        store.recordParcelRemoved("C");
+        store.recordParcelRemoved("B");
+        store.recordParcelAdded(parcel("E", 1));
+        store.recordParcelAdded(parcel("F", 1));
+        store.recordParcelAdded(parcel("G", 1));
+        store.close();
+
+        List<String> keys = new ArrayList<>();
+        for (int slot = 0; slot < 5; slot++) {
+            keys.add(keyAt(PARCELS, PARCEL_SIZE, slot));
+        }
+        assertEquals(List.of("A", "E", "F", "D", "G"), keys);
+    }
+
+    @Test
+    void reopeningRestoresTheQueueInOrder() throws IOException {
+        MappedRecordStore store = open();
+        for (String id : List.of("A", "B", "C")) {
+            store.recordParcelAdded(parcel(id, 1));
+        }
+        Customer smith = new Customer("Smith", "A", 5);
+        store.recordRecipientAdded(smith);
+        store.recordRecipientAdded(new Customer("Jones", "C", 7));
+        store.recordRecipientAdded(new Customer("Brown", "B", 9));
+        store.recordCollection(smith, "A");
+        // Only a matching name takes a recipient out
+        store.recordRecipientRemoved("Someone else", "B");
+        store.close();
+
+        store = open();
+        assertNull(packages.getPackageByID("A"));
+        assertEquals(2, packages.getAllPackages().size());
+        Customer[] waiting = queue.snapshot();
+        assertEquals(2, waiting.length);
+        assertEquals("Jones", waiting[0].getSurname());
+        assertEquals(7, waiting[0].getSequenceNumber());
+        assertEquals("Brown", waiting[1].getSurname());
+        assertEquals(9, waiting[1].getSequenceNumber());
+        store.close();
+    }
+}
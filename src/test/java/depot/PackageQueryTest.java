@@ -0,0 +1,145 @@
+package depot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackageQueryTest {
+    private static Parcel parcel(String id, float massKg, String spec, int days) {
+        return new Parcel(id, massKg, spec, DepotClock.arrivalFromDays(days), "Pending");
+    }
+
+    @Test
+    void queriesSeeKeysStillInTheBuffer() {
+        queriesSeeKeysStillInTheBuffer(PackageCollection::new);
+    }
+
+    @Test
+    void columnarQueriesSeeKeysStillInTheBuffer() {
+        queriesSeeKeysStillInTheBuffer(ColumnarPackageCollection::new);
+    }
+
+    // A handful of parcels never fills the buffer, so nothing here has been merged
+    private static void queriesSeeKeysStillInTheBuffer(Supplier<PackageCollection> collections) {
+        PackageCollection packages = collections.get();
+        packages.addPackage(parcel("A", 1.0f, "10x10x10", 1));
+        packages.addPackage(parcel("B", 5.0f, "20x20x20", 10));
+        packages.addPackage(parcel("C", 12.5f, "30x30x30", 20));
+        packages.addPackage(parcel("D", 30.0f, "not a spec", 40));
+
+        assertEquals(4, packages.query().inState("Pending").count());
+        assertEquals(List.of("C", "D"), ids(packages.query().heavierThan(10).list()));
+        assertEquals(List.of("A", "B"), ids(packages.query().massBetween(1.0f, 5.0f).list()));
+        assertEquals(List.of("B", "C"), ids(packages.query().volumeBetween(8000, 27000).list()));
+        assertEquals(List.of("C", "D"), ids(packages.query().storedAtLeastDays(20).list()));
+        assertEquals(List.of("A", "B"), ids(packages.query().storedAtMostDays(10).list()));
+
+        assertEquals(List.of("Pending"), packages.stateNames());
+        assertTrue(packages.getPackageByID("C").tryMarkCollected());
+        assertEquals(List.of("Collected", "Pending"), packages.stateNames());
+        assertEquals(List.of("C"), ids(packages.query().inState("Collected").list()));
+        assertEquals(List.of("D"), ids(packages.query().inState("Pending").storedAtLeastDays(20).list()));
+
+        packages.removePackage("C");
+        packages.removePackage("A");
+        assertEquals(0, packages.query().inState("Collected").count());
+        assertEquals(List.of("Pending"), packages.stateNames());
+        assertEquals(List.of("B"), ids(packages.query().volumeBetween(0, 1_000_000).list()));
+        assertEquals(0, packages.query().massBetween(1.0f, 1.0f).count());
+
+        // Same slot and values as before the removal
+        packages.addPackage(parcel("A", 1.0f, "10x10x10", 1));
+        assertEquals(List.of("A"), ids(packages.query().massBetween(1.0f, 1.0f).list()));
+        assertEquals(1, packages.query().massBetween(1.0f, 1.0f).count());
+    }
+
+    @Test
+    void queriesMatchAScanThroughMergesAndRemovals() {
+        queriesMatchAScan(PackageCollection::new);
+    }
+
+    @Test
+    void columnarQueriesMatchAScanThroughMergesAndRemovals() {
+        queriesMatchAScan(ColumnarPackageCollection::new);
+    }
+
+    // Enough adds, removals and changes to merge the buffers and drop dead keys several times
+    private static void queriesMatchAScan(Supplier<PackageCollection> collections) {
+        PackageCollection packages = collections.get();
+        Random random = new Random(42);
+        List<String> ids = new ArrayList<>();
+        for (int step = 0; step < 30_000; step++) {
+            int action = random.nextInt(10);
+            if (action < 5 || ids.isEmpty()) {
+                String id = "P" + random.nextInt(12_000);
+                int side = 1 + random.nextInt(40);
+                if (packages.addPackage(parcel(id, random.nextInt(400) / 10f, side + "x" + side + "x10",
+                        random.nextInt(60)))) {
+                    ids.add(id);
+                }
+            } else if (action < 7) {
+                packages.removePackage(ids.remove(random.nextInt(ids.size())));
+            } else if (action < 9) {
+                packages.getPackageByID(ids.get(random.nextInt(ids.size()))).tryMarkCollected();
+            } else {
+                packages.getPackageByID(ids.get(random.nextInt(ids.size()))).updateStorageDuration();
+            }
+            if (step % 2500 == 0) {
+                assertQueriesMatchScan(packages);
+            }
+        }
+        assertQueriesMatchScan(packages);
+    }
+
+    private static void assertQueriesMatchScan(PackageCollection packages) {
+        assertMatches(packages, packages.query().inState("Pending"), p -> p.getDeliveryState().equals("Pending"));
+        assertMatches(packages, packages.query().inState("Collected").heavierThan(20),
+            p -> p.getDeliveryState().equals("Collected") && p.getMassKg() > 20);
+        int inMassRange = assertMatches(packages, packages.query().massBetween(5, 7.5f),
+            p -> p.getMassKg() >= 5 && p.getMassKg() <= 7.5f);
+        // Mass keys are exact, so the planner's estimate is the count itself
+        packages.index.readLock();
+        try {
+            assertEquals(inMassRange, packages.index.countInRange(ParcelIndex.MASS,
+                ParcelIndex.massValue(5), ParcelIndex.massValue(7.5f)));
+        } finally {
+            packages.index.readUnlock();
+        }
+        assertMatches(packages, packages.query().volumeBetween(1000, 4000), p -> {
+            long volume = ParcelIndex.volumeOf(p.getMeasurementSpec());
+            return volume >= 1000 && volume <= 4000;
+        });
+        assertMatches(packages, packages.query().inState("Pending").storedAtLeastDays(30).lighterThan(10),
+            p -> p.getDeliveryState().equals("Pending") && p.getStorageDuration() >= 30 && p.getMassKg() < 10);
+        assertMatches(packages, packages.query().storedAtMostDays(3), p -> p.getStorageDuration() <= 3);
+    }
+
+    private static int assertMatches(PackageCollection packages, PackageQuery query, Predicate<Parcel> condition) {
+        Set<String> expected = new HashSet<>();
+        for (Parcel parcel : packages.getAllPackages()) {
+            if (condition.test(parcel)) {
+                expected.add(parcel.getPackageID());
+            }
+        }
+        assertEquals(expected, new HashSet<>(ids(query.list())));
+        assertEquals(expected.size(), query.count());
+        return expected.size();
+    }
+
+    private static List<String> ids(List<Parcel> parcels) {
+        List<String> ids = new ArrayList<>();
+        for (Parcel parcel : parcels) {
+            ids.add(parcel.getPackageID());
+        }
+        ids.sort(null);
+        return ids;
+    }
+}
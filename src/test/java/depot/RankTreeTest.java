@@ -0,0 +1,62 @@
+package depot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankTreeTest {
+    @Test
+    void countsPositionsBeyondTheIntRange() {
+        RankTree ranks = new RankTree();
+        long first = 3_000_000_000L;
+        ranks.add(first, 1);
+        ranks.add(first + 1, 1);
+        ranks.add(first + 5000, 1);
+        assertEquals(0, ranks.countUpTo(first - 1));
+        assertEquals(2, ranks.countUpTo(first + 4999));
+        assertEquals(3, ranks.countUpTo(Long.MAX_VALUE));
+
+        ranks.add(first, -1);
+        assertEquals(1, ranks.countUpTo(first + 1));
+    }
+
+    @Test
+    void acceptsAPositionBelowTheWindow() {
+        RankTree ranks = new RankTree();
+        ranks.add(100, 1);
+        // An enqueue that took its number first can land after a later one
+        ranks.add(99, 1);
+        assertEquals(1, ranks.countUpTo(99));
+        assertEquals(2, ranks.countUpTo(100));
+    }
+
+    // A queue that keeps moving: old entries leave, new ones join far past the first window
+    @Test
+    void matchesACountThroughRebases() {
+        Random random = new Random(7);
+        RankTree ranks = new RankTree();
+        TreeMap<Long, Integer> live = new TreeMap<>();
+        long next = 1;
+        for (int step = 0; step < 200_000; step++) {
+            if (random.nextInt(2) == 0 || live.isEmpty()) {
+                next += random.nextInt(20) == 0 ? 1 + random.nextInt(5000) : 1;
+                ranks.add(next, 1);
+                live.put(next, 1);
+            } else {
+                Long leaving = random.nextBoolean() ? live.firstKey() : live.ceilingKey(live.firstKey() + random.nextInt(3000));
+                if (leaving == null) {
+                    leaving = live.lastKey();
+                }
+                ranks.add(leaving, -1);
+                live.remove(leaving);
+            }
+            if (step % 1000 == 0) {
+                long position = live.isEmpty() ? next : live.firstKey() + random.nextInt((int) (next - live.firstKey() + 2)) - 1;
+                assertEquals(live.headMap(position, true).size(), ranks.countUpTo(position));
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package depot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecipientSchedulerTest {
+    private static final Instant START = Instant.parse("2024-03-01T09:00:00Z");
+
+    private RecipientScheduler scheduler;
+    private int sequence;
+
+    @BeforeEach
+    void setUp() {
+        DepotClock.setClock(Clock.fixed(START, ZoneOffset.UTC));
+        scheduler = new RecipientScheduler();
+    }
+
+    @AfterEach
+    void tearDown() {
+        DepotClock.setClock(Clock.systemDefaultZone());
+    }
+
+    private Customer join(String packageID) {
+        return join(packageID, false, 0);
+    }
+
+    private Customer join(String packageID, boolean needsAssistance, long bookedSlot) {
+        Customer recipient = new Customer("Recipient " + packageID, packageID, ++sequence);
+        recipient.setNeedsAssistance(needsAssistance);
+        recipient.setBookedSlot(bookedSlot);
+        scheduler.add(recipient, () -> true);
+        return recipient;
+    }
+
+    private List<String> callAll(int counter) {
+        List<String> called = new ArrayList<>();
+        for (Customer recipient = scheduler.next(counter); recipient != null; recipient = scheduler.next(counter)) {
+            called.add(recipient.getPackageID());
+        }
+        return called;
+    }
+
+    @Test
+    void fifoCallsInJoinOrderWhateverTheClass() {
+        join("A");
+        join("B", true, 0);
+        join("C");
+        join("D", true, 0);
+        assertEquals(List.of("A", "B", "C", "D"), callAll(1));
+        assertNull(scheduler.next(1));
+    }
+
+    @Test
+    void priorityCallsTheHighestClassFirstAndEqualsInJoinOrder() {
+        scheduler.setPolicy(RecipientScheduler.Policy.PRIORITY);
+        scheduler.setDaysInDepot(packageID -> packageID.startsWith("OLD") ? 10 : 0);
+        join("A");
+        join("B", true, 0);
+        join("OLD1");
+        join("C");
+        join("D", true, 0);
+        join("OLD2");
+        join("E", false, START.toEpochMilli());
+        assertEquals(RecipientScheduler.Priority.OVERDUE, scheduler.priorityOf("OLD1"));
+        assertEquals(List.of("E", "B", "D", "OLD1", "OLD2", "A", "C"), callAll(1));
+    }
+
+    @Test
+    void removedRecipientsAreNotCalled() {
+        scheduler.setPolicy(RecipientScheduler.Policy.PRIORITY);
+        join("A");
+        Customer leaving = join("B", true, 0);
+        join("C");
+        scheduler.remove(leaving);
+        assertNull(scheduler.priorityOf("B"));
+        assertEquals(List.of("A", "C"), callAll(1));
+    }
+
+    // Weights 3 and 1: three assistance calls for each standard one, and the standard class is never starved
+    @Test
+    void fairShareSplitsCallsByWeight() {
+        scheduler.setPolicy(RecipientScheduler.Policy.FAIR_SHARE);
+        for (int i = 1; i <= 8; i++) {
+            join("S" + i);
+            join("H" + i, true, 0);
+        }
+        List<String> called = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            called.add(scheduler.next(1).getPackageID());
+        }
+        assertEquals(List.of("H1", "S1", "H2", "H3", "H4", "S2", "H5", "H6"), called);
+        assertEquals(List.of("H7", "S3", "H8", "S4", "S5", "S6", "S7", "S8"), callAll(1));
+    }
+
+    @Test
+    void earlyBookingsMoveUpWhenTheSlotStarts() {
+        scheduler.setPolicy(RecipientScheduler.Policy.PRIORITY);
+        join("A");
+        join("B", false, START.plus(Duration.ofHours(1)).toEpochMilli());
+        join("C", true, 0);
+        assertEquals(RecipientScheduler.Priority.STANDARD, scheduler.priorityOf("B"));
+        assertEquals("C", scheduler.next(1).getPackageID());
+
+        DepotClock.fastForward(Duration.ofHours(1));
+        assertEquals("B", scheduler.next(1).getPackageID());
+        assertEquals(RecipientScheduler.Priority.BOOKED, scheduler.priorityOf("B"));
+        assertEquals("A", scheduler.next(1).getPackageID());
+    }
+
+    @Test
+    void waitsFollowServiceTimesAndTheQueueAhead() {
+        Customer a = join("A");
+        join("B");
+        join("C");
+        join("D");
+        assertEquals(-1, scheduler.estimatedWaitMillis("missing"));
+        // No counter has timed a service yet
+        assertEquals(-1, scheduler.estimatedWaitMillis("B"));
+
+        assertSame(a, scheduler.next(1));
+        assertEquals(0, scheduler.estimatedWaitMillis("A"));
+        DepotClock.fastForward(Duration.ofSeconds(60));
+        scheduler.remove(a);
+        assertEquals(0, scheduler.estimatedWaitMillis("B"));
+        assertEquals(60_000, scheduler.estimatedWaitMillis("C"));
+        assertEquals(120_000, scheduler.estimatedWaitMillis("D"));
+
+        // A second counter serving twice as fast makes the combined rate one every 20 s
+        assertEquals("B", scheduler.next(1).getPackageID());
+        Customer c = scheduler.next(2);
+        DepotClock.fastForward(Duration.ofSeconds(30));
+        scheduler.remove(c);
+        join("E");
+        assertEquals(20_000, scheduler.estimatedWaitMillis("E"));
+
+        // Under PRIORITY a later recipient of a higher class is ahead as well
+        scheduler.setPolicy(RecipientScheduler.Policy.PRIORITY);
+        join("F", true, 0);
+        assertEquals(40_000, scheduler.estimatedWaitMillis("E"));
+        assertEquals(0, scheduler.estimatedWaitMillis("F"));
+    }
+}
@@ -0,0 +1,115 @@
+package depot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecipientSearchIndexTest {
+    private final RecipientSearchIndex index = new RecipientSearchIndex();
+    private int sequence;
+
+    private Customer add(String name) {
+        Customer recipient = new Customer(name, "P" + (sequence + 1), ++sequence);
+        index.add(recipient);
+        return recipient;
+    }
+
+    private List<String> search(String query) {
+        List<String> names = new ArrayList<>();
+        for (Customer recipient : index.search(query, 10)) {
+            names.add(recipient.getSurname());
+        }
+        return names;
+    }
+
+    @Test
+    void prefixesMatchWhateverTheCase() {
+        add("Johnson");
+        add("Jones");
+        add("SMITH");
+        assertEquals(List.of("Johnson", "Jones"), search("jo"));
+        assertEquals(List.of("SMITH"), search("Smi"));
+        assertEquals(List.of("Jones"), search("JONES"));
+        assertEquals(List.of(), search("x"));
+        assertEquals(List.of(), search("   "));
+    }
+
+    @Test
+    void closerMatchesComeFirstThenArrivalOrder() {
+        add("Jonas");
+        add("Johnson");
+        add("Jones");
+        // "jon" is a prefix of Jonas and Jones, and one edit from Johnson
+        assertEquals(List.of("Jonas", "Jones", "Johnson"), search("jon"));
+        assertEquals(List.of("Jonas"), index.search("jon", 1).stream().map(Customer::getSurname).toList());
+    }
+
+    @Test
+    void typosWithinTheAllowanceStillMatch() {
+        add("Jones");
+        add("Smith");
+        add("Wilson");
+        assertEquals(List.of("Jones"), search("jnoe"));
+        assertEquals(List.of("Smith"), search("smyth"));
+        assertEquals(List.of("Smith"), search("smth"));
+        assertEquals(List.of("Wilson"), search("wlison"));
+    }
+
+    // Up to two letters must match exactly, up to five may be one edit out, longer queries two
+    @Test
+    void allowedEditsGrowWithTheQuery() {
+        add("Jones");
+        add("Wilson");
+        assertEquals(List.of("Jones"), search("jo"));
+        assertEquals(List.of(), search("jx"));
+        assertEquals(List.of("Jones"), search("jxn"));
+        assertEquals(List.of(), search("jxx"));
+        assertEquals(List.of("Jones"), search("jxnes"));
+        assertEquals(List.of(), search("jxnxs"));
+        assertEquals(List.of("Wilson"), search("wilsxx"));
+        assertEquals(List.of(), search("wxlsxx"));
+    }
+
+    @Test
+    void everyQueryWordMustMatchSomeNameWord() {
+        add("Mary Smith");
+        add("John Smith");
+        add("Mary Jones");
+        assertEquals(List.of("Mary Smith"), search("smith mary"));
+        assertEquals(List.of("Mary Smith", "Mary Jones"), search("MARY"));
+        assertEquals(List.of(), search("smith jones"));
+    }
+
+    @Test
+    void removedRecipientsLeaveTheIndex() {
+        Customer jones = add("Jones");
+        Customer jonas = add("Jonas");
+        Customer smith = add("Mary Smith");
+        index.remove(jones);
+        assertEquals(List.of("Jonas"), search("jon"));
+        index.remove(smith);
+        assertEquals(List.of(), search("mary"));
+        assertEquals(List.of(), search("smith"));
+        // Removing twice changes nothing
+        index.remove(jones);
+        assertEquals(List.of("Jonas"), search("jon"));
+
+        index.remove(jonas);
+        assertEquals(List.of(), search("j"));
+        index.add(jones);
+        assertEquals(List.of("Jones"), search("jones"));
+    }
+
+    // Recipients can share a name; each is a separate match
+    @Test
+    void recipientsWithTheSameNameAreKeptApart() {
+        Customer first = add("Smith");
+        add("Smith");
+        assertEquals(2, index.search("smith", 10).size());
+        index.remove(first);
+        assertEquals(1, index.search("smith", 10).size());
+    }
+}
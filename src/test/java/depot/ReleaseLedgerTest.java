@@ -0,0 +1,164 @@
+package depot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReleaseLedgerTest {
+    private static final Instant RELEASED = Instant.parse("2024-03-01T10:15:30Z");
+
+    @TempDir
+    Path directory;
+
+    private static ReleaseLedger.Entry entry(Instant releasedAt, String recipient, String packageID, long chargePence) {
+        return new ReleaseLedger.Entry(releasedAt, recipient, packageID, 1.5f, "10x20x30", "Collected", chargePence);
+    }
+
+    private static LocalDate dayOf(Instant instant) {
+        return instant.atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static List<String> ids(List<ReleaseLedger.Entry> entries) {
+        return entries.stream().map(ReleaseLedger.Entry::getPackageID).toList();
+    }
+
+    // One segment holds 100,000 rows, so these spill into a second
+    @Test
+    void rowsPastASegmentRollOverAndAreFoundInEither() throws IOException {
+        List<ReleaseLedger.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 100_005; i++) {
+            entries.add(entry(RELEASED, "Recipient" + (i % 1000), "P" + i, i % 500));
+        }
+        ReleaseLedger ledger = new ReleaseLedger(directory);
+        ledger.append(entries);
+        assertTrue(Files.exists(directory.resolve("released-00002.csv")));
+        assertFalse(Files.exists(directory.resolve("released-00003.csv")));
+        assertLookups(ledger);
+        ledger.close();
+
+        // Reopened from the .sum files, whose filters decide which .idx files are read
+        ReleaseLedger reopened = new ReleaseLedger(directory);
+        assertLookups(reopened);
+        assertEquals(100_005, reopened.getTotalCount());
+        try (Stream<ReleaseLedger.Entry> all = reopened.stream()) {
+            assertEquals(100_005, all.count());
+        }
+        reopened.close();
+    }
+
+    private static void assertLookups(ReleaseLedger ledger) throws IOException {
+        assertEquals(List.of("P0"), ids(ledger.findByPackageID("P0")));
+        assertEquals(99_999 % 500, ledger.findByPackageID("P99999").get(0).getChargePence());
+        assertEquals(List.of("P100004"), ids(ledger.findByPackageID("P100004")));
+        assertTrue(ledger.wasReleased("P100000"));
+        assertFalse(ledger.wasReleased("P100005"));
+        assertTrue(ledger.findByPackageID("missing").isEmpty());
+        // Recipient4 released P4, P1004, ..., P100004: the last of them in the second segment
+        List<ReleaseLedger.Entry> byRecipient = ledger.findByRecipient("recipient4");
+        assertEquals(101, byRecipient.size());
+        assertEquals("P100004", byRecipient.get(100).getPackageID());
+        assertEquals(List.of("P100004", "P100003", "P100002", "P100001", "P100000", "P99999", "P99998"),
+            ids(ledger.latest(7)));
+    }
+
+    @Test
+    void aggregatesSurviveRestartsAndCatchUpAfterACrash() throws IOException {
+        Instant nextDay = RELEASED.plus(Duration.ofDays(1));
+        ReleaseLedger ledger = new ReleaseLedger(directory);
+        ledger.append(List.of(entry(RELEASED, "Smith", "A1", 1000), entry(RELEASED, "Jones", "A2", 250),
+            entry(nextDay, "Brown", "A3", 401)));
+        assertDayTotals(ledger, 2, 1250, 625);
+        ledger.close();
+
+        ReleaseLedger reopened = new ReleaseLedger(directory);
+        assertDayTotals(reopened, 2, 1250, 625);
+        assertEquals(1, reopened.getCount(dayOf(nextDay)));
+        // Too few rows to rewrite aggregates.properties, and no close: as if the depot had crashed
+        reopened.append(entry(RELEASED, "Green", "A4", 50));
+
+        ReleaseLedger afterCrash = new ReleaseLedger(directory);
+        assertDayTotals(afterCrash, 3, 1300, 433);
+        assertEquals(4, afterCrash.getTotalCount());
+        assertEquals(1701, afterCrash.getTotalRevenuePence());
+        afterCrash.close();
+
+        // Without the sidecar the totals are rebuilt from the index files
+        Files.delete(directory.resolve("aggregates.properties"));
+        ReleaseLedger rebuilt = new ReleaseLedger(directory);
+        assertDayTotals(rebuilt, 3, 1300, 433);
+        assertEquals(1701, rebuilt.getTotalRevenuePence());
+        rebuilt.close();
+    }
+
+    private static void assertDayTotals(ReleaseLedger ledger, long count, long revenuePence, long averagePence) {
+        LocalDate day = dayOf(RELEASED);
+        assertEquals(count, ledger.getCount(day));
+        assertEquals(revenuePence, ledger.getRevenuePence(day));
+        assertEquals(averagePence, ledger.getAverageChargePence(day));
+    }
+
+    @Test
+    void legacyRowsWithoutAPoundChargeAreRejected() throws IOException {
+        Path legacy = Paths.get("released.csv");
+        List<String> rejected = List.of(
+            "Brown,X3,1.0,1x2x3,Collected",
+            "Green,X4,1.0,1x2x3,Collected,",
+            "White,X5,1.0,1x2x3,Collected,$70.0",
+            "Black,X6,heavy,1x2x3,Collected,1.00");
+        List<String> rows = new ArrayList<>(List.of(
+            "Smith,X1,2.5,10x20x30,Collected,£12.50",
+            "Jones,X2,1.0,1x2x3,Collected,3.00"));
+        rows.addAll(rejected);
+        Files.write(legacy, rows, StandardCharsets.UTF_8);
+        try {
+            // Imported only when the ledger directory is new
+            Path ledgerDirectory = directory.resolve("ledger");
+            ReleaseLedger ledger = new ReleaseLedger(ledgerDirectory);
+            assertEquals(2, ledger.getTotalCount());
+            assertEquals(1550, ledger.getTotalRevenuePence());
+            assertEquals(1250, ledger.findByPackageID("X1").get(0).getChargePence());
+            assertNull(ledger.findByPackageID("X2").get(0).getReleasedAt());
+            assertFalse(ledger.wasReleased("X3"));
+            assertEquals(rejected, Files.readAllLines(ledgerDirectory.resolve("released-rejected.csv"), StandardCharsets.UTF_8));
+            ledger.close();
+
+            ReleaseLedger reopened = new ReleaseLedger(ledgerDirectory);
+            assertEquals(2, reopened.getTotalCount());
+            reopened.close();
+        } finally {
+            Files.deleteIfExists(legacy);
+        }
+    }
+
+    @Test
+    void fieldsWithCommasAndLineBreaksRoundTrip() throws IOException {
+        ReleaseLedger ledger = new ReleaseLedger(directory);
+        ledger.append(new ReleaseLedger.Entry(RELEASED, "Smith, J\nflat 2", "X,1", 2.5f, "10x20x30", "Collected", 1250));
+        ledger.append(new ReleaseLedger.Entry(RELEASED, "100% Jones", "X2", 1.0f, "1x2x3", "Collected", 300));
+        ledger.close();
+
+        ReleaseLedger reopened = new ReleaseLedger(directory);
+        List<ReleaseLedger.Entry> found = reopened.findByPackageID("X,1");
+        assertEquals(1, found.size());
+        assertEquals("Smith, J\nflat 2", found.get(0).getRecipient());
+        assertEquals(1250, found.get(0).getChargePence());
+        assertEquals("X2", reopened.findByRecipient("100% jones").get(0).getPackageID());
+        assertEquals(2, reopened.findByDate(RELEASED.atZone(ZoneId.systemDefault()).toLocalDate()).size());
+        assertEquals(List.of("X2", "X,1"), reopened.latest(5).stream().map(ReleaseLedger.Entry::getPackageID).toList());
+        reopened.close();
+    }
+}
@@ -0,0 +1,103 @@
+package depot;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TariffTest {
+    private static Parcel parcel(float massKg, int days) {
+        return new Parcel("T1", massKg, "10x10x10", DepotClock.arrivalFromDays(days), "Pending");
+    }
+
+    // The charge in pence the way BigDecimal works it out, on the mass the tariff charges for
+    private static long exactPence(BigDecimal base, BigDecimal perKg, BigDecimal perDay, float massKg, int days) {
+        BigDecimal kg = BigDecimal.valueOf(Math.round(massKg * 1000.0), 3);
+        return base.add(perKg.multiply(kg)).add(perDay.multiply(BigDecimal.valueOf(days)))
+            .setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+
+    @Test
+    void defaultsAreTheOriginalFormula() {
+        Tariff tariff = Tariff.defaults();
+        BigDecimal base = new BigDecimal("12.50");
+        BigDecimal perKg = new BigDecimal("0.75");
+        BigDecimal perDay = new BigDecimal("1.25");
+        for (int grams = 0; grams <= 40_000; grams += 7) {
+            for (int days = 0; days <= 60; days += 13) {
+                float mass = grams / 1000f;
+                assertEquals(exactPence(base, perKg, perDay, mass, days), tariff.quotePence(parcel(mass, days)),
+                    mass + " kg, " + days + " days");
+            }
+        }
+        // 0.75 per kg on 20 g is 1.5p: half a penny rounds up
+        assertEquals(1252, tariff.quotePence(parcel(0.02f, 0)));
+        assertEquals(new BigDecimal("15.25"), tariff.quoteExact(parcel(2.0f, 1)));
+        assertEquals(15.25f, tariff.quote(parcel(2.0f, 1)));
+    }
+
+    // 1.6665 per kg on 3 g is 0.49995p, just under half a penny; rounding it to micro-pounds first made it 1p
+    @Test
+    void onlyTheTotalIsRounded() {
+        Properties rules = new Properties();
+        rules.setProperty("base", "0");
+        rules.setProperty("weight.bands", "0:0.00:1.6665");
+        rules.setProperty("duration.tiers", "0:0.00:0.00");
+        Tariff tariff = Tariff.fromProperties(rules);
+        assertEquals(0, tariff.quotePence(parcel(0.003f, 0)));
+        assertEquals(1, tariff.quotePence(parcel(0.009f, 0)));
+        assertEquals(2, tariff.quotePence(parcel(0.012f, 0)));
+    }
+
+    // HALF_UP rounds halves away from zero, so a credit of half a penny is a penny
+    @Test
+    void negativeTotalsRoundLikeBigDecimal() {
+        Properties rules = new Properties();
+        rules.setProperty("base", "-0.005");
+        rules.setProperty("weight.bands", "0:0.00:0.00");
+        rules.setProperty("duration.tiers", "0:0.00:-0.01");
+        rules.setProperty("minimum", "-100");
+        Tariff tariff = Tariff.fromProperties(rules);
+        assertEquals(-1, tariff.quotePence(parcel(1.0f, 0)));
+        assertEquals(-2, tariff.quotePence(parcel(1.0f, 1)));
+        assertEquals(new BigDecimal("-0.02"), tariff.quoteExact(parcel(1.0f, 1)));
+    }
+
+    @Test
+    void randomRulesMatchBigDecimal() {
+        Random random = new Random(12);
+        for (int round = 0; round < 500; round++) {
+            // Amounts to the micro-pound, half of them negative, landing on every part of a penny
+            BigDecimal base = BigDecimal.valueOf(random.nextInt(4_000_001) - 2_000_000, 6);
+            BigDecimal perKg = BigDecimal.valueOf(random.nextInt(4_000_001) - 2_000_000, 6);
+            BigDecimal perDay = BigDecimal.valueOf(random.nextInt(400_001) - 200_000, 6);
+            Properties rules = new Properties();
+            rules.setProperty("base", base.toPlainString());
+            rules.setProperty("weight.bands", "0:0.00:" + perKg.toPlainString());
+            rules.setProperty("duration.tiers", "0:0.00:" + perDay.toPlainString());
+            rules.setProperty("minimum", "-1000");
+            Tariff tariff = Tariff.fromProperties(rules);
+            for (int i = 0; i < 20; i++) {
+                float mass = random.nextInt(50_000) / 1000f;
+                int days = random.nextInt(30);
+                assertEquals(exactPence(base, perKg, perDay, mass, days), tariff.quotePence(parcel(mass, days)),
+                    rules + " on " + mass + " kg, " + days + " days");
+            }
+        }
+    }
+
+    @Test
+    void minimumAndCapBoundTheCharge() {
+        Properties rules = new Properties();
+        rules.setProperty("minimum", "15.00");
+        rules.setProperty("cap", "20.00");
+        Tariff tariff = Tariff.fromProperties(rules);
+        assertEquals(1500, tariff.quotePence(parcel(0.5f, 0)));
+        assertEquals(1650, tariff.quotePence(parcel(2.0f, 2)));
+        assertEquals(2000, tariff.quotePence(parcel(10.0f, 10)));
+    }
+}